@@ -0,0 +1,164 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import drawing.Canvas;
+import flockingsim.AbstractSimulatedEntity;
+import flockingsim.Boid;
+import flockingsim.FlockingSimulation;
+import flockingsim.Predator;
+import flockingsim.Rectangle;
+import flockingsim.SimulatedEntity;
+import geometry.CartesianCoordinate;
+
+/**
+ * Allocation regression gate for the tick loop. Each hot path is stepped headlessly,
+ * and the bytes the current thread allocates per step are divided by the number of
+ * entities involved. The check fails (exit code 1) if any measured step goes over
+ * its per-entity budget, which catches new temporary objects sneaking into the
+ * immutable {@code CartesianCoordinate} style code.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar benchmarks.AllocationBudgetCheck
+ * mvn verify
+ * </pre>
+ *
+ * Budgets are in bytes per entity per step for a {@value #BOID_COUNT} boid flock, set 10-20%
+ * above what each path allocates today so a regression of that size fails the build; paths
+ * that still scan every entity allocate more per entity as the flock grows. When raising one,
+ * keep that margin rather than rounding up generously.
+ * They can be overridden with
+ * {@code -Dalloc.budget.<check>=<bytes>}, e.g. {@code -Dalloc.budget.boid_update=4000}.
+ */
+public final class AllocationBudgetCheck {
+    private static final CartesianCoordinate NO_MOUSE = new CartesianCoordinate(-1, -1);
+    private static final int BOID_COUNT = 500;
+    private static final int PREDATOR_COUNT = 20;
+    private static final int WARMUP_STEPS = 300; // Enough for C2 and escape analysis to settle
+    private static final int MEASURED_STEPS = 50;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final List<String> failures = new ArrayList<>();
+
+    private AllocationBudgetCheck() {
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        AllocationBudgetCheck check = new AllocationBudgetCheck();
+        check.runAll();
+        if (!check.failures.isEmpty()) {
+            System.err.println("Allocation budget exceeded: " + String.join(", ", check.failures));
+            System.exit(1);
+        }
+        System.out.println("All allocation budgets met.");
+    }
+
+    private void runAll() {
+        System.out.println(String.format(Locale.ROOT, "%-16s %10s %12s %12s  %s",
+                "check", "entities", "max B/ent", "budget", "result"));
+
+        FlockingSimulation simulation = newSimulation();
+        List<SimulatedEntity> entities = simulation.getEntities();
+        List<Rectangle> obstacles = simulation.getObstacles();
+        List<AbstractSimulatedEntity> boids = ofType(entities, Boid.class);
+        List<AbstractSimulatedEntity> predators = ofType(entities, Predator.class);
+
+        measure("boid_update", boids.size(), 1100, () -> {
+            for (AbstractSimulatedEntity boid : boids) {
+                boid.update(entities, obstacles, NO_MOUSE);
+            }
+        });
+
+        measure("predator_update", predators.size(), 19000, () -> {
+            for (AbstractSimulatedEntity predator : predators) {
+                predator.update(entities, obstacles, NO_MOUSE);
+            }
+        });
+
+        measure("obstacle_checks", boids.size(), 195, () -> {
+            for (AbstractSimulatedEntity boid : boids) {
+                boid.isPositionSafe(boid.getPosition(), obstacles);
+                boid.avoidObstacles(obstacles);
+            }
+        });
+
+        Canvas canvas = new Canvas();
+        FlockingSimulation drawn = newSimulation(canvas);
+        int drawnCount = drawn.getEntities().size();
+        measure("draw_list", drawnCount, 325, () -> {
+            canvas.clear();
+            drawn.draw();
+        });
+
+        measure("full_tick", entities.size(), 1100, () -> simulation.step(NO_MOUSE));
+    }
+
+    /**
+     * Warms up a step, then fails the check if any measured step allocates more than the budget per entity.
+     * A step that runs while the JIT is still swapping in compiled code can allocate what the compiled
+     * code does not, so a window that goes over is measured once more; a real regression goes over in both.
+     */
+    private void measure(String name, int entityCount, long defaultBudget, Runnable step) {
+        long budget = Long.getLong("alloc.budget." + name, defaultBudget);
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            step.run();
+        }
+        double worst = worstStep(entityCount, step);
+        if (worst > budget) {
+            worst = Math.min(worst, worstStep(entityCount, step));
+        }
+        boolean passed = worst <= budget;
+        if (!passed) {
+            this.failures.add(name);
+        }
+        System.out.println(String.format(Locale.ROOT, "%-16s %10d %12.1f %12d  %s",
+                name, entityCount, worst, budget, passed ? "ok" : "FAIL"));
+    }
+
+    /**
+     * @return The most any of {@value #MEASURED_STEPS} steps allocated, in bytes per entity.
+     */
+    private double worstStep(int entityCount, Runnable step) {
+        long threadId = Thread.currentThread().getId();
+        double worst = 0;
+        for (int i = 0; i < MEASURED_STEPS; i++) {
+            long before = this.threadBean.getThreadAllocatedBytes(threadId);
+            step.run();
+            long allocated = this.threadBean.getThreadAllocatedBytes(threadId) - before;
+            worst = Math.max(worst, (double) allocated / entityCount);
+        }
+        return worst;
+    }
+
+    private static FlockingSimulation newSimulation() {
+        return newSimulation(new Canvas());
+    }
+
+    private static FlockingSimulation newSimulation(Canvas canvas) {
+        FlockingSimulation simulation = new FlockingSimulation(canvas, new tools.Utils(SimulationFixture.SEED));
+        simulation.resetAndSpawnBoids(BOID_COUNT);
+        List<SimulatedEntity> predators = new ArrayList<>(PREDATOR_COUNT);
+        for (int i = 0; i < PREDATOR_COUNT; i++) {
+            CartesianCoordinate position = new CartesianCoordinate(40 + i * 35, 560);
+            predators.add(simulation.createPredator(position, new CartesianCoordinate(1, 0)));
+        }
+        simulation.addEntities(predators);
+        return simulation;
+    }
+
+    private static List<AbstractSimulatedEntity> ofType(List<SimulatedEntity> entities, Class<?> type) {
+        List<AbstractSimulatedEntity> matching = new ArrayList<>();
+        for (SimulatedEntity entity : entities) {
+            if (type.isInstance(entity)) {
+                matching.add((AbstractSimulatedEntity) entity);
+            }
+        }
+        return matching;
+    }
+}
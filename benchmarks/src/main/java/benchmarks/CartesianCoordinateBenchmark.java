@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import geometry.CartesianCoordinate;
+
+/**
+ * Vector arithmetic in the style the steering code uses it: every operation
+ * returns a new immutable coordinate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartesianCoordinateBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int entityCount;
+
+    private CartesianCoordinate[] positions;
+    private CartesianCoordinate[] velocities;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SimulationFixture.SEED);
+        this.positions = new CartesianCoordinate[this.entityCount];
+        this.velocities = new CartesianCoordinate[this.entityCount];
+        for (int i = 0; i < this.entityCount; i++) {
+            this.positions[i] = new CartesianCoordinate(random.nextDouble() * 800, random.nextDouble() * 600);
+            this.velocities[i] = new CartesianCoordinate(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
+        }
+    }
+
+    /**
+     * The seek-style chain: subtract, normalize, multiply, subtract, limit.
+     */
+    @Benchmark
+    public void seekChain(Blackhole blackhole) {
+        CartesianCoordinate target = new CartesianCoordinate(400, 300);
+        for (int i = 0; i < this.entityCount; i++) {
+            CartesianCoordinate desired = target.subtract(this.positions[i]).normalize().multiply(10);
+            blackhole.consume(desired.subtract(this.velocities[i]).limit(0.5));
+        }
+    }
+
+    /**
+     * Distance magnitude between consecutive entities, as used by every neighbour test.
+     */
+    @Benchmark
+    public void distanceMagnitude(Blackhole blackhole) {
+        for (int i = 1; i < this.entityCount; i++) {
+            blackhole.consume(this.positions[i].distance(this.positions[i - 1]).magnitude());
+        }
+    }
+
+    /**
+     * Accumulating a sum, as the alignment and cohesion rules do.
+     */
+    @Benchmark
+    public CartesianCoordinate accumulate() {
+        CartesianCoordinate sum = new CartesianCoordinate(0, 0);
+        for (int i = 0; i < this.entityCount; i++) {
+            sum = sum.add(this.velocities[i]);
+        }
+        return sum.divide(this.entityCount);
+    }
+}
@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import drawing.Canvas;
+import flockingsim.FlockingSimulation;
+
+/**
+ * Drawing through {@link Canvas}: building the line list from the entities, and
+ * painting that list into an off-screen image the way Swing would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DrawBenchmark {
+    private static final int LARGE_WORLD_SCALE = 10;
+
+    @Param({"100", "1000", "10000"})
+    public int entityCount;
+
+    private Canvas canvas;
+    private FlockingSimulation simulation;
+    private FlockingSimulation largeWorld;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() {
+        this.canvas = new Canvas();
+        this.simulation = SimulationFixture.simulation(this.canvas, this.entityCount);
+        this.largeWorld = SimulationFixture.largeWorldSimulation(this.canvas, this.entityCount, LARGE_WORLD_SCALE);
+        this.image = new BufferedImage(this.canvas.getWidth(), this.canvas.getHeight(), BufferedImage.TYPE_INT_RGB);
+        this.graphics = this.image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.graphics.dispose();
+    }
+
+    /**
+     * What the render handoff does on the event thread, minus the actual paint.
+     */
+    @Benchmark
+    public void buildDrawList() {
+        this.canvas.clear();
+        this.simulation.draw();
+    }
+
+    /**
+     * The same population spread over a world ten canvases wide and high, so only about
+     * one in a hundred boids is on screen and the rest are culled.
+     */
+    @Benchmark
+    public void buildCulledDrawList() {
+        this.canvas.clear();
+        this.largeWorld.draw();
+    }
+
+    @Benchmark
+    public void buildAndPaint() {
+        this.canvas.clear();
+        this.simulation.draw();
+        this.canvas.paint(this.graphics);
+    }
+}
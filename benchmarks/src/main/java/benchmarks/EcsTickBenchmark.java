@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import drawing.Canvas;
+import ecs.EcsFlock;
+
+/**
+ * The same tick as {@link TickBenchmark}, on the entity-component-system core, at the
+ * same sizes and densities so the two can be compared directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EcsTickBenchmark {
+    @Param({"100", "1000", "5000"})
+    public int entityCount;
+
+    /** Boids per 100x100 pixel area. */
+    @Param({"0.5", "5"})
+    public double density;
+
+    /** Whether systems split their rows across cores. */
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private EcsFlock flock;
+
+    @Setup
+    public void setUp() {
+        Canvas canvas = SimulationFixture.canvasFor(this.entityCount, this.density);
+        this.flock = new EcsFlock(canvas.getWidth(), canvas.getHeight(), new ArrayList<>());
+        this.flock.getWorld().setParallel(this.parallel);
+        this.flock.spawnBoids(this.entityCount, SimulationFixture.SEED);
+    }
+
+    @Benchmark
+    public void step() {
+        this.flock.step();
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import drawing.Canvas;
+import flockingsim.AbstractSimulatedEntity;
+import flockingsim.FlockingSimulation;
+import flockingsim.Rectangle;
+import flockingsim.SimulatedEntity;
+
+/**
+ * {@code AbstractSimulatedEntity.move} and {@code wrapPosition} for every entity,
+ * without any steering in between.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovementBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int entityCount;
+
+    private Canvas canvas;
+    private List<SimulatedEntity> entities;
+    private List<Rectangle> obstacles;
+
+    @Setup
+    public void setUp() {
+        this.canvas = SimulationFixture.canvasFor(this.entityCount, 1);
+        FlockingSimulation simulation = SimulationFixture.simulation(this.canvas, this.entityCount);
+        this.entities = simulation.getEntities();
+        this.obstacles = simulation.getObstacles();
+    }
+
+    @Benchmark
+    public void moveAndWrap() {
+        int width = this.canvas.getWidth();
+        int height = this.canvas.getHeight();
+        for (SimulatedEntity entity : this.entities) {
+            AbstractSimulatedEntity movable = (AbstractSimulatedEntity) entity;
+            movable.move(5, this.obstacles);
+            movable.wrapPosition(width, height);
+        }
+    }
+}
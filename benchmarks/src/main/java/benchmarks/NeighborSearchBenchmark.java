@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import drawing.Canvas;
+import flockingsim.AbstractSimulatedEntity;
+import flockingsim.FlockingSimulation;
+import flockingsim.NeighborMode;
+import flockingsim.SimulatedEntity;
+import flockingsim.SpatialGrid;
+
+/**
+ * The neighbour search phase on its own, over a fixed (non-moving) flock,
+ * with and without the spatial grid and in both neighbour modes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NeighborSearchBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int entityCount;
+
+    /** Boids per 100x100 pixel area. */
+    @Param({"0.5", "5"})
+    public double density;
+
+    @Param({"METRIC", "TOPOLOGICAL"})
+    public NeighborMode mode;
+
+    private List<SimulatedEntity> entities;
+    private SpatialGrid grid;
+    private int width;
+    private int height;
+
+    @Setup
+    public void setUp() {
+        Canvas canvas = SimulationFixture.canvasFor(this.entityCount, this.density);
+        FlockingSimulation simulation = SimulationFixture.simulation(canvas, this.entityCount);
+        simulation.updateNeighborMode(this.mode);
+        simulation.publishProfiles(); // Nothing steps this simulation, so apply the mode now
+        this.entities = simulation.getEntities();
+        this.grid = new SpatialGrid(25);
+        this.width = canvas.getWidth();
+        this.height = canvas.getHeight();
+        this.grid.rebuild(this.entities, this.width, this.height);
+    }
+
+    /**
+     * Every boid scanning every other entity.
+     */
+    @Benchmark
+    public void linearScan() {
+        for (SimulatedEntity entity : this.entities) {
+            ((AbstractSimulatedEntity) entity).findNeighbors(this.entities, null);
+        }
+    }
+
+    /**
+     * Querying the spatial grid for every boid, as a tick does. The grid is kept up to
+     * date as boids move, so a tick does not rebuild it.
+     */
+    @Benchmark
+    public void grid() {
+        for (SimulatedEntity entity : this.entities) {
+            ((AbstractSimulatedEntity) entity).findNeighbors(this.entities, this.grid);
+        }
+    }
+
+    /**
+     * Bucketing every boid from scratch, which only happens when the population changes.
+     */
+    @Benchmark
+    public void gridRebuild() {
+        this.grid.rebuild(this.entities, this.width, this.height);
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import drawing.Canvas;
+import flockingsim.AbstractSimulatedEntity;
+import flockingsim.FlockingSimulation;
+import flockingsim.Rectangle;
+import flockingsim.SimulatedEntity;
+import geometry.CartesianCoordinate;
+
+/**
+ * {@code AbstractSimulatedEntity.isPositionSafe} for every entity against a
+ * growing number of randomly placed obstacles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObstacleCheckBenchmark {
+
+    @Param({"1000", "10000"})
+    public int entityCount;
+
+    @Param({"3", "30", "300"})
+    public int obstacleCount;
+
+    private List<SimulatedEntity> entities;
+    private List<Rectangle> obstacles;
+
+    @Setup
+    public void setUp() {
+        Canvas canvas = SimulationFixture.canvasFor(this.entityCount, 1);
+        FlockingSimulation simulation = SimulationFixture.simulation(canvas, this.entityCount);
+        this.entities = simulation.getEntities();
+
+        Random random = new Random(SimulationFixture.SEED);
+        this.obstacles = new ArrayList<>(this.obstacleCount);
+        for (int i = 0; i < this.obstacleCount; i++) {
+            CartesianCoordinate topLeft = new CartesianCoordinate(
+                    random.nextDouble() * canvas.getWidth(), random.nextDouble() * canvas.getHeight());
+            this.obstacles.add(new Rectangle(topLeft, 20 + random.nextInt(100), 20 + random.nextInt(100), canvas));
+        }
+    }
+
+    @Benchmark
+    public void isPositionSafe(Blackhole blackhole) {
+        for (SimulatedEntity entity : this.entities) {
+            AbstractSimulatedEntity checked = (AbstractSimulatedEntity) entity;
+            blackhole.consume(checked.isPositionSafe(checked.getPosition(), this.obstacles));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package benchmarks;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import drawing.Canvas;
+import flockingsim.FlockingSimulation;
+import geometry.CartesianCoordinate;
+import tools.Utils;
+
+/**
+ * Headless throughput harness. Runs each {@link ScalingScenario} at each population
+ * size (split across the scenario's lanes, which are stepped one after another) for a
+ * fixed number of ticks after a warm-up and prints one CSV row per run:
+ * ticks per second, nanoseconds per entity-tick and retained heap per entity.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar benchmarks.ScalingHarness [options]
+ *   --sizes 1000,10000,100000,1000000
+ *   --scenarios uniform,dense_ball,obstacle_streams,predator_swarm
+ *   --warmup 20 --ticks 100
+ *   --budget-seconds 120   skip runs whose estimated time exceeds this
+ *   --out scaling.csv      write to a file instead of stdout
+ * </pre>
+ *
+ * A run that would take longer than the budget is reported with status
+ * {@code skipped} (with its probe tick time where one was taken), and larger
+ * sizes of the same scenario are skipped too, so the sweep always finishes.
+ */
+public final class ScalingHarness {
+    private static final CartesianCoordinate NO_MOUSE = new CartesianCoordinate(-1, -1);
+    private static final String CSV_HEADER =
+            "scenario,entities,warmup_ticks,ticks,status,ticks_per_second,ns_per_entity_tick,bytes_per_entity,java_version,cpus";
+
+    private int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+    private List<ScalingScenario> scenarios = List.of(ScalingScenario.values());
+    private int warmupTicks = 20;
+    private int measuredTicks = 100;
+    private double budgetSeconds = 120;
+    private String outputPath;
+
+    // Tick time of the previous (smaller) run of the current scenario, used to skip hopeless runs early
+    private int lastSize;
+    private double lastTickSeconds;
+
+    private ScalingHarness() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        ScalingHarness harness = new ScalingHarness();
+        harness.parseArguments(args);
+        harness.run();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--sizes":
+                    String[] parts = requireValue(args[i], value).split(",");
+                    this.sizes = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        this.sizes[j] = Integer.parseInt(parts[j].trim());
+                    }
+                    break;
+                case "--scenarios":
+                    List<ScalingScenario> selected = new ArrayList<>();
+                    for (String label : requireValue(args[i], value).split(",")) {
+                        selected.add(ScalingScenario.fromLabel(label.trim()));
+                    }
+                    this.scenarios = selected;
+                    break;
+                case "--warmup":
+                    this.warmupTicks = Integer.parseInt(requireValue(args[i], value));
+                    break;
+                case "--ticks":
+                    this.measuredTicks = Integer.parseInt(requireValue(args[i], value));
+                    break;
+                case "--budget-seconds":
+                    this.budgetSeconds = Double.parseDouble(requireValue(args[i], value));
+                    break;
+                case "--out":
+                    this.outputPath = requireValue(args[i], value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            i++;
+        }
+    }
+
+    private static String requireValue(String option, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return value;
+    }
+
+    private void run() throws IOException {
+        PrintWriter out = this.outputPath == null
+                ? new PrintWriter(System.out, true)
+                : new PrintWriter(new FileWriter(this.outputPath), true);
+        try {
+            out.println(CSV_HEADER);
+            for (ScalingScenario scenario : this.scenarios) {
+                this.lastSize = 0;
+                this.lastTickSeconds = 0;
+                for (int size : this.sizes) {
+                    out.println(runScenario(scenario, size));
+                }
+            }
+        } finally {
+            if (this.outputPath != null) {
+                out.close();
+            }
+        }
+    }
+
+    private String runScenario(ScalingScenario scenario, int size) {
+        int totalTicks = this.warmupTicks + this.measuredTicks;
+        // Even perfectly linear scaling from the previous size would not fit, so do not even probe
+        double linearEstimate = this.lastSize == 0 ? 0 : this.lastTickSeconds * size / this.lastSize;
+        if (this.lastSize == -1 || linearEstimate * totalTicks > this.budgetSeconds) {
+            this.lastSize = -1;
+            return row(scenario, size, "skipped", Double.NaN, Double.NaN, Double.NaN);
+        }
+
+        int lanes = scenario.laneCount(size);
+        FlockingSimulation[] simulations = new FlockingSimulation[lanes];
+        Random random = new Random(SimulationFixture.SEED);
+        for (int lane = 0; lane < lanes; lane++) {
+            int laneSize = size / lanes + (lane < size % lanes ? 1 : 0);
+            Canvas canvas = scenario.createCanvas(laneSize);
+            simulations[lane] = new FlockingSimulation(canvas, new Utils(SimulationFixture.SEED));
+            scenario.populate(simulations[lane], canvas, laneSize, random);
+        }
+
+        String status = "ok";
+        double ticksPerSecond;
+        double nsPerEntityTick;
+        // One probe tick decides whether the full run fits in the budget
+        long probeStart = System.nanoTime();
+        stepAll(simulations);
+        double probeSeconds = (System.nanoTime() - probeStart) / 1e9;
+        if (probeSeconds * totalTicks > this.budgetSeconds) {
+            status = "skipped";
+            ticksPerSecond = 1.0 / probeSeconds;
+            nsPerEntityTick = probeSeconds * 1e9 / size;
+            this.lastSize = -1; // Larger sizes of this scenario will not fit either
+        } else {
+            for (int i = 0; i < this.warmupTicks; i++) {
+                stepAll(simulations);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < this.measuredTicks; i++) {
+                stepAll(simulations);
+            }
+            long elapsed = System.nanoTime() - start;
+            ticksPerSecond = this.measuredTicks * 1e9 / elapsed;
+            nsPerEntityTick = (double) elapsed / this.measuredTicks / size;
+            this.lastSize = size;
+            this.lastTickSeconds = (double) elapsed / this.measuredTicks / 1e9;
+        }
+
+        // Retained memory is the difference between the heap with and without this run's
+        // simulation. Measuring before and after populating is unreliable because the
+        // previous run's simulation may only be collected in between.
+        long withSimulation = usedHeapAfterGc();
+        Reference.reachabilityFence(simulations);
+        simulations = null;
+        double bytesPerEntity = (double) (withSimulation - usedHeapAfterGc()) / size;
+
+        return row(scenario, size, status, ticksPerSecond, nsPerEntityTick, bytesPerEntity);
+    }
+
+    private static void stepAll(FlockingSimulation[] simulations) {
+        for (FlockingSimulation simulation : simulations) {
+            simulation.step(NO_MOUSE);
+        }
+    }
+
+    private String row(ScalingScenario scenario, int size, String status,
+                       double ticksPerSecond, double nsPerEntityTick, double bytesPerEntity) {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%s,%.3f,%.1f,%.1f,%s,%d",
+                scenario.getLabel(), size, this.warmupTicks, this.measuredTicks, status,
+                ticksPerSecond, nsPerEntityTick, bytesPerEntity,
+                System.getProperty("java.version"), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Collects until the used heap stops shrinking.
+     */
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,170 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import drawing.Canvas;
+import flockingsim.FlockingSimulation;
+import flockingsim.SimulatedEntity;
+import geometry.CartesianCoordinate;
+
+/**
+ * The standard populations used by {@link ScalingHarness}. Each scenario decides
+ * how big the world is for a given entity count and where everything starts,
+ * always from the same seed so runs are comparable across machines and releases.
+ */
+enum ScalingScenario {
+
+    /** Boids spread evenly over a world that grows with the population. */
+    UNIFORM("uniform") {
+        @Override
+        Canvas createCanvas(int entityCount) {
+            return SimulationFixture.canvasFor(entityCount, UNIFORM_DENSITY);
+        }
+
+        @Override
+        void populate(FlockingSimulation simulation, Canvas canvas, int entityCount, Random random) {
+            List<SimulatedEntity> boids = new ArrayList<>(entityCount);
+            for (int i = 0; i < entityCount; i++) {
+                boids.add(simulation.createBoid(randomPosition(canvas, random), randomVelocity(random)));
+            }
+            simulation.addEntities(boids);
+        }
+    },
+
+    /** Every boid packed into one disc in the middle of the world, the worst case for neighbour counts. */
+    DENSE_BALL("dense_ball") {
+        @Override
+        Canvas createCanvas(int entityCount) {
+            return SimulationFixture.canvasFor(entityCount, UNIFORM_DENSITY);
+        }
+
+        @Override
+        void populate(FlockingSimulation simulation, Canvas canvas, int entityCount, Random random) {
+            double radius = Math.sqrt(entityCount) * BALL_SPACING;
+            CartesianCoordinate centre = new CartesianCoordinate(canvas.getWidth() / 2.0, canvas.getHeight() / 2.0);
+            List<SimulatedEntity> boids = new ArrayList<>(entityCount);
+            for (int i = 0; i < entityCount; i++) {
+                // sqrt of a uniform value gives an even spread over the disc's area
+                double r = radius * Math.sqrt(random.nextDouble());
+                double angle = random.nextDouble() * 2 * Math.PI;
+                CartesianCoordinate offset = new CartesianCoordinate(r * Math.cos(angle), r * Math.sin(angle));
+                boids.add(simulation.createBoid(centre.add(offset), randomVelocity(random)));
+            }
+            simulation.addEntities(boids);
+        }
+    },
+
+    /**
+     * Boids flowing left to right in a band of the brief's world that passes through its three
+     * obstacles. Larger populations are split into lanes of {@link #STREAM_LANE_BOIDS}, each a
+     * separate simulation of the brief's world and obstacles, so the density is the same and
+     * every boid crosses the obstacles as often at 1M as at 1k, and obstacle checks stay the
+     * same share of the work at every size.
+     */
+    OBSTACLE_STREAMS("obstacle_streams") {
+        @Override
+        Canvas createCanvas(int entityCount) {
+            return new Canvas(BRIEF_WORLD_WIDTH, BRIEF_WORLD_HEIGHT);
+        }
+
+        @Override
+        void populate(FlockingSimulation simulation, Canvas canvas, int entityCount, Random random) {
+            List<SimulatedEntity> boids = new ArrayList<>(entityCount);
+            for (int i = 0; i < entityCount; i++) {
+                CartesianCoordinate position = new CartesianCoordinate(
+                        random.nextDouble() * canvas.getWidth(),
+                        STREAM_BAND_TOP + random.nextDouble() * STREAM_BAND_HEIGHT);
+                if (!simulation.isPositionSafeForSpawning(position, STREAM_SPAWN_CLEARANCE)) {
+                    i--; // Retry; the obstacles only cover a small part of the band
+                    continue;
+                }
+                boids.add(simulation.createBoid(position, new CartesianCoordinate(STREAM_SPEED, 0)));
+            }
+            simulation.addEntities(boids);
+        }
+
+        @Override
+        int laneCount(int entityCount) {
+            return Math.max(1, (entityCount + STREAM_LANE_BOIDS - 1) / STREAM_LANE_BOIDS);
+        }
+    },
+
+    /** A uniform flock with one predator for every {@link #BOIDS_PER_PREDATOR} boids. */
+    PREDATOR_SWARM("predator_swarm") {
+        @Override
+        Canvas createCanvas(int entityCount) {
+            return SimulationFixture.canvasFor(entityCount, UNIFORM_DENSITY);
+        }
+
+        @Override
+        void populate(FlockingSimulation simulation, Canvas canvas, int entityCount, Random random) {
+            int predatorCount = Math.max(1, entityCount / BOIDS_PER_PREDATOR);
+            List<SimulatedEntity> entities = new ArrayList<>(entityCount);
+            for (int i = 0; i < entityCount - predatorCount; i++) {
+                entities.add(simulation.createBoid(randomPosition(canvas, random), randomVelocity(random)));
+            }
+            for (int i = 0; i < predatorCount; i++) {
+                entities.add(simulation.createPredator(randomPosition(canvas, random), randomVelocity(random)));
+            }
+            simulation.addEntities(entities);
+        }
+    };
+
+    private static final double UNIFORM_DENSITY = 1.0; // Boids per 100x100 pixels
+    private static final double BALL_SPACING = 4.0;
+    private static final int BRIEF_WORLD_WIDTH = 800; // The default canvas, which the brief's obstacles are laid out in
+    private static final int BRIEF_WORLD_HEIGHT = 600;
+    private static final double STREAM_BAND_TOP = 80;
+    private static final double STREAM_BAND_HEIGHT = 300;
+    private static final double STREAM_SPEED = 6;
+    private static final int STREAM_LANE_BOIDS = 1000;
+    private static final double STREAM_SPAWN_CLEARANCE = 15;
+    private static final int BOIDS_PER_PREDATOR = 100;
+    private static final double MAX_SPEED = 10;
+
+    private final String label;
+
+    ScalingScenario(String label) {
+        this.label = label;
+    }
+
+    String getLabel() {
+        return this.label;
+    }
+
+    /**
+     * @return How many separate simulations the population is split evenly across, each with
+     *         its own world from {@link #createCanvas}.
+     */
+    int laneCount(int entityCount) {
+        return 1;
+    }
+
+    /**
+     * @param entityCount The population of one lane.
+     */
+    abstract Canvas createCanvas(int entityCount);
+
+    abstract void populate(FlockingSimulation simulation, Canvas canvas, int entityCount, Random random);
+
+    static ScalingScenario fromLabel(String label) {
+        for (ScalingScenario scenario : values()) {
+            if (scenario.label.equals(label)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario: " + label);
+    }
+
+    private static CartesianCoordinate randomPosition(Canvas canvas, Random random) {
+        return new CartesianCoordinate(random.nextDouble() * canvas.getWidth(), random.nextDouble() * canvas.getHeight());
+    }
+
+    private static CartesianCoordinate randomVelocity(Random random) {
+        double angle = random.nextDouble() * 2 * Math.PI;
+        double speed = random.nextDouble() * MAX_SPEED;
+        return new CartesianCoordinate(speed * Math.cos(angle), speed * Math.sin(angle));
+    }
+}
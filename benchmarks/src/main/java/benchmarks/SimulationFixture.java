@@ -0,0 +1,53 @@
+package benchmarks;
+
+import drawing.Canvas;
+import flockingsim.FlockingSimulation;
+import geometry.CartesianCoordinate;
+import tools.Utils;
+
+/**
+ * Builds headless simulations for the benchmarks. The canvas is sized from the
+ * requested entity count and density so that "dense" really means more
+ * neighbours per boid rather than just more boids.
+ */
+final class SimulationFixture {
+    static final long SEED = 42L;
+    static final int MIN_CANVAS_SIZE = 800;
+
+    static {
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    private SimulationFixture() {
+    }
+
+    /**
+     * @param entityCount Number of boids to spawn.
+     * @param boidsPer10kPixels Density, in boids per 100x100 pixel area.
+     * @return A square canvas big enough for the requested density.
+     */
+    static Canvas canvasFor(int entityCount, double boidsPer10kPixels) {
+        int side = (int) Math.ceil(Math.sqrt(entityCount / boidsPer10kPixels) * 100);
+        side = Math.max(MIN_CANVAS_SIZE, side);
+        return new Canvas(side, side);
+    }
+
+    static FlockingSimulation simulation(Canvas canvas, int entityCount) {
+        FlockingSimulation simulation = new FlockingSimulation(canvas, new Utils(SEED));
+        simulation.resetAndSpawnBoids(entityCount);
+        return simulation;
+    }
+
+    /**
+     * @param scale How many canvas widths (and heights) the world spans.
+     * @return A simulation whose boids are spread over a world larger than the canvas, stepped
+     *         once so the spatial grid that drawing culls with is built.
+     */
+    static FlockingSimulation largeWorldSimulation(Canvas canvas, int entityCount, int scale) {
+        FlockingSimulation simulation = new FlockingSimulation(canvas, new Utils(SEED));
+        simulation.setWorldSize(canvas.getWidth() * scale, canvas.getHeight() * scale);
+        simulation.resetAndSpawnBoids(entityCount);
+        simulation.step(new CartesianCoordinate(-1, -1));
+        return simulation;
+    }
+}
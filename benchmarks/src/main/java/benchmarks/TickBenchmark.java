@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import flockingsim.FlockingSimulation;
+import geometry.CartesianCoordinate;
+
+/**
+ * A full simulation tick, i.e. {@code Boid.update} for every boid, at a sparse
+ * and a dense packing of the same number of boids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TickBenchmark {
+    private static final CartesianCoordinate NO_MOUSE = new CartesianCoordinate(-1, -1);
+
+    @Param({"100", "1000", "5000"})
+    public int entityCount;
+
+    /** Boids per 100x100 pixel area. */
+    @Param({"0.5", "5"})
+    public double density;
+
+    private FlockingSimulation simulation;
+
+    @Setup
+    public void setUp() {
+        this.simulation = SimulationFixture.simulation(SimulationFixture.canvasFor(this.entityCount, this.density), this.entityCount);
+    }
+
+    @Benchmark
+    public void step() {
+        this.simulation.step(NO_MOUSE);
+    }
+}
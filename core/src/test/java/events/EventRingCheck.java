@@ -0,0 +1,103 @@
+package events;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Checks the event ring the way the simulation uses it at its worst: two threads publish
+ * into a small ring at once while the only consumer keeps stalling, so it is overrun again
+ * and again. Every event it sees must be whole and in order for its producer, and the
+ * events seen plus those reported dropped must add up to the events published.
+ */
+public final class EventRingCheck {
+    private static final int CAPACITY = 64;
+    private static final long MAIN_EVENTS = 2_000_000;
+    private static final long SIDE_EVENTS = 200_000;
+    private static final int STALL_EVERY = 500; // Events between the consumer's stalls
+    private static final long STALL_NANOS = 200_000;
+    private static final long DRAIN_TIMEOUT_NANOS = 10_000_000_000L;
+
+    private EventRingCheck() {
+    }
+
+    /**
+     * @return A one-line summary.
+     * @throws IllegalStateException If an invariant does not hold.
+     */
+    public static String run() throws InterruptedException {
+        EventRing ring = new EventRing(CAPACITY);
+        CheckingConsumer consumer = new CheckingConsumer();
+        EventProcessor processor = ring.newProcessor(consumer);
+        processor.start("event-ring-check");
+
+        // The simulation thread publishes ticks; the side thread stands in for spawns from the GUI
+        Thread side = new Thread(() -> {
+            for (long i = 0; i < SIDE_EVENTS; i++) {
+                ring.publish(EventType.SPAWN, i, (int) i, 0, i, i, -i, "side");
+            }
+        }, "event-ring-side");
+        side.start();
+        for (long i = 0; i < MAIN_EVENTS; i++) {
+            ring.publish(EventType.TICK, i, (int) i, 0, i, i, -i, null);
+        }
+        side.join();
+
+        long published = ring.getCursor();
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (consumer.seen + consumer.dropped < published && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        processor.stop();
+
+        if (consumer.failure != null) {
+            throw new IllegalStateException(consumer.failure);
+        }
+        if (published != MAIN_EVENTS + SIDE_EVENTS) {
+            throw new IllegalStateException("cursor " + published + " after publishing " + (MAIN_EVENTS + SIDE_EVENTS));
+        }
+        if (consumer.seen + consumer.dropped != published) {
+            throw new IllegalStateException("seen " + consumer.seen + " + dropped " + consumer.dropped + " != published " + published);
+        }
+        if (consumer.dropped != processor.getDroppedCount()) {
+            throw new IllegalStateException("onDropped reported " + consumer.dropped + " but the processor counted " + processor.getDroppedCount());
+        }
+        if (consumer.dropped == 0) {
+            throw new IllegalStateException("the stalled consumer was never overrun, so dropping was not exercised");
+        }
+        return "published=" + published + " seen=" + consumer.seen + " dropped=" + consumer.dropped;
+    }
+
+    private static final class CheckingConsumer implements EventConsumer {
+        // Only written by the processor's thread
+        volatile long seen;
+        volatile long dropped;
+        volatile String failure;
+        private long lastMain = -1;
+        private long lastSide = -1;
+
+        @Override
+        public void onEvent(SimulationEvent event, boolean endOfBatch) {
+            long tick = event.getTick();
+            boolean whole = event.getValue() == tick && event.getCount() == (int) tick
+                && event.getX() == tick && event.getY() == -tick;
+            if (event.getType() == EventType.TICK) {
+                whole &= event.getLabel() == null && tick > this.lastMain;
+                this.lastMain = tick;
+            } else {
+                whole &= event.getType() == EventType.SPAWN && "side".equals(event.getLabel()) && tick > this.lastSide;
+                this.lastSide = tick;
+            }
+            if (!whole && this.failure == null) {
+                this.failure = "torn or out-of-order " + event.getType() + " event at tick " + tick;
+            }
+            this.seen++;
+            if (this.seen % STALL_EVERY == 0) {
+                LockSupport.parkNanos(STALL_NANOS);
+            }
+        }
+
+        @Override
+        public void onDropped(long count) {
+            this.dropped += count;
+        }
+    }
+}
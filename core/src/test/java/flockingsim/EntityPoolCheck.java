@@ -0,0 +1,129 @@
+package flockingsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import drawing.Canvas;
+import geometry.CartesianCoordinate;
+import tools.Utils;
+
+/**
+ * Checks that an entity retired while a tick is running is never handed out again until the
+ * step epoch has moved past that tick, first on an {@link EntityPool} directly and then through
+ * a simulation whose steering behavior removes a boid and spawns one in the middle of a step.
+ * Boids that level of detail lets keep last tick's neighbors must not keep removed ones.
+ */
+public final class EntityPoolCheck {
+    private static final CartesianCoordinate ORIGIN = new CartesianCoordinate(0, 0);
+
+    private EntityPoolCheck() {
+    }
+
+    /**
+     * @return A one-line summary.
+     * @throws IllegalStateException If an invariant does not hold.
+     */
+    public static String run() {
+        EntityPool pool = new EntityPool();
+        Boid first = newBoid();
+        pool.retire(Collections.singletonList(first), 3);
+        expect(pool.takeBoid(3) == null, "a boid retired during tick 3 was handed out during tick 3");
+        expect(pool.takeBoid(4) == first, "a boid retired during tick 3 was not handed out after it");
+
+        pool.retire(Collections.singletonList(first), 4);
+        expect(pool.takeBoid(4) == first, "a boid retired between ticks was not available at once");
+
+        Boid second = newBoid();
+        pool.retire(Collections.singletonList(first), 5);
+        pool.retire(Collections.singletonList(second), 7);
+        expect(pool.takeBoid(7) == null, "a boid retired during tick 7 was handed out during tick 7");
+        Boid[] taken = new Boid[3];
+        int count = pool.takeBoids(taken, taken.length, 8);
+        expect(count == 2 && Arrays.asList(taken).containsAll(Arrays.asList(first, second)),
+            "boids retired during ticks 5 and 7 were not both available after tick 7");
+
+        Predator predator = new Predator(null, ORIGIN, ORIGIN, 2, 0.03, 50);
+        pool.retire(Collections.singletonList(predator), 9);
+        expect(pool.takePredator(9) == null, "a predator retired during tick 9 was handed out during tick 9");
+        expect(pool.takePredator(10) == predator, "a predator retired during tick 9 was not handed out after it");
+
+        // The same through a simulation, with the removal and the spawn inside step()
+        FlockingSimulation simulation = new FlockingSimulation(new Canvas(), new Utils(42L));
+        simulation.resetAndSpawnBoids(50);
+        AtomicBoolean fired = new AtomicBoolean();
+        AtomicReference<Boid> victim = new AtomicReference<>();
+        AtomicReference<Boid> spawned = new AtomicReference<>();
+        simulation.addSteeringBehavior((boid, context) -> {
+            if (fired.compareAndSet(false, true)) {
+                Boid removed = null;
+                for (SimulatedEntity entity : simulation.getEntities()) {
+                    if (entity instanceof Boid && entity != boid) {
+                        removed = (Boid) entity;
+                        break;
+                    }
+                }
+                victim.set(removed);
+                simulation.removeEntities(Collections.singletonList(removed));
+                spawned.set(simulation.createBoid(ORIGIN, ORIGIN));
+            }
+            return ORIGIN;
+        }, 1.0);
+        simulation.step(null);
+        expect(victim.get() != null, "the steering behavior never ran during the step");
+        expect(spawned.get() != victim.get(), "a boid removed during a step was respawned during the same step");
+        expect(!simulation.getEntities().contains(victim.get()), "the removed boid is still in the simulation");
+        expect(simulation.createBoid(ORIGIN, ORIGIN) == victim.get(), "the boid removed during the step was not reused after it");
+
+        // Level of detail lets boids keep last tick's neighbors, which must not outlive a removal
+        FlockingSimulation scheduled = new FlockingSimulation(new Canvas(), new Utils(42L));
+        scheduled.resetAndSpawnBoids(300);
+        scheduled.setLevelOfDetailEnabled(true);
+        scheduled.setLevelOfDetailViewport(-2000, -2000, -1000, -1000); // Nothing in view, so searches are spread over ticks
+        for (int i = 0; i < 10; i++) {
+            scheduled.step(null);
+        }
+        List<SimulatedEntity> gone = new ArrayList<>();
+        List<Boid> kept = new ArrayList<>();
+        for (SimulatedEntity entity : scheduled.getEntities()) {
+            if (entity instanceof Boid && kept.size() * 15 < gone.size()) {
+                kept.add((Boid) entity);
+            } else {
+                gone.add(entity);
+            }
+        }
+        scheduled.removeEntities(gone);
+        List<CartesianCoordinate> searchedFrom = new ArrayList<>();
+        for (Boid boid : kept) {
+            searchedFrom.add(boid.getPosition());
+        }
+        scheduled.step(null);
+        for (int i = 0; i < kept.size(); i++) {
+            int expected = 0;
+            double radius = kept.get(i).perceptionRadius;
+            for (int j = 0; j < kept.size(); j++) {
+                double dx = searchedFrom.get(j).getX() - searchedFrom.get(i).getX();
+                double dy = searchedFrom.get(j).getY() - searchedFrom.get(i).getY();
+                if (j != i && dx * dx + dy * dy < radius * radius) {
+                    expected++;
+                }
+            }
+            expect(kept.get(i).getNeighborCount() == expected, "a boid still had " + kept.get(i).getNeighborCount()
+                + " neighbors after a removal left it " + expected);
+        }
+        return "direct and in-step retirements held back until the epoch advanced, no stale neighbors";
+    }
+
+    private static Boid newBoid() {
+        return new Boid(null, ORIGIN, ORIGIN, 2, 0.03, 50);
+    }
+
+    private static void expect(boolean condition, String failure) {
+        if (!condition) {
+            throw new IllegalStateException(failure);
+        }
+    }
+}
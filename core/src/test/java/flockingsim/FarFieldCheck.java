@@ -0,0 +1,120 @@
+package flockingsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import geometry.CartesianCoordinate;
+
+/**
+ * Checks the far-field quadtree against a brute-force sum over every boid. With an opening
+ * angle of 0 it must be exact for any flock. With the large opening angles Barnes-Hut is usually
+ * run with, a lone boid out of range of a flock must still see nothing: the node it is in is
+ * never approximated, so it is counted and taken back out like everywhere else. A boid added
+ * after the tree was built must flock as if there were no tree.
+ */
+public final class FarFieldCheck {
+    private static final double RADIUS = 300;
+    private static final double[] LARGE_OPENING_ANGLES = {0.8, 1.0, 1.5};
+    private static final double TOLERANCE = 1e-6;
+    private static final long SEED = 5L;
+
+    private FarFieldCheck() {
+    }
+
+    /**
+     * @return A one-line summary.
+     * @throws IllegalStateException If an invariant does not hold.
+     */
+    public static String run() {
+        Random random = new Random(SEED);
+        FlockQuadtree tree = new FlockQuadtree();
+        int queries = 0;
+
+        // Lone boids around a flock, all out of each other's range, must see nothing at any opening angle
+        List<SimulatedEntity> flock = new ArrayList<>();
+        List<SimulatedEntity> loners = new ArrayList<>();
+        loners.add(boid(10, 10, 1, 0));
+        for (int i = 0; i < 100; i++) {
+            flock.add(boid(950 + random.nextGaussian() * 10, 950 + random.nextGaussian() * 10, random.nextGaussian(), random.nextGaussian()));
+        }
+        for (int i = 0; i < 8; i++) {
+            double angle = i * Math.PI / 4;
+            loners.add(boid(950 + Math.cos(angle) * 2.5 * RADIUS, 950 + Math.sin(angle) * 2.5 * RADIUS, random.nextGaussian(), random.nextGaussian()));
+        }
+        flock.addAll(loners);
+        for (double openingAngle : LARGE_OPENING_ANGLES) {
+            queries += compare(tree, flock, loners, openingAngle);
+        }
+
+        // Any flock is exact with an opening angle of 0
+        List<SimulatedEntity> uniform = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            uniform.add(boid(random.nextDouble() * 2000, random.nextDouble() * 2000, random.nextGaussian(), random.nextGaussian()));
+        }
+        queries += compare(tree, uniform, uniform, 0);
+
+        // A boid added since the build is not in the tree, so it must flock with its neighbors as without one
+        tree.build(uniform, RADIUS, 1.0);
+        Boid newcomer = boid(1000, 1000, 1, 0.5);
+        List<SimulatedEntity> withNewcomer = new ArrayList<>(uniform);
+        withNewcomer.add(newcomer);
+        newcomer.findNeighbors(withNewcomer, null);
+        if (tree.aggregate(newcomer)) {
+            throw new IllegalStateException("aggregate succeeded for a boid that was not in the tree");
+        }
+        CartesianCoordinate withTree = newcomer.flockingForce(1.5, 1.0, 1.0, tree);
+        CartesianCoordinate withoutTree = newcomer.flockingForce(1.5, 1.0, 1.0, null);
+        if (withTree.getX() != withoutTree.getX() || withTree.getY() != withoutTree.getY()) {
+            throw new IllegalStateException("a boid missing from the tree flocked with " + withTree + " instead of " + withoutTree);
+        }
+        return "queries=" + queries + " opening angles up to " + LARGE_OPENING_ANGLES[LARGE_OPENING_ANGLES.length - 1];
+    }
+
+    /**
+     * Builds the tree over a flock and compares some of its boids' queries with a brute-force sum.
+     * @return How many queries were compared.
+     */
+    private static int compare(FlockQuadtree tree, List<SimulatedEntity> flock, List<SimulatedEntity> queried, double openingAngle) {
+        tree.build(flock, RADIUS, openingAngle);
+        for (SimulatedEntity entity : queried) {
+            Boid boid = (Boid) entity;
+            if (!tree.aggregate(boid)) {
+                throw new IllegalStateException("aggregate failed for a boid the tree was built over");
+            }
+            int count = 0;
+            double sumX = 0;
+            double sumY = 0;
+            double sumVelocityX = 0;
+            double sumVelocityY = 0;
+            double x = boid.getPosition().getX();
+            double y = boid.getPosition().getY();
+            for (SimulatedEntity other : flock) {
+                double dx = other.getPosition().getX() - x;
+                double dy = other.getPosition().getY() - y;
+                if (other != boid && dx * dx + dy * dy < RADIUS * RADIUS) {
+                    count++;
+                    sumX += other.getPosition().getX();
+                    sumY += other.getPosition().getY();
+                    sumVelocityX += other.getVelocity().getX();
+                    sumVelocityY += other.getVelocity().getY();
+                }
+            }
+            if (tree.getCount() != count || !close(tree.getSumX(), sumX) || !close(tree.getSumY(), sumY)
+                || !close(tree.getSumVelocityX(), sumVelocityX) || !close(tree.getSumVelocityY(), sumVelocityY)) {
+                throw new IllegalStateException("opening angle " + openingAngle + ": boid at " + boid.getPosition()
+                    + " got count " + tree.getCount() + ", sum x " + tree.getSumX() + ", sum vx " + tree.getSumVelocityX()
+                    + " where brute force gives " + count + ", " + sumX + ", " + sumVelocityX);
+            }
+        }
+        return queried.size();
+    }
+
+    private static boolean close(double actual, double expected) {
+        return Math.abs(actual - expected) <= TOLERANCE * Math.max(1, Math.abs(expected));
+    }
+
+    private static Boid boid(double x, double y, double velocityX, double velocityY) {
+        return new Boid(null, new CartesianCoordinate(x, y), new CartesianCoordinate(velocityX, velocityY), 2, 0.03, 50);
+    }
+}
@@ -0,0 +1,60 @@
+package flockingsim;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import events.EventRingCheck;
+import streaming.FrameRoundTripCheck;
+
+/**
+ * Runs the concurrency and data-structure invariant checks, each a plain program that throws
+ * if its invariant is broken, and fails (exit code 1) if any of them does. They run in the
+ * verify phase of the core module:
+ *
+ * <pre>
+ * mvn verify
+ * </pre>
+ */
+public final class InvariantChecks {
+
+    private InvariantChecks() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Map<String, Callable<String>> checks = new LinkedHashMap<>();
+        checks.put("event_ring", EventRingCheck::run);
+        checks.put("state_export", SharedStateExportCheck::run);
+        checks.put("frame_roundtrip", FrameRoundTripCheck::run);
+        checks.put("spatial_grid", SpatialGridCheck::run);
+        checks.put("entity_pool", EntityPoolCheck::run);
+        checks.put("far_field", FarFieldCheck::run);
+
+        System.out.println(String.format(Locale.ROOT, "%-16s %10s  %-6s %s", "check", "ms", "result", "detail"));
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Callable<String>> check : checks.entrySet()) {
+            long start = System.nanoTime();
+            String result;
+            String detail;
+            try {
+                detail = check.getValue().call();
+                result = "ok";
+            } catch (Exception e) {
+                detail = e.toString();
+                result = "FAIL";
+                failures.add(check.getKey());
+            }
+            System.out.println(String.format(Locale.ROOT, "%-16s %10d  %-6s %s",
+                check.getKey(), (System.nanoTime() - start) / 1_000_000, result, detail));
+        }
+        if (!failures.isEmpty()) {
+            System.err.println("Invariant checks failed: " + String.join(", ", failures));
+            System.exit(1);
+        }
+        System.out.println("All invariant checks passed.");
+    }
+}
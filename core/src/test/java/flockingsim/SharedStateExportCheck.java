@@ -0,0 +1,162 @@
+package flockingsim;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import geometry.CartesianCoordinate;
+
+/**
+ * Checks that a reader following the seqlock protocol documented on {@link SharedStateExport}
+ * never keeps a torn snapshot. Every entity is put at (t, t) moving at (t, -t) before tick t is
+ * published, so a snapshot is whole exactly when all its records, and the tick number, agree.
+ */
+public final class SharedStateExportCheck {
+    private static final int ENTITY_COUNT = 4096;
+    private static final int CONCURRENT_TICKS = 20_000;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private SharedStateExportCheck() {
+    }
+
+    /**
+     * @return A one-line summary.
+     * @throws IllegalStateException If an invariant does not hold.
+     */
+    public static String run() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("flock-export-check", ".bin");
+        SharedStateExport export = new SharedStateExport(file, ENTITY_COUNT);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                SharedStateExport.HEADER_BYTES + (long) SharedStateExport.RECORD_BYTES * ENTITY_COUNT);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            List<SimulatedEntity> entities = new ArrayList<>(ENTITY_COUNT);
+            for (int i = 0; i < ENTITY_COUNT; i++) {
+                entities.add(new Boid(null, new CartesianCoordinate(0, 0), new CartesianCoordinate(0, 0), 2, 0.03, 50));
+            }
+            Snapshot snapshot = new Snapshot(ENTITY_COUNT);
+
+            // A tick published while the reader is halfway through its copy
+            publishTick(export, entities, 1);
+            long sequence = beginRead(mapped);
+            snapshot.copy(mapped, 0, ENTITY_COUNT / 2);
+            publishTick(export, entities, 2);
+            snapshot.copy(mapped, ENTITY_COUNT / 2, ENTITY_COUNT);
+            if (snapshot.isWhole()) {
+                throw new IllegalStateException("the interleaved copy was not torn, so the check proves nothing");
+            }
+            if (endRead(mapped, sequence)) {
+                throw new IllegalStateException("a copy overlapping a publish was accepted");
+            }
+            sequence = beginRead(mapped);
+            snapshot.copy(mapped, 0, ENTITY_COUNT);
+            if (!endRead(mapped, sequence) || !snapshot.isWhole() || snapshot.tick != 2) {
+                throw new IllegalStateException("the retry after the overlapping publish did not see tick 2 whole");
+            }
+
+            // A writer thread publishing as fast as it can while this one reads
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int t = 3; t < 3 + CONCURRENT_TICKS; t++) {
+                        publishTick(export, entities, t);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "export-check-writer");
+            writer.start();
+            long accepted = 0;
+            long retries = 0;
+            while (writer.isAlive()) {
+                sequence = beginRead(mapped);
+                if ((sequence & 1) != 0) {
+                    retries++;
+                    Thread.onSpinWait();
+                    continue;
+                }
+                snapshot.copy(mapped, 0, ENTITY_COUNT);
+                if (!endRead(mapped, sequence)) {
+                    retries++;
+                    continue;
+                }
+                if (!snapshot.isWhole()) {
+                    throw new IllegalStateException("accepted a torn snapshot of tick " + snapshot.tick);
+                }
+                accepted++;
+            }
+            writer.join();
+            if (accepted == 0) {
+                throw new IllegalStateException("the reader never got a snapshot while the writer ran");
+            }
+            return "ticks=" + (CONCURRENT_TICKS + 2) + " accepted=" + accepted + " retries=" + retries;
+        } finally {
+            export.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void publishTick(SharedStateExport export, List<SimulatedEntity> entities, int t) throws IOException {
+        CartesianCoordinate position = new CartesianCoordinate(t, t);
+        CartesianCoordinate velocity = new CartesianCoordinate(t, -t);
+        for (SimulatedEntity entity : entities) {
+            ((AbstractSimulatedEntity) entity).position = position;
+            ((AbstractSimulatedEntity) entity).velocity = velocity;
+        }
+        export.publish(entities, 800, 600);
+    }
+
+    private static long beginRead(ByteBuffer mapped) {
+        return (long) LONGS.getAcquire(mapped, 8);
+    }
+
+    /**
+     * @return Whether nothing was published since {@link #beginRead}, so the copy can be kept.
+     */
+    private static boolean endRead(ByteBuffer mapped, long sequence) {
+        VarHandle.acquireFence(); // The copy's reads must not move below the second sequence read
+        return (sequence & 1) == 0 && (long) LONGS.getOpaque(mapped, 8) == sequence;
+    }
+
+    private static final class Snapshot {
+        private final float[] values;
+        long tick;
+        int count;
+
+        Snapshot(int capacity) {
+            this.values = new float[4 * capacity];
+        }
+
+        void copy(ByteBuffer mapped, int from, int to) {
+            this.tick = mapped.getLong(16);
+            this.count = mapped.getInt(28);
+            for (int i = from; i < to; i++) {
+                int offset = SharedStateExport.HEADER_BYTES + SharedStateExport.RECORD_BYTES * i;
+                for (int j = 0; j < 4; j++) {
+                    this.values[4 * i + j] = mapped.getFloat(offset + 4 * j);
+                }
+            }
+        }
+
+        boolean isWhole() {
+            if (this.count != ENTITY_COUNT) {
+                return false;
+            }
+            float t = this.tick;
+            for (int i = 0; i < ENTITY_COUNT; i++) {
+                if (this.values[4 * i] != t || this.values[4 * i + 1] != t
+                    || this.values[4 * i + 2] != t || this.values[4 * i + 3] != -t) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
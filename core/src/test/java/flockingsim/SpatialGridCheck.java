@@ -0,0 +1,126 @@
+package flockingsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import drawing.Canvas;
+import geometry.CartesianCoordinate;
+
+/**
+ * Checks the incrementally maintained {@link SpatialGrid} against a linear scan. Boids are
+ * moved after a single rebuild by small steps, jumps that wrap around the world, and pile-ups
+ * into one cell that overflow its bucket, and every round the grid's answers must be exactly
+ * the boids a scan of their current positions finds.
+ */
+public final class SpatialGridCheck {
+    private static final int BOID_COUNT = 2000;
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+    private static final double CELL_SIZE = 25;
+    private static final int ROUNDS = 200;
+    private static final int QUERIES_PER_ROUND = 50;
+    private static final long SEED = 7L;
+
+    private SpatialGridCheck() {
+    }
+
+    /**
+     * @return A one-line summary.
+     * @throws IllegalStateException If an invariant does not hold.
+     */
+    public static String run() {
+        Random random = new Random(SEED);
+        Canvas canvas = new Canvas(WIDTH, HEIGHT);
+        List<SimulatedEntity> entities = new ArrayList<>(BOID_COUNT);
+        for (int i = 0; i < BOID_COUNT; i++) {
+            Boid boid = new Boid(canvas, new CartesianCoordinate(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT),
+                new CartesianCoordinate(1, 0), 2, 0.03, 50);
+            boid.setWorldSize(WIDTH, HEIGHT);
+            entities.add(boid);
+        }
+        List<Rectangle> noObstacles = Collections.emptyList();
+        SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+        grid.rebuild(entities, WIDTH, HEIGHT);
+
+        List<Boid> found = new ArrayList<>();
+        long queries = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            double pileX = random.nextDouble() * WIDTH;
+            double pileY = random.nextDouble() * HEIGHT;
+            for (SimulatedEntity entity : entities) {
+                Boid boid = (Boid) entity;
+                double choice = random.nextDouble();
+                if (choice < 0.05) {
+                    // A jump of up to a world size, across the edges
+                    boid.nudge((random.nextDouble() - 0.5) * 2 * WIDTH, (random.nextDouble() - 0.5) * 2 * HEIGHT, noObstacles);
+                } else if (choice < 0.10 && round % 10 == 0) {
+                    // Pile up in one cell so its bucket has to grow
+                    boid.nudge(pileX - boid.position.getX(), pileY - boid.position.getY(), noObstacles);
+                } else {
+                    boid.nudge((random.nextDouble() - 0.5) * 60, (random.nextDouble() - 0.5) * 60, noObstacles);
+                }
+            }
+
+            if (grid.size() != BOID_COUNT) {
+                throw new IllegalStateException("round " + round + ": grid holds " + grid.size() + " boids, not " + BOID_COUNT);
+            }
+            found.clear();
+            grid.findInRectangle(0, 0, WIDTH, HEIGHT, found);
+            if (found.size() != BOID_COUNT || identitySet(found).size() != BOID_COUNT) {
+                throw new IllegalStateException("round " + round + ": the whole world holds " + found.size()
+                    + " entries for " + BOID_COUNT + " boids");
+            }
+            for (int q = 0; q < QUERIES_PER_ROUND; q++) {
+                double x = random.nextDouble() * WIDTH;
+                double y = random.nextDouble() * HEIGHT;
+                double radius = 5 + random.nextDouble() * 80;
+                found.clear();
+                grid.findCandidates(x, y, radius, null, found);
+                Set<Boid> expected = identitySet(new ArrayList<Boid>());
+                for (SimulatedEntity entity : entities) {
+                    double dx = entity.getPosition().getX() - x;
+                    double dy = entity.getPosition().getY() - y;
+                    if (dx * dx + dy * dy < radius * radius) {
+                        expected.add((Boid) entity);
+                    }
+                }
+                compare("findCandidates", round, found, expected);
+
+                double minX = random.nextDouble() * WIDTH;
+                double minY = random.nextDouble() * HEIGHT;
+                double maxX = minX + random.nextDouble() * 200;
+                double maxY = minY + random.nextDouble() * 200;
+                found.clear();
+                grid.findInRectangle(minX, minY, maxX, maxY, found);
+                expected.clear();
+                for (SimulatedEntity entity : entities) {
+                    double px = entity.getPosition().getX();
+                    double py = entity.getPosition().getY();
+                    if (px >= minX && px <= maxX && py >= minY && py <= maxY) {
+                        expected.add((Boid) entity);
+                    }
+                }
+                compare("findInRectangle", round, found, expected);
+                queries += 2;
+            }
+        }
+        return "boids=" + BOID_COUNT + " rounds=" + ROUNDS + " queries=" + queries;
+    }
+
+    private static void compare(String query, int round, List<Boid> found, Set<Boid> expected) {
+        if (found.size() != expected.size() || !identitySet(found).equals(expected)) {
+            throw new IllegalStateException("round " + round + ": " + query + " found " + found.size()
+                + " boids where a linear scan finds " + expected.size());
+        }
+    }
+
+    private static Set<Boid> identitySet(List<Boid> boids) {
+        Set<Boid> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(boids);
+        return set;
+    }
+}
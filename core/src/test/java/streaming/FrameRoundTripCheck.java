@@ -0,0 +1,143 @@
+package streaming;
+
+import java.util.List;
+import java.util.Random;
+
+import drawing.Canvas;
+import flockingsim.FlockingSimulation;
+import flockingsim.Predator;
+import flockingsim.SimulatedEntity;
+import geometry.CartesianCoordinate;
+import tools.Utils;
+
+/**
+ * Checks that frames decode back to the simulation's state, within quantization, for a viewer
+ * that receives every frame and for one that drops about a third of them and so has to be
+ * resynced with keyframes. The run crosses regular keyframes, a population change and a world
+ * resize.
+ */
+public final class FrameRoundTripCheck {
+    private static final int FRAMES = 600;
+    private static final int BOID_COUNT = 400;
+    private static final int RESIZE_FRAME = 250;
+    private static final int WORLD_CHANGE_FRAME = 420;
+    private static final double DROP_CHANCE = 0.3;
+    private static final double HEADING_STEP = 2 * Math.PI / FrameFormat.HEADING_STEPS;
+    private static final double HEADING_TOLERANCE = HEADING_STEP / 2 + HEADING_STEP / 16; // Rounding plus approximateAtan2's error
+    private static final double MIN_SPEED_FOR_HEADING = 1e-3;
+
+    private FrameRoundTripCheck() {
+    }
+
+    /**
+     * @return A one-line summary.
+     * @throws IllegalStateException If an invariant does not hold.
+     */
+    public static String run() {
+        FlockingSimulation simulation = new FlockingSimulation(new Canvas(), new Utils(42L));
+        simulation.resetAndSpawnBoids(BOID_COUNT);
+        simulation.addPredator(new CartesianCoordinate(400, 300));
+        FrameEncoder encoder = new FrameEncoder();
+        FrameDecoder everyFrame = new FrameDecoder();
+        FrameDecoder lossy = new FrameDecoder();
+        Random drops = new Random(11L);
+        int lastEvery = -1;
+        int lastLossy = -1;
+        int dropped = 0;
+        int resyncs = 0;
+        int rejectedDeltas = 0;
+        int keyframes = 0;
+
+        for (int f = 0; f < FRAMES; f++) {
+            if (f == RESIZE_FRAME) {
+                simulation.resizeBoidPopulation(BOID_COUNT / 2);
+            } else if (f == WORLD_CHANGE_FRAME) {
+                simulation.setWorldSize(1600, 1200);
+            }
+            simulation.step(null);
+            int number = encoder.getNextFrameNumber();
+            Frame frame = encoder.encode(simulation, lastEvery != number - 1 || lastLossy != number - 1);
+
+            byte[] bytes = frame.encodingFor(lastEvery);
+            if (bytes == null || !everyFrame.apply(bytes)) {
+                throw new IllegalStateException("frame " + number + " could not be applied by a viewer that had every frame");
+            }
+            if (bytes[0] == FrameFormat.KEYFRAME) {
+                keyframes++;
+            }
+            lastEvery = number;
+            compare("in-step viewer", everyFrame, simulation);
+
+            if (drops.nextDouble() < DROP_CHANCE) {
+                dropped++;
+                continue;
+            }
+            boolean outOfStep = lastLossy != number - 1;
+            byte[] delta = frame.encodingFor(number - 1);
+            if (outOfStep && delta != null && delta[0] == FrameFormat.DELTA) {
+                if (lossy.apply(delta) || lossy.getFrameNumber() != lastLossy) {
+                    throw new IllegalStateException("frame " + number + ": a delta was applied on top of frame " + lastLossy);
+                }
+                rejectedDeltas++;
+            }
+            bytes = frame.encodingFor(lastLossy);
+            if (bytes == null) {
+                throw new IllegalStateException("frame " + number + " has no keyframe for a viewer that needed one");
+            }
+            if (!lossy.apply(bytes)) {
+                throw new IllegalStateException("frame " + number + " was rejected by the lossy viewer");
+            }
+            if (outOfStep && lastLossy >= 0) {
+                resyncs++;
+            }
+            lastLossy = number;
+            compare("lossy viewer", lossy, simulation);
+        }
+
+        if (resyncs == 0 || rejectedDeltas == 0) {
+            throw new IllegalStateException("the lossy viewer was never resynced, so dropping was not exercised");
+        }
+        return "frames=" + FRAMES + " keyframes=" + keyframes + " dropped=" + dropped + " resyncs=" + resyncs;
+    }
+
+    private static void compare(String viewer, FrameDecoder decoder, FlockingSimulation simulation) {
+        List<SimulatedEntity> entities = simulation.getEntities();
+        int width = simulation.getWorldWidth();
+        int height = simulation.getWorldHeight();
+        if (decoder.getCount() != entities.size() || decoder.getWorldWidth() != width || decoder.getWorldHeight() != height) {
+            throw new IllegalStateException(viewer + " at frame " + decoder.getFrameNumber() + " has " + decoder.getCount()
+                + " entities in " + decoder.getWorldWidth() + "x" + decoder.getWorldHeight() + ", the simulation "
+                + entities.size() + " in " + width + "x" + height);
+        }
+        double xStep = (double) width / FrameFormat.POSITION_STEPS;
+        double yStep = (double) height / FrameFormat.POSITION_STEPS;
+        for (int i = 0; i < entities.size(); i++) {
+            SimulatedEntity entity = entities.get(i);
+            CartesianCoordinate position = entity.getPosition();
+            CartesianCoordinate velocity = entity.getVelocity();
+            boolean positionOk = withinStep(position.getX() - decoder.getX(i), width, xStep)
+                && withinStep(position.getY() - decoder.getY(i), height, yStep);
+            boolean kindOk = decoder.isPredator(i) == entity instanceof Predator;
+            boolean headingOk = true;
+            if (velocity.magnitude() > MIN_SPEED_FOR_HEADING) {
+                double error = Math.atan2(velocity.getY(), velocity.getX()) - decoder.getHeading(i);
+                error = Math.abs(error - 2 * Math.PI * Math.rint(error / (2 * Math.PI)));
+                headingOk = error <= HEADING_TOLERANCE;
+            }
+            if (!positionOk || !kindOk || !headingOk) {
+                throw new IllegalStateException(viewer + " at frame " + decoder.getFrameNumber() + ": entity " + i + " decoded as ("
+                    + decoder.getX(i) + ", " + decoder.getY(i) + ") heading " + decoder.getHeading(i)
+                    + " but is at " + position + " moving " + velocity);
+            }
+        }
+    }
+
+    /**
+     * @return Whether a coordinate lies within one quantization step above its decoded value,
+     *         allowing for the world's wrap.
+     */
+    private static boolean withinStep(double difference, int size, double step) {
+        difference -= size * Math.floor(difference / size + 0.5);
+        return difference >= -1e-9 && difference < step + 1e-9;
+    }
+}
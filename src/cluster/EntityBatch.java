@@ -0,0 +1,101 @@
+package cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import flockingsim.AbstractSimulatedEntity;
+import flockingsim.FlockingSimulation;
+import flockingsim.Predator;
+import geometry.CartesianCoordinate;
+
+/**
+ * Entities on the wire between regions: just the kind, position and velocity of each,
+ * which is all a boid needs to carry on flocking in another process. Everything else (speed
+ * limits, weights, neighbor mode) is the same in every region and comes from the receiving
+ * simulation.
+ *
+ * <p>A batch is filled on the simulation thread and read on a peer's reader thread, so the
+ * two never share one. The arrays are kept between ticks.
+ */
+final class EntityBatch {
+    private static final byte BOID = 0;
+    private static final byte PREDATOR = 1;
+
+    private int count;
+    private byte[] kinds = new byte[64];
+    private double[] values = new double[4 * 64];
+
+    void clear() {
+        this.count = 0;
+    }
+
+    int size() {
+        return this.count;
+    }
+
+    void add(AbstractSimulatedEntity entity) {
+        if (this.count == this.kinds.length) {
+            this.kinds = Arrays.copyOf(this.kinds, 2 * this.count);
+            this.values = Arrays.copyOf(this.values, 8 * this.count);
+        }
+        CartesianCoordinate position = entity.getPosition();
+        CartesianCoordinate velocity = entity.getVelocity();
+        int offset = 4 * this.count;
+        this.kinds[this.count] = entity instanceof Predator ? PREDATOR : BOID;
+        this.values[offset] = position.getX();
+        this.values[offset + 1] = position.getY();
+        this.values[offset + 2] = velocity.getX();
+        this.values[offset + 3] = velocity.getY();
+        this.count++;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(this.count);
+        for (int i = 0; i < this.count; i++) {
+            out.writeByte(this.kinds[i]);
+            for (int j = 4 * i; j < 4 * i + 4; j++) {
+                out.writeDouble(this.values[j]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents with the next batch on a stream.
+     */
+    void read(DataInputStream in) throws IOException {
+        this.count = 0;
+        int incoming = in.readInt();
+        if (incoming > this.kinds.length) {
+            this.kinds = new byte[incoming];
+            this.values = new double[4 * incoming];
+        }
+        for (int i = 0; i < incoming; i++) {
+            this.kinds[i] = in.readByte();
+            for (int j = 4 * i; j < 4 * i + 4; j++) {
+                this.values[j] = in.readDouble();
+            }
+        }
+        this.count = incoming;
+    }
+
+    /**
+     * Creates an entity for everything in the batch. The entities are not added to the simulation.
+     * @param simulation The simulation that creates them with its settings.
+     * @param out The list to add them to.
+     */
+    void createEntities(FlockingSimulation simulation, List<AbstractSimulatedEntity> out) {
+        for (int i = 0; i < this.count; i++) {
+            int offset = 4 * i;
+            CartesianCoordinate position = new CartesianCoordinate(this.values[offset], this.values[offset + 1]);
+            CartesianCoordinate velocity = new CartesianCoordinate(this.values[offset + 2], this.values[offset + 3]);
+            if (this.kinds[i] == PREDATOR) {
+                out.add(simulation.createPredator(position, velocity));
+            } else {
+                out.add(simulation.createBoid(position, velocity));
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One cell of a grid of regions that splits the world between processes. Regions are
+ * numbered row by row, and each one owns the entities whose position lies inside it.
+ */
+final class Region {
+    private final int index;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    private Region(int index, double minX, double minY, double maxX, double maxY) {
+        this.index = index;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * @param columns How many regions across.
+     * @param rows How many regions down.
+     * @param worldWidth The world width.
+     * @param worldHeight The world height.
+     * @return The regions, in index order.
+     */
+    static Region[] layout(int columns, int rows, int worldWidth, int worldHeight) {
+        Region[] regions = new Region[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int index = row * columns + column;
+                regions[index] = new Region(index,
+                    (double) worldWidth * column / columns, (double) worldHeight * row / rows,
+                    (double) worldWidth * (column + 1) / columns, (double) worldHeight * (row + 1) / rows);
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * @return The index of the region owning a position. Positions outside the world count
+     *         as being in the nearest edge region.
+     */
+    static int indexAt(double x, double y, int columns, int rows, int worldWidth, int worldHeight) {
+        int column = (int) Math.floor(x * columns / worldWidth);
+        int row = (int) Math.floor(y * rows / worldHeight);
+        column = Math.max(0, Math.min(columns - 1, column));
+        row = Math.max(0, Math.min(rows - 1, row));
+        return row * columns + column;
+    }
+
+    /**
+     * The regions around a region, wrapping at the world's edges like the entities do, so a
+     * boid that wraps across the world is still handed to a neighbour.
+     * @return The distinct neighbouring region indices, not including the region itself.
+     */
+    static List<Integer> neighbours(int index, int columns, int rows) {
+        int column = index % columns;
+        int row = index / columns;
+        List<Integer> result = new ArrayList<>();
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int neighbour = Math.floorMod(row + dy, rows) * columns + Math.floorMod(column + dx, columns);
+                if (neighbour != index && !result.contains(neighbour)) {
+                    result.add(neighbour);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The squared distance from a point to the nearest point of this region, 0 inside it.
+     *         Neighbour searches do not wrap around the world, so neither does this.
+     */
+    double distanceSquaredTo(double x, double y) {
+        double dx = x < this.minX ? this.minX - x : (x > this.maxX ? x - this.maxX : 0);
+        double dy = y < this.minY ? this.minY - y : (y > this.maxY ? y - this.maxY : 0);
+        return dx * dx + dy * dy;
+    }
+
+    int getIndex() {
+        return this.index;
+    }
+
+    double getMinX() {
+        return this.minX;
+    }
+
+    double getMinY() {
+        return this.minY;
+    }
+
+    double getWidth() {
+        return this.maxX - this.minX;
+    }
+
+    double getHeight() {
+        return this.maxY - this.minY;
+    }
+}
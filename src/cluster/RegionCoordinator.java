@@ -0,0 +1,212 @@
+package cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs one simulation split over several processes on this machine. The world is cut into
+ * a grid of regions, each simulated by a {@link RegionWorker} process, and the coordinator
+ * keeps them in lockstep: it starts a tick in every region and waits for all of them to
+ * finish it before starting the next. Everything talks over loopback sockets.
+ *
+ * <p>Usage: {@code java -cp bin cluster.RegionCoordinator <columns> <rows> <boids> [ticks]}.
+ * The world size comes from {@code -Dflockingsim.worldWidth}/{@code worldHeight}. By default
+ * the coordinator starts the workers itself with the same Java and class path, passing on
+ * every {@code flockingsim.*} system property; with {@code -Dflockingsim.cluster.launch=false}
+ * it waits for workers started by hand with {@code cluster.RegionWorker <port>} instead.
+ */
+public final class RegionCoordinator {
+    static final int TICK = 1;
+    static final int STOP = 2;
+
+    private static final int DEFAULT_PORT = 9470;
+    private static final int DEFAULT_TICKS = 1000;
+    private static final int DEFAULT_WORLD_WIDTH = 1600;
+    private static final int DEFAULT_WORLD_HEIGHT = 1200;
+    private static final int REPORT_INTERVAL = 100;
+
+    private final int columns;
+    private final int rows;
+    private final int worldWidth;
+    private final int worldHeight;
+    private final int boidCount;
+    private final long seed;
+    private final DataInputStream[] ins;
+    private final DataOutputStream[] outs;
+
+    private RegionCoordinator(int columns, int rows, int worldWidth, int worldHeight, int boidCount, long seed) {
+        this.columns = columns;
+        this.rows = rows;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.boidCount = boidCount;
+        this.seed = seed;
+        this.ins = new DataInputStream[columns * rows];
+        this.outs = new DataOutputStream[columns * rows];
+    }
+
+    /**
+     * Waits for every worker to connect, then tells each one its region and where its
+     * neighbours listen, and waits until they have all spawned.
+     */
+    private void connectWorkers(ServerSocket server) throws IOException {
+        int regionCount = this.ins.length;
+        int[] peerPorts = new int[regionCount];
+        for (int i = 0; i < regionCount; i++) {
+            Socket socket = server.accept();
+            socket.setTcpNoDelay(true);
+            this.ins[i] = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.outs[i] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            peerPorts[i] = this.ins[i].readInt();
+        }
+        for (int i = 0; i < regionCount; i++) {
+            DataOutputStream out = this.outs[i];
+            out.writeInt(i);
+            out.writeInt(this.columns);
+            out.writeInt(this.rows);
+            out.writeInt(this.worldWidth);
+            out.writeInt(this.worldHeight);
+            out.writeInt(this.boidCount / regionCount + (i < this.boidCount % regionCount ? 1 : 0));
+            out.writeLong(this.seed);
+            for (int port : peerPorts) {
+                out.writeInt(port);
+            }
+            out.flush();
+        }
+        int spawned = 0;
+        for (int i = 0; i < regionCount; i++) {
+            spawned += this.ins[i].readInt();
+        }
+        System.out.println(regionCount + " regions ready with " + spawned + " boids");
+    }
+
+    /**
+     * Runs the ticks in lockstep, printing a summary every {@value #REPORT_INTERVAL} ticks.
+     */
+    private void run(int ticks) throws IOException {
+        int regionCount = this.ins.length;
+        long intervalStart = System.nanoTime();
+        long[] intervalStepNanos = new long[regionCount];
+        long[] intervalExchangeNanos = new long[regionCount];
+        for (int tick = 0; tick < ticks; tick++) {
+            for (DataOutputStream out : this.outs) {
+                out.writeInt(TICK);
+                out.writeInt(tick);
+                out.flush();
+            }
+            int boids = 0;
+            int predators = 0;
+            for (int i = 0; i < regionCount; i++) {
+                DataInputStream in = this.ins[i];
+                int finished = in.readInt();
+                if (finished != tick) {
+                    throw new IOException("Region " + i + " finished tick " + finished + " instead of " + tick);
+                }
+                boids += in.readInt();
+                predators += in.readInt();
+                intervalExchangeNanos[i] += in.readLong();
+                intervalStepNanos[i] += in.readLong();
+            }
+
+            int done = tick + 1;
+            if (done % REPORT_INTERVAL == 0 || done == ticks) {
+                int intervalTicks = done % REPORT_INTERVAL == 0 ? REPORT_INTERVAL : done % REPORT_INTERVAL;
+                int slowest = 0;
+                for (int i = 1; i < regionCount; i++) {
+                    if (intervalStepNanos[i] + intervalExchangeNanos[i] > intervalStepNanos[slowest] + intervalExchangeNanos[slowest]) {
+                        slowest = i;
+                    }
+                }
+                long now = System.nanoTime();
+                System.out.printf("Tick %d: %d boids, %d predators, %.2f ms/tick (slowest region %d: step %.2f ms, exchange %.2f ms)%n",
+                    done, boids, predators, (now - intervalStart) / 1e6 / intervalTicks, slowest,
+                    intervalStepNanos[slowest] / 1e6 / intervalTicks, intervalExchangeNanos[slowest] / 1e6 / intervalTicks);
+                intervalStart = now;
+                Arrays.fill(intervalStepNanos, 0);
+                Arrays.fill(intervalExchangeNanos, 0);
+            }
+        }
+        for (DataOutputStream out : this.outs) {
+            out.writeInt(STOP);
+            out.flush();
+        }
+    }
+
+    /**
+     * Starts one worker process per region with the same Java, class path and simulation settings.
+     */
+    private static List<Process> launchWorkers(int count, int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("flockingsim.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add(RegionWorker.class.getName());
+        command.add(Integer.toString(port));
+        List<Process> processes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            processes.add(new ProcessBuilder(command).inheritIO().start());
+        }
+        return processes;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: java cluster.RegionCoordinator <columns> <rows> <boids> [ticks]");
+            System.exit(2);
+        }
+        int columns = Math.max(1, Integer.parseInt(args[0]));
+        int rows = Math.max(1, Integer.parseInt(args[1]));
+        int boids = Math.max(0, Integer.parseInt(args[2]));
+        int ticks = args.length == 4 ? Math.max(0, Integer.parseInt(args[3])) : DEFAULT_TICKS;
+        int worldWidth = Integer.getInteger("flockingsim.worldWidth", DEFAULT_WORLD_WIDTH);
+        int worldHeight = Integer.getInteger("flockingsim.worldHeight", DEFAULT_WORLD_HEIGHT);
+        long seed = Long.getLong("flockingsim.cluster.seed", 42L);
+        int port = Integer.getInteger("flockingsim.cluster.port", DEFAULT_PORT);
+        boolean launch = !"false".equals(System.getProperty("flockingsim.cluster.launch"));
+
+        RegionCoordinator coordinator = new RegionCoordinator(columns, rows, worldWidth, worldHeight, boids, seed);
+        List<Process> workers = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(port, columns * rows, InetAddress.getLoopbackAddress())) {
+            System.out.println("Coordinating " + columns + "x" + rows + " regions of a " + worldWidth + "x" + worldHeight
+                + " world on port " + server.getLocalPort());
+            if (launch) {
+                workers = launchWorkers(columns * rows, server.getLocalPort());
+            } else {
+                System.out.println("Start " + columns * rows + " workers with: java -cp <classpath> "
+                    + RegionWorker.class.getName() + " " + server.getLocalPort());
+            }
+            coordinator.connectWorkers(server);
+            coordinator.run(ticks);
+        } catch (IOException e) {
+            System.err.println("Coordinator stopped: " + e.getMessage());
+            for (Process worker : workers) {
+                worker.destroy();
+            }
+            System.exit(1);
+        }
+        for (Process worker : workers) {
+            try {
+                worker.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                worker.destroy();
+            }
+        }
+    }
+}
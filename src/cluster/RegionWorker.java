@@ -0,0 +1,331 @@
+package cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import drawing.Canvas;
+import flockingsim.AbstractSimulatedEntity;
+import flockingsim.FlockingSimulation;
+import flockingsim.Predator;
+import flockingsim.SimulatedEntity;
+import geometry.CartesianCoordinate;
+import tools.Utils;
+
+/**
+ * One process of a region-sharded simulation: simulates the entities in its region of the
+ * world and trades entities with the regions around it every tick. Started by
+ * {@link RegionCoordinator}, which tells it which region it has and when to tick.
+ *
+ * <p>Each tick starts with an exchange with every neighbouring region, before stepping:
+ * <ul>
+ * <li>entities that moved into a neighbour's region last tick are handed over to it, and kept
+ * here as ghosts for this tick, since the neighbour only sends ghosts of them from the next, and</li>
+ * <li>entities within the interaction radius of a neighbour's region are sent as ghosts, so
+ * boids at the edge of that region see them as if there were no edge.</li>
+ * </ul>
+ * Ghosts are copies from the start of the tick, which is what every boid sees in a single
+ * process too, since all boids steer before any of them moves.
+ */
+public final class RegionWorker {
+    private static final int SPAWN_ATTEMPTS = 50;
+    private static final double SPAWN_CLEARANCE = 15.0;
+    private static final double SPAWN_MAX_SPEED = 10.0; // The boids' default maximum speed
+
+    static {
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    private final int index;
+    private final int columns;
+    private final int rows;
+    private final int worldWidth;
+    private final int worldHeight;
+    private final Region[] regions;
+    private final FlockingSimulation simulation;
+    private final int[] peers; // Region indices of the neighbours
+    private final int[] peerSlots; // Region index to position in peers, or -1
+    private final DataInputStream[] peerIns;
+    private final DataOutputStream[] peerOuts;
+    private final EntityBatch[] outgoingMigrants;
+    private final EntityBatch[] outgoingGhosts;
+    private final EntityBatch[] incomingMigrants;
+    private final EntityBatch[] incomingGhosts;
+    private final ExecutorService readers;
+    private final ArrayList<SimulatedEntity> departed = new ArrayList<>();
+    private final ArrayList<AbstractSimulatedEntity> arrived = new ArrayList<>();
+    private final ArrayList<AbstractSimulatedEntity> ghosts = new ArrayList<>();
+    private boolean warnedUnreachable;
+
+    private RegionWorker(int index, int columns, int rows, int worldWidth, int worldHeight, int[] peers) {
+        this.index = index;
+        this.columns = columns;
+        this.rows = rows;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.regions = Region.layout(columns, rows, worldWidth, worldHeight);
+        this.simulation = new FlockingSimulation(new Canvas(1, 1), new Utils());
+        this.simulation.setWorldSize(worldWidth, worldHeight);
+        this.peers = peers;
+        this.peerSlots = new int[this.regions.length];
+        Arrays.fill(this.peerSlots, -1);
+        for (int slot = 0; slot < peers.length; slot++) {
+            this.peerSlots[peers[slot]] = slot;
+        }
+        this.peerIns = new DataInputStream[peers.length];
+        this.peerOuts = new DataOutputStream[peers.length];
+        this.outgoingMigrants = newBatches(peers.length);
+        this.outgoingGhosts = newBatches(peers.length);
+        this.incomingMigrants = newBatches(peers.length);
+        this.incomingGhosts = newBatches(peers.length);
+        this.readers = Executors.newFixedThreadPool(Math.max(1, peers.length), r -> {
+            Thread thread = new Thread(r, "region-peer-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static EntityBatch[] newBatches(int n) {
+        EntityBatch[] batches = new EntityBatch[n];
+        for (int i = 0; i < n; i++) {
+            batches[i] = new EntityBatch();
+        }
+        return batches;
+    }
+
+    /**
+     * Connects to every neighbour. The lower-numbered region of each pair dials the other,
+     * so every pair ends up with exactly one connection.
+     */
+    private void connectPeers(ServerSocket peerServer, int[] peerPorts) throws IOException {
+        int lowerPeers = 0;
+        for (int slot = 0; slot < this.peers.length; slot++) {
+            int peer = this.peers[slot];
+            if (peer > this.index) {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), peerPorts[peer]);
+                attach(slot, socket, new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+                this.peerOuts[slot].writeInt(this.index);
+                this.peerOuts[slot].flush();
+            } else {
+                lowerPeers++;
+            }
+        }
+        for (int i = 0; i < lowerPeers; i++) {
+            Socket socket = peerServer.accept();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            attach(this.peerSlots[in.readInt()], socket, in);
+        }
+    }
+
+    private void attach(int slot, Socket socket, DataInputStream in) throws IOException {
+        socket.setTcpNoDelay(true);
+        this.peerIns[slot] = in;
+        this.peerOuts[slot] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Spawns this region's share of the boids at random positions inside the region.
+     */
+    private void spawn(int boidCount, long seed) {
+        Region region = this.regions[this.index];
+        Utils random = new Utils(seed + this.index);
+        List<AbstractSimulatedEntity> boids = new ArrayList<>(boidCount);
+        for (int i = 0; i < boidCount; i++) {
+            CartesianCoordinate position;
+            int attempts = 0;
+            do {
+                position = new CartesianCoordinate(
+                    region.getMinX() + random.randomDouble(0, region.getWidth()),
+                    region.getMinY() + random.randomDouble(0, region.getHeight()));
+                attempts++;
+            } while (!this.simulation.isPositionSafeForSpawning(position, SPAWN_CLEARANCE) && attempts < SPAWN_ATTEMPTS);
+            CartesianCoordinate velocity = new CartesianCoordinate(random.randomDouble(-1, 1), random.randomDouble(-1, 1))
+                .normalize().multiply(random.randomDouble(0, SPAWN_MAX_SPEED));
+            boids.add(this.simulation.createBoid(position, velocity));
+        }
+        this.simulation.addEntities(boids);
+    }
+
+    /**
+     * Hands over the entities that have left this region and swaps ghosts with every neighbour.
+     * All sends and receives overlap, so neighbours never wait on each other's socket buffers.
+     */
+    private void exchange() throws IOException {
+        for (int slot = 0; slot < this.peers.length; slot++) {
+            this.outgoingMigrants[slot].clear();
+            this.outgoingGhosts[slot].clear();
+        }
+        this.departed.clear();
+        double halo = this.simulation.getInteractionRadius();
+        double haloSquared = halo * halo;
+        for (SimulatedEntity entity : this.simulation.getEntities()) {
+            if (!(entity instanceof AbstractSimulatedEntity) || ((AbstractSimulatedEntity) entity).isGhost()) {
+                continue;
+            }
+            AbstractSimulatedEntity owned = (AbstractSimulatedEntity) entity;
+            double x = owned.getPosition().getX();
+            double y = owned.getPosition().getY();
+            int owner = Region.indexAt(x, y, this.columns, this.rows, this.worldWidth, this.worldHeight);
+            int ownerSlot = owner == this.index ? -1 : this.peerSlots[owner];
+            if (ownerSlot >= 0) {
+                this.outgoingMigrants[ownerSlot].add(owned);
+                this.departed.add(owned);
+            } else if (owner != this.index && !this.warnedUnreachable) {
+                // Only possible if something moves further than a whole region in one tick
+                System.err.println("Region " + this.index + ": an entity at " + owned.getPosition()
+                    + " belongs to region " + owner + ", which is not a neighbour; keeping it");
+                this.warnedUnreachable = true;
+            }
+            for (int slot = 0; slot < this.peers.length; slot++) {
+                if (slot != ownerSlot && this.regions[this.peers[slot]].distanceSquaredTo(x, y) < haloSquared) {
+                    this.outgoingGhosts[slot].add(owned);
+                }
+            }
+        }
+
+        List<Future<?>> reads = new ArrayList<>(this.peers.length);
+        for (int slot = 0; slot < this.peers.length; slot++) {
+            final int peer = slot;
+            reads.add(this.readers.submit(() -> {
+                this.incomingMigrants[peer].read(this.peerIns[peer]);
+                this.incomingGhosts[peer].read(this.peerIns[peer]);
+                return null;
+            }));
+        }
+        for (int slot = 0; slot < this.peers.length; slot++) {
+            this.outgoingMigrants[slot].write(this.peerOuts[slot]);
+            this.outgoingGhosts[slot].write(this.peerOuts[slot]);
+            this.peerOuts[slot].flush();
+        }
+        for (Future<?> read : reads) {
+            try {
+                read.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a neighbour", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Lost a neighbouring region", e.getCause());
+            }
+        }
+
+        this.arrived.clear();
+        this.ghosts.clear();
+        for (int slot = 0; slot < this.peers.length; slot++) {
+            this.incomingMigrants[slot].createEntities(this.simulation, this.arrived);
+            this.incomingGhosts[slot].createEntities(this.simulation, this.ghosts);
+        }
+        // The neighbour read its ghosts before taking these in, so it sends none of them this tick
+        for (SimulatedEntity entity : this.departed) {
+            this.ghosts.add(entity instanceof Predator
+                ? this.simulation.createPredator(entity.getPosition(), entity.getVelocity())
+                : this.simulation.createBoid(entity.getPosition(), entity.getVelocity()));
+        }
+        this.simulation.removeEntities(this.departed);
+        if (!this.arrived.isEmpty()) {
+            this.simulation.addEntities(this.arrived);
+        }
+        this.simulation.setGhosts(this.ghosts);
+    }
+
+    /**
+     * Ticks whenever the coordinator says so, until it says stop.
+     */
+    private void run(DataInputStream fromCoordinator, DataOutputStream toCoordinator) throws IOException {
+        while (fromCoordinator.readInt() == RegionCoordinator.TICK) {
+            int tick = fromCoordinator.readInt();
+            long start = System.nanoTime();
+            exchange();
+            long exchanged = System.nanoTime();
+            this.simulation.step(null);
+            long stepped = System.nanoTime();
+
+            int boids = 0;
+            int predators = 0;
+            for (SimulatedEntity entity : this.simulation.getEntities()) {
+                AbstractSimulatedEntity owned = (AbstractSimulatedEntity) entity;
+                if (!owned.isGhost()) {
+                    if (owned instanceof Predator) {
+                        predators++;
+                    } else {
+                        boids++;
+                    }
+                }
+            }
+            toCoordinator.writeInt(tick);
+            toCoordinator.writeInt(boids);
+            toCoordinator.writeInt(predators);
+            toCoordinator.writeLong(exchanged - start);
+            toCoordinator.writeLong(stepped - exchanged);
+            toCoordinator.flush();
+        }
+        this.readers.shutdownNow();
+    }
+
+    /**
+     * @param args The coordinator's port on the loopback interface.
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: java cluster.RegionWorker <coordinator port>");
+            System.exit(2);
+        }
+        int coordinatorPort = Integer.parseInt(args[0]);
+        try (ServerSocket peerServer = new ServerSocket(0, 8, InetAddress.getLoopbackAddress());
+             Socket coordinator = new Socket(InetAddress.getLoopbackAddress(), coordinatorPort)) {
+            coordinator.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+            out.writeInt(peerServer.getLocalPort());
+            out.flush();
+
+            int index = in.readInt();
+            int columns = in.readInt();
+            int rows = in.readInt();
+            int worldWidth = in.readInt();
+            int worldHeight = in.readInt();
+            int boidCount = in.readInt();
+            long seed = in.readLong();
+            int[] peerPorts = new int[columns * rows];
+            for (int i = 0; i < peerPorts.length; i++) {
+                peerPorts[i] = in.readInt();
+            }
+
+            List<Integer> neighbours = Region.neighbours(index, columns, rows);
+            int[] peers = new int[neighbours.size()];
+            for (int i = 0; i < peers.length; i++) {
+                peers[i] = neighbours.get(i);
+            }
+            RegionWorker worker = new RegionWorker(index, columns, rows, worldWidth, worldHeight, peers);
+            Region region = worker.regions[index];
+            double halo = worker.simulation.getInteractionRadius();
+            if (region.getWidth() < 2 * halo || region.getHeight() < 2 * halo) {
+                System.err.println("Region " + index + " is smaller than twice the interaction radius (" + halo
+                    + "); ghosts may be missed near its corners. Use fewer regions or a larger world.");
+            }
+            worker.connectPeers(peerServer, peerPorts);
+            worker.spawn(boidCount, seed);
+            System.out.println("Region " + index + ": " + (int) region.getWidth() + "x" + (int) region.getHeight()
+                + " at (" + (int) region.getMinX() + ", " + (int) region.getMinY() + "), "
+                + boidCount + " boids, " + peers.length + " neighbours");
+            out.writeInt(boidCount);
+            out.flush();
+
+            worker.run(in, out);
+        } catch (IOException e) {
+            System.err.println("Region worker stopped: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
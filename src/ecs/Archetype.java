@@ -0,0 +1,224 @@
+package ecs;
+
+import java.util.Arrays;
+
+/**
+ * All the entities that have exactly the same components, stored as one array per field
+ * (structure of arrays). Row {@code i} of every array belongs to the same entity, and rows
+ * {@code 0..size()-1} are always packed, so a system walks each array front to back.
+ * Arrays for components the archetype does not have are null.
+ *
+ * <p>The arrays returned by the getters are the live storage: write to rows below
+ * {@link #size()} freely, but fetch them again after entities are created, since the
+ * arrays are replaced when they grow.
+ */
+public final class Archetype {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int mask;
+    private int size;
+    private int[] entities;
+    private double[] x;
+    private double[] y;
+    private double[] vx;
+    private double[] vy;
+    private double[] fx;
+    private double[] fy;
+    private double[] maxSpeed;
+    private double[] maxForce;
+    private int[] color;
+    private double[] drawSize;
+
+    Archetype(int mask) {
+        this.mask = mask;
+        this.entities = new int[INITIAL_CAPACITY];
+        if (has(Component.POSITION)) {
+            this.x = new double[INITIAL_CAPACITY];
+            this.y = new double[INITIAL_CAPACITY];
+        }
+        if (has(Component.VELOCITY)) {
+            this.vx = new double[INITIAL_CAPACITY];
+            this.vy = new double[INITIAL_CAPACITY];
+        }
+        if (has(Component.STEERING)) {
+            this.fx = new double[INITIAL_CAPACITY];
+            this.fy = new double[INITIAL_CAPACITY];
+            this.maxSpeed = new double[INITIAL_CAPACITY];
+            this.maxForce = new double[INITIAL_CAPACITY];
+        }
+        if (has(Component.RENDERABLE)) {
+            this.color = new int[INITIAL_CAPACITY];
+            this.drawSize = new double[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Appends a row with every field zero.
+     * @return The new row.
+     */
+    int add(int entity) {
+        if (this.size == this.entities.length) {
+            grow(2 * this.size);
+        }
+        this.entities[this.size] = entity;
+        return this.size++;
+    }
+
+    /**
+     * Removes a row by moving the last row into it, so the rows stay packed.
+     * @return The entity that moved into the row, or -1 if it was the last row.
+     */
+    int remove(int row) {
+        int last = --this.size;
+        int moved = -1;
+        if (row != last) {
+            copyRow(this, last, this, row);
+            moved = this.entities[row];
+        }
+        clearRow(last);
+        return moved;
+    }
+
+    /**
+     * Copies the fields both archetypes have from one row to another.
+     */
+    static void copyRow(Archetype from, int fromRow, Archetype to, int toRow) {
+        to.entities[toRow] = from.entities[fromRow];
+        if (from.x != null && to.x != null) {
+            to.x[toRow] = from.x[fromRow];
+            to.y[toRow] = from.y[fromRow];
+        }
+        if (from.vx != null && to.vx != null) {
+            to.vx[toRow] = from.vx[fromRow];
+            to.vy[toRow] = from.vy[fromRow];
+        }
+        if (from.fx != null && to.fx != null) {
+            to.fx[toRow] = from.fx[fromRow];
+            to.fy[toRow] = from.fy[fromRow];
+            to.maxSpeed[toRow] = from.maxSpeed[fromRow];
+            to.maxForce[toRow] = from.maxForce[fromRow];
+        }
+        if (from.color != null && to.color != null) {
+            to.color[toRow] = from.color[fromRow];
+            to.drawSize[toRow] = from.drawSize[fromRow];
+        }
+    }
+
+    private void clearRow(int row) {
+        if (this.x != null) {
+            this.x[row] = 0;
+            this.y[row] = 0;
+        }
+        if (this.vx != null) {
+            this.vx[row] = 0;
+            this.vy[row] = 0;
+        }
+        if (this.fx != null) {
+            this.fx[row] = 0;
+            this.fy[row] = 0;
+            this.maxSpeed[row] = 0;
+            this.maxForce[row] = 0;
+        }
+        if (this.color != null) {
+            this.color[row] = 0;
+            this.drawSize[row] = 0;
+        }
+    }
+
+    private void grow(int capacity) {
+        this.entities = Arrays.copyOf(this.entities, capacity);
+        if (this.x != null) {
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+        }
+        if (this.vx != null) {
+            this.vx = Arrays.copyOf(this.vx, capacity);
+            this.vy = Arrays.copyOf(this.vy, capacity);
+        }
+        if (this.fx != null) {
+            this.fx = Arrays.copyOf(this.fx, capacity);
+            this.fy = Arrays.copyOf(this.fy, capacity);
+            this.maxSpeed = Arrays.copyOf(this.maxSpeed, capacity);
+            this.maxForce = Arrays.copyOf(this.maxForce, capacity);
+        }
+        if (this.color != null) {
+            this.color = Arrays.copyOf(this.color, capacity);
+            this.drawSize = Arrays.copyOf(this.drawSize, capacity);
+        }
+    }
+
+    /**
+     * Makes room for more rows up front, e.g. before spawning a big flock.
+     * @param capacity The number of rows to make room for.
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > this.entities.length) {
+            grow(capacity);
+        }
+    }
+
+    public boolean has(Component component) {
+        return (this.mask & component.bit()) != 0;
+    }
+
+    public int getMask() {
+        return this.mask;
+    }
+
+    /**
+     * @return The number of rows in use.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return The entity in each row.
+     */
+    public int[] getEntities() {
+        return this.entities;
+    }
+
+    public double[] getX() {
+        return this.x;
+    }
+
+    public double[] getY() {
+        return this.y;
+    }
+
+    public double[] getVelocityX() {
+        return this.vx;
+    }
+
+    public double[] getVelocityY() {
+        return this.vy;
+    }
+
+    public double[] getForceX() {
+        return this.fx;
+    }
+
+    public double[] getForceY() {
+        return this.fy;
+    }
+
+    public double[] getMaxSpeed() {
+        return this.maxSpeed;
+    }
+
+    public double[] getMaxForce() {
+        return this.maxForce;
+    }
+
+    /**
+     * @return Each row's colour as 0xRRGGBB.
+     */
+    public int[] getColor() {
+        return this.color;
+    }
+
+    public double[] getDrawSize() {
+        return this.drawSize;
+    }
+}
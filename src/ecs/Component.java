@@ -0,0 +1,40 @@
+package ecs;
+
+/**
+ * The component types an entity can have. An entity's kind is just the set of components it
+ * has, written as a mask of {@link #bit()}s, so a new kind of entity is a new combination
+ * rather than a new class.
+ */
+public enum Component {
+    /** x, y in world coordinates. */
+    POSITION,
+    /** Velocity x, y, in world units per tick. */
+    VELOCITY,
+    /** The force gathered this tick, and the speed and force limits it is applied with. */
+    STEERING,
+    /** A tag: hunts prey. */
+    PREDATOR,
+    /** A tag: flocks with other prey and flees predators. */
+    PREY,
+    /** Colour and size to draw with. */
+    RENDERABLE;
+
+    /**
+     * @return This component's bit in a component mask.
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @param components Some components.
+     * @return The mask with all of their bits set.
+     */
+    public static int maskOf(Component... components) {
+        int mask = 0;
+        for (Component component : components) {
+            mask |= component.bit();
+        }
+        return mask;
+    }
+}
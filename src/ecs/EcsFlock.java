@@ -0,0 +1,215 @@
+package ecs;
+
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+import drawing.Canvas;
+import flockingsim.FlockProfile;
+import flockingsim.FlockingSimulation;
+import flockingsim.Rectangle;
+import flockingsim.SpawnSampler;
+import tools.Utils;
+
+/**
+ * Boids and predators on the entity-component-system core: an {@link EntityWorld} and the
+ * systems that flock, hunt, avoid obstacles and move, in that order. It follows the same
+ * rules as {@link flockingsim.FlockingSimulation} but keeps every entity's state in packed
+ * arrays, so each system is a linear pass that splits across cores.
+ *
+ * <p>A new kind of entity is a new mask: e.g. a boid without {@link Component#PREY} is
+ * ignored by the flocking and predator systems but still steers around obstacles and moves.
+ * Extra systems added with {@link #addSystem} run before movement.
+ *
+ * <p>Run it with {@code java -cp bin ecs.EcsFlock [boids] [predators] [ticks]}; headless it
+ * prints tick times every 100 ticks, otherwise it opens a window.
+ */
+public class EcsFlock {
+    public static final int BOID = Component.maskOf(Component.POSITION, Component.VELOCITY, Component.STEERING,
+        Component.PREY, Component.RENDERABLE);
+    public static final int PREDATOR = Component.maskOf(Component.POSITION, Component.VELOCITY, Component.STEERING,
+        Component.PREDATOR, Component.RENDERABLE);
+
+    private static final int BOID_COLOR = 0x000000;
+    private static final int PREDATOR_COLOR = 0xFF0000;
+    private static final double BOID_SIZE = 7;
+    private static final double PREDATOR_SIZE = 12;
+    private static final int DEFAULT_BOID_COUNT = 2000;
+    private static final int DEFAULT_PREDATOR_COUNT = 2;
+    private static final int REPORT_INTERVAL = 100;
+
+    private final EntityWorld world = new EntityWorld();
+    private final int worldWidth;
+    private final int worldHeight;
+    private final List<Rectangle> obstacles;
+    private final ArrayList<EcsSystem> systems = new ArrayList<>();
+    private final NeighborGrid neighborGrid;
+    private final FlockingSystem flocking;
+    private final PredatorSystem predators;
+    private final ObstacleSystem obstacleAvoidance;
+    private final MovementSystem movement;
+    private long[] systemNanos = new long[0];
+
+    /**
+     * @param worldWidth The world width.
+     * @param worldHeight The world height.
+     * @param obstacles The obstacles, which must not move.
+     */
+    public EcsFlock(int worldWidth, int worldHeight, List<Rectangle> obstacles) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.obstacles = obstacles;
+        // The simulation's own defaults, so both engines flock alike
+        this.neighborGrid = new NeighborGrid(worldWidth, worldHeight, FlockingSimulation.BOID_PERCEPTION_RADIUS);
+        this.flocking = new FlockingSystem(this.neighborGrid, FlockingSimulation.BOID_PERCEPTION_RADIUS,
+            FlockProfile.DEFAULT.getDesiredSeparation());
+        this.predators = new PredatorSystem(this.neighborGrid, FlockingSimulation.BOID_PERCEPTION_RADIUS);
+        this.obstacleAvoidance = new ObstacleSystem(obstacles, ObstacleSystem.DEFAULT_SAFETY_RADIUS);
+        this.movement = new MovementSystem(worldWidth, worldHeight, FlockProfile.DEFAULT.getMinSpeed());
+        this.systems.add(this.neighborGrid);
+        this.systems.add(this.flocking);
+        this.systems.add(this.predators);
+        this.systems.add(this.obstacleAvoidance);
+        this.systems.add(this.movement);
+    }
+
+    /**
+     * Adds a system that runs after the built-in steering and before movement, e.g. one
+     * that steers a new kind of entity.
+     */
+    public void addSystem(EcsSystem system) {
+        this.systems.add(this.systems.size() - 1, system);
+    }
+
+    /**
+     * Spawns boids spread uniformly over the space clear of obstacles.
+     * @param count How many.
+     * @param seed The seed; the same seed spawns the same flock.
+     */
+    public void spawnBoids(int count, long seed) {
+        SpawnSampler sampler = new SpawnSampler(this.worldWidth, this.worldHeight, this.obstacles, FlockingSimulation.BOID_SPAWN_MARGIN);
+        double[] positions = sampler.sample(count, 0, seed);
+        SplittableRandom random = new SplittableRandom(seed);
+        this.world.reserve(BOID, count);
+        for (int i = 0; i < count; i++) {
+            double angle = random.nextDouble(2 * Math.PI);
+            double speed = random.nextDouble(FlockingSimulation.BOID_MAX_SPEED);
+            spawn(BOID, positions[2 * i], positions[2 * i + 1], Math.cos(angle) * speed, Math.sin(angle) * speed,
+                BOID_COLOR, BOID_SIZE);
+        }
+    }
+
+    /**
+     * @return The new predator.
+     */
+    public int spawnPredator(double x, double y) {
+        return spawn(PREDATOR, x, y, 0, 0, PREDATOR_COLOR, PREDATOR_SIZE);
+    }
+
+    private int spawn(int mask, double x, double y, double vx, double vy, int color, double size) {
+        int entity = this.world.create(mask);
+        this.world.setPosition(entity, x, y);
+        this.world.setVelocity(entity, vx, vy);
+        this.world.setSteering(entity, FlockingSimulation.BOID_MAX_SPEED, FlockingSimulation.BOID_MAX_FORCE);
+        this.world.setRenderable(entity, color, size);
+        return entity;
+    }
+
+    /**
+     * Runs every system once.
+     */
+    public void step() {
+        if (this.systemNanos.length != this.systems.size()) {
+            this.systemNanos = new long[this.systems.size()];
+        }
+        for (int i = 0; i < this.systems.size(); i++) {
+            long start = System.nanoTime();
+            this.systems.get(i).update(this.world);
+            this.systemNanos[i] += System.nanoTime() - start;
+        }
+    }
+
+    public EntityWorld getWorld() {
+        return this.world;
+    }
+
+    public FlockingSystem getFlocking() {
+        return this.flocking;
+    }
+
+    public PredatorSystem getPredators() {
+        return this.predators;
+    }
+
+    public ObstacleSystem getObstacleAvoidance() {
+        return this.obstacleAvoidance;
+    }
+
+    /**
+     * Prints each system's share of the ticks since the last report and starts counting again.
+     */
+    private void report(int tick, int ticks) {
+        StringBuilder line = new StringBuilder("Tick " + tick + ": " + this.world.size() + " entities");
+        long total = 0;
+        for (long nanos : this.systemNanos) {
+            total += nanos;
+        }
+        line.append(String.format(", %.2f ms/tick (", total / 1e6 / ticks));
+        for (int i = 0; i < this.systems.size(); i++) {
+            line.append(i == 0 ? "" : ", ").append(this.systems.get(i).getClass().getSimpleName())
+                .append(String.format(" %.2f", this.systemNanos[i] / 1e6 / ticks));
+            this.systemNanos[i] = 0;
+        }
+        System.out.println(line.append(")"));
+    }
+
+    public static void main(String[] args) {
+        int boidCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BOID_COUNT;
+        int predatorCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PREDATOR_COUNT;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        int width = Integer.getInteger("flockingsim.worldWidth", 800);
+        int height = Integer.getInteger("flockingsim.worldHeight", 600);
+        boolean headless = GraphicsEnvironment.isHeadless();
+        Canvas canvas = new Canvas();
+        canvas.setLineWidth(1);
+        Utils utils = new Utils();
+        EcsFlock flock = new EcsFlock(width, height, FlockingSimulation.createBriefObstacles(canvas));
+        flock.spawnBoids(boidCount, utils.randomLong());
+        for (int i = 0; i < predatorCount; i++) {
+            flock.spawnPredator(utils.randomDouble(0, width), utils.randomDouble(0, height));
+        }
+        System.out.println("Running " + boidCount + " boids and " + predatorCount + " predators in a "
+            + width + "x" + height + " world");
+
+        RenderSystem render = new RenderSystem(canvas);
+        if (!headless) {
+            SwingUtilities.invokeLater(() -> {
+                JFrame frame = new JFrame("Flocking (ECS)");
+                frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                frame.add(canvas);
+                frame.setSize(800, 600);
+                frame.setLocationRelativeTo(null);
+                frame.setVisible(true);
+            });
+        }
+        for (int tick = 1; tick <= ticks; tick++) {
+            flock.step();
+            if (tick % REPORT_INTERVAL == 0) {
+                flock.report(tick, REPORT_INTERVAL);
+            }
+            if (!headless) {
+                canvas.clear();
+                for (Rectangle obstacle : flock.obstacles) {
+                    obstacle.draw();
+                }
+                render.update(flock.world);
+                canvas.repaint();
+                utils.pause(1000 / 30);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ecs;
+
+/**
+ * Updates the components of every entity that has what the system needs. Systems run one
+ * after another each tick, in a fixed order, and keep no per-entity state of their own.
+ */
+public interface EcsSystem {
+    /**
+     * @param world The entities to update.
+     */
+    void update(EntityWorld world);
+}
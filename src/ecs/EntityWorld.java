@@ -0,0 +1,247 @@
+package ecs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Owns every entity and its components. An entity is an int id; its components live in the
+ * {@link Archetype} for its exact set of components, at some row that can change as other
+ * entities come and go.
+ *
+ * <p>Systems ask for the archetypes that have the components they need with {@link #query}
+ * and then loop over the rows. They never look at an entity's type, so adding a kind of
+ * entity (a new combination of components) adds no checks to any loop; a system simply gets
+ * one more archetype back if the new kind has what it needs.
+ *
+ * <p>Creating, destroying and changing the components of entities must happen between
+ * system updates, on one thread. Ids are reused once destroyed.
+ */
+public class EntityWorld {
+    /** Below this many rows a loop is not worth splitting across threads. */
+    public static final int PARALLEL_CHUNK = 2048;
+
+    /**
+     * Work on a range of rows of one archetype.
+     */
+    public interface RowTask {
+        /**
+         * @param archetype The archetype.
+         * @param from The first row, inclusive.
+         * @param to The last row, exclusive.
+         */
+        void run(Archetype archetype, int from, int to);
+    }
+
+    private final ArrayList<Archetype> archetypes = new ArrayList<>();
+    private final HashMap<Integer, Archetype> archetypesByMask = new HashMap<>();
+    private final HashMap<Long, Archetype[]> queries = new HashMap<>();
+    private Archetype[] archetypeOf = new Archetype[256];
+    private int[] rowOf = new int[256];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId;
+    private int count;
+    private boolean parallel = !Boolean.getBoolean("flockingsim.ecs.serial");
+
+    /**
+     * Creates an entity with every field of its components zero.
+     * @param mask Its components, see {@link Component#maskOf}.
+     * @return The entity.
+     */
+    public int create(int mask) {
+        int entity;
+        if (this.freeCount > 0) {
+            entity = this.freeIds[--this.freeCount];
+        } else {
+            entity = this.nextId++;
+            if (entity == this.archetypeOf.length) {
+                this.archetypeOf = Arrays.copyOf(this.archetypeOf, 2 * entity);
+                this.rowOf = Arrays.copyOf(this.rowOf, 2 * entity);
+            }
+        }
+        Archetype archetype = archetype(mask);
+        this.archetypeOf[entity] = archetype;
+        this.rowOf[entity] = archetype.add(entity);
+        this.count++;
+        return entity;
+    }
+
+    /**
+     * @param entity An entity; destroying one that is not alive does nothing.
+     */
+    public void destroy(int entity) {
+        if (!isAlive(entity)) {
+            return;
+        }
+        detach(entity);
+        this.archetypeOf[entity] = null;
+        if (this.freeCount == this.freeIds.length) {
+            this.freeIds = Arrays.copyOf(this.freeIds, 2 * this.freeCount);
+        }
+        this.freeIds[this.freeCount++] = entity;
+        this.count--;
+    }
+
+    /**
+     * Changes which components an entity has, keeping the values of the ones it keeps.
+     * Components it gains start at zero.
+     * @param entity A live entity.
+     * @param mask Its new components.
+     */
+    public void setComponents(int entity, int mask) {
+        Archetype from = this.archetypeOf[entity];
+        if (from.getMask() == mask) {
+            return;
+        }
+        Archetype to = archetype(mask);
+        int toRow = to.add(entity);
+        Archetype.copyRow(from, this.rowOf[entity], to, toRow);
+        detach(entity);
+        this.archetypeOf[entity] = to;
+        this.rowOf[entity] = toRow;
+    }
+
+    public void addComponent(int entity, Component component) {
+        setComponents(entity, getMask(entity) | component.bit());
+    }
+
+    public void removeComponent(int entity, Component component) {
+        setComponents(entity, getMask(entity) & ~component.bit());
+    }
+
+    private void detach(int entity) {
+        int moved = this.archetypeOf[entity].remove(this.rowOf[entity]);
+        if (moved >= 0) {
+            this.rowOf[moved] = this.rowOf[entity];
+        }
+    }
+
+    private Archetype archetype(int mask) {
+        Archetype archetype = this.archetypesByMask.get(mask);
+        if (archetype == null) {
+            archetype = new Archetype(mask);
+            this.archetypesByMask.put(mask, archetype);
+            this.archetypes.add(archetype);
+            this.queries.clear(); // A new archetype may match any of them
+        }
+        return archetype;
+    }
+
+    /**
+     * Makes room up front for a number of entities with the same components.
+     */
+    public void reserve(int mask, int extra) {
+        Archetype archetype = archetype(mask);
+        archetype.ensureCapacity(archetype.size() + extra);
+    }
+
+    /**
+     * @param required Components the archetypes must have.
+     * @param excluded Components they must not have.
+     * @return The matching archetypes, cached until a new archetype appears. Do not modify.
+     */
+    public Archetype[] query(int required, int excluded) {
+        long key = ((long) required << 32) | (excluded & 0xFFFFFFFFL);
+        Archetype[] result = this.queries.get(key);
+        if (result == null) {
+            result = this.archetypes.stream()
+                .filter(a -> (a.getMask() & required) == required && (a.getMask() & excluded) == 0)
+                .toArray(Archetype[]::new);
+            this.queries.put(key, result);
+        }
+        return result;
+    }
+
+    public Archetype[] query(int required) {
+        return query(required, 0);
+    }
+
+    /**
+     * Runs a task over every row of the matching archetypes, splitting big archetypes into
+     * chunks of {@value #PARALLEL_CHUNK} rows that run in parallel. The task must only
+     * write to its own rows.
+     */
+    public void forEachChunk(int required, int excluded, RowTask task) {
+        for (Archetype archetype : query(required, excluded)) {
+            int size = archetype.size();
+            int chunks = (size + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+            if (chunks <= 1 || !this.parallel) {
+                task.run(archetype, 0, size);
+            } else {
+                IntStream.range(0, chunks).parallel().forEach(chunk ->
+                    task.run(archetype, chunk * PARALLEL_CHUNK, Math.min(size, (chunk + 1) * PARALLEL_CHUNK)));
+            }
+        }
+    }
+
+    /**
+     * @param parallel Whether {@link #forEachChunk} may use several threads. Systems give the
+     *        same results either way; -Dflockingsim.ecs.serial=true turns it off.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isAlive(int entity) {
+        return entity >= 0 && entity < this.nextId && this.archetypeOf[entity] != null;
+    }
+
+    public int getMask(int entity) {
+        return this.archetypeOf[entity].getMask();
+    }
+
+    /**
+     * @return The archetype holding a live entity's components.
+     */
+    public Archetype getArchetype(int entity) {
+        return this.archetypeOf[entity];
+    }
+
+    /**
+     * @return The entity's row in {@link #getArchetype}, valid until entities are next created or destroyed.
+     */
+    public int getRow(int entity) {
+        return this.rowOf[entity];
+    }
+
+    /**
+     * @return How many entities are alive.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    public void setPosition(int entity, double x, double y) {
+        Archetype archetype = this.archetypeOf[entity];
+        int row = this.rowOf[entity];
+        archetype.getX()[row] = x;
+        archetype.getY()[row] = y;
+    }
+
+    public void setVelocity(int entity, double vx, double vy) {
+        Archetype archetype = this.archetypeOf[entity];
+        int row = this.rowOf[entity];
+        archetype.getVelocityX()[row] = vx;
+        archetype.getVelocityY()[row] = vy;
+    }
+
+    public void setSteering(int entity, double maxSpeed, double maxForce) {
+        Archetype archetype = this.archetypeOf[entity];
+        int row = this.rowOf[entity];
+        archetype.getMaxSpeed()[row] = maxSpeed;
+        archetype.getMaxForce()[row] = maxForce;
+    }
+
+    /**
+     * @param color The colour as 0xRRGGBB.
+     * @param size How long to draw the entity.
+     */
+    public void setRenderable(int entity, int color, double size) {
+        Archetype archetype = this.archetypeOf[entity];
+        int row = this.rowOf[entity];
+        archetype.getColor()[row] = color;
+        archetype.getDrawSize()[row] = size;
+    }
+}
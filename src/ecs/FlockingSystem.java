@@ -0,0 +1,152 @@
+package ecs;
+
+import flockingsim.Boid;
+
+/**
+ * Separation, alignment and cohesion for every prey, using {@link Boid}'s separation falloff,
+ * force limits and default weights over packed arrays instead of boid objects. Neighbours come from a {@link NeighborGrid} that has been
+ * updated this tick, and the force is added to each prey's steering force.
+ */
+public final class FlockingSystem implements EcsSystem {
+    private static final int STEERED_PREY = Component.maskOf(Component.POSITION, Component.VELOCITY,
+        Component.STEERING, Component.PREY);
+
+    private final NeighborGrid grid;
+    private final double perceptionRadius;
+    private final double desiredSeparation;
+    private volatile double separationWeight = Boid.DEFAULT_SEPARATION_WEIGHT;
+    private volatile double alignmentWeight = Boid.DEFAULT_ALIGNMENT_WEIGHT;
+    private volatile double cohesionWeight = Boid.DEFAULT_COHESION_WEIGHT;
+
+    /**
+     * @param grid The prey index; its cells must be at least the perception radius across.
+     * @param perceptionRadius How far away prey see each other.
+     * @param desiredSeparation How close prey get before pushing apart.
+     */
+    public FlockingSystem(NeighborGrid grid, double perceptionRadius, double desiredSeparation) {
+        this.grid = grid;
+        this.perceptionRadius = perceptionRadius;
+        this.desiredSeparation = desiredSeparation;
+    }
+
+    @Override
+    public void update(EntityWorld world) {
+        double separationW = this.separationWeight;
+        double alignmentW = this.alignmentWeight;
+        double cohesionW = this.cohesionWeight;
+        world.forEachChunk(STEERED_PREY, 0, (archetype, from, to) -> {
+            double[] ax = archetype.getX();
+            double[] ay = archetype.getY();
+            double[] avx = archetype.getVelocityX();
+            double[] avy = archetype.getVelocityY();
+            double[] fx = archetype.getForceX();
+            double[] fy = archetype.getForceY();
+            double[] maxSpeed = archetype.getMaxSpeed();
+            double[] maxForce = archetype.getMaxForce();
+            for (int row = from; row < to; row++) {
+                flock(row, ax[row], ay[row], avx[row], avy[row], maxSpeed[row], maxForce[row],
+                    separationW, alignmentW, cohesionW, fx, fy);
+            }
+        });
+    }
+
+    private void flock(int row, double x, double y, double vx, double vy, double maxSpeed, double maxForce,
+            double separationW, double alignmentW, double cohesionW, double[] fx, double[] fy) {
+        double[] gx = this.grid.getX();
+        double[] gy = this.grid.getY();
+        double[] gvx = this.grid.getVelocityX();
+        double[] gvy = this.grid.getVelocityY();
+        int[] cellStart = this.grid.getCellStart();
+        int columns = this.grid.getColumns();
+        double perceptionSquared = this.perceptionRadius * this.perceptionRadius;
+        double separationX = 0;
+        double separationY = 0;
+        int separationCount = 0;
+        double velocityX = 0;
+        double velocityY = 0;
+        double positionX = 0;
+        double positionY = 0;
+        int perceivedCount = 0;
+
+        int column = this.grid.columnAt(x);
+        int gridRow = this.grid.rowAt(y);
+        for (int r = Math.max(0, gridRow - 1); r <= Math.min(this.grid.getRows() - 1, gridRow + 1); r++) {
+            // The cells of one grid row are adjacent in the arrays, so three cells are one run
+            int start = cellStart[r * columns + Math.max(0, column - 1)];
+            int end = cellStart[r * columns + Math.min(columns - 1, column + 1) + 1];
+            for (int i = start; i < end; i++) {
+                double dx = x - gx[i];
+                double dy = y - gy[i];
+                double distanceSquared = dx * dx + dy * dy;
+                if (distanceSquared == 0 || distanceSquared >= perceptionSquared) {
+                    continue; // Itself, or out of sight
+                }
+                velocityX += gvx[i];
+                velocityY += gvy[i];
+                positionX += gx[i];
+                positionY += gy[i];
+                perceivedCount++;
+                double distance = Math.sqrt(distanceSquared);
+                if (distance < this.desiredSeparation) {
+                    double scale = Boid.separationStrength(distance, this.desiredSeparation, maxSpeed);
+                    separationX += dx / distance * scale;
+                    separationY += dy / distance * scale;
+                    separationCount++;
+                }
+            }
+        }
+
+        double forceX = 0;
+        double forceY = 0;
+        if (separationCount > 0 && (separationX != 0 || separationY != 0)) {
+            double length = Math.sqrt(separationX * separationX + separationY * separationY);
+            double steerX = separationX / length * maxSpeed - vx;
+            double steerY = separationY / length * maxSpeed - vy;
+            double scale = limitScale(steerX, steerY, maxForce * Boid.SEPARATION_FORCE_LIMIT) * separationW;
+            forceX += steerX * scale;
+            forceY += steerY * scale;
+        }
+        if (perceivedCount > 0) {
+            if (velocityX != 0 || velocityY != 0) {
+                double length = Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+                double steerX = velocityX / length * maxSpeed - vx;
+                double steerY = velocityY / length * maxSpeed - vy;
+                double scale = limitScale(steerX, steerY, maxForce) * alignmentW;
+                forceX += steerX * scale;
+                forceY += steerY * scale;
+            }
+            double toCentreX = positionX / perceivedCount - x;
+            double toCentreY = positionY / perceivedCount - y;
+            if (toCentreX != 0 || toCentreY != 0) {
+                double length = Math.sqrt(toCentreX * toCentreX + toCentreY * toCentreY);
+                double steerX = toCentreX / length * maxSpeed - vx;
+                double steerY = toCentreY / length * maxSpeed - vy;
+                double scale = limitScale(steerX, steerY, maxForce) * cohesionW;
+                forceX += steerX * scale;
+                forceY += steerY * scale;
+            }
+        }
+        fx[row] += forceX;
+        fy[row] += forceY;
+    }
+
+    /**
+     * @return What to multiply a vector by to limit its length to {@code max}.
+     */
+    static double limitScale(double x, double y, double max) {
+        double lengthSquared = x * x + y * y;
+        return lengthSquared > max * max ? max / Math.sqrt(lengthSquared) : 1.0;
+    }
+
+    public void setSeparationWeight(double weight) {
+        this.separationWeight = weight;
+    }
+
+    public void setAlignmentWeight(double weight) {
+        this.alignmentWeight = weight;
+    }
+
+    public void setCohesionWeight(double weight) {
+        this.cohesionWeight = weight;
+    }
+}
@@ -0,0 +1,78 @@
+package ecs;
+
+/**
+ * Applies each steered entity's gathered force to its velocity, keeps its speed within its
+ * limits and clears the force for the next tick, then moves everything that has a velocity
+ * and wraps it around the world. Runs last in a tick.
+ */
+public final class MovementSystem implements EcsSystem {
+    private static final int STEERED = Component.maskOf(Component.POSITION, Component.VELOCITY, Component.STEERING);
+    private static final int MOVING = Component.maskOf(Component.POSITION, Component.VELOCITY);
+
+    private final double worldWidth;
+    private final double worldHeight;
+    private final double minSpeed;
+
+    /**
+     * @param worldWidth The world width.
+     * @param worldHeight The world height.
+     * @param minSpeed The slowest a steered entity that is moving at all may go.
+     */
+    public MovementSystem(double worldWidth, double worldHeight, double minSpeed) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.minSpeed = minSpeed;
+    }
+
+    @Override
+    public void update(EntityWorld world) {
+        world.forEachChunk(STEERED, 0, (archetype, from, to) -> {
+            double[] vx = archetype.getVelocityX();
+            double[] vy = archetype.getVelocityY();
+            double[] fx = archetype.getForceX();
+            double[] fy = archetype.getForceY();
+            double[] maxSpeed = archetype.getMaxSpeed();
+            for (int row = from; row < to; row++) {
+                double x = vx[row] + fx[row];
+                double y = vy[row] + fy[row];
+                double speed = Math.sqrt(x * x + y * y);
+                if (speed > maxSpeed[row]) {
+                    double scale = maxSpeed[row] / speed;
+                    x *= scale;
+                    y *= scale;
+                } else if (speed < this.minSpeed && speed > 0.001 && this.minSpeed <= maxSpeed[row]) {
+                    double scale = this.minSpeed / speed;
+                    x *= scale;
+                    y *= scale;
+                }
+                vx[row] = x;
+                vy[row] = y;
+                fx[row] = 0;
+                fy[row] = 0;
+            }
+        });
+        world.forEachChunk(MOVING, 0, (archetype, from, to) -> {
+            double[] x = archetype.getX();
+            double[] y = archetype.getY();
+            double[] vx = archetype.getVelocityX();
+            double[] vy = archetype.getVelocityY();
+            for (int row = from; row < to; row++) {
+                x[row] = wrap(x[row] + vx[row], this.worldWidth);
+                y[row] = wrap(y[row] + vy[row], this.worldHeight);
+            }
+        });
+    }
+
+    private static double wrap(double value, double size) {
+        if (value < 0) {
+            value += size;
+        } else if (value >= size) {
+            value -= size;
+        }
+        if (value >= 0 && value < size) {
+            return value;
+        }
+        value -= Math.floor(value / size) * size; // Only for entities moved more than a world in one tick
+        return value < size ? value : 0; // A tiny negative value can round up to the size
+    }
+}
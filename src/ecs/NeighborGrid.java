@@ -0,0 +1,147 @@
+package ecs;
+
+import java.util.Arrays;
+
+/**
+ * A system that copies the position and velocity of every prey into flat arrays sorted by
+ * grid cell, once per tick, for the systems that look for neighbours. A neighbour search is
+ * then a scan of a few short, contiguous runs of those arrays, whichever archetypes the
+ * prey came from.
+ */
+public final class NeighborGrid implements EcsSystem {
+    private static final int INDEXED = Component.maskOf(Component.POSITION, Component.VELOCITY, Component.PREY);
+
+    private final double worldWidth;
+    private final double worldHeight;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart; // Entries of cell c are cellStart[c] until cellStart[c + 1]
+    private int count;
+    private int[] cellOf = new int[0];
+    private double[] unsorted = new double[0]; // x, y, vx, vy per prey, in query order
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] vx = new double[0];
+    private double[] vy = new double[0];
+
+    /**
+     * @param worldWidth The world width.
+     * @param worldHeight The world height.
+     * @param cellSize The cell size, normally the largest radius anything searches.
+     */
+    public NeighborGrid(double worldWidth, double worldHeight, double cellSize) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(worldWidth / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(worldHeight / cellSize));
+        this.cellStart = new int[this.columns * this.rows + 1];
+    }
+
+    @Override
+    public void update(EntityWorld world) {
+        Archetype[] prey = world.query(INDEXED);
+        int total = 0;
+        for (Archetype archetype : prey) {
+            total += archetype.size();
+        }
+        if (total > this.x.length) {
+            int capacity = Math.max(total, 2 * this.x.length);
+            this.cellOf = new int[capacity];
+            this.unsorted = new double[4 * capacity];
+            this.x = new double[capacity];
+            this.y = new double[capacity];
+            this.vx = new double[capacity];
+            this.vy = new double[capacity];
+        }
+        Arrays.fill(this.cellStart, 0);
+        int n = 0;
+        for (Archetype archetype : prey) {
+            double[] ax = archetype.getX();
+            double[] ay = archetype.getY();
+            double[] avx = archetype.getVelocityX();
+            double[] avy = archetype.getVelocityY();
+            for (int row = 0; row < archetype.size(); row++, n++) {
+                int cell = cellAt(ax[row], ay[row]);
+                this.cellOf[n] = cell;
+                this.cellStart[cell + 1]++;
+                this.unsorted[4 * n] = ax[row];
+                this.unsorted[4 * n + 1] = ay[row];
+                this.unsorted[4 * n + 2] = avx[row];
+                this.unsorted[4 * n + 3] = avy[row];
+            }
+        }
+        for (int cell = 0; cell < this.columns * this.rows; cell++) {
+            this.cellStart[cell + 1] += this.cellStart[cell];
+        }
+        // Scatter with cellStart as the running insert position, then shift it back
+        for (int i = 0; i < n; i++) {
+            int slot = this.cellStart[this.cellOf[i]]++;
+            this.x[slot] = this.unsorted[4 * i];
+            this.y[slot] = this.unsorted[4 * i + 1];
+            this.vx[slot] = this.unsorted[4 * i + 2];
+            this.vy[slot] = this.unsorted[4 * i + 3];
+        }
+        System.arraycopy(this.cellStart, 0, this.cellStart, 1, this.columns * this.rows);
+        this.cellStart[0] = 0;
+        this.count = n;
+    }
+
+    int cellAt(double px, double py) {
+        int column = Math.min(this.columns - 1, Math.max(0, (int) (px / this.cellSize)));
+        int row = Math.min(this.rows - 1, Math.max(0, (int) (py / this.cellSize)));
+        return row * this.columns + column;
+    }
+
+    int columnAt(double px) {
+        return Math.min(this.columns - 1, Math.max(0, (int) (px / this.cellSize)));
+    }
+
+    int rowAt(double py) {
+        return Math.min(this.rows - 1, Math.max(0, (int) (py / this.cellSize)));
+    }
+
+    int getColumns() {
+        return this.columns;
+    }
+
+    int getRows() {
+        return this.rows;
+    }
+
+    int[] getCellStart() {
+        return this.cellStart;
+    }
+
+    double[] getX() {
+        return this.x;
+    }
+
+    double[] getY() {
+        return this.y;
+    }
+
+    double[] getVelocityX() {
+        return this.vx;
+    }
+
+    double[] getVelocityY() {
+        return this.vy;
+    }
+
+    /**
+     * @return How many prey were indexed at the last update.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    public double getWorldWidth() {
+        return this.worldWidth;
+    }
+
+    public double getWorldHeight() {
+        return this.worldHeight;
+    }
+}
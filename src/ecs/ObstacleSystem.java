@@ -0,0 +1,81 @@
+package ecs;
+
+import java.util.List;
+
+import flockingsim.Boid;
+import flockingsim.Rectangle;
+
+/**
+ * Pushes every steered entity away from the obstacles it is close to, harder the closer it
+ * is. Simpler than {@link Boid}'s look-ahead, but it keeps everything clear of the obstacles
+ * at a fraction of the cost. The obstacles are copied into flat arrays once.
+ */
+public final class ObstacleSystem implements EcsSystem {
+    /** Where the push starts. Boids look ahead instead, so this has no counterpart in {@link Boid}. */
+    public static final double DEFAULT_SAFETY_RADIUS = 40.0;
+    private static final int STEERED = Component.maskOf(Component.POSITION, Component.VELOCITY, Component.STEERING);
+
+    private final double[] bounds; // minX, minY, maxX, maxY of each obstacle
+    private final double safetyRadius;
+    private volatile double weight = Boid.DEFAULT_OBSTACLE_AVOIDANCE_WEIGHT;
+
+    /**
+     * @param obstacles The obstacles, which must not move.
+     * @param safetyRadius How close to an obstacle an entity starts steering away.
+     */
+    public ObstacleSystem(List<Rectangle> obstacles, double safetyRadius) {
+        this.bounds = new double[4 * obstacles.size()];
+        for (int i = 0; i < obstacles.size(); i++) {
+            Rectangle obstacle = obstacles.get(i);
+            this.bounds[4 * i] = obstacle.getPosition().getX();
+            this.bounds[4 * i + 1] = obstacle.getPosition().getY();
+            this.bounds[4 * i + 2] = obstacle.getPosition().getX() + obstacle.getDx();
+            this.bounds[4 * i + 3] = obstacle.getPosition().getY() + obstacle.getDy();
+        }
+        this.safetyRadius = safetyRadius;
+    }
+
+    @Override
+    public void update(EntityWorld world) {
+        if (this.bounds.length == 0) {
+            return;
+        }
+        double w = this.weight;
+        world.forEachChunk(STEERED, 0, (archetype, from, to) -> {
+            double[] ax = archetype.getX();
+            double[] ay = archetype.getY();
+            double[] fx = archetype.getForceX();
+            double[] fy = archetype.getForceY();
+            double[] maxForce = archetype.getMaxForce();
+            for (int row = from; row < to; row++) {
+                double x = ax[row];
+                double y = ay[row];
+                for (int i = 0; i < this.bounds.length; i += 4) {
+                    // The nearest point of the obstacle
+                    double nearestX = Math.max(this.bounds[i], Math.min(x, this.bounds[i + 2]));
+                    double nearestY = Math.max(this.bounds[i + 1], Math.min(y, this.bounds[i + 3]));
+                    double dx = x - nearestX;
+                    double dy = y - nearestY;
+                    double distanceSquared = dx * dx + dy * dy;
+                    if (distanceSquared >= this.safetyRadius * this.safetyRadius) {
+                        continue;
+                    }
+                    if (distanceSquared == 0) {
+                        // Inside: head out from the centre
+                        dx = x - (this.bounds[i] + this.bounds[i + 2]) / 2;
+                        dy = y - (this.bounds[i + 1] + this.bounds[i + 3]) / 2;
+                        distanceSquared = Math.max(1e-12, dx * dx + dy * dy);
+                    }
+                    double distance = Math.sqrt(distanceSquared);
+                    double strength = maxForce[row] * (1.0 - Math.min(distance, this.safetyRadius) / this.safetyRadius) * w;
+                    fx[row] += dx / distance * strength;
+                    fy[row] += dy / distance * strength;
+                }
+            }
+        });
+    }
+
+    public void setWeight(double weight) {
+        this.weight = weight;
+    }
+}
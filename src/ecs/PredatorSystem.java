@@ -0,0 +1,137 @@
+package ecs;
+
+import java.util.Arrays;
+
+import flockingsim.Boid;
+
+/**
+ * Predators steer towards the nearest prey they can see, and prey steer away from the
+ * predators they can see, closer ones counting more, as {@link flockingsim.Predator} and
+ * {@link Boid} do. There are only ever a few predators, so their positions are gathered
+ * into one small array that every prey scans.
+ */
+public final class PredatorSystem implements EcsSystem {
+    private static final int PREDATORS = Component.maskOf(Component.POSITION, Component.PREDATOR);
+    private static final int STEERED_PREDATORS = Component.maskOf(Component.POSITION, Component.VELOCITY,
+        Component.STEERING, Component.PREDATOR);
+    private static final int STEERED_PREY = Component.maskOf(Component.POSITION, Component.VELOCITY,
+        Component.STEERING, Component.PREY);
+    private static final double FLEE_FORCE_FACTOR = 3.5; // Fleeing may steer harder than flocking
+
+    private final NeighborGrid grid;
+    private final double perceptionRadius;
+    private volatile double fleeWeight = Boid.DEFAULT_PREDATOR_FLEE_WEIGHT;
+    private double[] predatorX = new double[8];
+    private double[] predatorY = new double[8];
+    private int predatorCount;
+
+    /**
+     * @param grid The prey index, updated this tick; its cells must be at least the perception radius across.
+     * @param perceptionRadius How far away predators and prey see each other.
+     */
+    public PredatorSystem(NeighborGrid grid, double perceptionRadius) {
+        this.grid = grid;
+        this.perceptionRadius = perceptionRadius;
+    }
+
+    @Override
+    public void update(EntityWorld world) {
+        this.predatorCount = 0;
+        for (Archetype archetype : world.query(PREDATORS)) {
+            if (this.predatorCount + archetype.size() > this.predatorX.length) {
+                this.predatorX = Arrays.copyOf(this.predatorX, 2 * (this.predatorCount + archetype.size()));
+                this.predatorY = Arrays.copyOf(this.predatorY, this.predatorX.length);
+            }
+            System.arraycopy(archetype.getX(), 0, this.predatorX, this.predatorCount, archetype.size());
+            System.arraycopy(archetype.getY(), 0, this.predatorY, this.predatorCount, archetype.size());
+            this.predatorCount += archetype.size();
+        }
+        if (this.predatorCount == 0) {
+            return;
+        }
+        double weight = this.fleeWeight;
+        if (weight != 0) {
+            world.forEachChunk(STEERED_PREY, 0, (archetype, from, to) -> flee(archetype, from, to, weight));
+        }
+        world.forEachChunk(STEERED_PREDATORS, 0, this::hunt);
+    }
+
+    private void flee(Archetype archetype, int from, int to, double weight) {
+        double[] ax = archetype.getX();
+        double[] ay = archetype.getY();
+        double[] avx = archetype.getVelocityX();
+        double[] avy = archetype.getVelocityY();
+        double[] fx = archetype.getForceX();
+        double[] fy = archetype.getForceY();
+        double[] maxSpeed = archetype.getMaxSpeed();
+        double[] maxForce = archetype.getMaxForce();
+        double perceptionSquared = this.perceptionRadius * this.perceptionRadius;
+        for (int row = from; row < to; row++) {
+            double fleeX = 0;
+            double fleeY = 0;
+            for (int p = 0; p < this.predatorCount; p++) {
+                double dx = ax[row] - this.predatorX[p];
+                double dy = ay[row] - this.predatorY[p];
+                double distanceSquared = dx * dx + dy * dy;
+                if (distanceSquared > 0 && distanceSquared < perceptionSquared) {
+                    fleeX += dx / distanceSquared; // The direction, divided by the distance
+                    fleeY += dy / distanceSquared;
+                }
+            }
+            if (fleeX != 0 || fleeY != 0) {
+                double length = Math.sqrt(fleeX * fleeX + fleeY * fleeY);
+                double steerX = fleeX / length * maxSpeed[row] - avx[row];
+                double steerY = fleeY / length * maxSpeed[row] - avy[row];
+                double scale = FlockingSystem.limitScale(steerX, steerY, maxForce[row] * FLEE_FORCE_FACTOR) * weight;
+                fx[row] += steerX * scale;
+                fy[row] += steerY * scale;
+            }
+        }
+    }
+
+    private void hunt(Archetype archetype, int from, int to) {
+        double[] ax = archetype.getX();
+        double[] ay = archetype.getY();
+        double[] avx = archetype.getVelocityX();
+        double[] avy = archetype.getVelocityY();
+        double[] fx = archetype.getForceX();
+        double[] fy = archetype.getForceY();
+        double[] maxSpeed = archetype.getMaxSpeed();
+        double[] maxForce = archetype.getMaxForce();
+        double[] gx = this.grid.getX();
+        double[] gy = this.grid.getY();
+        int[] cellStart = this.grid.getCellStart();
+        int columns = this.grid.getColumns();
+        for (int row = from; row < to; row++) {
+            double closestSquared = this.perceptionRadius * this.perceptionRadius;
+            int closest = -1;
+            int column = this.grid.columnAt(ax[row]);
+            int gridRow = this.grid.rowAt(ay[row]);
+            for (int r = Math.max(0, gridRow - 1); r <= Math.min(this.grid.getRows() - 1, gridRow + 1); r++) {
+                int start = cellStart[r * columns + Math.max(0, column - 1)];
+                int end = cellStart[r * columns + Math.min(columns - 1, column + 1) + 1];
+                for (int i = start; i < end; i++) {
+                    double dx = gx[i] - ax[row];
+                    double dy = gy[i] - ay[row];
+                    double distanceSquared = dx * dx + dy * dy;
+                    if (distanceSquared < closestSquared) {
+                        closestSquared = distanceSquared;
+                        closest = i;
+                    }
+                }
+            }
+            if (closest >= 0 && closestSquared > 0) {
+                double distance = Math.sqrt(closestSquared);
+                double steerX = (gx[closest] - ax[row]) / distance * maxSpeed[row] - avx[row];
+                double steerY = (gy[closest] - ay[row]) / distance * maxSpeed[row] - avy[row];
+                double scale = FlockingSystem.limitScale(steerX, steerY, maxForce[row]);
+                fx[row] += steerX * scale;
+                fy[row] += steerY * scale;
+            }
+        }
+    }
+
+    public void setFleeWeight(double weight) {
+        this.fleeWeight = weight;
+    }
+}
@@ -0,0 +1,67 @@
+package ecs;
+
+import java.awt.Color;
+import java.util.HashMap;
+
+import drawing.Canvas;
+import flockingsim.Camera;
+import geometry.CartesianCoordinate;
+
+/**
+ * Draws every renderable entity that has a position and velocity as a triangle pointing
+ * where it is going, skipping those the camera cannot see. Drawing goes through the
+ * {@link Canvas}, so call it from the thread that owns the canvas, between ticks.
+ */
+public final class RenderSystem implements EcsSystem {
+    private static final int DRAWN = Component.maskOf(Component.POSITION, Component.VELOCITY, Component.RENDERABLE);
+
+    private final Canvas canvas;
+    private final HashMap<Integer, Color> colors = new HashMap<>();
+    private volatile Camera camera = Camera.IDENTITY;
+
+    public RenderSystem(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    @Override
+    public void update(EntityWorld world) {
+        Camera view = this.camera;
+        double zoom = view.getZoom();
+        double minX = view.getOffsetX();
+        double minY = view.getOffsetY();
+        double maxX = view.getViewMaxX(this.canvas.getWidth());
+        double maxY = view.getViewMaxY(this.canvas.getHeight());
+        for (Archetype archetype : world.query(DRAWN)) {
+            double[] x = archetype.getX();
+            double[] y = archetype.getY();
+            double[] vx = archetype.getVelocityX();
+            double[] vy = archetype.getVelocityY();
+            int[] color = archetype.getColor();
+            double[] size = archetype.getDrawSize();
+            for (int row = 0; row < archetype.size(); row++) {
+                double length = size[row];
+                if (x[row] < minX - length || x[row] > maxX + length || y[row] < minY - length || y[row] > maxY + length) {
+                    continue;
+                }
+                double speed = Math.sqrt(vx[row] * vx[row] + vy[row] * vy[row]);
+                double cos = speed > 0 ? vx[row] / speed : 1;
+                double sin = speed > 0 ? vy[row] / speed : 0;
+                double screenX = (x[row] - minX) * zoom;
+                double screenY = (y[row] - minY) * zoom;
+                double along = length * zoom;
+                double across = length * zoom / 2;
+                CartesianCoordinate front = new CartesianCoordinate(screenX + cos * along, screenY + sin * along);
+                CartesianCoordinate left = new CartesianCoordinate(screenX - sin * across, screenY + cos * across);
+                CartesianCoordinate right = new CartesianCoordinate(screenX + sin * across, screenY - cos * across);
+                Color lineColor = this.colors.computeIfAbsent(color[row], Color::new);
+                this.canvas.drawLineBetweenPoints(front, left, lineColor);
+                this.canvas.drawLineBetweenPoints(left, right, lineColor);
+                this.canvas.drawLineBetweenPoints(right, front, lineColor);
+            }
+        }
+    }
+
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+}
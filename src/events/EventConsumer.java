@@ -0,0 +1,21 @@
+package events;
+
+/**
+ * Receives the events of an {@link EventRing} through an {@link EventProcessor}, on the
+ * processor's thread.
+ */
+public interface EventConsumer {
+    /**
+     * Handles one event, in the order they were published.
+     * @param event The event, only valid until this returns.
+     * @param endOfBatch Whether this is the last event available for now, e.g. to flush output.
+     */
+    void onEvent(SimulationEvent event, boolean endOfBatch);
+
+    /**
+     * Called when the consumer fell so far behind that events it had not read yet were overwritten.
+     * @param count How many events were skipped.
+     */
+    default void onDropped(long count) {
+    }
+}
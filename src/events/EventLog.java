@@ -0,0 +1,37 @@
+package events;
+
+/**
+ * Prints every event except ticks to standard output, e.g. for a headless run. Attach it
+ * with {@code ring.newProcessor(new EventLog()).start("event-log")}, or run the GUI with
+ * -Dflockingsim.events.log=true.
+ */
+public class EventLog implements EventConsumer {
+    @Override
+    public void onEvent(SimulationEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case SPAWN:
+                System.out.println("Tick " + event.getTick() + ": spawned " + event.getCount() + " " + event.getLabel()
+                    + ", " + event.getEntityCount() + " entities");
+                break;
+            case REMOVAL:
+                System.out.println("Tick " + event.getTick() + ": removed " + event.getCount() + " entities, "
+                    + event.getEntityCount() + " left");
+                break;
+            case PREDATOR_CATCH:
+                System.out.println("Tick " + event.getTick() + ": predator caught a boid at ("
+                    + Math.round(event.getX()) + ", " + Math.round(event.getY()) + ")");
+                break;
+            case PARAMETER_CHANGE:
+                System.out.println("Tick " + event.getTick() + ": " + event.getLabel() + " profile changed to version "
+                    + event.getValue());
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onDropped(long count) {
+        System.err.println("Event log fell behind and missed " + count + " events");
+    }
+}
@@ -0,0 +1,100 @@
+package events;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One consumer's position in an {@link EventRing}. The processor keeps the sequence of the
+ * next event its consumer should see and copies each event into a slot of its own before
+ * handing it over, so a consumer takes as long as it likes without holding up the
+ * simulation or other consumers; if it falls a whole ring behind it skips ahead instead.
+ */
+public final class EventProcessor {
+    private static final long IDLE_PARK_NANOS = 1_000_000; // How long the processor's thread sleeps when there is nothing to read
+
+    private final EventRing ring;
+    private final EventConsumer consumer;
+    private final SimulationEvent event = new SimulationEvent(); // Reused for every event
+    private volatile long sequence; // The next event to hand to the consumer
+    private volatile long droppedCount;
+    private volatile boolean running;
+
+    EventProcessor(EventRing ring, EventConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Event consumer must not be null");
+        }
+        this.ring = ring;
+        this.consumer = consumer;
+        this.sequence = ring.getCursor();
+    }
+
+    /**
+     * Hands every event published since the last call to the consumer. Only one thread at a
+     * time may poll a processor.
+     * @return How many events were handled.
+     */
+    public int poll() {
+        long next = this.sequence;
+        long end = this.ring.getCursor();
+        int handled = 0;
+        while (next < end) {
+            int result = this.ring.read(next, this.event);
+            if (result < 0) {
+                break; // Claimed but still being written; picked up next time
+            }
+            if (result > 0) {
+                // Overwritten before it was read: carry on from the oldest event still in the ring
+                end = this.ring.getCursor();
+                long oldest = Math.max(next + 1, end - this.ring.getCapacity());
+                this.droppedCount += oldest - next;
+                this.consumer.onDropped(oldest - next);
+                next = oldest;
+                continue;
+            }
+            next++;
+            this.sequence = next;
+            handled++;
+            this.consumer.onEvent(this.event, next == end);
+        }
+        this.sequence = next;
+        return handled;
+    }
+
+    /**
+     * Polls on a new daemon thread until {@link #stop} is called, sleeping briefly whenever
+     * there is nothing to read.
+     * @param threadName The thread's name.
+     */
+    public void start(String threadName) {
+        this.running = true;
+        Thread thread = new Thread(() -> {
+            while (this.running) {
+                if (poll() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the thread started by {@link #start} after the event it is handling.
+     */
+    public void stop() {
+        this.running = false;
+    }
+
+    /**
+     * @return The sequence of the next event the consumer will see.
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * @return How many events the consumer missed because it fell too far behind.
+     */
+    public long getDroppedCount() {
+        return this.droppedCount;
+    }
+}
@@ -0,0 +1,116 @@
+package events;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size ring of preallocated {@link SimulationEvent}s that a simulation publishes
+ * ticks, spawns, removals, predator catches and parameter changes into, for any number of
+ * consumers to read at their own pace (in the style of the LMAX Disruptor).
+ *
+ * <p>Publishing claims the next sequence number, fills that slot in place and marks it
+ * published, so it never allocates and never waits for a consumer. Each consumer reads
+ * through an {@link EventProcessor}, which keeps its own sequence. A consumer that falls a
+ * whole ring behind has the events it missed overwritten; it is told how many and carries on
+ * from the oldest event still in the ring. Slots carry a sequence that is odd while being
+ * written, so a reader can tell when a slot was overwritten under it.
+ *
+ * <p>Almost every event is published by the thread that steps the simulation, but spawns can
+ * come from the GUI, so claiming a sequence is atomic and any thread may publish. A publisher
+ * that stalls after claiming can be lapped, so it also has to take its slot: it waits for a
+ * publisher from an earlier lap that is still writing the slot, and if one from a later lap has
+ * already taken it, its own event counts as overwritten and is left out.
+ */
+public final class EventRing {
+    /** Slots in a simulation's ring unless -Dflockingsim.events.capacity says otherwise. */
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(SimulationEvent.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final SimulationEvent[] slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong(); // The next sequence to claim
+
+    /**
+     * @param capacity How many events the ring holds, rounded up to a power of two (at least 2).
+     */
+    public EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new SimulationEvent[size];
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new SimulationEvent();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Publishes an event, overwriting the oldest one if the ring is full. See {@link EventType}
+     * for what the fields mean for each type.
+     */
+    public void publish(EventType type, long tick, int count, int entityCount, long value, double x, double y, String label) {
+        long sequence = this.next.getAndIncrement();
+        SimulationEvent slot = this.slots[(int) (sequence & this.mask)];
+        long writing = 2 * sequence + 1;
+        while (true) {
+            long state = slot.state;
+            if (state >= writing) {
+                return; // Lapped while stalled: a later event already has the slot
+            }
+            if ((state & 1) != 0) {
+                Thread.yield(); // A publisher from an earlier lap is still writing it
+            } else if (STATE.compareAndSet(slot, state, writing)) {
+                break;
+            }
+        }
+        VarHandle.storeStoreFence(); // Readers must not see the new fields without the odd state
+        slot.set(type, tick, count, entityCount, value, x, y, label);
+        slot.state = 2 * sequence + 2;
+    }
+
+    /**
+     * Copies an event out of the ring.
+     * @param sequence The event's sequence number.
+     * @param into Where to copy it.
+     * @return 0 if it was copied, a negative number if it has not been published yet, or a
+     *         positive number if it has already been overwritten.
+     */
+    int read(long sequence, SimulationEvent into) {
+        SimulationEvent slot = this.slots[(int) (sequence & this.mask)];
+        long published = 2 * sequence + 2;
+        long before = slot.state;
+        if (before != published) {
+            return before < published ? -1 : 1;
+        }
+        into.copyFrom(slot);
+        VarHandle.loadLoadFence(); // The copy must be finished before the state is checked again
+        return slot.state == published ? 0 : 1;
+    }
+
+    /**
+     * @return The sequence the next event will get, i.e. how many have been claimed so far.
+     */
+    public long getCursor() {
+        return this.next.get();
+    }
+
+    public int getCapacity() {
+        return this.slots.length;
+    }
+
+    /**
+     * Creates a processor that hands every event published from now on to a consumer. Call
+     * {@link EventProcessor#start} to run it on its own thread or {@link EventProcessor#poll}
+     * from a loop of your own.
+     */
+    public EventProcessor newProcessor(EventConsumer consumer) {
+        return new EventProcessor(this, consumer);
+    }
+}
@@ -0,0 +1,17 @@
+package events;
+
+/**
+ * The kinds of {@link SimulationEvent} a simulation publishes to its {@link EventRing}.
+ */
+public enum EventType {
+    /** A tick finished: count is the boids, entityCount every entity, value the tick time in nanoseconds. */
+    TICK,
+    /** Entities were added: label is the kind ("boids", "predator" or "batch"), count how many. */
+    SPAWN,
+    /** Entities were removed: count is how many. */
+    REMOVAL,
+    /** A predator reached a boid: x and y are where the boid was. */
+    PREDATOR_CATCH,
+    /** A flock profile's changes were published: label is "default" or "custom", value the profile's version. */
+    PARAMETER_CHANGE
+}
@@ -0,0 +1,89 @@
+package events;
+
+/**
+ * One slot of an {@link EventRing}. Slots are allocated once with the ring and filled in
+ * place by the simulation, and each {@link EventProcessor} copies them into its own instance
+ * before handing them to its consumer, so nothing is allocated per event. What the fields
+ * mean depends on the {@link EventType}; fields a type does not use are 0 or null.
+ * A consumer must not keep the event after {@link EventConsumer#onEvent} returns, as it is
+ * overwritten by the next one.
+ */
+public final class SimulationEvent {
+    // 2 * sequence + 1 while the slot is being written for that sequence, 2 * sequence + 2 once published
+    volatile long state;
+    private EventType type;
+    private long tick;
+    private long timestampNanos;
+    private int count;
+    private int entityCount;
+    private long value;
+    private double x;
+    private double y;
+    private String label;
+
+    void set(EventType type, long tick, int count, int entityCount, long value, double x, double y, String label) {
+        this.type = type;
+        this.tick = tick;
+        this.timestampNanos = System.nanoTime();
+        this.count = count;
+        this.entityCount = entityCount;
+        this.value = value;
+        this.x = x;
+        this.y = y;
+        this.label = label;
+    }
+
+    void copyFrom(SimulationEvent other) {
+        this.type = other.type;
+        this.tick = other.tick;
+        this.timestampNanos = other.timestampNanos;
+        this.count = other.count;
+        this.entityCount = other.entityCount;
+        this.value = other.value;
+        this.x = other.x;
+        this.y = other.y;
+        this.label = other.label;
+    }
+
+    public EventType getType() {
+        return this.type;
+    }
+
+    /**
+     * @return The tick the event happened in; events between ticks have the number of the next tick.
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * @return When the event was published, as {@link System#nanoTime()}.
+     */
+    public long getTimestampNanos() {
+        return this.timestampNanos;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public int getEntityCount() {
+        return this.entityCount;
+    }
+
+    public long getValue() {
+        return this.value;
+    }
+
+    public double getX() {
+        return this.x;
+    }
+
+    public double getY() {
+        return this.y;
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+}
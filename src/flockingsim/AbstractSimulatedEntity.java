@@ -15,6 +15,14 @@ public abstract class  AbstractSimulatedEntity implements SimulatedEntity {
     protected double maxSpeed;
     protected double maxForce;
     protected double perceptionRadius;
+    private static final CartesianCoordinate NO_ACCELERATION = new CartesianCoordinate(0, 0); // Coordinates are immutable, so one will do
+    private int worldWidth; // 0 means the world is the canvas
+    private int worldHeight;
+    boolean ghost; // A read-only copy of an entity simulated elsewhere, see FlockingSimulation#setGhosts
+    // Spatial grid bookkeeping, maintained by SpatialGrid
+    SpatialGrid spatialGrid;
+    int gridCell = -1;
+    int gridSlot = -1;
     
     public AbstractSimulatedEntity(Canvas canvas, CartesianCoordinate position, CartesianCoordinate velocity, double maxSpeed, double maxForce, double perceptionRadius) {
 
@@ -28,8 +36,81 @@ public abstract class  AbstractSimulatedEntity implements SimulatedEntity {
         this.penDown = true;
     }
 
-    public abstract void draw();
-    public abstract void update(List<SimulatedEntity> allEntities, List<Rectangle> obstacles, CartesianCoordinate currentMousePosition);
+    /**
+     * Puts the entity back into the state it was constructed in, at a new position, so a
+     * pooled entity can be spawned again instead of allocating a new one. See {@link EntityPool}.
+     */
+    void respawn(CartesianCoordinate position, CartesianCoordinate velocity, double maxSpeed, double maxForce, double perceptionRadius) {
+        this.position = position;
+        this.velocity = velocity;
+        this.acceleration = NO_ACCELERATION;
+        this.maxSpeed = maxSpeed;
+        this.maxForce = maxForce;
+        this.perceptionRadius = perceptionRadius;
+        this.penDown = true;
+        this.ghost = false;
+        this.spatialGrid = null;
+        this.gridCell = -1;
+        this.gridSlot = -1;
+    }
+
+    /**
+     * Draws the entity with world coordinates taken as canvas coordinates.
+     */
+    @Override
+    public void draw() {
+        draw(Camera.IDENTITY);
+    }
+
+    /**
+     * Draws the entity as seen through a camera.
+     * @param camera Maps the entity's world position onto the canvas.
+     */
+    public abstract void draw(Camera camera);
+
+    /**
+     * First phase of a tick: collect the nearby entities this entity reacts to.
+     * Entities that do not keep a neighbor list can leave this as a no-op.
+     * @param allEntities All entities in the simulation.
+     * @param grid A spatial index of this tick's boid positions, or null to scan {@code allEntities}.
+     */
+    public void findNeighbors(List<SimulatedEntity> allEntities, SpatialGrid grid) {
+    }
+
+    /**
+     * Second phase of a tick: work out this tick's acceleration from the steering forces.
+     * Positions and velocities of other entities must not be changed here.
+     * @param allEntities All entities in the simulation.
+     * @param obstacles The obstacles to steer around.
+     * @param currentMousePosition The mouse position on the canvas.
+     */
+    public abstract void applyForces(List<SimulatedEntity> allEntities, List<Rectangle> obstacles, CartesianCoordinate currentMousePosition);
+
+    /**
+     * Third phase of a tick: add obstacle avoidance on top of the acceleration from
+     * {@link #applyForces}. Entities that ignore obstacles until they hit them can leave this as a no-op.
+     * @param obstacles The obstacles to steer around.
+     */
+    public void avoidObstacles(List<Rectangle> obstacles) {
+    }
+
+    /**
+     * Final phase of a tick: apply the acceleration, then move and wrap around the world.
+     * @param obstacles The obstacles movement must not enter.
+     */
+    public abstract void integrate(List<Rectangle> obstacles);
+
+    /**
+     * Runs all phases for this entity on its own. The simulation itself runs each
+     * phase across all entities in turn so every entity sees the same snapshot of the others.
+     */
+    @Override
+    public void update(List<SimulatedEntity> allEntities, List<Rectangle> obstacles, CartesianCoordinate currentMousePosition) {
+        findNeighbors(allEntities, null);
+        applyForces(allEntities, obstacles, currentMousePosition);
+        avoidObstacles(obstacles);
+        integrate(obstacles);
+    }
     public abstract double getVisualRadius();
     
 
@@ -41,6 +122,13 @@ public abstract class  AbstractSimulatedEntity implements SimulatedEntity {
         return this.velocity;
     }
 
+    /**
+     * @return Whether this is only a copy of an entity that is simulated somewhere else.
+     */
+    public boolean isGhost() {
+        return this.ghost;
+    }
+
     public void setMaxSpeed(double maxSpeed) {
         this.maxSpeed = maxSpeed;
     }
@@ -49,10 +137,28 @@ public abstract class  AbstractSimulatedEntity implements SimulatedEntity {
         this.maxForce = maxForce;
     }
 
+    /**
+     * Sets the size of the world the entity wraps around in, when it is larger than the canvas.
+     * @param width The world width, or 0 to use the canvas width.
+     * @param height The world height, or 0 to use the canvas height.
+     */
+    public void setWorldSize(int width, int height) {
+        this.worldWidth = width;
+        this.worldHeight = height;
+    }
+
+    protected int getWorldWidth() {
+        return this.worldWidth > 0 ? this.worldWidth : this.canvas.getWidth();
+    }
+
+    protected int getWorldHeight() {
+        return this.worldHeight > 0 ? this.worldHeight : this.canvas.getHeight();
+    }
+
     public void wrapPosition(int canvasWidth, int canvasHeight) {
         if (this.canvas == null) return;
-        canvasWidth = this.canvas.getWidth();
-        canvasHeight = this.canvas.getHeight();
+        canvasWidth = getWorldWidth();
+        canvasHeight = getWorldHeight();
 
         if (canvasWidth <= 0 || canvasHeight <= 0) {
             return;
@@ -82,6 +188,7 @@ public abstract class  AbstractSimulatedEntity implements SimulatedEntity {
 
         if (changed) {
             this.position = new CartesianCoordinate(x, y);
+            positionChanged();
         }
     }
 
@@ -122,8 +229,8 @@ public abstract class  AbstractSimulatedEntity implements SimulatedEntity {
         if (this.canvas != null) {
             double x = intendedPosition.getX();
             double y = intendedPosition.getY();
-            int canvasWidth = this.canvas.getWidth();
-            int canvasHeight = this.canvas.getHeight();
+            int canvasWidth = getWorldWidth();
+            int canvasHeight = getWorldHeight();
             boolean changedByWrapping = false;
 
             if (canvasWidth > 0 && canvasHeight > 0) {
@@ -141,12 +248,49 @@ public abstract class  AbstractSimulatedEntity implements SimulatedEntity {
 
         if (isPositionSafe(finalProposedPosition, obstacles)) {
             this.position = finalProposedPosition; 
+            positionChanged();
         } else {
             this.velocity = this.velocity.multiply(-0.5); 
         }
     }
 
-    private boolean isPositionSafe(CartesianCoordinate newPosition, List<Rectangle> obstacles) {
+    /**
+     * Shifts the entity by a small offset, e.g. to push it out of another entity, and wraps
+     * it around the world, unless that would put it inside an obstacle.
+     * @param dx How far to move it along x.
+     * @param dy How far to move it along y.
+     * @param obstacles The obstacles it must not be pushed into.
+     * @return Whether it moved.
+     */
+    boolean nudge(double dx, double dy, List<Rectangle> obstacles) {
+        CartesianCoordinate nudged = new CartesianCoordinate(this.position.getX() + dx, this.position.getY() + dy);
+        if (!isPositionSafe(nudged, obstacles)) {
+            return false;
+        }
+        this.position = nudged;
+        positionChanged();
+        if (this.canvas != null) {
+            wrapPosition(getWorldWidth(), getWorldHeight());
+        }
+        return true;
+    }
+
+    /**
+     * Lets the spatial grid tracking this entity, if any, know that it has moved.
+     */
+    private void positionChanged() {
+        if (this.spatialGrid != null) {
+            this.spatialGrid.moved(this);
+        }
+    }
+
+    /**
+     * Checks whether this entity could stand at a position without overlapping any obstacle.
+     * @param newPosition The position to test.
+     * @param obstacles The obstacles to test against.
+     * @return true if the position is clear of every obstacle.
+     */
+    public boolean isPositionSafe(CartesianCoordinate newPosition, List<Rectangle> obstacles) {
         double entityRadius = getVisualRadius();
         for (Rectangle obstacle : obstacles) {
             double obsX = obstacle.getPosition().getX();
@@ -17,21 +17,37 @@ import flockingsim.AbstractSimulatedEntity;
  */
 
 public class Boid extends AbstractSimulatedEntity {
-    private double mousePerceptionRadius = 100.0;
-    private double separationWeight = 1.5;
-    private double alignmentWeight = 1.0;
-    private double cohesionWeight = 1.0;
-    private double mouseAvoidanceWeight = 0.0;
-    private double desiredSeparation = 30.0;
-    private double obstacleAvoidanceWeight = 4.0;
-    private double obstacleSafetyRadius = 120.0;
-    private double lookAheadDistance = 150.0;
-    private double minSpeed = 2.0;
-    private double maxTurnRate = 30.0;
-    private double predatorFleeWeight = 2.5;
+    // Boids not created by a simulation share this one; a setter gives a boid its own
+    private static final SharedFlockProfile STANDALONE_PROFILE = new SharedFlockProfile(FlockProfile.DEFAULT);
+    private SharedFlockProfile profile = STANDALONE_PROFILE; // Weights, separation, obstacle and speed settings, neighbor mode
+    public static final double DEFAULT_SEPARATION_WEIGHT = 1.5;
+    public static final double SEPARATION_FORCE_LIMIT = 1.5; // Separation may steer this many times harder than the maximum force
+    public static final double DEFAULT_ALIGNMENT_WEIGHT = 1.0;
+    public static final double DEFAULT_COHESION_WEIGHT = 1.0;
+    public static final double DEFAULT_MOUSE_AVOIDANCE_WEIGHT = 0.0;
+    public static final double DEFAULT_PREDATOR_FLEE_WEIGHT = 2.5;
+    public static final double DEFAULT_OBSTACLE_AVOIDANCE_WEIGHT = 4.0;
     private static final double BOID_LENGTH = 7; // Length of the boid
     private static final double BOID_WIDTH = 9; // Width of the boid
     private static final double BOID_BACK_OFFSET = 5; // Offset from the back of the boid to the tip of the tail
+    private final ArrayList<Boid> neighbors = new ArrayList<>(); // Reused every tick to avoid allocating a new list
+    private NearestNeighborHeap nearestHeap; // Only needed for topological mode without a grid search
+    public static final int DEFAULT_TOPOLOGICAL_NEIGHBOR_COUNT = 7;
+    private final ArrayList<Predator> predatorScratch = new ArrayList<>(); // Predators gathered when applyForces is given every entity
+    private final SteeringContext ownContext = new SteeringContext();
+    // Squared-distance comparisons this far inside or outside a radius cannot be flipped by rounding the square root
+    private static final double BOUNDARY_LOW = 1.0 - 1e-12;
+    private static final double BOUNDARY_HIGH = 1.0 + 1e-12;
+    private static final double NORMALIZE_EPSILON = 0.000001; // Below this CartesianCoordinate.normalize gives a zero vector
+    int listIndex = -1; // Slot in the Verlet neighbor lists, assigned by VerletNeighborLists
+    int farFieldIndex = -1; // Slot in the far-field quadtree, assigned by FlockQuadtree
+    // Set by LevelOfDetailScheduler each tick; without it everything is due every tick
+    UpdateTier updateTier = UpdateTier.ACTIVE;
+    boolean searchDue = true;
+    boolean steeringDue = true;
+    boolean obstacleDue = true;
+    int collisionIndex = -1; // Order in this tick's collision pass, assigned by CollisionResolver
+    private CartesianCoordinate heldSteering = new CartesianCoordinate(0, 0); // Last steering force, reused on ticks it is not due
 
     /**
      * Constructor for the Boid class.
@@ -49,29 +65,251 @@ public class Boid extends AbstractSimulatedEntity {
     }
 
     @Override
-    public void update(List<SimulatedEntity> allEntities, List<Rectangle> obstacles, CartesianCoordinate currentMousePosition) {
-        this.acceleration = new CartesianCoordinate(0, 0);
+    void respawn(CartesianCoordinate position, CartesianCoordinate velocity, double maxSpeed, double maxForce, double perceptionRadius) {
+        super.respawn(position, velocity, maxSpeed, maxForce, perceptionRadius);
+        // Anything held from the previous life would point at entities that are gone
+        this.neighbors.clear();
+        this.predatorScratch.clear();
+        this.listIndex = -1;
+        this.farFieldIndex = -1;
+        this.updateTier = UpdateTier.ACTIVE;
+        this.searchDue = true;
+        this.steeringDue = true;
+        this.obstacleDue = true;
+        this.heldSteering = this.acceleration;
+    }
 
-        // Get neighbors once
-        ArrayList<Boid> neighbors = getNeighbors(allEntities);
+    @Override
+    public void findNeighbors(List<SimulatedEntity> allEntities, SpatialGrid grid) {
+        FlockProfile settings = this.profile.get();
+        if (grid == null) {
+            getNeighbors(allEntities);
+        } else if (settings.getNeighborMode() == NeighborMode.TOPOLOGICAL) {
+            this.neighbors.clear();
+            grid.findNearest(this, this.perceptionRadius, settings.getTopologicalNeighborCount(), this.neighbors);
+        } else {
+            this.neighbors.clear();
+            grid.findWithinRadius(this, this.perceptionRadius, this.neighbors);
+        }
+    }
 
-        // Calculate flocking forces using the pre-filtered neighbors list
-        CartesianCoordinate separation = calculateSeparationForce(neighbors);
-        CartesianCoordinate alignment = calculateAlignmentForce(neighbors);
-        CartesianCoordinate cohesion = calculateCohesionForce(neighbors);
-        
-        // Other forces
-        CartesianCoordinate avoidance = calculateObstacleAvoidanceForce(obstacles);
-        CartesianCoordinate mouseAvoidance = calculateMouseAvoidanceForce(currentMousePosition);
-        CartesianCoordinate predatorFlee = calculatePredatorFleeForce(allEntities); // Predator flee still needs allEntities
+    /**
+     * Refills the neighbor list from the cached Verlet neighbor lists instead of searching.
+     * @param lists The lists, updated for the current positions this tick.
+     */
+    void findNeighbors(VerletNeighborLists lists) {
+        FlockProfile settings = this.profile.get();
+        boolean topological = settings.getNeighborMode() == NeighborMode.TOPOLOGICAL;
+        if (topological && this.nearestHeap == null) {
+            this.nearestHeap = new NearestNeighborHeap();
+        }
+        lists.findNeighbors(this, this.perceptionRadius, topological ? settings.getTopologicalNeighborCount() : 0, this.nearestHeap, this.neighbors);
+    }
+
+    @Override
+    public void applyForces(List<SimulatedEntity> allEntities, List<Rectangle> obstacles, CartesianCoordinate currentMousePosition) {
+        ArrayList<Predator> predators = this.predatorScratch;
+        predators.clear();
+        for (SimulatedEntity entity : allEntities) {
+            if (entity instanceof Predator) {
+                predators.add((Predator) entity);
+            }
+        }
+        this.ownContext.set(predators, currentMousePosition);
+        applyForces(this.profile.get().getPipeline(), this.ownContext);
+    }
+
+    /**
+     * Sets the acceleration to the weighted sum of the pipeline's steering forces, or to the
+     * last sum calculated if the boid's steering is not due this tick.
+     * @param pipeline The behaviors to apply, shared by every boid with the same profile.
+     * @param context The predators and mouse position for this tick.
+     */
+    void applyForces(SteeringPipeline pipeline, SteeringContext context) {
+        if (this.steeringDue) {
+            this.heldSteering = pipeline.steer(this, context);
+        }
+        this.acceleration = this.heldSteering;
+    }
+
+    /**
+     * Fused flocking kernel. One pass over the neighbors found in the neighbor search phase
+     * accumulates separation, alignment and cohesion together from a single squared distance
+     * per neighbor, without allocating anything per neighbor. A square root is only taken
+     * where a neighbor is close enough to need one, and the arithmetic is otherwise exactly
+     * what the separate force calculations did, so the resulting forces are identical.
+     * A force whose weight is zero is not accumulated at all.
+     *
+     * <p>With a far-field tree, alignment and cohesion in metric mode sum every boid within the
+     * tree's radius instead of the neighbors, and the neighbors are only used for separation.
+     * @param farField The far-field quadtree for this tick, or null to flock with the neighbors only.
+     * @return The weighted sum of the separation, alignment and cohesion forces.
+     */
+    CartesianCoordinate flockingForce(double separationWeight, double alignmentWeight, double cohesionWeight, FlockQuadtree farField) {
+        boolean separate = separationWeight != 0;
+        boolean perceive = alignmentWeight != 0 || cohesionWeight != 0;
+        FlockProfile settings = this.profile.get();
+        // A boid added since the tree was built is not in it, so it perceives its neighbors instead
+        boolean useFarField = perceive && farField != null && settings.getNeighborMode() == NeighborMode.METRIC
+            && farField.aggregate(this);
+        if (useFarField) {
+            perceive = false;
+        }
+        double x = this.position.getX();
+        double y = this.position.getY();
+        double perceptionSquared = this.perceptionRadius * this.perceptionRadius;
+        double desiredSeparation = settings.getDesiredSeparation();
+        double separationSquared = desiredSeparation * desiredSeparation;
 
-        this.acceleration = this.acceleration.add(separation.multiply(separationWeight));
-        this.acceleration = this.acceleration.add(alignment.multiply(alignmentWeight));
-        this.acceleration = this.acceleration.add(cohesion.multiply(cohesionWeight));
-        this.acceleration = this.acceleration.add(avoidance.multiply(obstacleAvoidanceWeight));
-        this.acceleration = this.acceleration.add(mouseAvoidance.multiply(mouseAvoidanceWeight));
-        this.acceleration = this.acceleration.add(predatorFlee.multiply(predatorFleeWeight));
+        double separationX = 0;
+        double separationY = 0;
+        int separationCount = 0;
+        double velocityX = 0;
+        double velocityY = 0;
+        double positionX = 0;
+        double positionY = 0;
+        int perceivedCount = 0;
+        for (int i = 0; i < this.neighbors.size(); i++) {
+            Boid other = this.neighbors.get(i);
+            double otherX = other.position.getX();
+            double otherY = other.position.getY();
+            double dx = x - otherX;
+            double dy = y - otherY;
+            double distanceSquared = dx * dx + dy * dy;
+            if (perceive && isWithin(distanceSquared, perceptionSquared, this.perceptionRadius)) {
+                velocityX += other.velocity.getX();
+                velocityY += other.velocity.getY();
+                positionX += otherX;
+                positionY += otherY;
+                perceivedCount++;
+            }
+            if (separate && distanceSquared > 0 && distanceSquared < separationSquared * BOUNDARY_HIGH) {
+                double distance = Math.sqrt(distanceSquared);
+                if (distance < desiredSeparation) {
+                    double scale = separationStrength(distance, desiredSeparation, this.maxSpeed);
+                    if (distance >= NORMALIZE_EPSILON) {
+                        separationX += (dx / distance) * scale;
+                        separationY += (dy / distance) * scale;
+                    }
+                    separationCount++;
+                }
+            }
+        }
+
+        if (useFarField) {
+            velocityX = farField.getSumVelocityX();
+            velocityY = farField.getSumVelocityY();
+            positionX = farField.getSumX();
+            positionY = farField.getSumY();
+            perceivedCount = farField.getCount();
+        }
+
+        CartesianCoordinate separation = new CartesianCoordinate(separationX, separationY);
+        if (separationCount > 0) {
+            separation = separation.divide(separationCount);
+            if (separation.magnitude() > 0) {
+                separation = separation.normalize().multiply(this.maxSpeed);
+                separation = separation.subtract(this.velocity);
+                separation = separation.limit(this.maxForce * SEPARATION_FORCE_LIMIT);
+            }
+        }
+        CartesianCoordinate alignment = new CartesianCoordinate(0, 0);
+        CartesianCoordinate cohesion = new CartesianCoordinate(0, 0);
+        if (perceivedCount > 0) {
+            CartesianCoordinate averageVelocity = new CartesianCoordinate(velocityX, velocityY).divide(perceivedCount);
+            if (averageVelocity.magnitude() > 0) {
+                alignment = averageVelocity.normalize().multiply(this.maxSpeed).subtract(this.velocity).limit(this.maxForce);
+            }
+            cohesion = seek(new CartesianCoordinate(positionX, positionY).divide(perceivedCount));
+        }
 
+        CartesianCoordinate force = new CartesianCoordinate(0, 0);
+        force = force.add(separation.multiply(separationWeight));
+        force = force.add(alignment.multiply(alignmentWeight));
+        force = force.add(cohesion.multiply(cohesionWeight));
+        return force;
+    }
+
+    /**
+     * How hard a neighbor pushes a boid away: the boid's maximum speed when they touch, falling
+     * off to nothing at the desired separation. Shared with the ECS engine so both flock alike.
+     * @param distance How far away the neighbor is, less than the desired separation.
+     * @param desiredSeparation How close neighbors get before pushing apart.
+     * @param maxSpeed The boid's maximum speed.
+     * @return The length of the neighbor's contribution to the separation sum.
+     */
+    public static double separationStrength(double distance, double desiredSeparation, double maxSpeed) {
+        return maxSpeed * Math.pow(1.0 - (distance / desiredSeparation), 2);
+    }
+
+    /**
+     * Steers away from the predators within the perception radius, closer ones counting more.
+     * @param predators The predators in the simulation, gathered once per tick.
+     * @return The (unweighted) flee force.
+     */
+    CartesianCoordinate predatorFleeForce(List<Predator> predators) {
+        double x = this.position.getX();
+        double y = this.position.getY();
+        double perceptionSquared = this.perceptionRadius * this.perceptionRadius;
+        double fleeX = 0;
+        double fleeY = 0;
+        int predatorsNearby = 0;
+        for (int i = 0; i < predators.size(); i++) {
+            CartesianCoordinate predatorPosition = predators.get(i).getPosition();
+            double dx = x - predatorPosition.getX();
+            double dy = y - predatorPosition.getY();
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared > 0 && distanceSquared < perceptionSquared * BOUNDARY_HIGH) {
+                double distance = Math.sqrt(distanceSquared);
+                if (distance < this.perceptionRadius) {
+                    if (distance >= NORMALIZE_EPSILON) {
+                        fleeX += (dx / distance) / distance;
+                        fleeY += (dy / distance) / distance;
+                    }
+                    predatorsNearby++;
+                }
+            }
+        }
+
+        CartesianCoordinate predatorFlee = new CartesianCoordinate(fleeX, fleeY);
+        if (predatorsNearby > 0) {
+            predatorFlee = predatorFlee.divide(predatorsNearby);
+            if (predatorFlee.magnitude() > 0) {
+                predatorFlee = predatorFlee.normalize().multiply(this.maxSpeed);
+                predatorFlee = predatorFlee.subtract(this.getVelocity());
+                predatorFlee = predatorFlee.limit(this.maxForce * 3.5);
+            }
+        }
+        return predatorFlee;
+    }
+
+    /**
+     * Same answer as {@code Math.sqrt(distanceSquared) < radius}, but only takes the square
+     * root when the distance is within rounding error of the radius.
+     */
+    private static boolean isWithin(double distanceSquared, double radiusSquared, double radius) {
+        if (distanceSquared < radiusSquared * BOUNDARY_LOW) {
+            return true;
+        }
+        if (distanceSquared > radiusSquared * BOUNDARY_HIGH) {
+            return false;
+        }
+        return Math.sqrt(distanceSquared) < radius;
+    }
+
+    @Override
+    public void avoidObstacles(List<Rectangle> obstacles) {
+        if (!this.obstacleDue) {
+            return; // Too far from every obstacle for the check to find anything
+        }
+        CartesianCoordinate avoidance = calculateObstacleAvoidanceForce(obstacles);
+        this.acceleration = this.acceleration.add(avoidance.multiply(this.profile.get().getObstacleAvoidanceWeight()));
+    }
+
+    @Override
+    public void integrate(List<Rectangle> obstacles) {
+        FlockProfile settings = this.profile.get();
+        double minSpeed = settings.getMinSpeed();
         this.velocity = this.velocity.add(this.acceleration);
         double currentSpeed = this.velocity.magnitude();
         if (this.maxSpeed <= 0.001) {
@@ -79,33 +317,24 @@ public class Boid extends AbstractSimulatedEntity {
         } else {
             if (currentSpeed > this.maxSpeed) {
                 this.velocity = this.velocity.normalize().multiply(this.maxSpeed);
-            } else if (currentSpeed < this.minSpeed && currentSpeed > 0.001) {
-                if (this.minSpeed <= this.maxSpeed) {
-                    this.velocity = this.velocity.normalize().multiply(this.minSpeed);
+            } else if (currentSpeed < minSpeed && currentSpeed > 0.001) {
+                if (minSpeed <= this.maxSpeed) {
+                    this.velocity = this.velocity.normalize().multiply(minSpeed);
                 }
             }
         }
         
         int moveDistance = (int) this.velocity.magnitude();
         if (moveDistance > 0) {
-            double currentHeading = Math.toDegrees(Math.atan2(this.velocity.getY(), this.velocity.getX()));
-            CartesianCoordinate desiredDirection = this.velocity.normalize();
-            double desiredHeading = Math.toDegrees(Math.atan2(desiredDirection.getY(), desiredDirection.getX()));
-            double turnNeeded = desiredHeading - currentHeading;
-            while (turnNeeded > 180) turnNeeded -= 360;
-            while (turnNeeded < -180) turnNeeded += 360;
-            turnNeeded = Math.max(-this.maxTurnRate, Math.min(this.maxTurnRate, turnNeeded));
-            
-            super.turn((int) turnNeeded);
             this.move(moveDistance, obstacles);
         }
         if (this.canvas != null) {
-            super.wrapPosition(this.canvas.getWidth(), this.canvas.getHeight());
+            super.wrapPosition(getWorldWidth(), getWorldHeight());
         }
     }
 
     @Override
-    public void draw() {
+    public void draw(Camera camera) {
         if (!this.penDown || this.canvas == null) return;
         Color boidColor = Color.BLACK; 
         CartesianCoordinate currentPos = this.position;
@@ -120,6 +349,9 @@ public class Boid extends AbstractSimulatedEntity {
         CartesianCoordinate leftPosition = baseCenter.add(perpVelocity.multiply(BOID_WIDTH / 2.0));
         CartesianCoordinate rightPosition = baseCenter.add(perpVelocity.multiply(-BOID_WIDTH / 2.0));
         
+        frontPosition = camera.toScreen(frontPosition);
+        leftPosition = camera.toScreen(leftPosition);
+        rightPosition = camera.toScreen(rightPosition);
         this.canvas.drawLineBetweenPoints(frontPosition, leftPosition, boidColor);
         this.canvas.drawLineBetweenPoints(leftPosition, rightPosition, boidColor);
         this.canvas.drawLineBetweenPoints(rightPosition, frontPosition, boidColor);
@@ -129,79 +361,38 @@ public class Boid extends AbstractSimulatedEntity {
         if (this.canvas != null) this.canvas.removeMostRecentLine();
     }
 
+    /**
+     * Refills the reusable neighbor list by scanning every entity, for when no spatial grid is available.
+     * In topological mode only the profile's topological neighbor count of nearest boids are kept.
+     */
     private ArrayList<Boid> getNeighbors(List<SimulatedEntity> allEntities) {
-        ArrayList<Boid> neighbors = new ArrayList<>();
+        ArrayList<Boid> neighbors = this.neighbors;
+        neighbors.clear();
+        FlockProfile settings = this.profile.get();
+        boolean topological = settings.getNeighborMode() == NeighborMode.TOPOLOGICAL;
+        if (topological) {
+            if (this.nearestHeap == null) {
+                this.nearestHeap = new NearestNeighborHeap();
+            }
+            this.nearestHeap.reset(settings.getTopologicalNeighborCount());
+        }
         for (SimulatedEntity entity : allEntities) {
             if (entity instanceof Boid && entity != this) {
                 Boid otherBoid = (Boid) entity;
                 double distance = this.position.distance(otherBoid.position).magnitude();
                 if (distance > 0 && distance < this.perceptionRadius) {
-                    neighbors.add(otherBoid);
+                    if (topological) {
+                        this.nearestHeap.offer(otherBoid, distance * distance);
+                    } else {
+                        neighbors.add(otherBoid);
+                    }
                 }
             }
         }
-        return neighbors;
-    }
-
-    private CartesianCoordinate calculateSeparationForce(List<Boid> neighbors) {
-        CartesianCoordinate steer = new CartesianCoordinate(0, 0);
-        int count = 0;
-        for (Boid other : neighbors) {
-            double distance = this.position.distance(other.position).magnitude();
-            if (distance > 0 && distance < this.desiredSeparation) {
-                CartesianCoordinate diff = this.position.subtract(other.position);
-                diff = diff.normalize();
-                double strength = Math.pow(1.0 - (distance / this.desiredSeparation), 2);
-                diff = diff.multiply(this.maxSpeed * strength);
-                steer = steer.add(diff);
-                count++;
-            }
-        }
-        if (count > 0) {
-            steer = steer.divide(count);
-            if (steer.magnitude() > 0) {
-                steer = steer.normalize().multiply(this.maxSpeed);
-                steer = steer.subtract(this.velocity);
-                steer = steer.limit(this.maxForce * 1.5);
-            }
-        }
-        return steer;
-    }
-
-    private CartesianCoordinate calculateAlignmentForce(List<Boid> neighbors) {
-        CartesianCoordinate sumVelocities = new CartesianCoordinate(0, 0);
-        int count = 0;
-        for (Boid other : neighbors) {
-            if (this.position.distance(other.position).magnitude() < this.perceptionRadius) {
-                sumVelocities = sumVelocities.add(other.velocity);
-                count++;
-            }
-        }
-        if (count > 0) {
-            sumVelocities = sumVelocities.divide(count);
-            if (sumVelocities.magnitude() > 0) {
-                sumVelocities = sumVelocities.normalize().multiply(this.maxSpeed);
-                CartesianCoordinate steer = sumVelocities.subtract(this.velocity);
-                return steer.limit(this.maxForce);
-            }
-        }
-        return new CartesianCoordinate(0, 0);
-    }
-
-    private CartesianCoordinate calculateCohesionForce(List<Boid> neighbors) {
-        CartesianCoordinate sumPositions = new CartesianCoordinate(0, 0);
-        int count = 0;
-        for (Boid other : neighbors) {
-            if (this.position.distance(other.position).magnitude() < this.perceptionRadius) {
-                sumPositions = sumPositions.add(other.position);
-                count++;
-            }
+        if (topological) {
+            this.nearestHeap.drainTo(neighbors);
         }
-        if (count > 0) {
-            CartesianCoordinate centerOfMass = sumPositions.divide(count);
-            return seek(centerOfMass);
-        }
-        return new CartesianCoordinate(0, 0);
+        return neighbors;
     }
 
     private CartesianCoordinate seek(CartesianCoordinate target) {
@@ -213,18 +404,20 @@ public class Boid extends AbstractSimulatedEntity {
     }
 
     private CartesianCoordinate calculateObstacleAvoidanceForce(List<Rectangle> obstacles) {
+        FlockProfile settings = this.profile.get();
+        double obstacleSafetyRadius = settings.getObstacleSafetyRadius();
         CartesianCoordinate steer = new CartesianCoordinate(0, 0);
         int count = 0;
         CartesianCoordinate futurePosition = this.position.add(
-                this.velocity.normalize().multiply(this.lookAheadDistance));
+                this.velocity.normalize().multiply(settings.getLookAheadDistance()));
         for (Rectangle obstacle : obstacles) {
             double currentDistance = this.position.distance(obstacle.getCenter()).magnitude();
             double futureDistance = futurePosition.distance(obstacle.getCenter()).magnitude();
             double distance = Math.min(currentDistance, futureDistance);
-            if (distance > 0 && distance < this.obstacleSafetyRadius) {
+            if (distance > 0 && distance < obstacleSafetyRadius) {
                 CartesianCoordinate diff = this.position.subtract(obstacle.getCenter());
                 diff = diff.normalize();
-                double strength = Math.pow(1.0 - (distance / this.obstacleSafetyRadius), 2);
+                double strength = Math.pow(1.0 - (distance / obstacleSafetyRadius), 2);
                 diff = diff.multiply(this.maxSpeed * strength * 3.0);
                 steer = steer.add(diff);
                 count++;
@@ -241,96 +434,113 @@ public class Boid extends AbstractSimulatedEntity {
         return steer;
     }
 
-    private CartesianCoordinate calculateMouseAvoidanceForce(CartesianCoordinate currentMousePos) {
+    CartesianCoordinate calculateMouseAvoidanceForce(CartesianCoordinate currentMousePos) {
         if (currentMousePos == null) { 
             return new CartesianCoordinate(0, 0);
         }
+        double mousePerceptionRadius = this.profile.get().getMousePerceptionRadius();
         CartesianCoordinate steer = new CartesianCoordinate(0, 0);
         double distance = this.position.distance(currentMousePos).magnitude();
-        if (distance > 0 && distance < this.mousePerceptionRadius) {
+        if (distance > 0 && distance < mousePerceptionRadius) {
             CartesianCoordinate diff = this.position.subtract(currentMousePos);
             diff = diff.normalize();
-            double strength = Math.pow(1.0 - (distance / this.mousePerceptionRadius), 2);
+            double strength = Math.pow(1.0 - (distance / mousePerceptionRadius), 2);
             diff = diff.multiply(this.maxSpeed * strength * 3.0);
             steer = steer.add(diff);
         }
         return steer.limit(this.maxForce * 2.0); 
     }
 
-    private CartesianCoordinate calculatePredatorFleeForce(List<SimulatedEntity> allEntities) {
-        CartesianCoordinate totalFleeForce = new CartesianCoordinate(0, 0);
-        int predatorsNearby = 0;
-
+    public void avoidPredator(List<SimulatedEntity> allEntities) {
         for (SimulatedEntity entity : allEntities) {
             if (entity instanceof Predator) {
                 Predator predator = (Predator) entity;
                 CartesianCoordinate predatorPosition = predator.getPosition();
                 double distance = this.position.distance(predatorPosition).magnitude();
-                
                 if (distance > 0 && distance < this.perceptionRadius) {
                     CartesianCoordinate diff = this.position.subtract(predatorPosition);
                     diff = diff.normalize();
-                    diff = diff.divide(distance);
+                    double strength = Math.pow(1.0 - (distance / this.perceptionRadius), 2);
                     
-                    totalFleeForce = totalFleeForce.add(diff);
-                    predatorsNearby++;
                 }
             }
         }
+    }
 
-        if (predatorsNearby > 0) {
-            totalFleeForce = totalFleeForce.divide(predatorsNearby);
-            if (totalFleeForce.magnitude() > 0) {
-                totalFleeForce = totalFleeForce.normalize().multiply(this.maxSpeed);
-                totalFleeForce = totalFleeForce.subtract(this.getVelocity());
-                totalFleeForce = totalFleeForce.limit(this.maxForce * 3.5);
-            }
-        }
-        return totalFleeForce;
+    /**
+     * @return How far from an obstacle's center the obstacle check can still push this boid.
+     */
+    double getObstacleReach() {
+        FlockProfile settings = this.profile.get();
+        return settings.getObstacleSafetyRadius() + settings.getLookAheadDistance();
     }
 
-    public void avoidPredator(List<SimulatedEntity> allEntities) {
-        for (SimulatedEntity entity : allEntities) {
-            if (entity instanceof Predator) {
-                Predator predator = (Predator) entity;
-                CartesianCoordinate predatorPosition = predator.getPosition();
-                double distance = this.position.distance(predatorPosition).magnitude();
-                if (distance > 0 && distance < this.perceptionRadius) {
-                    CartesianCoordinate diff = this.position.subtract(predatorPosition);
-                    diff = diff.normalize();
-                    double strength = Math.pow(1.0 - (distance / this.perceptionRadius), 2);
-                    
-                }
-            }
-        }
+    double getMousePerceptionRadius() {
+        return this.profile.get().getMousePerceptionRadius();
+    }
+
+    /**
+     * @return The update tier the level-of-detail scheduler last gave this boid.
+     */
+    public UpdateTier getUpdateTier() {
+        return this.updateTier;
+    }
+
+    /**
+     * @return The number of neighbors found in the most recent neighbor search.
+     */
+    public int getNeighborCount() {
+        return this.neighbors.size();
     }
 
     public double getObstacleSafetyRadius() {
-        return this.obstacleSafetyRadius;
+        return this.profile.get().getObstacleSafetyRadius();
+    }
+
+    /**
+     * @return The shared profile this boid takes its settings from.
+     */
+    public SharedFlockProfile getProfile() {
+        return this.profile;
     }
 
+    /**
+     * Makes this boid take its settings from a shared profile, e.g. to put it in a group.
+     */
+    void setProfile(SharedFlockProfile profile) {
+        this.profile = profile;
+    }
+
+    // The setters below give this boid a profile of its own, leaving any group it was in.
+    // To change every boid in a group at once, update their SharedFlockProfile instead.
     public void setSeparationWeight(double weight) {
-        this.separationWeight = weight;
+        this.profile = new SharedFlockProfile(this.profile.get().withSeparationWeight(weight));
     }
     public void setAlignmentWeight(double weight) {
-        this.alignmentWeight = weight;
+        this.profile = new SharedFlockProfile(this.profile.get().withAlignmentWeight(weight));
     }
     public void setCohesionWeight(double weight) {
-        this.cohesionWeight = weight;
+        this.profile = new SharedFlockProfile(this.profile.get().withCohesionWeight(weight));
     }
     public void setObstacleAvoidanceWeight(double weight) {
-        this.obstacleAvoidanceWeight = weight;
+        this.profile = new SharedFlockProfile(this.profile.get().withObstacleAvoidanceWeight(weight));
     }
     public void setMouseAvoidanceWeight(double weight) {
-        this.mouseAvoidanceWeight = weight;
+        this.profile = new SharedFlockProfile(this.profile.get().withMouseAvoidanceWeight(weight));
     }
     public void setPredatorFleeWeight(double weight) {
-        this.predatorFleeWeight = weight;
+        this.profile = new SharedFlockProfile(this.profile.get().withPredatorFleeWeight(weight));
+    }
+    public void setNeighborMode(NeighborMode mode) {
+        this.profile = new SharedFlockProfile(this.profile.get().withNeighborMode(mode));
+    }
+    public void setTopologicalNeighborCount(int count) {
+        this.profile = new SharedFlockProfile(this.profile.get().withTopologicalNeighborCount(count));
     }
 
     public void reduceSpeed() {
         double currentSpeedVal = this.getVelocity().magnitude();
-        if (currentSpeedVal > this.minSpeed) {
+        if (currentSpeedVal > this.profile.get().getMinSpeed()) {
             this.velocity = this.getVelocity().multiply(0.7);
         }
     }
@@ -0,0 +1,114 @@
+package flockingsim;
+
+import geometry.CartesianCoordinate;
+
+/**
+ * Which part of the world is on screen: the world point shown at the top-left corner of
+ * the canvas and how many screen pixels one world unit takes up.
+ *
+ * <p>A camera is immutable, like {@link CartesianCoordinate}; panning or zooming gives a
+ * new camera. The GUI replaces the simulation's camera while the simulation thread culls
+ * and the Swing thread draws, so each frame reads the camera once and uses that view
+ * throughout.
+ */
+public final class Camera {
+    public static final double MIN_ZOOM = 0.05;
+    public static final double MAX_ZOOM = 8.0;
+    /** Shows the world one-to-one from the origin, i.e. the canvas is the world. */
+    public static final Camera IDENTITY = new Camera(0, 0, 1.0);
+
+    private final double offsetX;
+    private final double offsetY;
+    private final double zoom;
+
+    /**
+     * @param offsetX The world x coordinate at the left edge of the canvas.
+     * @param offsetY The world y coordinate at the top edge of the canvas.
+     * @param zoom Screen pixels per world unit, clamped to {@link #MIN_ZOOM}..{@link #MAX_ZOOM}.
+     */
+    public Camera(double offsetX, double offsetY, double zoom) {
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+    }
+
+    /**
+     * @param screenDx How far the view is dragged right, in screen pixels.
+     * @param screenDy How far the view is dragged down, in screen pixels.
+     * @return A camera showing the world moved along with the drag.
+     */
+    public Camera panned(double screenDx, double screenDy) {
+        return new Camera(this.offsetX - screenDx / this.zoom, this.offsetY - screenDy / this.zoom, this.zoom);
+    }
+
+    /**
+     * Zooms in or out, keeping the world point under a screen position where it is.
+     * @param factor How much to multiply the zoom by; above 1 zooms in.
+     * @param screenX The x coordinate of the fixed point on screen, e.g. the mouse.
+     * @param screenY The y coordinate of the fixed point on screen.
+     * @return The zoomed camera.
+     */
+    public Camera zoomedAt(double factor, double screenX, double screenY) {
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, this.zoom * factor));
+        double worldX = this.offsetX + screenX / this.zoom;
+        double worldY = this.offsetY + screenY / this.zoom;
+        return new Camera(worldX - screenX / newZoom, worldY - screenY / newZoom, newZoom);
+    }
+
+    /**
+     * @param world A point in world coordinates.
+     * @return Where it is drawn on the canvas.
+     */
+    public CartesianCoordinate toScreen(CartesianCoordinate world) {
+        if (this.isIdentity()) {
+            return world;
+        }
+        return new CartesianCoordinate((world.getX() - this.offsetX) * this.zoom, (world.getY() - this.offsetY) * this.zoom);
+    }
+
+    /**
+     * @param screen A point on the canvas, e.g. the mouse position.
+     * @return The world point shown there.
+     */
+    public CartesianCoordinate toWorld(CartesianCoordinate screen) {
+        if (this.isIdentity()) {
+            return screen;
+        }
+        return new CartesianCoordinate(this.offsetX + screen.getX() / this.zoom, this.offsetY + screen.getY() / this.zoom);
+    }
+
+    /**
+     * @return Whether world and screen coordinates are the same.
+     */
+    public boolean isIdentity() {
+        return this.offsetX == 0 && this.offsetY == 0 && this.zoom == 1.0;
+    }
+
+    public double getOffsetX() {
+        return this.offsetX;
+    }
+
+    public double getOffsetY() {
+        return this.offsetY;
+    }
+
+    public double getZoom() {
+        return this.zoom;
+    }
+
+    /**
+     * @param screenWidth The canvas width in pixels.
+     * @return The world x coordinate at the right edge of the canvas.
+     */
+    public double getViewMaxX(int screenWidth) {
+        return this.offsetX + screenWidth / this.zoom;
+    }
+
+    /**
+     * @param screenHeight The canvas height in pixels.
+     * @return The world y coordinate at the bottom edge of the canvas.
+     */
+    public double getViewMaxY(int screenHeight) {
+        return this.offsetY + screenHeight / this.zoom;
+    }
+}
@@ -0,0 +1,115 @@
+package flockingsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pushes overlapping boids apart after they have moved, so boids never end a tick inside
+ * each other however crowded they get. Separation only steers boids away from each other;
+ * this moves them.
+ *
+ * <p>The broad phase is the simulation's spatial grid, which already holds every boid's
+ * position: each boid only looks at the boids within two visual radii of it, a few cells
+ * at most, so a pass is linear in the number of boids. The narrow phase moves each
+ * overlapping pair apart along the line between them by half the overlap each (a boid
+ * overlapping a ghost takes all of it, since ghosts are moved elsewhere). The grid is told
+ * about every move straight away, so later pairs in the same pass see the corrected
+ * positions. Pushing one pair apart can push a boid into a third, so the passes are
+ * repeated, stopping early once a pass finds no overlaps. A push that would put a boid
+ * inside an obstacle is skipped. Boids on opposite sides of the world's wrap-around
+ * edges are not checked against each other, as in the neighbor search.
+ */
+class CollisionResolver {
+    private static final double OVERLAP_TOLERANCE = 1.0 - 1e-9; // Pairs left touching after rounding do not count
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5)); // Spreads pairs at the same spot in different directions
+
+    private final ArrayList<Boid> candidates = new ArrayList<>();
+    private int lastOverlapCount;
+
+    /**
+     * Resolves overlaps between the boids in the grid.
+     * @param entities All entities in the simulation.
+     * @param grid The simulation's spatial grid, up to date with the current positions.
+     * @param obstacles The obstacles boids must not be pushed into.
+     * @param iterations The most passes to make.
+     */
+    void resolve(List<SimulatedEntity> entities, SpatialGrid grid, List<Rectangle> obstacles, int iterations) {
+        double maxRadius = 0;
+        int index = 0;
+        for (SimulatedEntity entity : entities) {
+            if (entity instanceof Boid) {
+                Boid boid = (Boid) entity;
+                boid.collisionIndex = boid.ghost ? -1 : index++;
+                maxRadius = Math.max(maxRadius, boid.getVisualRadius());
+            }
+        }
+        this.lastOverlapCount = 0;
+        for (int pass = 0; pass < iterations; pass++) {
+            int overlaps = 0;
+            for (SimulatedEntity entity : entities) {
+                if (entity instanceof Boid && !((Boid) entity).ghost) {
+                    overlaps += separate((Boid) entity, grid, obstacles, maxRadius);
+                }
+            }
+            if (pass == 0) {
+                this.lastOverlapCount = overlaps;
+            }
+            if (overlaps == 0) {
+                break;
+            }
+        }
+        this.candidates.clear(); // Do not keep removed boids alive
+    }
+
+    /**
+     * Pushes a boid and the boids overlapping it apart, each pair once.
+     * @return How many overlapping pairs there were.
+     */
+    private int separate(Boid boid, SpatialGrid grid, List<Rectangle> obstacles, double maxRadius) {
+        double radius = boid.getVisualRadius();
+        this.candidates.clear();
+        grid.findCandidates(boid.getPosition().getX(), boid.getPosition().getY(), radius + maxRadius, boid, this.candidates);
+        int overlaps = 0;
+        for (int i = 0; i < this.candidates.size(); i++) {
+            Boid other = this.candidates.get(i);
+            boolean otherIsGhost = other.ghost;
+            if (!otherIsGhost && other.collisionIndex < boid.collisionIndex) {
+                continue; // Handled from the other boid's side
+            }
+            double minDistance = radius + other.getVisualRadius();
+            double dx = boid.getPosition().getX() - other.getPosition().getX();
+            double dy = boid.getPosition().getY() - other.getPosition().getY();
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared >= minDistance * minDistance * OVERLAP_TOLERANCE) {
+                continue;
+            }
+            overlaps++;
+            double distance = Math.sqrt(distanceSquared);
+            double normalX;
+            double normalY;
+            if (distance > 0) {
+                normalX = dx / distance;
+                normalY = dy / distance;
+            } else {
+                double angle = GOLDEN_ANGLE * boid.collisionIndex;
+                normalX = Math.cos(angle);
+                normalY = Math.sin(angle);
+            }
+            double overlap = minDistance - distance;
+            if (otherIsGhost) {
+                boid.nudge(normalX * overlap, normalY * overlap, obstacles);
+            } else {
+                boid.nudge(normalX * overlap / 2, normalY * overlap / 2, obstacles);
+                other.nudge(-normalX * overlap / 2, -normalY * overlap / 2, obstacles);
+            }
+        }
+        return overlaps;
+    }
+
+    /**
+     * @return How many overlapping pairs the first pass of the last {@link #resolve} found.
+     */
+    int getLastOverlapCount() {
+        return this.lastOverlapCount;
+    }
+}
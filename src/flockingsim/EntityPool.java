@@ -0,0 +1,117 @@
+package flockingsim;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Keeps boids and predators that have left the simulation so later spawns can reinitialize
+ * them in place instead of allocating new ones. Without it every respawn turns the whole
+ * population into garbage at once, which at large counts is a long GC pause.
+ *
+ * <p>The simulation thread may still be stepping an entity for a moment after it has been
+ * removed, e.g. when the Swing thread respawns the flock mid-tick. So an entity retired
+ * while a tick is running is only handed out again once that tick has finished; ticks are
+ * counted by an epoch that {@link FlockingSimulation#step} makes odd while it runs.
+ */
+final class EntityPool {
+    private final ArrayList<Boid> boids = new ArrayList<>();
+    private final ArrayList<Predator> predators = new ArrayList<>();
+    private final ArrayList<AbstractSimulatedEntity> retired = new ArrayList<>(); // Waiting for a tick to finish
+    private long retiredEpoch;
+
+    /**
+     * Takes back entities that are no longer in the simulation.
+     * @param entities The entities; nothing else may use them afterwards.
+     * @param epoch The tick epoch read after they were removed from the entity list.
+     */
+    synchronized void retire(Collection<? extends SimulatedEntity> entities, long epoch) {
+        boolean tickRunning = (epoch & 1) != 0;
+        for (SimulatedEntity entity : entities) {
+            if (!(entity instanceof AbstractSimulatedEntity)) {
+                continue;
+            }
+            if (tickRunning) {
+                this.retired.add((AbstractSimulatedEntity) entity);
+            } else {
+                makeAvailable((AbstractSimulatedEntity) entity);
+            }
+        }
+        if (tickRunning) {
+            this.retiredEpoch = epoch;
+        }
+    }
+
+    /**
+     * Takes up to {@code count} pooled boids.
+     * @param out Where to put them, from index 0.
+     * @param count The most to take.
+     * @param epoch The current tick epoch.
+     * @return How many were taken; the rest of {@code out} is untouched.
+     */
+    synchronized int takeBoids(Boid[] out, int count, long epoch) {
+        release(epoch);
+        int taken = Math.min(count, this.boids.size());
+        for (int i = 0; i < taken; i++) {
+            out[i] = this.boids.remove(this.boids.size() - 1);
+        }
+        return taken;
+    }
+
+    /**
+     * @param epoch The current tick epoch.
+     * @return A pooled boid, or null if there is none.
+     */
+    synchronized Boid takeBoid(long epoch) {
+        release(epoch);
+        return this.boids.isEmpty() ? null : this.boids.remove(this.boids.size() - 1);
+    }
+
+    /**
+     * @param epoch The current tick epoch.
+     * @return A pooled predator, or null if there is none.
+     */
+    synchronized Predator takePredator(long epoch) {
+        release(epoch);
+        return this.predators.isEmpty() ? null : this.predators.remove(this.predators.size() - 1);
+    }
+
+    /**
+     * Lets go of pooled entities beyond a limit, so shrinking a huge flock frees its memory.
+     * @param max The most entities to keep, counting those still waiting for a tick to finish.
+     */
+    synchronized void trimTo(int max) {
+        int excess = size() - Math.max(0, max);
+        if (excess <= 0) {
+            return;
+        }
+        int boidsKept = Math.max(0, this.boids.size() - excess);
+        excess -= this.boids.size() - boidsKept;
+        this.boids.subList(boidsKept, this.boids.size()).clear();
+        this.boids.trimToSize();
+        if (excess > 0) {
+            this.predators.subList(Math.max(0, this.predators.size() - excess), this.predators.size()).clear();
+        }
+    }
+
+    synchronized int size() {
+        return this.boids.size() + this.predators.size() + this.retired.size();
+    }
+
+    private void release(long epoch) {
+        // Safe once the epoch has moved on from the tick that was running when they were retired
+        if (!this.retired.isEmpty() && epoch != this.retiredEpoch) {
+            for (AbstractSimulatedEntity entity : this.retired) {
+                makeAvailable(entity);
+            }
+            this.retired.clear();
+        }
+    }
+
+    private void makeAvailable(AbstractSimulatedEntity entity) {
+        if (entity instanceof Boid) {
+            this.boids.add((Boid) entity);
+        } else if (entity instanceof Predator) {
+            this.predators.add((Predator) entity);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package flockingsim;
+
+/**
+ * The tuning parameters a boid flocks with: its steering weights, how far apart it keeps,
+ * how it sees obstacles and the mouse, its minimum speed and its neighbor mode.
+ * Profiles are immutable; the {@code with} methods return a changed copy with the next
+ * version number. Boids do not hold a profile directly but a {@link SharedFlockProfile}
+ * that many boids share and that the simulation publishes a new profile into once per tick.
+ */
+public final class FlockProfile {
+    /** The settings every boid starts with. */
+    public static final FlockProfile DEFAULT = new FlockProfile(0,
+        Boid.DEFAULT_SEPARATION_WEIGHT, Boid.DEFAULT_ALIGNMENT_WEIGHT, Boid.DEFAULT_COHESION_WEIGHT,
+        Boid.DEFAULT_MOUSE_AVOIDANCE_WEIGHT, Boid.DEFAULT_PREDATOR_FLEE_WEIGHT, Boid.DEFAULT_OBSTACLE_AVOIDANCE_WEIGHT,
+        30.0, 120.0, 150.0, 2.0, 100.0, NeighborMode.METRIC, Boid.DEFAULT_TOPOLOGICAL_NEIGHBOR_COUNT);
+
+    private final long version;
+    private final double separationWeight;
+    private final double alignmentWeight;
+    private final double cohesionWeight;
+    private final double mouseAvoidanceWeight;
+    private final double predatorFleeWeight;
+    private final double obstacleAvoidanceWeight;
+    private final double desiredSeparation;
+    private final double obstacleSafetyRadius;
+    private final double lookAheadDistance;
+    private final double minSpeed;
+    private final double mousePerceptionRadius;
+    private final NeighborMode neighborMode;
+    private final int topologicalNeighborCount;
+    private final SteeringPipeline pipeline; // The built-in behaviors with these weights
+
+    private FlockProfile(long version, double separationWeight, double alignmentWeight, double cohesionWeight,
+                         double mouseAvoidanceWeight, double predatorFleeWeight, double obstacleAvoidanceWeight,
+                         double desiredSeparation, double obstacleSafetyRadius, double lookAheadDistance, double minSpeed,
+                         double mousePerceptionRadius, NeighborMode neighborMode, int topologicalNeighborCount) {
+        this.version = version;
+        this.separationWeight = separationWeight;
+        this.alignmentWeight = alignmentWeight;
+        this.cohesionWeight = cohesionWeight;
+        this.mouseAvoidanceWeight = mouseAvoidanceWeight;
+        this.predatorFleeWeight = predatorFleeWeight;
+        this.obstacleAvoidanceWeight = obstacleAvoidanceWeight;
+        this.desiredSeparation = Math.max(0, desiredSeparation);
+        this.obstacleSafetyRadius = Math.max(0, obstacleSafetyRadius);
+        this.lookAheadDistance = Math.max(0, lookAheadDistance);
+        this.minSpeed = Math.max(0, minSpeed);
+        this.mousePerceptionRadius = Math.max(0, mousePerceptionRadius);
+        this.neighborMode = neighborMode == null ? NeighborMode.METRIC : neighborMode;
+        this.topologicalNeighborCount = Math.max(1, topologicalNeighborCount);
+        this.pipeline = SteeringPipeline.standard(separationWeight, alignmentWeight, cohesionWeight,
+            mouseAvoidanceWeight, predatorFleeWeight);
+    }
+
+    public FlockProfile withSeparationWeight(double weight) {
+        return new FlockProfile(this.version + 1, weight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    public FlockProfile withAlignmentWeight(double weight) {
+        return new FlockProfile(this.version + 1, this.separationWeight, weight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    public FlockProfile withCohesionWeight(double weight) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, weight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    public FlockProfile withMouseAvoidanceWeight(double weight) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            weight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    public FlockProfile withPredatorFleeWeight(double weight) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, weight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    public FlockProfile withObstacleAvoidanceWeight(double weight) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, weight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    /**
+     * @param distance How close neighbors can get before the boid steers away from them (at least 0).
+     */
+    public FlockProfile withDesiredSeparation(double distance) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, distance,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    /**
+     * @param radius How far from an obstacle's center the boid starts steering away (at least 0).
+     * @param lookAhead How far ahead of itself the boid checks for obstacles (at least 0).
+     */
+    public FlockProfile withObstacleSensing(double radius, double lookAhead) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            radius, lookAhead, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    /**
+     * @param speed The slowest a moving boid may go (at least 0).
+     */
+    public FlockProfile withMinSpeed(double speed) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, speed, this.mousePerceptionRadius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    /**
+     * @param radius How close the mouse has to be for the boid to steer away from it (at least 0).
+     */
+    public FlockProfile withMousePerceptionRadius(double radius) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, radius,
+            this.neighborMode, this.topologicalNeighborCount);
+    }
+
+    public FlockProfile withNeighborMode(NeighborMode mode) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            mode, this.topologicalNeighborCount);
+    }
+
+    /**
+     * @param count k for the topological neighbor mode (at least 1).
+     */
+    public FlockProfile withTopologicalNeighborCount(int count) {
+        return new FlockProfile(this.version + 1, this.separationWeight, this.alignmentWeight, this.cohesionWeight,
+            this.mouseAvoidanceWeight, this.predatorFleeWeight, this.obstacleAvoidanceWeight, this.desiredSeparation,
+            this.obstacleSafetyRadius, this.lookAheadDistance, this.minSpeed, this.mousePerceptionRadius,
+            this.neighborMode, count);
+    }
+
+    /**
+     * @return One more than the version of the profile this one was changed from, so later profiles have higher versions.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    public double getSeparationWeight() {
+        return this.separationWeight;
+    }
+
+    public double getAlignmentWeight() {
+        return this.alignmentWeight;
+    }
+
+    public double getCohesionWeight() {
+        return this.cohesionWeight;
+    }
+
+    public double getMouseAvoidanceWeight() {
+        return this.mouseAvoidanceWeight;
+    }
+
+    public double getPredatorFleeWeight() {
+        return this.predatorFleeWeight;
+    }
+
+    public double getObstacleAvoidanceWeight() {
+        return this.obstacleAvoidanceWeight;
+    }
+
+    public double getDesiredSeparation() {
+        return this.desiredSeparation;
+    }
+
+    public double getObstacleSafetyRadius() {
+        return this.obstacleSafetyRadius;
+    }
+
+    public double getLookAheadDistance() {
+        return this.lookAheadDistance;
+    }
+
+    public double getMinSpeed() {
+        return this.minSpeed;
+    }
+
+    public double getMousePerceptionRadius() {
+        return this.mousePerceptionRadius;
+    }
+
+    public NeighborMode getNeighborMode() {
+        return this.neighborMode;
+    }
+
+    public int getTopologicalNeighborCount() {
+        return this.topologicalNeighborCount;
+    }
+
+    /**
+     * @return The built-in steering behaviors with this profile's weights, without any custom behaviors.
+     */
+    SteeringPipeline getPipeline() {
+        return this.pipeline;
+    }
+}
@@ -0,0 +1,349 @@
+package flockingsim;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Barnes-Hut style quadtree over the boids for cohesion and alignment with a large radius.
+ * Every node holds the number of boids below it and the sums of their positions and
+ * velocities, which is all cohesion and alignment need, so a whole group of boids can be
+ * taken into account at once instead of one neighbor at a time.
+ *
+ * <p>A query sums every boid within the radius of a point. Nodes entirely inside the circle
+ * are taken as a whole, which gives exactly the same sums as visiting their boids. Nodes
+ * that straddle the edge of the circle are opened until they are small compared to their
+ * distance, i.e. {@code size / distance < openingAngle}; such a node is then taken as a
+ * whole if its center of mass is in range and left out otherwise. An opening angle of 0
+ * always opens them, so the sums are exact. Close by, nodes are large compared to their
+ * distance and are always opened, so nearby boids are counted individually.
+ *
+ * <p>The tree is rebuilt from scratch every tick into flat arrays that are reused, and
+ * building and querying are both O(log n) per boid.
+ */
+final class FlockQuadtree {
+    private static final int LEAF_CAPACITY = 16;
+    private static final int MAX_DEPTH = 20; // Stops boids sharing a position from being split forever
+    private static final int INITIAL_NODE_CAPACITY = 64;
+
+    // Node fields, packed so that visiting a node touches one or two cache lines
+    private static final int MIN_X = 0;
+    private static final int MIN_Y = 1;
+    private static final int SIZE = 2;
+    private static final int SUM_X = 3;
+    private static final int SUM_Y = 4;
+    private static final int SUM_VELOCITY_X = 5;
+    private static final int SUM_VELOCITY_Y = 6;
+    private static final int NODE_DOUBLES = 7;
+    private static final int FIRST_CHILD = 0; // Four consecutive children, or -1 for a leaf
+    private static final int START = 1;
+    private static final int END = 2;
+    private static final int NODE_INTS = 3;
+
+    // Boids are reordered while building so that every node's boids are contiguous
+    private int boidCount;
+    private Boid[] boids = new Boid[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] velocityXs = new double[0];
+    private double[] velocityYs = new double[0];
+
+    private int nodeCount;
+    private double[] nodeDoubles = new double[INITIAL_NODE_CAPACITY * NODE_DOUBLES];
+    private int[] nodeInts = new int[INITIAL_NODE_CAPACITY * NODE_INTS];
+    private final int[] stack = new int[3 * MAX_DEPTH + 4]; // Each level leaves at most three siblings waiting
+
+    private double radius;
+    private double radiusSquared;
+    private double openingAngle;
+
+    // Results of the last query
+    private int resultCount;
+    private double resultSumX;
+    private double resultSumY;
+    private double resultSumVelocityX;
+    private double resultSumVelocityY;
+
+    /**
+     * Rebuilds the tree from the boids' current positions and velocities.
+     * @param entities All entities in the simulation; only boids are added.
+     * @param radius The radius queries sum over.
+     * @param openingAngle How small a node straddling the edge of the radius has to be, compared to its distance, to be taken as a whole.
+     */
+    void build(List<SimulatedEntity> entities, double radius, double openingAngle) {
+        this.radius = radius;
+        this.radiusSquared = radius * radius;
+        this.openingAngle = openingAngle;
+
+        int n = 0;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (SimulatedEntity entity : entities) {
+            if (entity instanceof Boid) {
+                if (n == this.boids.length) {
+                    growBoids(Math.max(2 * n, entities.size()));
+                }
+                Boid boid = (Boid) entity;
+                double x = boid.getPosition().getX();
+                double y = boid.getPosition().getY();
+                this.boids[n] = boid;
+                this.xs[n] = x;
+                this.ys[n] = y;
+                this.velocityXs[n] = boid.getVelocity().getX();
+                this.velocityYs[n] = boid.getVelocity().getY();
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+                n++;
+            }
+        }
+        for (int i = n; i < this.boidCount; i++) {
+            this.boids[i] = null; // Do not keep removed boids alive
+        }
+        this.boidCount = n;
+        this.nodeCount = 0;
+        if (n == 0) {
+            return;
+        }
+        double size = Math.max(Math.max(maxX - minX, maxY - minY), 1.0);
+        int root = allocateNodes(1);
+        fill(root, 0, n, minX, minY, size, 0);
+        for (int i = 0; i < n; i++) {
+            this.boids[i].farFieldIndex = i;
+        }
+    }
+
+    private void fill(int node, int start, int end, double minX, double minY, double size, int depth) {
+        int d = node * NODE_DOUBLES;
+        int k = node * NODE_INTS;
+        this.nodeDoubles[d + MIN_X] = minX;
+        this.nodeDoubles[d + MIN_Y] = minY;
+        this.nodeDoubles[d + SIZE] = size;
+        this.nodeInts[k + START] = start;
+        this.nodeInts[k + END] = end;
+        double sumX = 0;
+        double sumY = 0;
+        double sumVelocityX = 0;
+        double sumVelocityY = 0;
+        if (end - start <= LEAF_CAPACITY || depth == MAX_DEPTH) {
+            this.nodeInts[k + FIRST_CHILD] = -1;
+            for (int i = start; i < end; i++) {
+                sumX += this.xs[i];
+                sumY += this.ys[i];
+                sumVelocityX += this.velocityXs[i];
+                sumVelocityY += this.velocityYs[i];
+            }
+        } else {
+            // Group the boids by quadrant: top half before bottom half, then left before right within each
+            double half = size / 2.0;
+            double midX = minX + half;
+            double midY = minY + half;
+            int splitY = partition(start, end, this.ys, midY);
+            int splitTop = partition(start, splitY, this.xs, midX);
+            int splitBottom = partition(splitY, end, this.xs, midX);
+
+            int firstChild = allocateNodes(4);
+            this.nodeInts[k + FIRST_CHILD] = firstChild;
+            fill(firstChild, start, splitTop, minX, minY, half, depth + 1);
+            fill(firstChild + 1, splitTop, splitY, midX, minY, half, depth + 1);
+            fill(firstChild + 2, splitY, splitBottom, minX, midY, half, depth + 1);
+            fill(firstChild + 3, splitBottom, end, midX, midY, half, depth + 1);
+            for (int child = firstChild; child < firstChild + 4; child++) {
+                int c = child * NODE_DOUBLES;
+                sumX += this.nodeDoubles[c + SUM_X];
+                sumY += this.nodeDoubles[c + SUM_Y];
+                sumVelocityX += this.nodeDoubles[c + SUM_VELOCITY_X];
+                sumVelocityY += this.nodeDoubles[c + SUM_VELOCITY_Y];
+            }
+        }
+        this.nodeDoubles[d + SUM_X] = sumX;
+        this.nodeDoubles[d + SUM_Y] = sumY;
+        this.nodeDoubles[d + SUM_VELOCITY_X] = sumVelocityX;
+        this.nodeDoubles[d + SUM_VELOCITY_Y] = sumVelocityY;
+    }
+
+    /**
+     * Moves the boids in {@code [start, end)} whose coordinate is below {@code split} to the front.
+     * @return The index of the first boid at or above {@code split}.
+     */
+    private int partition(int start, int end, double[] coordinates, double split) {
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            if (coordinates[low] < split) {
+                low++;
+            } else {
+                swap(low, high);
+                high--;
+            }
+        }
+        return low;
+    }
+
+    private void swap(int a, int b) {
+        Boid boid = this.boids[a];
+        this.boids[a] = this.boids[b];
+        this.boids[b] = boid;
+        swap(this.xs, a, b);
+        swap(this.ys, a, b);
+        swap(this.velocityXs, a, b);
+        swap(this.velocityYs, a, b);
+    }
+
+    private static void swap(double[] values, int a, int b) {
+        double value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+    /**
+     * Sums the boids within the radius of a boid, not counting the boid itself.
+     * The sums are read with the getters afterwards.
+     * @param boid The boid doing the looking.
+     * @return False if the boid was not in the tree when it was built, e.g. because it was added since.
+     */
+    boolean aggregate(Boid boid) {
+        int index = boid.farFieldIndex;
+        this.resultCount = 0;
+        this.resultSumX = 0;
+        this.resultSumY = 0;
+        this.resultSumVelocityX = 0;
+        this.resultSumVelocityY = 0;
+        if (index < 0 || index >= this.boidCount || this.boids[index] != boid) {
+            return false;
+        }
+        double x = this.xs[index];
+        double y = this.ys[index];
+        double radiusSquared = this.radiusSquared;
+        double openingAngleSquared = this.openingAngle * this.openingAngle;
+        int count = 0;
+        double sumX = 0;
+        double sumY = 0;
+        double sumVelocityX = 0;
+        double sumVelocityY = 0;
+
+        int[] stack = this.stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int d = node * NODE_DOUBLES;
+            int k = node * NODE_INTS;
+            int start = this.nodeInts[k + START];
+            int end = this.nodeInts[k + END];
+            if (start == end) {
+                continue;
+            }
+            double minX = this.nodeDoubles[d + MIN_X];
+            double minY = this.nodeDoubles[d + MIN_Y];
+            double size = this.nodeDoubles[d + SIZE];
+            double maxX = minX + size;
+            double maxY = minY + size;
+            // Distances along each axis to the nearest and farthest points of the node
+            double nearX = x < minX ? minX - x : (x > maxX ? x - maxX : 0);
+            double nearY = y < minY ? minY - y : (y > maxY ? y - maxY : 0);
+            if (nearX * nearX + nearY * nearY >= radiusSquared) {
+                continue; // Entirely out of range
+            }
+            double farX = x - minX > maxX - x ? x - minX : maxX - x;
+            double farY = y - minY > maxY - y ? y - minY : maxY - y;
+            boolean whole = farX * farX + farY * farY < radiusSquared; // Entirely in range
+
+            int firstChild = this.nodeInts[k + FIRST_CHILD];
+            if (!whole && firstChild < 0) {
+                for (int i = start; i < end; i++) {
+                    double dx = this.xs[i] - x;
+                    double dy = this.ys[i] - y;
+                    if (dx * dx + dy * dy < radiusSquared) {
+                        count++;
+                        sumX += this.xs[i];
+                        sumY += this.ys[i];
+                        sumVelocityX += this.velocityXs[i];
+                        sumVelocityY += this.velocityYs[i];
+                    }
+                }
+                continue;
+            }
+            // Never for a node the point is in: the querying boid is in it and must be counted to be taken back out below
+            if (!whole && openingAngleSquared > 0 && (nearX > 0 || nearY > 0)) {
+                double dx = this.nodeDoubles[d + SUM_X] / (end - start) - x;
+                double dy = this.nodeDoubles[d + SUM_Y] / (end - start) - y;
+                double distanceSquared = dx * dx + dy * dy;
+                // size / distance < openingAngle, without the square root. Small enough to count in or out by its center of mass
+                if (size * size < openingAngleSquared * distanceSquared) {
+                    if (distanceSquared >= radiusSquared) {
+                        continue;
+                    }
+                    whole = true;
+                }
+            }
+            if (whole) {
+                count += end - start;
+                sumX += this.nodeDoubles[d + SUM_X];
+                sumY += this.nodeDoubles[d + SUM_Y];
+                sumVelocityX += this.nodeDoubles[d + SUM_VELOCITY_X];
+                sumVelocityY += this.nodeDoubles[d + SUM_VELOCITY_Y];
+            } else {
+                for (int child = firstChild + 3; child >= firstChild; child--) {
+                    stack[top++] = child;
+                }
+            }
+        }
+
+        // The boid is always within its own radius, so take it back out
+        this.resultCount = count - 1;
+        this.resultSumX = sumX - x;
+        this.resultSumY = sumY - y;
+        this.resultSumVelocityX = sumVelocityX - this.velocityXs[index];
+        this.resultSumVelocityY = sumVelocityY - this.velocityYs[index];
+        return true;
+    }
+
+    private int allocateNodes(int count) {
+        int first = this.nodeCount;
+        if ((first + count) * NODE_INTS > this.nodeInts.length) {
+            int capacity = Math.max(2 * this.nodeInts.length / NODE_INTS, first + count);
+            this.nodeDoubles = Arrays.copyOf(this.nodeDoubles, capacity * NODE_DOUBLES);
+            this.nodeInts = Arrays.copyOf(this.nodeInts, capacity * NODE_INTS);
+        }
+        this.nodeCount = first + count;
+        return first;
+    }
+
+    private void growBoids(int capacity) {
+        this.boids = Arrays.copyOf(this.boids, capacity);
+        this.xs = Arrays.copyOf(this.xs, capacity);
+        this.ys = Arrays.copyOf(this.ys, capacity);
+        this.velocityXs = Arrays.copyOf(this.velocityXs, capacity);
+        this.velocityYs = Arrays.copyOf(this.velocityYs, capacity);
+    }
+
+    /**
+     * @return The radius queries sum over.
+     */
+    double getRadius() {
+        return this.radius;
+    }
+
+    int getCount() {
+        return this.resultCount;
+    }
+
+    double getSumX() {
+        return this.resultSumX;
+    }
+
+    double getSumY() {
+        return this.resultSumY;
+    }
+
+    double getSumVelocityX() {
+        return this.resultSumVelocityX;
+    }
+
+    double getSumVelocityY() {
+        return this.resultSumVelocityY;
+    }
+}
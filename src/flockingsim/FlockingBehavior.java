@@ -0,0 +1,25 @@
+package flockingsim;
+
+import geometry.CartesianCoordinate;
+
+/**
+ * Separation, alignment and cohesion, weighted and added up in one pass over the neighbors.
+ * The three forces share the same neighbor loop, so splitting them into separate
+ * behaviors would mean walking the neighbors three times.
+ */
+final class FlockingBehavior implements SteeringBehavior {
+    private final double separationWeight;
+    private final double alignmentWeight;
+    private final double cohesionWeight;
+
+    FlockingBehavior(double separationWeight, double alignmentWeight, double cohesionWeight) {
+        this.separationWeight = separationWeight;
+        this.alignmentWeight = alignmentWeight;
+        this.cohesionWeight = cohesionWeight;
+    }
+
+    @Override
+    public CartesianCoordinate steer(Boid boid, SteeringContext context) {
+        return boid.flockingForce(this.separationWeight, this.alignmentWeight, this.cohesionWeight, context.getFarField());
+    }
+}
@@ -2,12 +2,25 @@ package flockingsim;
 
 import java.awt.MouseInfo;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import drawing.Canvas;
 import javax.swing.SwingUtilities;
 
+import events.EventLog;
+import events.EventRing;
+import events.EventType;
 import geometry.CartesianCoordinate;
+import metrics.PhaseEvent;
+import metrics.PrometheusEndpoint;
+import metrics.SimulationMetrics;
+import metrics.SimulationPhase;
+import metrics.SpawnEvent;
+import metrics.TickEvent;
 import tools.Utils;
 
 /**
@@ -22,6 +35,41 @@ public class FlockingSimulation {
     private boolean running;
     private final Utils utils;
     private SimulationGUI gui;
+    private final SimulationMetrics metrics;
+    private final SpatialGrid neighborGrid;
+    private final VerletNeighborLists neighborLists;
+    private final ArrayList<Predator> tickPredators = new ArrayList<>(); // Gathered once per tick for the boids' flee force
+    private final SteeringContext steeringContext = new SteeringContext();
+    private volatile SteeringPipeline customBehaviors = new SteeringPipeline(); // Replaced, never changed, read once per tick
+    private final SharedFlockProfile defaultProfile = new SharedFlockProfile(FlockProfile.DEFAULT); // The sliders' profile
+    private final CopyOnWriteArrayList<SharedFlockProfile> profiles = new CopyOnWriteArrayList<>(); // Published each tick
+    private volatile boolean neighborListsEnabled = Boolean.getBoolean("flockingsim.neighborLists"); // Off by default, see setNeighborListsEnabled
+    private final LevelOfDetailScheduler levelOfDetail = new LevelOfDetailScheduler();
+    private volatile boolean levelOfDetailEnabled = Boolean.getBoolean("flockingsim.levelOfDetail"); // Off by default, see setLevelOfDetailEnabled
+    private boolean levelOfDetailScheduled; // Whether the last tick was scheduled, so turning it off can reset the boids
+    private final FlockQuadtree farField = new FlockQuadtree();
+    private final CollisionResolver collisions = new CollisionResolver();
+    private volatile boolean collisionsEnabled = Boolean.getBoolean("flockingsim.collisions"); // Off by default, see setCollisionsEnabled
+    private volatile int collisionIterations = Math.max(1, Integer.getInteger("flockingsim.collisionIterations", DEFAULT_COLLISION_ITERATIONS));
+    private volatile double farFieldRadius = Double.parseDouble(System.getProperty("flockingsim.farFieldRadius", "0")); // 0 is off
+    private volatile double farFieldOpeningAngle = DEFAULT_FAR_FIELD_OPENING_ANGLE;
+    private volatile Camera camera = Camera.IDENTITY; // Replaced by the GUI when the view is panned or zoomed
+    private volatile int worldWidth = Integer.getInteger("flockingsim.worldWidth", 0); // 0 means the world is the canvas
+    private volatile int worldHeight = Integer.getInteger("flockingsim.worldHeight", 0);
+    private volatile double spawnSpacing = Double.parseDouble(System.getProperty("flockingsim.spawnSpacing", "0")); // 0 is off
+    private final ArrayList<SimulatedEntity> visibleScratch = new ArrayList<>(); // Reused by draw()
+    private final ArrayList<Rectangle> visibleObstacleScratch = new ArrayList<>();
+    private int ghostCount; // Entities in the list that are only copies, see setGhosts
+    private volatile SharedStateExport stateExport; // Written after every tick once started
+    private final EntityPool entityPool = new EntityPool();
+    private final EventRing events = new EventRing(Integer.getInteger("flockingsim.events.capacity", EventRing.DEFAULT_CAPACITY));
+    private volatile long tickCount; // Ticks finished, stamped on every event
+    private SpawnSampler spawnSampler; // The obstacles never move, so it is only rebuilt when the world size changes
+    private volatile long stepEpoch; // Odd while step() runs, so the pool knows when removed entities are safe to reuse
+    private volatile int populationVersion; // Bumped whenever entities are added or removed
+    private int gridPopulationVersion = -1;
+    private int gridWidth;
+    private int gridHeight;
 
     // Default simulation parameters
     private static final int DEFAULT_SIMULATION_TARGET_FPS = 30;
@@ -32,12 +80,19 @@ public class FlockingSimulation {
     private int simulationDelayMs = DEFAULT_SIMULATION_DELAY_MS;
     private int initialBoidCount = DEFAULT_INITIAL_BOID_COUNT; // Used by resetSettings
 
-    // Boid behavior parameters (can be overridden by GUI)
-    private static final double BOID_MAX_SPEED = 10;
-    private static final double BOID_MAX_FORCE = 0.5;
-    private static final double BOID_PERCEPTION_RADIUS = 50.0;
-    private static final double BOID_SPAWN_MARGIN = 15.0;
+    // Boid behavior parameters (can be overridden by GUI); public so other engines can start from the same ones
+    public static final double BOID_MAX_SPEED = 10;
+    public static final double BOID_MAX_FORCE = 0.5;
+    public static final double BOID_PERCEPTION_RADIUS = 50.0;
+    public static final double BOID_SPAWN_MARGIN = 15.0;
+    private static final double CULL_MARGIN = 20.0; // Larger than any entity's drawn size, so nothing pops in at the edges
+    public static final double DEFAULT_FAR_FIELD_OPENING_ANGLE = 0.3;
+    public static final int DEFAULT_COLLISION_ITERATIONS = 2;
     private static final double PREDATOR_SPAWN_CLEARANCE = 20.0; // Clearance for predator spawning
+    private static final double NEIGHBOR_LIST_SKIN = BOID_PERCEPTION_RADIUS / 2.0; // Margin kept around the perception radius in the cached neighbor lists
+
+    // Metrics endpoint: local port for Prometheus scraping, override with -Dflockingsim.metrics.port (negative disables)
+    private static final int DEFAULT_METRICS_PORT = 9464;
 
     /**
      * Updates the maximum speed of all boids in the simulation.
@@ -52,59 +107,39 @@ public class FlockingSimulation {
     }
 
     /**
-     * Updates the separation weight for all boids.
+     * Updates the separation weight of the default profile, i.e. for all boids not assigned another, from the next tick.
      * @param weight The new separation weight (0.0 to 0.5)
      */
     public void updateSeparationWeight(double weight) {
-        for (SimulatedEntity entity : this.entities) {
-            if (entity instanceof Boid) {
-                ((Boid) entity).setSeparationWeight(weight);
-            }
-        }
+        this.defaultProfile.update(profile -> profile.withSeparationWeight(weight));
     }
 
     /**
-     * Updates the alignment weight for all boids.
+     * Updates the alignment weight of the default profile from the next tick.
      * @param weight The new alignment weight (0.0 to 0.5)
      */
     public void updateAlignmentWeight(double weight) {
-        for (SimulatedEntity entity : this.entities) {
-            if (entity instanceof Boid) {
-                ((Boid) entity).setAlignmentWeight(weight);
-            }
-        }
+        this.defaultProfile.update(profile -> profile.withAlignmentWeight(weight));
     }
 
     /**
-     * Updates the cohesion weight for all boids.
+     * Updates the cohesion weight of the default profile from the next tick.
      * @param weight The new cohesion weight (0.0 to 0.5)
      */
     public void updateCohesionWeight(double weight) {
-        for (SimulatedEntity entity : this.entities) {
-            if (entity instanceof Boid) {
-                ((Boid) entity).setCohesionWeight(weight);
-            }
-        }
+        this.defaultProfile.update(profile -> profile.withCohesionWeight(weight));
     }
 
     /**
-     * Updates the obstacle avoidance weight for all entities
+     * Updates the obstacle avoidance weight of the default profile from the next tick.
      * @param weight The new obstacle avoidance weight (0.0 to 4.0)
      */
     public void updateObstacleAvoidanceWeight(double weight) {
-        for (SimulatedEntity entity : this.entities) {
-            if (entity instanceof Boid) {
-                ((Boid) entity).setObstacleAvoidanceWeight(weight);
-            }
-        }
+        this.defaultProfile.update(profile -> profile.withObstacleAvoidanceWeight(weight));
     }
 
     public void updateMouseAvoidanceWeight(double weight) {
-        for (SimulatedEntity entity : this.entities) {
-            if (entity instanceof Boid) {
-                ((Boid) entity).setMouseAvoidanceWeight(weight);
-            }
-        }
+        this.defaultProfile.update(profile -> profile.withMouseAvoidanceWeight(weight));
     }
 
     public FlockingSimulation(Canvas canvas, Utils utils) {
@@ -112,13 +147,56 @@ public class FlockingSimulation {
         this.entities = new CopyOnWriteArrayList<>();
         this.utils = utils;
         this.obstacles = new ArrayList<>();
+        this.metrics = new SimulationMetrics();
+        // Half-radius cells keep the k-nearest search to a few cells in crowded areas
+        this.neighborGrid = new SpatialGrid(BOID_PERCEPTION_RADIUS / 2.0);
+        this.neighborLists = new VerletNeighborLists(NEIGHBOR_LIST_SKIN);
+        this.profiles.add(this.defaultProfile);
         initializeObstacles();
     }
 
+    /**
+     * @return A read-only view of all entities currently in the simulation.
+     */
+    public List<SimulatedEntity> getEntities() {
+        return Collections.unmodifiableList(this.entities);
+    }
+
+    /**
+     * @return A read-only view of the obstacles.
+     */
+    public List<Rectangle> getObstacles() {
+        return Collections.unmodifiableList(this.obstacles);
+    }
+
+    /**
+     * @return The metrics registry this simulation reports into.
+     */
+    public SimulationMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return The ring the simulation publishes its ticks, spawns, removals, predator catches
+     *         and profile changes into; consumers attach with {@link EventRing#newProcessor}.
+     */
+    public EventRing getEvents() {
+        return this.events;
+    }
+
     /**
      * Initializes the obstacles as per the assignment brief.
      */
     private void initializeObstacles() {
+        this.obstacles.addAll(createBriefObstacles(this.canvas));
+    }
+
+    /**
+     * Creates the obstacles from the assignment brief, which every simulation starts with.
+     * @param canvas The canvas they are drawn on.
+     * @return A new list of the obstacles.
+     */
+    public static List<Rectangle> createBriefObstacles(Canvas canvas) {
         // Obstacles from the assignment brief
         // size (dx=120, dy=80) with top-left corner at (100, 300)
         // size (dx=80, dy=150) with top-left corner at (350, 200)
@@ -133,103 +211,446 @@ public class FlockingSimulation {
         // but these can be adjusted to match the brief exactly if needed.
 
         // Rectangle(CartesianCoordinate topLeft, int dx, int dy, Canvas canvas)
-        this.obstacles.add(new Rectangle(new CartesianCoordinate(100, 300), 120, 80, this.canvas)); 
-        this.obstacles.add(new Rectangle(new CartesianCoordinate(350, 200), 80, 150, this.canvas));
-        this.obstacles.add(new Rectangle(new CartesianCoordinate(550, 100), 150, 120, this.canvas));
+        List<Rectangle> obstacles = new ArrayList<>();
+        obstacles.add(new Rectangle(new CartesianCoordinate(100, 300), 120, 80, canvas)); 
+        obstacles.add(new Rectangle(new CartesianCoordinate(350, 200), 80, 150, canvas));
+        obstacles.add(new Rectangle(new CartesianCoordinate(550, 100), 150, 120, canvas));
+        return obstacles;
     }
 
+    /**
+     * Replaces every entity with a new population of boids, spread uniformly over the space
+     * that is clear of obstacles (and, with a spawn spacing, kept that far apart). The boids
+     * are placed and created in parallel, see {@link SpawnSampler}. The boids and predators
+     * being replaced are pooled, and the next respawn reinitializes them rather than
+     * allocating new ones, see {@link EntityPool}.
+     * @param newCount How many boids.
+     */
     public void resetAndSpawnBoids(int newCount) {
-        List<SimulatedEntity> tempEntityList = new ArrayList<>(newCount);
-        for (int i = 0; i < newCount; i++) {
-            double startX, startY;
-            boolean validPosition;
-            int maxAttempts = 50;
-            int attempts = 0;
-            
-            do {
-                double currentCanvasWidth = Math.max(1, this.canvas.getWidth());
-                double currentCanvasHeight = Math.max(1, this.canvas.getHeight());
-                startX = this.utils.randomDouble(0, currentCanvasWidth);
-                startY = this.utils.randomDouble(0, currentCanvasHeight);
-                validPosition = true;
-                for (Rectangle obstacle : this.obstacles) {
-                    double obsX = obstacle.getPosition().getX();
-                    double obsY = obstacle.getPosition().getY();
-                    double obsDX = obstacle.getDx(); 
-                    double obsDY = obstacle.getDy();
-                    double noSpawnMinX = obsX - BOID_SPAWN_MARGIN;
-                    double noSpawnMaxX = obsX + obsDX + BOID_SPAWN_MARGIN;
-                    double noSpawnMinY = obsY - BOID_SPAWN_MARGIN;
-                    double noSpawnMaxY = obsY + obsDY + BOID_SPAWN_MARGIN;
-                    if (startX >= noSpawnMinX && startX <= noSpawnMaxX &&
-                        startY >= noSpawnMinY && startY <= noSpawnMaxY) {
-                        validPosition = false;
-                        break;
-                    }
-                }
-                attempts++;
-            } while (!validPosition && attempts < maxAttempts);
-            
-            if (!validPosition) {
-                startX = 10; startY = 10;
-            }
-            Boid newBoid = new Boid(this.canvas,
-                new CartesianCoordinate(startX, startY),
-                new CartesianCoordinate(this.utils.randomDouble(-1, 1), this.utils.randomDouble(-1, 1)).normalize().multiply(this.utils.randomDouble(0, BOID_MAX_SPEED)),
-                BOID_MAX_SPEED, // Use the class constant for default speed
-                BOID_MAX_FORCE,
-                BOID_PERCEPTION_RADIUS
-            );
-            // Individual boid weights (separation, alignment, cohesion, obstacle) are set to their defaults within the Boid constructor.
-            // The GUI sliders will override these via the setXWeight methods on all boids if changed from default.
-            tempEntityList.add(newBoid);
-        }
+        SpawnEvent spawnEvent = new SpawnEvent();
+        spawnEvent.begin();
+        newCount = Math.max(0, newCount);
+        Boid[] newBoids = spawnBoids(newCount);
+        List<SimulatedEntity> tempEntityList = Arrays.asList(newBoids);
+        List<SimulatedEntity> replaced = new ArrayList<>(this.entities);
         this.entities.clear(); // Clear existing entities before adding new ones
         this.entities.addAll(tempEntityList); // Add all new boids
+        this.ghostCount = 0;
+        this.populationVersion++;
+        // One spare population is enough for the spinner to go up and down without allocating
+        this.entityPool.retire(replaced, this.stepEpoch);
+        this.entityPool.trimTo(newCount);
+        commitSpawnEvent(spawnEvent, "boids", newCount);
         System.out.println("Set number of boids to: " + newCount);
     }
 
     /**
-     * Draws all boids in the simulation.
-     * This method should be called every time the simulation updates. */
+     * Grows or shrinks the flock to a number of boids by adding or removing only the
+     * difference, so the rest of the flock carries on as it was. New boids are spread over the
+     * free space as in {@link #resetAndSpawnBoids}; the boids removed are the most recently
+     * added ones, and are pooled. Ghosts and predators are left alone.
+     * @param targetCount How many boids there should be.
+     */
+    public void resizeBoidPopulation(int targetCount) {
+        targetCount = Math.max(0, targetCount);
+        int boidCount = 0;
+        for (SimulatedEntity entity : this.entities) {
+            if (entity instanceof Boid && !isGhost(entity)) {
+                boidCount++;
+            }
+        }
+        if (targetCount > boidCount) {
+            SpawnEvent spawnEvent = new SpawnEvent();
+            spawnEvent.begin();
+            int added = targetCount - boidCount;
+            this.entities.addAll(Arrays.asList(spawnBoids(added)));
+            this.populationVersion++;
+            commitSpawnEvent(spawnEvent, "boids", added);
+        } else if (targetCount < boidCount) {
+            List<SimulatedEntity> surplus = new ArrayList<>(boidCount - targetCount);
+            for (int i = this.entities.size() - 1; i >= 0 && surplus.size() < boidCount - targetCount; i--) {
+                SimulatedEntity entity = this.entities.get(i);
+                if (entity instanceof Boid && !isGhost(entity)) {
+                    surplus.add(entity);
+                }
+            }
+            removeEntities(surplus);
+        }
+    }
+
+    /**
+     * Places and creates boids in parallel, reusing pooled ones, without adding them.
+     */
+    private Boid[] spawnBoids(int count) {
+        int width = getWorldWidth();
+        int height = getWorldHeight();
+        SpawnSampler sampler = this.spawnSampler;
+        if (sampler == null || sampler.getWidth() != Math.max(1, width) || sampler.getHeight() != Math.max(1, height)) {
+            sampler = new SpawnSampler(width, height, this.obstacles, BOID_SPAWN_MARGIN);
+            this.spawnSampler = sampler;
+        }
+        double[] positions = sampler.sample(count, this.spawnSpacing, this.utils.randomLong());
+        Boid[] newBoids = new Boid[count];
+        this.entityPool.takeBoids(newBoids, count, this.stepEpoch);
+        SpawnSampler.forEachChunk(count, this.utils.randomLong(), (from, to, random) -> {
+            for (int i = from; i < to; i++) {
+                double angle = random.nextDouble(2 * Math.PI);
+                double speed = random.nextDouble(BOID_MAX_SPEED);
+                // newBoid puts the boid on the default profile, so respawning keeps the slider settings.
+                newBoids[i] = newBoid(newBoids[i],
+                    new CartesianCoordinate(positions[2 * i], positions[2 * i + 1]),
+                    new CartesianCoordinate(Math.cos(angle) * speed, Math.sin(angle) * speed)
+                );
+            }
+        });
+        return newBoids;
+    }
+
+    /**
+     * Creates a boid with the simulation's default speed, force and perception settings,
+     * reusing a pooled one if there is one. The boid is not added to the simulation; see {@link #addEntities}.
+     * @param position The starting position.
+     * @param velocity The starting velocity.
+     * @return The new boid.
+     */
+    public Boid createBoid(CartesianCoordinate position, CartesianCoordinate velocity) {
+        return newBoid(this.entityPool.takeBoid(this.stepEpoch), position, velocity);
+    }
+
+    /**
+     * Reinitializes a pooled boid, or creates one if there is none, with the simulation's settings.
+     */
+    private Boid newBoid(Boid pooled, CartesianCoordinate position, CartesianCoordinate velocity) {
+        Boid boid = pooled;
+        if (boid == null) {
+            boid = new Boid(this.canvas, position, velocity, BOID_MAX_SPEED, BOID_MAX_FORCE, BOID_PERCEPTION_RADIUS);
+        } else {
+            boid.respawn(position, velocity, BOID_MAX_SPEED, BOID_MAX_FORCE, BOID_PERCEPTION_RADIUS);
+        }
+        boid.setProfile(this.defaultProfile);
+        boid.setWorldSize(this.worldWidth, this.worldHeight);
+        return boid;
+    }
+
+    /**
+     * Creates a predator with the simulation's default settings without adding it.
+     * @param position The starting position.
+     * @param velocity The starting velocity.
+     * @return The new predator.
+     */
+    public Predator createPredator(CartesianCoordinate position, CartesianCoordinate velocity) {
+        Predator predator = this.entityPool.takePredator(this.stepEpoch);
+        if (predator == null) {
+            predator = new Predator(this.canvas, position, velocity, BOID_MAX_SPEED, BOID_MAX_FORCE, BOID_PERCEPTION_RADIUS);
+        } else {
+            predator.respawn(position, velocity, BOID_MAX_SPEED, BOID_MAX_FORCE, BOID_PERCEPTION_RADIUS);
+        }
+        predator.setWorldSize(this.worldWidth, this.worldHeight);
+        return predator;
+    }
+
+    /**
+     * Adds a batch of entities in one go, e.g. a scripted scenario. Adding them together
+     * matters because the entity list is copied on every write.
+     * @param newEntities The entities to add.
+     */
+    public void addEntities(Collection<? extends SimulatedEntity> newEntities) {
+        SpawnEvent spawnEvent = new SpawnEvent();
+        spawnEvent.begin();
+        this.entities.addAll(newEntities);
+        this.populationVersion++;
+        commitSpawnEvent(spawnEvent, "batch", newEntities.size());
+    }
+
+    private void commitSpawnEvent(SpawnEvent event, String kind, int spawnedCount) {
+        this.events.publish(EventType.SPAWN, this.tickCount, spawnedCount, this.entities.size(), 0, 0, 0, kind);
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.spawnedCount = spawnedCount;
+            event.entityCount = this.entities.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Draws the obstacles and entities the camera can see.
+     * Must be called from the thread that steps the simulation, since it reads the spatial grid.
+     */
     public void draw() {
+        Camera view = this.camera;
+        collectVisible(view, this.visibleScratch, this.visibleObstacleScratch);
+        draw(view, this.visibleScratch, this.visibleObstacleScratch);
+    }
+
+    /**
+     * Draws entities and obstacles collected by {@link #collectVisible}.
+     * @param view The camera they were collected with.
+     * @param visibleEntities The entities to draw.
+     * @param visibleObstacles The obstacles to draw.
+     */
+    private void draw(Camera view, List<SimulatedEntity> visibleEntities, List<Rectangle> visibleObstacles) {
         // Draw obstacles first so boids appear on top
-        for (Rectangle obstacle : this.obstacles) {
-            obstacle.draw();
+        for (int i = 0; i < visibleObstacles.size(); i++) {
+            visibleObstacles.get(i).draw(view);
         }
-        // Then draw boids
-        for (SimulatedEntity entity : this.entities) { 
+        for (int i = 0; i < visibleEntities.size(); i++) {
+            SimulatedEntity entity = visibleEntities.get(i);
             if (entity instanceof AbstractSimulatedEntity) {
-                ((AbstractSimulatedEntity) entity).draw();
+                ((AbstractSimulatedEntity) entity).draw(view);
             }
         }
     }
+
+    /**
+     * Refills the lists with what a camera can see. Boids come from a rectangle query on the
+     * spatial grid, so the cost follows the number of boids on screen rather than the
+     * population; until the grid has caught up with a population change, every entity is checked.
+     * @param view The camera to cull for.
+     * @param visibleEntities Filled with the entities in view.
+     * @param visibleObstacles Filled with the obstacles in view.
+     */
+    private void collectVisible(Camera view, List<SimulatedEntity> visibleEntities, List<Rectangle> visibleObstacles) {
+        visibleEntities.clear();
+        visibleObstacles.clear();
+        if (this.canvas == null) {
+            return;
+        }
+        double minX = view.getOffsetX() - CULL_MARGIN;
+        double minY = view.getOffsetY() - CULL_MARGIN;
+        double maxX = view.getViewMaxX(this.canvas.getWidth()) + CULL_MARGIN;
+        double maxY = view.getViewMaxY(this.canvas.getHeight()) + CULL_MARGIN;
+        for (Rectangle obstacle : this.obstacles) {
+            if (obstacle.intersects(minX, minY, maxX, maxY)) {
+                visibleObstacles.add(obstacle);
+            }
+        }
+        if (this.gridPopulationVersion == this.populationVersion) {
+            this.neighborGrid.findInRectangle(minX, minY, maxX, maxY, visibleEntities);
+            // Predators are not in the grid, and there are only ever a few
+            for (int i = 0; i < this.tickPredators.size(); i++) {
+                addIfInside(this.tickPredators.get(i), minX, minY, maxX, maxY, visibleEntities);
+            }
+        } else {
+            for (SimulatedEntity entity : this.entities) {
+                addIfInside(entity, minX, minY, maxX, maxY, visibleEntities);
+            }
+        }
+    }
+
+    private static void addIfInside(SimulatedEntity entity, double minX, double minY, double maxX, double maxY, List<SimulatedEntity> out) {
+        double x = entity.getPosition().getX();
+        double y = entity.getPosition().getY();
+        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+            out.add(entity);
+        }
+    }
     
+    /**
+     * Advances the simulation by one tick without drawing anything.
+     * Each phase runs across all entities before the next one starts, so every entity
+     * steers from the same snapshot of its neighbors.
+     * @param currentMousePos The mouse position in the world, used for mouse avoidance, or null if there is none.
+     */
+    public void step(CartesianCoordinate currentMousePos) {
+        this.stepEpoch = (this.stepEpoch + 1) | 1; // Odd while the tick runs; skips ahead if the last one threw
+        publishProfiles();
+        this.metrics.beginTick();
+        TickEvent tickEvent = new TickEvent();
+        tickEvent.begin();
+        int entityCount = this.entities.size();
+        long neighborCount = 0;
+
+        PhaseEvent phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+        long phaseStart = System.nanoTime();
+        long tickStart = phaseStart;
+        int worldWidth = this.canvas == null ? 0 : getWorldWidth();
+        int worldHeight = this.canvas == null ? 0 : getWorldHeight();
+        int population = this.populationVersion;
+        // Boids keep the grid up to date as they move, so it only needs rebuilding when the population or world changes
+        if (population != this.gridPopulationVersion || worldWidth != this.gridWidth || worldHeight != this.gridHeight) {
+            this.neighborGrid.rebuild(this.entities, worldWidth, worldHeight);
+            this.gridPopulationVersion = population;
+            this.gridWidth = worldWidth;
+            this.gridHeight = worldHeight;
+        }
+        boolean useNeighborLists = this.neighborListsEnabled;
+        if (useNeighborLists) {
+            this.neighborLists.update(this.entities, this.neighborGrid, population);
+        }
+        boolean useLevelOfDetail = this.levelOfDetailEnabled;
+        if (useLevelOfDetail) {
+            this.levelOfDetail.schedule(this.entities, this.obstacles, currentMousePos, population);
+        } else if (this.levelOfDetailScheduled) {
+            this.levelOfDetail.reset(this.entities);
+        }
+        this.levelOfDetailScheduled = useLevelOfDetail;
+        double cohesionRadius = this.farFieldRadius;
+        boolean useFarField = cohesionRadius > 0;
+        if (useFarField) {
+            this.farField.build(this.entities, cohesionRadius, this.farFieldOpeningAngle);
+        }
+        phaseStart = endPhase(phaseEvent, SimulationPhase.GRID_BUILD, phaseStart, entityCount, neighborCount);
+
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+        this.tickPredators.clear();
+        for (SimulatedEntity entity : this.entities) {
+            if (entity instanceof Predator) {
+                this.tickPredators.add((Predator) entity);
+            }
+            if (isGhost(entity)) {
+                continue; // Ghosts are seen by the others but are moved by whoever owns them
+            }
+            // A boid whose search is not due this tick keeps the neighbors from its last search
+            boolean searchDue = !(entity instanceof Boid) || ((Boid) entity).searchDue;
+            if (searchDue && useNeighborLists && entity instanceof Boid) {
+                ((Boid) entity).findNeighbors(this.neighborLists);
+            } else if (searchDue && entity instanceof AbstractSimulatedEntity) {
+                ((AbstractSimulatedEntity) entity).findNeighbors(this.entities, this.neighborGrid);
+            }
+            if (entity instanceof Boid) {
+                int count = ((Boid) entity).getNeighborCount();
+                this.metrics.recordNeighborCount(count);
+                neighborCount += count;
+            }
+        }
+        phaseStart = endPhase(phaseEvent, SimulationPhase.NEIGHBOR_SEARCH, phaseStart, entityCount, neighborCount);
+
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+        SteeringPipeline customBehaviors = this.customBehaviors;
+        this.steeringContext.set(this.tickPredators, currentMousePos, useFarField ? this.farField : null);
+        for (SimulatedEntity entity : this.entities) {
+            if (isGhost(entity)) {
+                continue;
+            }
+            if (entity instanceof Boid) {
+                Boid boid = (Boid) entity;
+                boid.applyForces(pipelineFor(boid.getProfile(), customBehaviors), this.steeringContext);
+            } else if (entity instanceof AbstractSimulatedEntity) {
+                ((AbstractSimulatedEntity) entity).applyForces(this.entities, this.obstacles, currentMousePos);
+            }
+        }
+        for (Predator predator : this.tickPredators) {
+            Boid caught = predator.caught;
+            if (caught != null) {
+                this.events.publish(EventType.PREDATOR_CATCH, this.tickCount, 1, entityCount, 0,
+                    caught.getPosition().getX(), caught.getPosition().getY(), null);
+            }
+        }
+        phaseStart = endPhase(phaseEvent, SimulationPhase.FORCES, phaseStart, entityCount, neighborCount);
+
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+        for (SimulatedEntity entity : this.entities) {
+            if (entity instanceof AbstractSimulatedEntity && !((AbstractSimulatedEntity) entity).ghost) {
+                ((AbstractSimulatedEntity) entity).avoidObstacles(this.obstacles);
+            }
+        }
+        phaseStart = endPhase(phaseEvent, SimulationPhase.OBSTACLE_AVOIDANCE, phaseStart, entityCount, neighborCount);
+
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+        int boidCount = 0;
+        int predatorCount = 0;
+        for (SimulatedEntity entity : this.entities) {
+            if (isGhost(entity)) {
+                continue;
+            }
+            if (entity instanceof AbstractSimulatedEntity) {
+                ((AbstractSimulatedEntity) entity).integrate(this.obstacles);
+            }
+            if (entity instanceof Boid) {
+                boidCount++;
+            } else if (entity instanceof Predator) {
+                predatorCount++;
+            }
+        }
+        phaseStart = endPhase(phaseEvent, SimulationPhase.MOVE, phaseStart, entityCount, neighborCount);
+
+        if (this.collisionsEnabled) {
+            phaseEvent = new PhaseEvent();
+            phaseEvent.begin();
+            this.collisions.resolve(this.entities, this.neighborGrid, this.obstacles, this.collisionIterations);
+            endPhase(phaseEvent, SimulationPhase.COLLISIONS, phaseStart, entityCount, neighborCount);
+        }
+
+        SharedStateExport export = this.stateExport;
+        if (export != null) {
+            try {
+                export.publish(this.entities, worldWidth, worldHeight);
+            } catch (java.io.IOException e) {
+                System.err.println("Stopped exporting state to " + export.getFile() + ": " + e.getMessage());
+                export.close();
+                this.stateExport = null;
+            }
+        }
+
+        this.metrics.endTick(boidCount, predatorCount);
+        this.events.publish(EventType.TICK, this.tickCount, boidCount, boidCount + predatorCount, System.nanoTime() - tickStart, 0, 0, null);
+        this.tickCount++;
+        tickEvent.end();
+        if (tickEvent.shouldCommit()) {
+            tickEvent.entityCount = entityCount;
+            tickEvent.neighborCount = neighborCount;
+            tickEvent.commit();
+        }
+        this.stepEpoch = (this.stepEpoch + 1) & ~1L; // Even: nothing retired before now is being stepped
+    }
+
+    private boolean isGhost(SimulatedEntity entity) {
+        return this.ghostCount > 0 && entity instanceof AbstractSimulatedEntity && ((AbstractSimulatedEntity) entity).ghost;
+    }
+
+    /**
+     * Records the time spent in a phase and commits its JFR event if a recording wants it.
+     * @return The current time, to be used as the start of the next phase.
+     */
+    private long endPhase(PhaseEvent event, SimulationPhase phase, long phaseStart, int entityCount, long neighborCount) {
+        long now = System.nanoTime();
+        this.metrics.recordPhase(phase, now - phaseStart);
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.getLabel();
+            event.entityCount = entityCount;
+            event.neighborCount = neighborCount;
+            event.commit();
+        }
+        return now;
+    }
+
     // Method to run the simulation loop
     public void runSimulationLoop() {
         this.running = true;
         while (this.running) {
             CartesianCoordinate currentMousePos = null;
+            Camera view = this.camera;
             if (this.gui != null) {
-                currentMousePos = this.gui.getMousePositionOnCanvas();
-            } else {
-                // Fallback or default if GUI is not set - though it should be
-                currentMousePos = new CartesianCoordinate(-1,-1); // Default off-screen
+                CartesianCoordinate mouseOnCanvas = this.gui.getMousePositionOnCanvas();
+                currentMousePos = mouseOnCanvas == null ? null : view.toWorld(mouseOnCanvas); // No pointer, no mouse avoidance
+                if (this.canvas != null) {
+                    // Boids on screen get the full update rate when level of detail is on
+                    this.levelOfDetail.setViewport(view.getOffsetX(), view.getOffsetY(),
+                        view.getViewMaxX(this.canvas.getWidth()), view.getViewMaxY(this.canvas.getHeight()));
+                }
             }
 
             // Update all entities
-            for (SimulatedEntity entity : this.entities) {
-                if (entity instanceof AbstractSimulatedEntity) {
-                    ((AbstractSimulatedEntity) entity).update(this.entities, this.obstacles, currentMousePos);
-                }
-            }
+            step(currentMousePos);
 
-            // Draw everything
+            // Cull here, where the grid is up to date, and draw only what is in view on the Swing thread
+            List<SimulatedEntity> visibleEntities = new ArrayList<>();
+            List<Rectangle> visibleObstacles = new ArrayList<>();
+            collectVisible(view, visibleEntities, visibleObstacles);
             SwingUtilities.invokeLater(() -> {
                 if (canvas != null) {
+                    long renderStart = System.nanoTime();
                     canvas.clear();
-                    draw();
+                    draw(view, visibleEntities, visibleObstacles);
                     canvas.repaint();
+                    this.metrics.recordRender(System.nanoTime() - renderStart);
                 }
             });
 
@@ -238,6 +659,40 @@ public class FlockingSimulation {
         }
     }
 
+    /**
+     * Exposes the simulation metrics over JMX and, unless disabled, as a Prometheus
+     * text endpoint on the loopback interface.
+     */
+    private void startMetricsExport() {
+        this.metrics.registerMBean();
+        int port = Integer.getInteger("flockingsim.metrics.port", DEFAULT_METRICS_PORT);
+        if (port < 0) {
+            return;
+        }
+        PrometheusEndpoint endpoint = new PrometheusEndpoint(this.metrics);
+        try {
+            endpoint.start(port);
+            System.out.println("Prometheus metrics available at http://127.0.0.1:" + endpoint.getPort() + "/metrics");
+        } catch (java.io.IOException e) {
+            System.err.println("Could not start metrics endpoint on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts publishing every entity's position and velocity to a memory-mapped file after
+     * each tick, for other processes to read; see {@link SharedStateExport} for the layout.
+     * @param file The file, e.g. /dev/shm/flock.bin.
+     * @throws java.io.IOException If the file cannot be created or mapped.
+     */
+    public void startStateExport(java.nio.file.Path file) throws java.io.IOException {
+        SharedStateExport previous = this.stateExport;
+        this.stateExport = new SharedStateExport(file, this.entities.size());
+        if (previous != null) {
+            previous.close();
+        }
+        System.out.println("Exporting state to " + file);
+    }
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
@@ -269,6 +724,19 @@ public class FlockingSimulation {
                         // Initial boid population
                         simulation.resetAndSpawnBoids(simulation.initialBoidCount); 
 
+                        simulation.startMetricsExport();
+                        if (Boolean.getBoolean("flockingsim.events.log")) {
+                            simulation.events.newProcessor(new EventLog()).start("event-log");
+                        }
+                        String exportFile = System.getProperty("flockingsim.export.file");
+                        if (exportFile != null) {
+                            try {
+                                simulation.startStateExport(java.nio.file.Paths.get(exportFile));
+                            } catch (java.io.IOException e) {
+                                System.err.println("Could not export state to " + exportFile + ": " + e.getMessage());
+                            }
+                        }
+
                         // Start the simulation loop in a new thread
                         new Thread(() -> simulation.runSimulationLoop()).start();
                     }
@@ -292,16 +760,27 @@ public class FlockingSimulation {
         System.out.println("Target FPS set to: " + targetFPS + ", Simulation Delay set to: " + this.simulationDelayMs + "ms");
     }
 
+    /**
+     * @return The pause between ticks in milliseconds, i.e. the frame budget for one tick.
+     */
+    public int getSimulationDelayMs() {
+        return this.simulationDelayMs;
+    }
+
     public void resetSettings() {
         // Reset the simulation's core parameters to their defaults
         this.simulationDelayMs = DEFAULT_SIMULATION_DELAY_MS;
         // this.initialBoidCount = DEFAULT_INITIAL_BOID_COUNT; // This field is just a holder for the default value
 
-        // For boid parameters (speed, weights), re-spawning boids will make them use their constructor defaults.
-        // Then, ensure the GUI sliders reflect these defaults.
-        // The individual setXWeight and setMaxSpeed methods are for GUI overrides.
-        // If we want all *existing* boids to also revert, we would loop, but resetAndSpawnBoids replaces them.
-        
+        // The default profile's weights go back to the boid defaults; the neighbor mode and custom steering behaviors stay.
+        this.defaultProfile.update(profile -> profile
+            .withSeparationWeight(Boid.DEFAULT_SEPARATION_WEIGHT)
+            .withAlignmentWeight(Boid.DEFAULT_ALIGNMENT_WEIGHT)
+            .withCohesionWeight(Boid.DEFAULT_COHESION_WEIGHT)
+            .withObstacleAvoidanceWeight(Boid.DEFAULT_OBSTACLE_AVOIDANCE_WEIGHT)
+            .withMouseAvoidanceWeight(Boid.DEFAULT_MOUSE_AVOIDANCE_WEIGHT)
+            .withPredatorFleeWeight(Boid.DEFAULT_PREDATOR_FLEE_WEIGHT));
+
         resetAndSpawnBoids(DEFAULT_INITIAL_BOID_COUNT); // Respawn with default count
 
         // The GUI sliders need to be reset externally by SimulationGUI after this call.
@@ -348,8 +827,12 @@ public class FlockingSimulation {
 
     // Method to add a predator to the simulation
     public void addPredator(CartesianCoordinate spawnPosition) {
-        Predator newPredator = new Predator(this.canvas, spawnPosition, new CartesianCoordinate(0, 0), BOID_MAX_SPEED, BOID_MAX_FORCE, BOID_PERCEPTION_RADIUS);
+        SpawnEvent spawnEvent = new SpawnEvent();
+        spawnEvent.begin();
+        Predator newPredator = createPredator(spawnPosition, new CartesianCoordinate(0, 0));
         this.entities.add(newPredator);
+        this.populationVersion++;
+        commitSpawnEvent(spawnEvent, "predator", 1);
         System.out.println("Predator added at: " + spawnPosition);
 
 
@@ -360,11 +843,332 @@ public class FlockingSimulation {
         // System.out.println("Predator added at: " + spawnPosition);
     }
 
-    public void updatePredatorFleeWeight(double weight) {
+    /**
+     * Switches the boids on the default profile between flocking with everyone in range and with only their k nearest neighbors.
+     * @param mode The neighbor mode; new boids use it as well.
+     */
+    public void updateNeighborMode(NeighborMode mode) {
+        this.defaultProfile.update(profile -> profile.withNeighborMode(mode));
+    }
+
+    /**
+     * Sets k for the topological neighbor mode of the default profile.
+     * @param count The number of nearest neighbors each boid flocks with (at least 1).
+     */
+    public void updateTopologicalNeighborCount(int count) {
+        this.defaultProfile.update(profile -> profile.withTopologicalNeighborCount(count));
+    }
+
+    /**
+     * Turns the cached (Verlet) neighbor lists on or off. With them off every boid searches
+     * the grid from scratch each tick, which finds the same neighbors. The lists only pay off
+     * when boids move slowly compared to the skin; at the default top speed most of them
+     * need repairing every couple of ticks, so they are off unless -Dflockingsim.neighborLists=true.
+     * @param enabled Whether to reuse neighbor lists across ticks.
+     */
+    public void setNeighborListsEnabled(boolean enabled) {
+        if (enabled && !this.neighborListsEnabled) {
+            this.populationVersion++; // Positions moved on while the lists were not maintained, so force a rebuild
+        }
+        this.neighborListsEnabled = enabled;
+    }
+
+    /**
+     * Turns hard collisions between boids on or off. With them on, boids that overlap (going
+     * by their visual radius) after moving are pushed apart each tick, see
+     * {@link CollisionResolver}. It changes how the flock moves, so it is off unless
+     * -Dflockingsim.collisions=true.
+     * @param enabled Whether to keep boids from overlapping.
+     */
+    public void setCollisionsEnabled(boolean enabled) {
+        this.collisionsEnabled = enabled;
+    }
+
+    /**
+     * @param iterations The most passes the collision phase makes over the boids each tick (at
+     *        least 1). More passes leave fewer overlaps in dense crowds; a pass that finds none ends the phase.
+     */
+    public void setCollisionIterations(int iterations) {
+        this.collisionIterations = Math.max(1, iterations);
+    }
+
+    /**
+     * @return How many overlapping pairs of boids the collision phase found at the start of the
+     *         last tick's pass, or 0 if collisions are off.
+     */
+    public int getCollisionCount() {
+        return this.collisionsEnabled ? this.collisions.getLastOverlapCount() : 0;
+    }
+
+    /**
+     * Turns level-of-detail scheduling on or off. With it on, boids that are alone or out of
+     * view only search for neighbors every second or fourth tick, and boids that are both
+     * also only recalculate their steering every fourth tick, see {@link UpdateTier}. Boids near a predator
+     * or the mouse are always updated every tick. It changes how the flock moves, so it is
+     * off unless -Dflockingsim.levelOfDetail=true.
+     * @param enabled Whether to schedule boid updates by tier.
+     */
+    public void setLevelOfDetailEnabled(boolean enabled) {
+        this.levelOfDetailEnabled = enabled;
+    }
+
+    /**
+     * Sets the radius cohesion and alignment look over, independently of the perception
+     * radius used for separation. With a radius set, a quadtree of the boids is built every
+     * tick and groups of boids far enough away are taken into account as a whole, so the
+     * cost grows as O(n log n) however large the radius. Only applies to metric neighbor mode.
+     * @param radius The cohesion and alignment radius, or 0 to use the neighbors as before.
+     */
+    public void setFarFieldRadius(double radius) {
+        this.farFieldRadius = Math.max(0, radius);
+    }
+
+    /**
+     * Sets the smallest distance between boids when they are spawned, so a new flock starts
+     * evenly spread instead of in random clumps. Takes effect at the next respawn.
+     * @param spacing The distance, or 0 for none (the default).
+     */
+    public void setSpawnSpacing(double spacing) {
+        this.spawnSpacing = Math.max(0, spacing);
+    }
+
+    public double getSpawnSpacing() {
+        return this.spawnSpacing;
+    }
+
+    /**
+     * Sets how small a group of boids straddling the edge of the far-field radius has to be,
+     * compared to its distance, to be counted in or out as a whole. 0 makes the sums exact.
+     * @param openingAngle The Barnes-Hut opening angle, default {@value #DEFAULT_FAR_FIELD_OPENING_ANGLE}.
+     */
+    public void setFarFieldOpeningAngle(double openingAngle) {
+        this.farFieldOpeningAngle = Math.max(0, openingAngle);
+    }
+
+    /**
+     * @return The camera the simulation is drawn through.
+     */
+    public Camera getCamera() {
+        return this.camera;
+    }
+
+    /**
+     * Replaces the camera, e.g. after the view is panned or zoomed. Takes effect from the next frame.
+     * @param camera The new camera.
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    /**
+     * Makes the world larger (or smaller) than the canvas. Entities wrap around at the world's
+     * edges and new boids are spread over the whole world; use the camera to look around it.
+     * @param width The world width, or 0 to use the canvas width.
+     * @param height The world height, or 0 to use the canvas height.
+     */
+    public void setWorldSize(int width, int height) {
+        this.worldWidth = Math.max(0, width);
+        this.worldHeight = Math.max(0, height);
+        for (SimulatedEntity entity : this.entities) {
+            if (entity instanceof AbstractSimulatedEntity) {
+                ((AbstractSimulatedEntity) entity).setWorldSize(this.worldWidth, this.worldHeight);
+            }
+        }
+    }
+
+    /**
+     * @return The width of the world, which is the canvas width unless set with {@link #setWorldSize}.
+     */
+    public int getWorldWidth() {
+        return this.worldWidth > 0 ? this.worldWidth : this.canvas.getWidth();
+    }
+
+    /**
+     * @return The height of the world, which is the canvas height unless set with {@link #setWorldSize}.
+     */
+    public int getWorldHeight() {
+        return this.worldHeight > 0 ? this.worldHeight : this.canvas.getHeight();
+    }
+
+    /**
+     * Removes a batch of entities in one go, e.g. boids that have left this simulation's region.
+     * The removed entities are pooled for {@link #createBoid} and {@link #createPredator} to
+     * reuse, so the caller must not keep using them.
+     * @param removed The entities to remove; ones not in the simulation are ignored.
+     */
+    public void removeEntities(Collection<? extends SimulatedEntity> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        HashSet<SimulatedEntity> gone = new HashSet<>(removed);
+        List<SimulatedEntity> found = new ArrayList<>(gone.size());
         for (SimulatedEntity entity : this.entities) {
+            if (gone.contains(entity)) {
+                found.add(entity);
+            }
+        }
+        this.entities.removeAll(gone);
+        this.populationVersion++;
+        this.entityPool.retire(found, this.stepEpoch);
+        this.events.publish(EventType.REMOVAL, this.tickCount, found.size(), this.entities.size(), 0, 0, 0, null);
+    }
+
+    /**
+     * @return A number that changes whenever entities are added or removed, so a caller that
+     *         remembers it can tell whether the entity list still holds the same entities.
+     */
+    public int getPopulationVersion() {
+        return this.populationVersion;
+    }
+
+    /**
+     * Replaces the ghosts: read-only copies of entities that something else simulates, such
+     * as the boids just across the edge of a neighbouring region. Boids here see and react to
+     * ghosts like any other entity, but ghosts are never steered or moved, and they are
+     * dropped the next time this is called. Dropped ghosts are pooled for reuse like removed
+     * entities, so they are best made with {@link #createBoid} and not kept by the caller.
+     * @param newGhosts The current copies; they must not already be in the simulation.
+     */
+    public void setGhosts(Collection<? extends AbstractSimulatedEntity> newGhosts) {
+        List<SimulatedEntity> kept = new ArrayList<>(this.entities.size() - this.ghostCount + newGhosts.size());
+        List<SimulatedEntity> dropped = new ArrayList<>(this.ghostCount);
+        for (SimulatedEntity entity : this.entities) {
+            if (!isGhost(entity)) {
+                kept.add(entity);
+            } else {
+                dropped.add(entity);
+            }
+        }
+        for (AbstractSimulatedEntity ghost : newGhosts) {
+            ghost.ghost = true;
+            kept.add(ghost);
+        }
+        this.entities.clear();
+        this.entities.addAll(kept);
+        this.ghostCount = newGhosts.size();
+        this.populationVersion++;
+        this.entityPool.retire(dropped, this.stepEpoch);
+    }
+
+    /**
+     * @return How far away one entity can react to another: the perception radius, or the
+     *         far-field radius when that is larger. Anything that splits the world must share
+     *         ghosts at least this far beyond its edges.
+     */
+    public double getInteractionRadius() {
+        return Math.max(BOID_PERCEPTION_RADIUS, this.farFieldRadius);
+    }
+
+    /**
+     * Sets the area of the world that is on screen, for level-of-detail scheduling.
+     * Until this is called the whole world counts as on screen.
+     */
+    public void setLevelOfDetailViewport(double minX, double minY, double maxX, double maxY) {
+        this.levelOfDetail.setViewport(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @param tier An update tier.
+     * @return How many boids were in that tier at the last scheduled tick.
+     */
+    public int getUpdateTierCount(UpdateTier tier) {
+        return this.levelOfDetail.getTierCount(tier);
+    }
+
+    public void updatePredatorFleeWeight(double weight) {
+        this.defaultProfile.update(profile -> profile.withPredatorFleeWeight(weight));
+    }
+
+    /**
+     * Registers a custom steering behavior for every boid, applied after the built-in ones.
+     * Configurations that do not register any behaviors do not pay for this.
+     * @param behavior The behavior to add.
+     * @param weight How strongly its force counts. A weight of zero leaves it out of the pipeline.
+     */
+    public synchronized void addSteeringBehavior(SteeringBehavior behavior, double weight) {
+        if (behavior == null) {
+            throw new IllegalArgumentException("Steering behavior must not be null");
+        }
+        this.customBehaviors = new SteeringPipeline().addAll(this.customBehaviors).add(behavior, weight);
+    }
+
+    /**
+     * @return The steering pipeline the boids on the default profile are currently stepped with.
+     */
+    public SteeringPipeline getSteeringPipeline() {
+        return combine(this.defaultProfile.get(), this.customBehaviors);
+    }
+
+    /**
+     * @return The profile every boid is created with, which the update methods change.
+     */
+    public SharedFlockProfile getDefaultProfile() {
+        return this.defaultProfile;
+    }
+
+    /**
+     * Creates a profile that this simulation publishes every tick, for a group of boids to share; see {@link #assignProfile}.
+     * @param profile The group's settings to start with.
+     * @return The shared profile.
+     */
+    public SharedFlockProfile createProfile(FlockProfile profile) {
+        SharedFlockProfile shared = new SharedFlockProfile(profile);
+        this.profiles.add(shared);
+        return shared;
+    }
+
+    /**
+     * Makes boids take their settings from a shared profile from their next update. Other
+     * entities are left alone. Respawned boids go back to the default profile.
+     * @param boids The boids, e.g. a selection from {@link #getEntities}.
+     * @param profile The profile, which this simulation publishes from now on if it did not already.
+     */
+    public void assignProfile(Collection<? extends SimulatedEntity> boids, SharedFlockProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("Flock profile must not be null");
+        }
+        this.profiles.addIfAbsent(profile);
+        for (SimulatedEntity entity : boids) {
             if (entity instanceof Boid) {
-                ((Boid) entity).setPredatorFleeWeight(weight);
+                ((Boid) entity).setProfile(profile);
+            }
+        }
+    }
+
+    /**
+     * Makes the pending changes to every profile this simulation publishes current. Each tick
+     * starts with this; only call it directly to apply changes to a simulation that is not being
+     * stepped, from the thread that would step it.
+     */
+    public void publishProfiles() {
+        for (SharedFlockProfile profile : this.profiles) {
+            if (profile.publish()) {
+                this.events.publish(EventType.PARAMETER_CHANGE, this.tickCount, 0, 0, profile.get().getVersion(), 0, 0,
+                    profile == this.defaultProfile ? "default" : "custom");
             }
         }
     }
+
+    /**
+     * @return The pipeline for a profile's current settings and the custom behaviors, cached on the shared profile.
+     */
+    private static SteeringPipeline pipelineFor(SharedFlockProfile shared, SteeringPipeline customBehaviors) {
+        FlockProfile profile = shared.get();
+        if (shared.pipelineProfile != profile || shared.pipelineCustomBehaviors != customBehaviors) {
+            shared.pipeline = combine(profile, customBehaviors);
+            shared.pipelineProfile = profile;
+            shared.pipelineCustomBehaviors = customBehaviors;
+        }
+        return shared.pipeline;
+    }
+
+    /**
+     * @return The built-in behaviors with the profile's weights, leaving out those whose weight is zero, followed by the custom ones.
+     */
+    private static SteeringPipeline combine(FlockProfile profile, SteeringPipeline customBehaviors) {
+        if (customBehaviors.size() == 0) {
+            return profile.getPipeline();
+        }
+        return new SteeringPipeline().addAll(profile.getPipeline()).addAll(customBehaviors);
+    }
 }
@@ -0,0 +1,168 @@
+package flockingsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import geometry.CartesianCoordinate;
+
+/**
+ * Multi-rate scheduling for boids. Every tick each boid is given an {@link UpdateTier} from
+ * what is around it, and is told whether its neighbor search, its steering and its
+ * obstacle check are due.
+ *
+ * <p>The tiers are worked out from the current positions every tick, which only takes a
+ * few squared distances per boid. A boid within reach of a predator or the mouse is always
+ * {@link UpdateTier#ACTIVE}, so those forces are never held back, and the obstacle check is
+ * only skipped for boids too far from every obstacle for it to return anything. What is
+ * run at a lower rate is the neighbor search of boids that are alone or out of view, and
+ * the steering of boids that are both. Separation needs to react every tick once a flock
+ * is crowded, so boids with company keep steering every tick with the neighbors they found
+ * last. Boids in the same tier are staggered so their updates are spread evenly over the
+ * ticks.
+ */
+class LevelOfDetailScheduler {
+    private static final int ISOLATED_NEIGHBOR_COUNT = 1; // At most this many neighbors counts as alone
+    private static final double REACH_MARGIN = 1.0; // Keeps rounding from skipping a check that would have found something
+
+    private final ArrayList<CartesianCoordinate> predatorPositions = new ArrayList<>();
+    private double[] obstacleXs = new double[0];
+    private double[] obstacleYs = new double[0];
+    private boolean hasViewport;
+    private double viewMinX;
+    private double viewMinY;
+    private double viewMaxX;
+    private double viewMaxY;
+    private long tick;
+    private int scheduledPopulationVersion;
+    private boolean scheduled;
+    private final int[] tierCounts = new int[UpdateTier.values().length];
+
+    /**
+     * Limits the area counted as in view. Without a viewport every boid is in view.
+     */
+    void setViewport(double minX, double minY, double maxX, double maxY) {
+        this.viewMinX = minX;
+        this.viewMinY = minY;
+        this.viewMaxX = maxX;
+        this.viewMaxY = maxY;
+        this.hasViewport = true;
+    }
+
+    /**
+     * Assigns every boid its tier for this tick and marks which of its updates are due.
+     * A boid that keeps its neighbors from an earlier tick could still be holding entities
+     * that have since been removed, and pooled or reused elsewhere, so every search is due
+     * in a tick where the population has changed.
+     * @param entities All entities in the simulation.
+     * @param obstacles The obstacles.
+     * @param mousePosition The mouse position, or null if there is none.
+     * @param populationVersion The simulation's population version, see {@link FlockingSimulation#getPopulationVersion}.
+     */
+    void schedule(List<SimulatedEntity> entities, List<Rectangle> obstacles, CartesianCoordinate mousePosition, int populationVersion) {
+        boolean populationChanged = !this.scheduled || populationVersion != this.scheduledPopulationVersion;
+        this.scheduledPopulationVersion = populationVersion;
+        this.scheduled = true;
+        this.predatorPositions.clear();
+        for (SimulatedEntity entity : entities) {
+            if (entity instanceof Predator) {
+                this.predatorPositions.add(entity.getPosition());
+            }
+        }
+        int obstacleCount = obstacles.size();
+        if (this.obstacleXs.length < obstacleCount) {
+            this.obstacleXs = new double[obstacleCount];
+            this.obstacleYs = new double[obstacleCount];
+        }
+        for (int i = 0; i < obstacleCount; i++) {
+            CartesianCoordinate center = obstacles.get(i).getCenter();
+            this.obstacleXs[i] = center.getX();
+            this.obstacleYs[i] = center.getY();
+        }
+        for (int i = 0; i < this.tierCounts.length; i++) {
+            this.tierCounts[i] = 0;
+        }
+
+        int slot = 0;
+        for (SimulatedEntity entity : entities) {
+            if (!(entity instanceof Boid)) {
+                continue;
+            }
+            Boid boid = (Boid) entity;
+            double x = boid.getPosition().getX();
+            double y = boid.getPosition().getY();
+            UpdateTier tier = chooseTier(boid, x, y, mousePosition);
+            boid.updateTier = tier;
+            // The slot staggers boids so that each tick recalculates an even share of every tier
+            boid.searchDue = populationChanged || (this.tick + slot) % tier.getSearchInterval() == 0;
+            boid.steeringDue = (this.tick + slot) % tier.getSteeringInterval() == 0;
+            boid.obstacleDue = isNearObstacle(x, y, obstacleCount, boid.getObstacleReach() + REACH_MARGIN);
+            this.tierCounts[tier.ordinal()]++;
+            slot++;
+        }
+        this.tick++;
+    }
+
+    /**
+     * Marks every update as due again, for when scheduling is turned off.
+     */
+    void reset(List<SimulatedEntity> entities) {
+        for (SimulatedEntity entity : entities) {
+            if (entity instanceof Boid) {
+                Boid boid = (Boid) entity;
+                boid.updateTier = UpdateTier.ACTIVE;
+                boid.searchDue = true;
+                boid.steeringDue = true;
+                boid.obstacleDue = true;
+            }
+        }
+    }
+
+    private UpdateTier chooseTier(Boid boid, double x, double y, CartesianCoordinate mousePosition) {
+        double fleeReach = boid.perceptionRadius + REACH_MARGIN;
+        double fleeReachSquared = fleeReach * fleeReach;
+        for (int i = 0; i < this.predatorPositions.size(); i++) {
+            CartesianCoordinate predator = this.predatorPositions.get(i);
+            double dx = x - predator.getX();
+            double dy = y - predator.getY();
+            if (dx * dx + dy * dy < fleeReachSquared) {
+                return UpdateTier.ACTIVE;
+            }
+        }
+        if (mousePosition != null) {
+            double mouseReach = boid.getMousePerceptionRadius() + REACH_MARGIN;
+            double dx = x - mousePosition.getX();
+            double dy = y - mousePosition.getY();
+            if (dx * dx + dy * dy < mouseReach * mouseReach) {
+                return UpdateTier.ACTIVE;
+            }
+        }
+        boolean isolated = boid.getNeighborCount() <= ISOLATED_NEIGHBOR_COUNT;
+        if (isInView(x, y)) {
+            return isolated ? UpdateTier.REDUCED : UpdateTier.ACTIVE;
+        }
+        return isolated ? UpdateTier.BACKGROUND : UpdateTier.REDUCED;
+    }
+
+    private boolean isInView(double x, double y) {
+        return !this.hasViewport
+            || (x >= this.viewMinX && x <= this.viewMaxX && y >= this.viewMinY && y <= this.viewMaxY);
+    }
+
+    private boolean isNearObstacle(double x, double y, int obstacleCount, double reach) {
+        double reachSquared = reach * reach;
+        for (int i = 0; i < obstacleCount; i++) {
+            double dx = x - this.obstacleXs[i];
+            double dy = y - this.obstacleYs[i];
+            if (dx * dx + dy * dy < reachSquared) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return How many boids were in the given tier at the last tick.
+     */
+    int getTierCount(UpdateTier tier) {
+        return this.tierCounts[tier.ordinal()];
+    }
+}
@@ -0,0 +1,23 @@
+package flockingsim;
+
+import geometry.CartesianCoordinate;
+
+/**
+ * Steers boids away from the mouse pointer. Skipped while there is no mouse position.
+ */
+final class MouseAvoidanceBehavior implements SteeringBehavior {
+    static final MouseAvoidanceBehavior INSTANCE = new MouseAvoidanceBehavior();
+
+    private MouseAvoidanceBehavior() {
+    }
+
+    @Override
+    public CartesianCoordinate steer(Boid boid, SteeringContext context) {
+        return boid.calculateMouseAvoidanceForce(context.getMousePosition());
+    }
+
+    @Override
+    public boolean isActive(SteeringContext context) {
+        return context.getMousePosition() != null;
+    }
+}
@@ -0,0 +1,91 @@
+package flockingsim;
+
+import java.util.List;
+
+/**
+ * A bounded max-heap of boids keyed by squared distance, used to keep the k
+ * nearest candidates seen so far. The farthest kept boid sits at the root, so a
+ * new candidate only has to beat the root to get in. Arrays are reused between
+ * queries; they only grow when k does.
+ */
+class NearestNeighborHeap {
+    private Boid[] boids = new Boid[0];
+    private double[] distancesSquared = new double[0];
+    private int size;
+    private int capacity;
+
+    /**
+     * Empties the heap and sets how many boids it keeps.
+     * @param k The number of nearest boids to keep.
+     */
+    void reset(int k) {
+        if (this.boids.length < k) {
+            this.boids = new Boid[k];
+            this.distancesSquared = new double[k];
+        }
+        this.capacity = k;
+        this.size = 0;
+    }
+
+    /**
+     * Offers a candidate. It is kept if the heap is not full yet or if it is nearer than the farthest kept boid.
+     * @param boid The candidate.
+     * @param distanceSquared Its squared distance from the query point.
+     */
+    void offer(Boid boid, double distanceSquared) {
+        if (this.size < this.capacity) {
+            int i = this.size++;
+            // Sift up
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (this.distancesSquared[parent] >= distanceSquared) {
+                    break;
+                }
+                this.boids[i] = this.boids[parent];
+                this.distancesSquared[i] = this.distancesSquared[parent];
+                i = parent;
+            }
+            this.boids[i] = boid;
+            this.distancesSquared[i] = distanceSquared;
+        } else if (this.capacity > 0 && distanceSquared < this.distancesSquared[0]) {
+            // Replace the root and sift down
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= this.size) {
+                    break;
+                }
+                if (child + 1 < this.size && this.distancesSquared[child + 1] > this.distancesSquared[child]) {
+                    child++;
+                }
+                if (this.distancesSquared[child] <= distanceSquared) {
+                    break;
+                }
+                this.boids[i] = this.boids[child];
+                this.distancesSquared[i] = this.distancesSquared[child];
+                i = child;
+            }
+            this.boids[i] = boid;
+            this.distancesSquared[i] = distanceSquared;
+        }
+    }
+
+    /**
+     * @return The squared distance a candidate must beat to be kept; infinite while the heap is not full.
+     */
+    double worstDistanceSquared() {
+        return this.size < this.capacity ? Double.POSITIVE_INFINITY : this.distancesSquared[0];
+    }
+
+    /**
+     * Appends the kept boids to {@code out} (in heap order) and clears references held by the heap.
+     * @param out The list to fill.
+     */
+    void drainTo(List<Boid> out) {
+        for (int i = 0; i < this.size; i++) {
+            out.add(this.boids[i]);
+            this.boids[i] = null;
+        }
+        this.size = 0;
+    }
+}
@@ -0,0 +1,11 @@
+package flockingsim;
+
+/**
+ * How a boid chooses which other boids it flocks with.
+ */
+public enum NeighborMode {
+    /** Every boid inside the perception radius. */
+    METRIC,
+    /** Only the k nearest boids inside the perception radius, however crowded it gets. */
+    TOPOLOGICAL
+}
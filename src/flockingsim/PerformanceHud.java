@@ -0,0 +1,175 @@
+package flockingsim;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.plaf.LayerUI;
+
+import metrics.LiveStats;
+
+/**
+ * Draws a performance overlay on top of the canvas: simulation TPS, render FPS,
+ * tick latency percentiles against the frame budget, neighbours per boid, heap
+ * use and GC time, plus a sparkline of recent tick times.
+ *
+ * <p>It is installed as a {@link javax.swing.JLayer} around the canvas so the
+ * canvas itself does not need to know about it. All values are read from
+ * {@link LiveStats}, so drawing the HUD never blocks the simulation thread.
+ */
+public class PerformanceHud extends LayerUI<JComponent> {
+    private static final long serialVersionUID = 1L;
+    private static final long RATE_WINDOW_NANOS = 500_000_000L; // How often TPS/FPS/GC figures are refreshed
+    private static final int PANEL_X = 10;
+    private static final int PANEL_Y = 10;
+    private static final int PANEL_WIDTH = 260;
+    private static final int LINE_HEIGHT = 14;
+    private static final int SPARKLINE_HEIGHT = 40;
+
+    private final LiveStats stats;
+    private final FlockingSimulation simulation;
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private final long[] history = new long[LiveStats.HISTORY_SIZE];
+    private final long[] sorted = new long[LiveStats.HISTORY_SIZE];
+    private boolean visible;
+
+    // Rates are derived from counter deltas; these hold the previous sample (EDT only)
+    private long lastSampleNanos;
+    private long lastTickCount;
+    private long lastFrameCount;
+    private long lastGcMillis;
+    private double ticksPerSecond;
+    private double framesPerSecond;
+    private double gcMillisPerSecond;
+
+    public PerformanceHud(FlockingSimulation simulation) {
+        this.simulation = simulation;
+        this.stats = simulation.getMetrics().getLiveStats();
+    }
+
+    public boolean isVisible() {
+        return this.visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    @Override
+    public void paint(Graphics g, JComponent c) {
+        super.paint(g, c);
+        if (!this.visible) {
+            return;
+        }
+        sampleRates();
+
+        int count = this.stats.copyTickHistory(this.history);
+        System.arraycopy(this.history, 0, this.sorted, 0, count);
+        Arrays.sort(this.sorted, 0, count);
+        double p50Ms = count == 0 ? 0 : this.sorted[(int) (0.50 * (count - 1))] / 1e6;
+        double p99Ms = count == 0 ? 0 : this.sorted[(int) (0.99 * (count - 1))] / 1e6;
+        double budgetMs = this.simulation.getSimulationDelayMs();
+
+        Runtime runtime = Runtime.getRuntime();
+        long usedHeapMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        long maxHeapMb = runtime.maxMemory() >> 20;
+
+        String[] lines = {
+            String.format("Entities: %d", this.stats.getEntityCount()),
+            String.format("Sim TPS: %.1f   Render FPS: %.1f", this.ticksPerSecond, this.framesPerSecond),
+            String.format("Tick p50: %.2f ms   p99: %.2f ms", p50Ms, p99Ms),
+            String.format("Frame budget: %.0f ms", budgetMs),
+            String.format("Neighbors/boid: %.1f", this.stats.getMeanNeighbors()),
+            String.format("Heap: %d / %d MB   GC: %.0f ms/s", usedHeapMb, maxHeapMb, this.gcMillisPerSecond)
+        };
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            int panelHeight = lines.length * LINE_HEIGHT + SPARKLINE_HEIGHT + 16;
+            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.75f));
+            g2.setColor(Color.DARK_GRAY);
+            g2.fillRect(PANEL_X, PANEL_Y, PANEL_WIDTH, panelHeight);
+            g2.setComposite(AlphaComposite.SrcOver);
+
+            g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+            int y = PANEL_Y + LINE_HEIGHT;
+            for (int i = 0; i < lines.length; i++) {
+                // Highlight the latency line once the slowest ticks no longer fit in the frame budget
+                boolean overBudget = i == 2 && p99Ms > budgetMs;
+                g2.setColor(overBudget ? Color.RED : Color.WHITE);
+                g2.drawString(lines[i], PANEL_X + 6, y);
+                y += LINE_HEIGHT;
+            }
+            drawSparkline(g2, count, budgetMs, PANEL_X + 6, y, PANEL_WIDTH - 12, SPARKLINE_HEIGHT);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    /**
+     * Plots the recent tick times, scaled so the frame budget is always visible as a line.
+     */
+    private void drawSparkline(Graphics2D g2, int count, double budgetMs, int x, int y, int width, int height) {
+        g2.setColor(Color.BLACK);
+        g2.fillRect(x, y, width, height);
+        if (count < 2) {
+            return;
+        }
+        double maxMs = budgetMs;
+        for (int i = 0; i < count; i++) {
+            maxMs = Math.max(maxMs, this.history[i] / 1e6);
+        }
+        int budgetY = y + height - (int) (budgetMs / maxMs * (height - 1));
+        g2.setColor(Color.ORANGE);
+        g2.drawLine(x, budgetY, x + width, budgetY);
+
+        g2.setColor(Color.GREEN);
+        double step = (double) width / (LiveStats.HISTORY_SIZE - 1);
+        int offset = LiveStats.HISTORY_SIZE - count; // Right-align so the newest sample is at the edge
+        int prevX = 0;
+        int prevY = 0;
+        for (int i = 0; i < count; i++) {
+            int px = x + (int) ((offset + i) * step);
+            int py = y + height - 1 - (int) (this.history[i] / 1e6 / maxMs * (height - 1));
+            if (i > 0) {
+                g2.drawLine(prevX, prevY, px, py);
+            }
+            prevX = px;
+            prevY = py;
+        }
+    }
+
+    /**
+     * Refreshes the per-second rates at most every {@link #RATE_WINDOW_NANOS}.
+     */
+    private void sampleRates() {
+        long now = System.nanoTime();
+        long elapsed = now - this.lastSampleNanos;
+        if (this.lastSampleNanos != 0 && elapsed < RATE_WINDOW_NANOS) {
+            return;
+        }
+        long ticks = this.stats.getTickCount();
+        long frames = this.stats.getFrameCount();
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean bean : this.gcBeans) {
+            gcMillis += Math.max(0, bean.getCollectionTime());
+        }
+        if (this.lastSampleNanos != 0) {
+            double seconds = elapsed / 1e9;
+            this.ticksPerSecond = (ticks - this.lastTickCount) / seconds;
+            this.framesPerSecond = (frames - this.lastFrameCount) / seconds;
+            this.gcMillisPerSecond = (gcMillis - this.lastGcMillis) / seconds;
+        }
+        this.lastSampleNanos = now;
+        this.lastTickCount = ticks;
+        this.lastFrameCount = frames;
+        this.lastGcMillis = gcMillis;
+    }
+}
@@ -13,7 +13,8 @@ public class Predator extends AbstractSimulatedEntity {
     private static final double PREDATOR_LENGTH = 12; // Slightly larger than boid
     private static final double PREDATOR_WIDTH = 12;
     private static final double PREDATOR_BACK_OFFSET = 8;
-    private double predatorTurnRate = 20.0; // Predators might turn a bit slower or faster
+    Boid caught; // The boid it reached this tick, or null if it is still on the one from last tick or reached none
+    private Boid reached; // The boid it is touching, so staying on one boid counts as one catch
 
     public Predator(Canvas canvas, CartesianCoordinate position, CartesianCoordinate velocity, 
                     double maxSpeed, double maxForce, double perceptionRadius) {
@@ -22,7 +23,14 @@ public class Predator extends AbstractSimulatedEntity {
     }
 
     @Override
-    public void update(List<SimulatedEntity> allEntities, List<Rectangle> obstacles, CartesianCoordinate currentMousePosition) {
+    void respawn(CartesianCoordinate position, CartesianCoordinate velocity, double maxSpeed, double maxForce, double perceptionRadius) {
+        super.respawn(position, velocity, maxSpeed, maxForce, perceptionRadius);
+        this.caught = null;
+        this.reached = null;
+    }
+
+    @Override
+    public void applyForces(List<SimulatedEntity> allEntities, List<Rectangle> obstacles, CartesianCoordinate currentMousePosition) {
         this.acceleration = new CartesianCoordinate(0, 0); // Reset acceleration each frame
 
         // Predator behavior
@@ -30,7 +38,10 @@ public class Predator extends AbstractSimulatedEntity {
         // Obstacle avoidance for predators (can be simpler than boids or similar)
         // CartesianCoordinate obstacleAvoidanceForce = calculateSimpleObstacleAvoidance(obstacles);
         // this.acceleration = this.acceleration.add(obstacleAvoidanceForce.multiply(someWeight));
+    }
 
+    @Override
+    public void integrate(List<Rectangle> obstacles) {
         // Basic physics: update velocity from acceleration
         this.velocity = this.velocity.add(this.acceleration);
         
@@ -42,29 +53,20 @@ public class Predator extends AbstractSimulatedEntity {
             this.velocity = new CartesianCoordinate(0,0);
         }
 
-        // Movement: use inherited turn and move
+        // Movement: use inherited move
         int moveDistance = (int) this.velocity.magnitude();
         if (moveDistance > 0) {
-            double currentHeading = Math.toDegrees(Math.atan2(this.velocity.getY(), this.velocity.getX()));
-            CartesianCoordinate desiredDirection = this.velocity.normalize();
-            double desiredHeading = Math.toDegrees(Math.atan2(desiredDirection.getY(), desiredDirection.getX()));
-            double turnNeeded = desiredHeading - currentHeading;
-            while (turnNeeded > 180) turnNeeded -= 360;
-            while (turnNeeded < -180) turnNeeded += 360;
-            turnNeeded = Math.max(-this.predatorTurnRate, Math.min(this.predatorTurnRate, turnNeeded));
-            
-            super.turn((int) turnNeeded); // Call inherited turn method
             super.move(moveDistance, obstacles); // Call inherited move method
         }
 
         // Apply screen wrapping (inherited)
         if (this.canvas != null) {
-             super.wrapPosition(this.canvas.getWidth(), this.canvas.getHeight());
+             super.wrapPosition(getWorldWidth(), getWorldHeight());
         }
     }
 
     @Override
-    public void draw() {
+    public void draw(Camera camera) {
         if (!this.penDown || this.canvas == null) return; // penDown is inherited
         Color predatorColor = Color.RED; 
         CartesianCoordinate currentPos = this.position; // position is inherited
@@ -79,6 +81,9 @@ public class Predator extends AbstractSimulatedEntity {
         CartesianCoordinate leftPosition = baseCenter.add(perpVelocity.multiply(PREDATOR_WIDTH / 2.0));
         CartesianCoordinate rightPosition = baseCenter.add(perpVelocity.multiply(-PREDATOR_WIDTH / 2.0));
         
+        frontPosition = camera.toScreen(frontPosition);
+        leftPosition = camera.toScreen(leftPosition);
+        rightPosition = camera.toScreen(rightPosition);
         this.canvas.drawLineBetweenPoints(frontPosition, leftPosition, predatorColor);
         this.canvas.drawLineBetweenPoints(leftPosition, rightPosition, predatorColor);
         this.canvas.drawLineBetweenPoints(rightPosition, frontPosition, predatorColor);
@@ -101,6 +106,13 @@ public class Predator extends AbstractSimulatedEntity {
             }
         }
 
+        Boid touching = null;
+        if (closestBoid != null && closestDistance < getVisualRadius() + closestBoid.getVisualRadius()) {
+            touching = closestBoid;
+        }
+        this.caught = touching != this.reached ? touching : null;
+        this.reached = touching;
+
         if (closestBoid != null) {
             // Steer towards the closest boid
             CartesianCoordinate steeringForce = seek(closestBoid.getPosition()); 
@@ -0,0 +1,23 @@
+package flockingsim;
+
+import geometry.CartesianCoordinate;
+
+/**
+ * Steers boids away from nearby predators. Skipped while there are no predators.
+ */
+final class PredatorFleeBehavior implements SteeringBehavior {
+    static final PredatorFleeBehavior INSTANCE = new PredatorFleeBehavior();
+
+    private PredatorFleeBehavior() {
+    }
+
+    @Override
+    public CartesianCoordinate steer(Boid boid, SteeringContext context) {
+        return boid.predatorFleeForce(context.getPredators());
+    }
+
+    @Override
+    public boolean isActive(SteeringContext context) {
+        return !context.getPredators().isEmpty();
+    }
+}
@@ -20,17 +20,34 @@ public class Rectangle {
      * Draws the rectangle on the canvas.
      */
     public void draw() {
+        draw(Camera.IDENTITY);
+    }
+
+    /**
+     * Draws the rectangle as seen through a camera.
+     * @param camera Maps world coordinates onto the canvas.
+     */
+    public void draw(Camera camera) {
         if (this.canvas == null) return;
 
-        CartesianCoordinate topRight = new CartesianCoordinate(this.topLeft.getX() + this.dx, this.topLeft.getY());
-        CartesianCoordinate bottomLeft = new CartesianCoordinate(this.topLeft.getX(), this.topLeft.getY() + this.dy);
-        CartesianCoordinate bottomRight = new CartesianCoordinate(this.topLeft.getX() + this.dx, this.topLeft.getY() + this.dy);
+        CartesianCoordinate topLeft = camera.toScreen(this.topLeft);
+        CartesianCoordinate topRight = camera.toScreen(new CartesianCoordinate(this.topLeft.getX() + this.dx, this.topLeft.getY()));
+        CartesianCoordinate bottomLeft = camera.toScreen(new CartesianCoordinate(this.topLeft.getX(), this.topLeft.getY() + this.dy));
+        CartesianCoordinate bottomRight = camera.toScreen(new CartesianCoordinate(this.topLeft.getX() + this.dx, this.topLeft.getY() + this.dy));
 
         // Draw the four sides
-        this.canvas.drawLineBetweenPoints(this.topLeft, topRight);
+        this.canvas.drawLineBetweenPoints(topLeft, topRight);
         this.canvas.drawLineBetweenPoints(topRight, bottomRight);
         this.canvas.drawLineBetweenPoints(bottomRight, bottomLeft);
-        this.canvas.drawLineBetweenPoints(bottomLeft, this.topLeft);
+        this.canvas.drawLineBetweenPoints(bottomLeft, topLeft);
+    }
+
+    /**
+     * @return Whether any part of the rectangle lies within the given bounds.
+     */
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        return this.topLeft.getX() <= maxX && this.topLeft.getX() + this.dx >= minX
+            && this.topLeft.getY() <= maxY && this.topLeft.getY() + this.dy >= minY;
     }
 
     /**
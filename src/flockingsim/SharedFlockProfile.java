@@ -0,0 +1,82 @@
+package flockingsim;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link FlockProfile} shared by a group of boids. Changes from other threads (e.g. a
+ * slider on the event dispatch thread) only replace the pending profile, which costs the
+ * same however many boids share it. The simulation publishes the pending profile at the
+ * start of each tick, so every boid in the group sees the same settings for a whole tick.
+ * A simulation publishes its default profile and those made with
+ * {@link FlockingSimulation#createProfile}; a profile made directly is published when it is created.
+ */
+public final class SharedFlockProfile {
+    private final AtomicReference<FlockProfile> pending;
+    private FlockProfile current; // Only replaced by the thread that steps the boids, between ticks
+    // The simulation's pipeline for the current profile with its custom behaviors, rebuilt when either changes
+    SteeringPipeline pipeline;
+    FlockProfile pipelineProfile;
+    SteeringPipeline pipelineCustomBehaviors;
+
+    /**
+     * @param profile The profile, published straight away.
+     */
+    public SharedFlockProfile(FlockProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("Flock profile must not be null");
+        }
+        this.pending = new AtomicReference<>(profile);
+        this.current = profile;
+    }
+
+    /**
+     * @return The profile the boids are using this tick.
+     */
+    public FlockProfile get() {
+        return this.current;
+    }
+
+    /**
+     * @return The profile that will be published at the start of the next tick.
+     */
+    public FlockProfile getPending() {
+        return this.pending.get();
+    }
+
+    /**
+     * Replaces the pending profile. Safe to call from any thread.
+     */
+    public void set(FlockProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("Flock profile must not be null");
+        }
+        this.pending.set(profile);
+    }
+
+    /**
+     * Changes the pending profile, e.g. {@code update(p -> p.withSeparationWeight(2))}.
+     * Safe to call from any thread; concurrent changes are all kept.
+     */
+    public void update(UnaryOperator<FlockProfile> change) {
+        FlockProfile before;
+        FlockProfile after;
+        do {
+            before = this.pending.get();
+            after = change.apply(before);
+        } while (!this.pending.compareAndSet(before, after));
+    }
+
+    /**
+     * Makes the pending profile current. Only called by the thread that steps the boids, between ticks.
+     * @return Whether the profile changed.
+     */
+    boolean publish() {
+        FlockProfile next = this.pending.get();
+        if (next == this.current) {
+            return false;
+        }
+        this.current = next;
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+package flockingsim;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Publishes every entity's position and velocity into a memory-mapped file after each tick,
+ * so other processes, in any language, can map the same file and read the flock while it
+ * runs without anything being serialized or copied for them.
+ *
+ * <p>Layout, all little-endian:
+ * <pre>
+ * offset      type     field
+ *  0          int32    magic, 0x464C4B4D ("FLKM")
+ *  4          int32    layout version, 1
+ *  8          int64    sequence: odd while a tick is being written, even when stable
+ * 16          int64    tick number
+ * 24          int32    capacity: how many records the file has room for
+ * 28          int32    count: how many records are valid
+ * 32          int32    world width
+ * 36          int32    world height
+ * 40          int32    record size in bytes, 24
+ * 44..63               reserved, 0
+ * 64 + 24*i   record i:
+ *             float32  x, y, velocity x, velocity y
+ *             int32    kind: 0 boid, 1 predator
+ *             int32    reserved, 0
+ * </pre>
+ *
+ * <p>The sequence works like a seqlock. To take a consistent snapshot, read the sequence and
+ * try again if it is odd, copy what you need, then read the sequence again and keep the copy
+ * only if it has not changed. The writer never waits for readers. When the population
+ * outgrows the capacity the file grows, so a reader whose mapping is shorter than
+ * {@code 64 + 24 * capacity} bytes should map the file again.
+ */
+public class SharedStateExport {
+    public static final int MAGIC = 0x464C4B4D;
+    public static final int LAYOUT_VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int RECORD_BYTES = 24;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int MIN_CAPACITY = 1024;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private long sequence;
+    private long tick;
+
+    /**
+     * Creates (or truncates) the file and maps it.
+     * @param file The file to publish into, e.g. under /dev/shm so it never touches a disk.
+     * @param initialCapacity How many entities to make room for; the file grows if needed.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public SharedStateExport(Path file, int initialCapacity) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        map(Math.max(MIN_CAPACITY, initialCapacity));
+        this.buffer.putInt(0, MAGIC);
+        this.buffer.putInt(4, LAYOUT_VERSION);
+        this.buffer.putInt(40, RECORD_BYTES);
+        LONGS.setRelease(this.buffer, SEQUENCE_OFFSET, this.sequence);
+    }
+
+    private void map(int newCapacity) throws IOException {
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) RECORD_BYTES * newCapacity);
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.capacity = newCapacity;
+        this.buffer.putInt(24, newCapacity);
+    }
+
+    /**
+     * Writes one tick. Must be called from one thread at a time, normally the simulation thread.
+     * Ghosts are left out, since whoever owns them exports them.
+     * @param entities The entities, which must not move while this runs.
+     * @param worldWidth The world width.
+     * @param worldHeight The world height.
+     * @throws IOException If the file had to grow and could not be mapped again.
+     */
+    void publish(List<SimulatedEntity> entities, int worldWidth, int worldHeight) throws IOException {
+        MappedByteBuffer out = this.buffer;
+        LONGS.setOpaque(out, SEQUENCE_OFFSET, ++this.sequence); // Odd: readers back off
+        VarHandle.releaseFence(); // The odd sequence must be visible before any of the new data
+        if (entities.size() > this.capacity) {
+            map(Math.max(entities.size(), 2 * this.capacity));
+            out = this.buffer;
+        }
+        int count = 0;
+        for (SimulatedEntity entity : entities) {
+            if (count == this.capacity) {
+                break; // Added since the size was read; it will be in the next tick
+            }
+            if (entity instanceof AbstractSimulatedEntity && ((AbstractSimulatedEntity) entity).ghost) {
+                continue;
+            }
+            int offset = HEADER_BYTES + RECORD_BYTES * count;
+            out.putFloat(offset, (float) entity.getPosition().getX());
+            out.putFloat(offset + 4, (float) entity.getPosition().getY());
+            out.putFloat(offset + 8, (float) entity.getVelocity().getX());
+            out.putFloat(offset + 12, (float) entity.getVelocity().getY());
+            out.putInt(offset + 16, entity instanceof Predator ? 1 : 0);
+            count++;
+        }
+        out.putLong(16, ++this.tick);
+        out.putInt(28, count);
+        out.putInt(32, worldWidth);
+        out.putInt(36, worldHeight);
+        LONGS.setRelease(out, SEQUENCE_OFFSET, ++this.sequence); // Even again: the tick is complete
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+}
@@ -4,8 +4,11 @@ import drawing.Canvas;
 import geometry.CartesianCoordinate;
 
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JLayer;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
 import javax.swing.JSpinner;
@@ -25,7 +28,11 @@ public class SimulationGUI {
     private FlockingSimulation simulation;
     private Canvas canvas;
     private JFrame frame;
-    private CartesianCoordinate mousePositionOnCanvas; // To store canvas-relative mouse position
+    private volatile CartesianCoordinate mousePositionOnCanvas; // Canvas-relative mouse position, null while the pointer is not on the canvas
+    private PerformanceHud performanceHud;
+    private java.awt.Point lastPanPoint; // Where the last right-button drag event was, while panning
+    private static final double ZOOM_STEP = 1.1; // Zoom factor per mouse wheel notch
+    private static final int BOID_COUNT_DEBOUNCE_MS = 150; // How long the boid count must stay put before the flock is resized
 
     /**
      * Constructor for the SimulationController.
@@ -43,16 +50,15 @@ public class SimulationGUI {
         
         // Basic layout: Canvas in the center (more controls can be added later)
         frame.setLayout(new BorderLayout()); // Use BorderLayout
-        frame.add(this.canvas, BorderLayout.CENTER); 
+        // The canvas is wrapped in a layer so the performance HUD can paint over it
+        this.performanceHud = new PerformanceHud(simulation);
+        frame.add(new JLayer<JComponent>(this.canvas, this.performanceHud), BorderLayout.CENTER); 
 
         // Set frame size, position, and visibility
         frame.setSize(1000, 600); // Match canvas default or desired size
         frame.setLocationRelativeTo(null); // Center the frame
         frame.setVisible(true); // Make frame visible 
 
-        // Initialize mouse position to a default (e.g., center or off-screen)
-        this.mousePositionOnCanvas = new CartesianCoordinate(-1, -1); // Default off-screen
-
         // Add MouseMotionListener to the canvas for MOVING and DRAGGING
         this.canvas.addMouseMotionListener(new java.awt.event.MouseMotionAdapter() {
             @Override
@@ -63,18 +69,43 @@ public class SimulationGUI {
             @Override
             public void mouseDragged(java.awt.event.MouseEvent e) {
                 mousePositionOnCanvas = new CartesianCoordinate(e.getX(), e.getY());
+                // Dragging with the right button pans the camera
+                if (SwingUtilities.isRightMouseButton(e) && lastPanPoint != null) {
+                    simulation.setCamera(simulation.getCamera().panned(e.getX() - lastPanPoint.x, e.getY() - lastPanPoint.y));
+                    lastPanPoint = e.getPoint();
+                }
             }
             // DO NOT add mouseClicked here, MouseMotionAdapter doesn't handle it well.
         });
 
         // Add a separate MouseListener (using MouseAdapter for conciseness) for CLICKING
         this.canvas.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mousePressed(java.awt.event.MouseEvent e) {
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    lastPanPoint = e.getPoint();
+                }
+            }
+
+            @Override
+            public void mouseReleased(java.awt.event.MouseEvent e) {
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    lastPanPoint = null;
+                }
+            }
+
+            @Override
+            public void mouseExited(java.awt.event.MouseEvent e) {
+                mousePositionOnCanvas = null; // Boids stop avoiding a pointer that has left the canvas
+            }
+
             @Override
             public void mouseClicked(java.awt.event.MouseEvent e) {
                 // Check if it's a left click (Button1)
                 if (SwingUtilities.isLeftMouseButton(e)) {
                     System.out.println("Canvas clicked at: " + e.getX() + ", " + e.getY() + " - Attempting to spawn Predator");
-                    CartesianCoordinate clickPos = new CartesianCoordinate(e.getX(), e.getY());
+                    // The click is on screen; the predator goes where that is in the world
+                    CartesianCoordinate clickPos = simulation.getCamera().toWorld(new CartesianCoordinate(e.getX(), e.getY()));
                     // Use a clearance radius for the predator, e.g., PREDATOR_SPAWN_CLEARANCE from FlockingSimulation (or define one here)
                     // For now, using a hardcoded value as an example, ideally get from simulation or constants.
                     double predatorClearance = 20.0; // Example clearance, sync with FlockingSimulation.PREDATOR_SPAWN_CLEARANCE if possible
@@ -87,6 +118,15 @@ public class SimulationGUI {
             }
         });
 
+        // The mouse wheel zooms in and out around the pointer
+        this.canvas.addMouseWheelListener(new java.awt.event.MouseWheelListener() {
+            @Override
+            public void mouseWheelMoved(java.awt.event.MouseWheelEvent e) {
+                double factor = Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation());
+                simulation.setCamera(simulation.getCamera().zoomedAt(factor, e.getX(), e.getY()));
+            }
+        });
+
         JPanel controlPanel = new JPanel();
         controlPanel.setLayout(new javax.swing.BoxLayout(controlPanel, javax.swing.BoxLayout.Y_AXIS));
         controlPanel.setPreferredSize(new java.awt.Dimension(150, 600));
@@ -258,20 +298,45 @@ public class SimulationGUI {
         boidCountSpinner.setMaximumSize(new java.awt.Dimension(130, 25)); // Adjusted size for spinner
         boidCountSpinner.setAlignmentX(java.awt.Component.LEFT_ALIGNMENT);
 
+        // JSpinner sends ChangeEvents continuously while an arrow is held, so the flock is only
+        // resized once the value has stopped changing, and only by the difference.
+        javax.swing.Timer boidCountDebounce = new javax.swing.Timer(BOID_COUNT_DEBOUNCE_MS, e ->
+            simulation.resizeBoidPopulation((Integer) boidCountSpinner.getValue()));
+        boidCountDebounce.setRepeats(false);
         boidCountSpinner.addChangeListener(new javax.swing.event.ChangeListener() {
             public void stateChanged(javax.swing.event.ChangeEvent e) {
-                // JSpinner sends ChangeEvents continuously while value is changing if arrows are held.
-                // Unlike JSlider, there isn't a simple 'getValueIsAdjusting' for final value.
-                // However, for a spinner, updating on each registered change is usually acceptable.
-                JSpinner source = (JSpinner) e.getSource();
-                int newBoidCount = (Integer) source.getValue();
-                simulation.resetAndSpawnBoids(newBoidCount);
+                boidCountDebounce.restart();
             }
         });
 
         controlPanel.add(boidCountLabel);
         controlPanel.add(javax.swing.Box.createVerticalStrut(5));
         controlPanel.add(boidCountSpinner);
+        controlPanel.add(javax.swing.Box.createVerticalStrut(10));
+
+        // Topological mode: each boid flocks with only its k nearest neighbors
+        JCheckBox topologicalCheckBox = new JCheckBox("Only k Nearest");
+        topologicalCheckBox.setOpaque(false);
+        topologicalCheckBox.setAlignmentX(java.awt.Component.LEFT_ALIGNMENT);
+        SpinnerNumberModel neighborCountModel = new SpinnerNumberModel(Boid.DEFAULT_TOPOLOGICAL_NEIGHBOR_COUNT, 1, 50, 1);
+        JSpinner neighborCountSpinner = new JSpinner(neighborCountModel);
+        neighborCountSpinner.setMaximumSize(new java.awt.Dimension(130, 25));
+        neighborCountSpinner.setAlignmentX(java.awt.Component.LEFT_ALIGNMENT);
+        neighborCountSpinner.setEnabled(false);
+        topologicalCheckBox.addItemListener(new java.awt.event.ItemListener() {
+            public void itemStateChanged(java.awt.event.ItemEvent e) {
+                boolean topological = topologicalCheckBox.isSelected();
+                neighborCountSpinner.setEnabled(topological);
+                simulation.updateNeighborMode(topological ? NeighborMode.TOPOLOGICAL : NeighborMode.METRIC);
+            }
+        });
+        neighborCountSpinner.addChangeListener(new javax.swing.event.ChangeListener() {
+            public void stateChanged(javax.swing.event.ChangeEvent e) {
+                simulation.updateTopologicalNeighborCount((Integer) neighborCountSpinner.getValue());
+            }
+        });
+        controlPanel.add(topologicalCheckBox);
+        controlPanel.add(neighborCountSpinner);
 
 
         JButton resetSettingsButton = new JButton("Reset Settings");
@@ -300,6 +365,8 @@ public class SimulationGUI {
                 mouseWeightSlider.setModel(new javax.swing.DefaultBoundedRangeModel(5,0,0,10)); // Reset mouse slider
                 predatorFleeSlider.setModel(new javax.swing.DefaultBoundedRangeModel(25, 0, 0, 50)); // Reset predator flee slider
                 boidCountSpinner.setValue(100);
+                topologicalCheckBox.setSelected(false);
+                neighborCountSpinner.setValue(Boid.DEFAULT_TOPOLOGICAL_NEIGHBOR_COUNT);
 
                 System.out.println("\n=== After Reset ===");
                 System.out.println("SimSpeed Slider: " + simulationSpeedSlider.getValue());
@@ -318,6 +385,30 @@ public class SimulationGUI {
 
         resetSettingsButton.setAlignmentX(java.awt.Component.LEFT_ALIGNMENT);
         controlPanel.add(resetSettingsButton);
+        controlPanel.add(javax.swing.Box.createVerticalStrut(10));
+
+        // Pan with the right mouse button and zoom with the wheel; this goes back to the top-left at 1:1
+        JButton resetViewButton = new JButton("Reset View");
+        resetViewButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                simulation.setCamera(Camera.IDENTITY);
+            }
+        });
+        resetViewButton.setAlignmentX(java.awt.Component.LEFT_ALIGNMENT);
+        controlPanel.add(resetViewButton);
+        controlPanel.add(javax.swing.Box.createVerticalStrut(10));
+
+        // Toggle for the performance overlay drawn on top of the canvas
+        JCheckBox hudCheckBox = new JCheckBox("Show Performance HUD");
+        hudCheckBox.setOpaque(false);
+        hudCheckBox.setAlignmentX(java.awt.Component.LEFT_ALIGNMENT);
+        hudCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                performanceHud.setVisible(hudCheckBox.isSelected());
+                canvas.repaint();
+            }
+        });
+        controlPanel.add(hudCheckBox);
 
     
 
@@ -325,6 +416,9 @@ public class SimulationGUI {
 
     }
 
+    /**
+     * @return The mouse position on the canvas, or null if the pointer is not on the canvas.
+     */
     public CartesianCoordinate getMousePositionOnCanvas() {
         return this.mousePositionOnCanvas;
     }
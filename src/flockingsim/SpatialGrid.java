@@ -0,0 +1,403 @@
+package flockingsim;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A uniform grid over the canvas that buckets boids by position so neighbour
+ * queries only look at nearby cells instead of every boid.
+ *
+ * <p>The grid is maintained incrementally. {@link #rebuild} buckets every boid once, and
+ * from then on each boid reports its own moves (see {@link AbstractSimulatedEntity#move}
+ * and {@link AbstractSimulatedEntity#wrapPosition}): the stored position is overwritten
+ * in place, and the boid only changes bucket when it crosses a cell boundary. A rebuild is
+ * only needed when boids are added or removed or the world changes size.
+ *
+ * <p>Buckets are compact slot ranges in shared flat arrays (boids and their coordinates
+ * stored cell by cell), each with some spare room. A bucket that fills up is moved to the
+ * end of the arrays with twice the room, and when that runs out the whole layout is packed
+ * again, so in steady state moving boids around allocates nothing. Boids outside the
+ * canvas are clamped into the edge cells, which keeps queries correct if something strays
+ * off-screen before it is wrapped. A boid reports to the grid that last rebuilt over it.
+ */
+public class SpatialGrid {
+    private static final int MAX_CELLS_PER_BOID = 4; // Caps memory for huge, sparse worlds
+    private static final int MIN_BUCKET_CAPACITY = 4;
+    private static final int MIN_SPARE_SLOTS = 64;
+
+    private final double minCellSize;
+    private double cellSize;
+    private double inverseCellSize; // Multiplying is cheaper than dividing on every move
+    private int columns;
+    private int rows;
+    private int cellCount;
+    private int count;
+
+    private int[] cellStart = new int[1];
+    private int[] cellSizes = new int[1];
+    private int[] cellCapacity = new int[1];
+    private Boid[] entries = new Boid[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private int poolEnd; // Slots at and beyond this index are free
+    // Scratch arrays for laying buckets out, kept to avoid allocating on every rebuild
+    private int[] entryCells = new int[0];
+    private Boid[] unsorted = new Boid[0];
+    private double[] unsortedX = new double[0];
+    private double[] unsortedY = new double[0];
+    private final NearestNeighborHeap heap = new NearestNeighborHeap();
+
+    /**
+     * @param cellSize The preferred cell size, typically a fraction of the perception radius.
+     */
+    public SpatialGrid(double cellSize) {
+        this.minCellSize = cellSize;
+    }
+
+    /**
+     * Buckets every boid from scratch at its current position and has it report its moves
+     * to this grid from now on.
+     * @param entities All entities; only boids are indexed.
+     * @param width Width of the area to cover.
+     * @param height Height of the area to cover.
+     */
+    public void rebuild(List<SimulatedEntity> entities, int width, int height) {
+        int capacity = entities.size();
+        if (this.unsorted.length < capacity) {
+            this.entryCells = new int[capacity];
+            this.unsorted = new Boid[capacity];
+            this.unsortedX = new double[capacity];
+            this.unsortedY = new double[capacity];
+        }
+
+        double areaCellSize = Math.sqrt((double) Math.max(1, width) * Math.max(1, height) / (MAX_CELLS_PER_BOID * Math.max(1, capacity)));
+        this.cellSize = Math.max(this.minCellSize, areaCellSize);
+        this.inverseCellSize = 1.0 / this.cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / this.cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / this.cellSize));
+        this.cellCount = this.columns * this.rows;
+        if (this.cellStart.length < this.cellCount) {
+            this.cellStart = new int[this.cellCount];
+            this.cellSizes = new int[this.cellCount];
+            this.cellCapacity = new int[this.cellCount];
+        } else {
+            Arrays.fill(this.cellSizes, 0, this.cellCount, 0);
+        }
+
+        // Work out each boid's cell and count boids per cell
+        int n = 0;
+        for (SimulatedEntity entity : entities) {
+            if (entity instanceof Boid) {
+                if (n == capacity) {
+                    break; // The list grew while we were iterating; pick the rest up next rebuild
+                }
+                Boid boid = (Boid) entity;
+                double x = boid.getPosition().getX();
+                double y = boid.getPosition().getY();
+                int cell = cellIndex(x, y);
+                this.entryCells[n] = cell;
+                this.cellSizes[cell]++;
+                this.unsorted[n] = boid;
+                this.unsortedX[n] = x;
+                this.unsortedY[n] = y;
+                boid.spatialGrid = this;
+                n++;
+            }
+        }
+        layout(n);
+    }
+
+    /**
+     * Called by a tracked boid after its position changed. Only updates the stored
+     * position unless the boid has crossed into another cell.
+     * @param entity The entity that moved.
+     */
+    void moved(AbstractSimulatedEntity entity) {
+        int slot = entity.gridSlot;
+        if (slot < 0 || slot >= this.poolEnd || this.entries[slot] != entity) {
+            entity.spatialGrid = null; // Dropped by a later rebuild, so no longer tracked here
+            return;
+        }
+        double x = entity.getPosition().getX();
+        double y = entity.getPosition().getY();
+        int cell = cellIndex(x, y);
+        if (cell == entity.gridCell) {
+            this.xs[slot] = x;
+            this.ys[slot] = y;
+            return;
+        }
+        removeSlot(entity.gridCell, slot);
+        insert(cell, (Boid) entity, x, y);
+    }
+
+    private void removeSlot(int cell, int slot) {
+        int last = this.cellStart[cell] + --this.cellSizes[cell];
+        if (slot != last) {
+            // Fill the gap with the bucket's last boid
+            Boid moved = this.entries[last];
+            this.entries[slot] = moved;
+            this.xs[slot] = this.xs[last];
+            this.ys[slot] = this.ys[last];
+            moved.gridSlot = slot;
+        }
+        this.entries[last] = null;
+        this.count--;
+    }
+
+    private void insert(int cell, Boid boid, double x, double y) {
+        while (this.cellSizes[cell] == this.cellCapacity[cell]) {
+            growBucket(cell); // Packing leaves an empty bucket without room, so this can take two goes
+        }
+        int slot = this.cellStart[cell] + this.cellSizes[cell]++;
+        this.entries[slot] = boid;
+        this.xs[slot] = x;
+        this.ys[slot] = y;
+        boid.gridCell = cell;
+        boid.gridSlot = slot;
+        this.count++;
+    }
+
+    /**
+     * Moves a full bucket to the free space at the end with twice the room, or packs
+     * every bucket again if there is not enough free space left.
+     */
+    private void growBucket(int cell) {
+        int capacity = Math.max(MIN_BUCKET_CAPACITY, 2 * this.cellCapacity[cell]);
+        if (this.poolEnd + capacity > this.entries.length) {
+            compact();
+            return;
+        }
+        int from = this.cellStart[cell];
+        int size = this.cellSizes[cell];
+        int to = this.poolEnd;
+        for (int i = 0; i < size; i++) {
+            Boid boid = this.entries[from + i];
+            this.entries[to + i] = boid;
+            this.xs[to + i] = this.xs[from + i];
+            this.ys[to + i] = this.ys[from + i];
+            boid.gridSlot = to + i;
+            this.entries[from + i] = null;
+        }
+        this.cellStart[cell] = to;
+        this.cellCapacity[cell] = capacity;
+        this.poolEnd += capacity;
+    }
+
+    private void compact() {
+        int n = 0;
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            int start = this.cellStart[cell];
+            for (int i = start; i < start + this.cellSizes[cell]; i++) {
+                this.entryCells[n] = cell;
+                this.unsorted[n] = this.entries[i];
+                this.unsortedX[n] = this.xs[i];
+                this.unsortedY[n] = this.ys[i];
+                n++;
+            }
+        }
+        layout(n);
+    }
+
+    /**
+     * Lays the buckets out back to back with some spare room each and scatters the boids
+     * in the scratch arrays into them. {@code cellSizes} must hold the per-cell counts.
+     */
+    private void layout(int n) {
+        int total = 0;
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            int size = this.cellSizes[cell];
+            this.cellStart[cell] = total;
+            this.cellCapacity[cell] = size == 0 ? 0 : size + size / 2 + 1;
+            this.cellSizes[cell] = 0;
+            total += this.cellCapacity[cell];
+        }
+        int poolSize = total + n / 2 + MIN_SPARE_SLOTS;
+        if (this.entries.length < poolSize) {
+            this.entries = new Boid[poolSize];
+            this.xs = new double[poolSize];
+            this.ys = new double[poolSize];
+        } else {
+            Arrays.fill(this.entries, 0, Math.max(total, this.poolEnd), null); // Do not keep removed boids alive
+        }
+        for (int i = 0; i < n; i++) {
+            int cell = this.entryCells[i];
+            int slot = this.cellStart[cell] + this.cellSizes[cell]++;
+            Boid boid = this.unsorted[i];
+            this.entries[slot] = boid;
+            this.xs[slot] = this.unsortedX[i];
+            this.ys[slot] = this.unsortedY[i];
+            boid.gridCell = cell;
+            boid.gridSlot = slot;
+            this.unsorted[i] = null;
+        }
+        this.poolEnd = total;
+        this.count = n;
+    }
+
+    /**
+     * Collects every indexed boid within {@code radius} of {@code self}, excluding
+     * boids at exactly the same position (and so {@code self}).
+     * @param self The boid doing the looking.
+     * @param radius The search radius.
+     * @param out The list to append to.
+     */
+    public void findWithinRadius(Boid self, double radius, List<Boid> out) {
+        double x = self.getPosition().getX();
+        double y = self.getPosition().getY();
+        double radiusSquared = radius * radius;
+        int minColumn = clampColumn(x - radius);
+        int maxColumn = clampColumn(x + radius);
+        int minRow = clampRow(y - radius);
+        int maxRow = clampRow(y + radius);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int cell = row * this.columns + column;
+                for (int i = this.cellStart[cell], end = i + this.cellSizes[cell]; i < end; i++) {
+                    double dx = this.xs[i] - x;
+                    double dy = this.ys[i] - y;
+                    double distanceSquared = dx * dx + dy * dy;
+                    if (distanceSquared > 0 && distanceSquared < radiusSquared) {
+                        out.add(this.entries[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects every indexed boid other than {@code self} within {@code radius} of a point. Unlike
+     * {@link #findWithinRadius} boids at exactly the same position are included.
+     * @param x The x coordinate of the query point.
+     * @param y The y coordinate of the query point.
+     * @param radius The search radius.
+     * @param self The boid to leave out, may be null.
+     * @param out The list to append to.
+     */
+    public void findCandidates(double x, double y, double radius, Boid self, List<Boid> out) {
+        double radiusSquared = radius * radius;
+        int minColumn = clampColumn(x - radius);
+        int maxColumn = clampColumn(x + radius);
+        int minRow = clampRow(y - radius);
+        int maxRow = clampRow(y + radius);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int cell = row * this.columns + column;
+                for (int i = this.cellStart[cell], end = i + this.cellSizes[cell]; i < end; i++) {
+                    double dx = this.xs[i] - x;
+                    double dy = this.ys[i] - y;
+                    if (dx * dx + dy * dy < radiusSquared && this.entries[i] != self) {
+                        out.add(this.entries[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects every indexed boid inside an axis-aligned rectangle, e.g. the part of the world on screen.
+     * Only the cells overlapping the rectangle are looked at.
+     * @param out The list to append to.
+     */
+    public void findInRectangle(double minX, double minY, double maxX, double maxY, List<? super Boid> out) {
+        int minColumn = clampColumn(minX);
+        int maxColumn = clampColumn(maxX);
+        int minRow = clampRow(minY);
+        int maxRow = clampRow(maxY);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int cell = row * this.columns + column;
+                for (int i = this.cellStart[cell], end = i + this.cellSizes[cell]; i < end; i++) {
+                    double x = this.xs[i];
+                    double y = this.ys[i];
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                        out.add(this.entries[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the {@code k} nearest indexed boids within {@code radius} of {@code self}.
+     * Cells are visited in rings around the boid's own cell and the search stops as soon
+     * as no cell in the next ring can hold anything nearer than the k-th boid found, so
+     * in a crowd only a handful of cells are ever looked at.
+     * @param self The boid doing the looking.
+     * @param radius The search radius.
+     * @param k The number of neighbours to keep.
+     * @param out The list to append to.
+     */
+    public void findNearest(Boid self, double radius, int k, List<Boid> out) {
+        double x = self.getPosition().getX();
+        double y = self.getPosition().getY();
+        double radiusSquared = radius * radius;
+        int centreColumn = clampColumn(x);
+        int centreRow = clampRow(y);
+        // Distance from the boid to the nearest edge of its own cell; ring r is at least (r - 1) cells further
+        double edgeOffset = Math.min(Math.min(x - centreColumn * this.cellSize, (centreColumn + 1) * this.cellSize - x),
+                                     Math.min(y - centreRow * this.cellSize, (centreRow + 1) * this.cellSize - y));
+        int maxRing = Math.max(this.columns, this.rows);
+
+        this.heap.reset(k);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (ring > 0) {
+                double ringDistance = Math.max(0, (ring - 1) * this.cellSize + edgeOffset);
+                double ringDistanceSquared = ringDistance * ringDistance;
+                if (ringDistanceSquared >= radiusSquared || ringDistanceSquared >= this.heap.worstDistanceSquared()) {
+                    break;
+                }
+            }
+            for (int row = centreRow - ring; row <= centreRow + ring; row++) {
+                if (row < 0 || row >= this.rows) {
+                    continue;
+                }
+                boolean edgeRow = row == centreRow - ring || row == centreRow + ring;
+                // Inside the ring only the first and last column belong to it
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int column = centreColumn - ring; column <= centreColumn + ring; column += step) {
+                    if (column < 0 || column >= this.columns) {
+                        continue;
+                    }
+                    offerCell(row * this.columns + column, x, y, radiusSquared);
+                }
+            }
+        }
+        this.heap.drainTo(out);
+    }
+
+    private void offerCell(int cell, double x, double y, double radiusSquared) {
+        for (int i = this.cellStart[cell], end = i + this.cellSizes[cell]; i < end; i++) {
+            double dx = this.xs[i] - x;
+            double dy = this.ys[i] - y;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared > 0 && distanceSquared < radiusSquared) {
+                this.heap.offer(this.entries[i], distanceSquared);
+            }
+        }
+    }
+
+    /**
+     * @return The number of boids currently indexed.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    public double getCellSize() {
+        return this.cellSize;
+    }
+
+    private int cellIndex(double x, double y) {
+        return clampRow(y) * this.columns + clampColumn(x);
+    }
+
+    private int clampColumn(double x) {
+        int column = (int) Math.floor(x * this.inverseCellSize);
+        return Math.max(0, Math.min(this.columns - 1, column));
+    }
+
+    private int clampRow(double y) {
+        int row = (int) Math.floor(y * this.inverseCellSize);
+        return Math.max(0, Math.min(this.rows - 1, row));
+    }
+}
@@ -0,0 +1,312 @@
+package flockingsim;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Picks spawn positions uniformly from the part of the world that is clear of obstacles.
+ *
+ * <p>The world is divided once into cells, each marked free, blocked, or partly blocked by an
+ * obstacle's no-spawn zone. A position is a random point in a random cell that is not
+ * blocked, so it only has to be checked against the obstacles in the few partly blocked
+ * cells, and is never given up on. Positions are drawn in parallel, in fixed-size chunks that
+ * each have their own random numbers, so the same seed always gives the same positions.
+ *
+ * <p>With a spacing, positions are kept at least that far apart (Poisson-disk sampling) by
+ * dart throwing against a grid of accepted points. The grid is split into tiles that are
+ * filled in parallel in four passes, like the squares of a chessboard with two colours in
+ * each direction, so tiles filled at the same time are always a whole tile apart and never
+ * compare against each other's points.
+ */
+public final class SpawnSampler {
+    static final int CHUNK_SIZE = 4096;
+    private static final int MAX_CELLS = 1 << 18;
+    private static final double MIN_CELL_SIZE = 8;
+    private static final int MAX_SPACING_CELLS = 1 << 24; // 64 MB of int, the most the spacing grid may take
+    private static final int MAX_PICK_ATTEMPTS = 10_000;
+    private static final int SPACING_ATTEMPTS = 30;
+    private static final int TILES_PER_SIDE = 16;
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+    private static final byte FREE = 0;
+    private static final byte PARTIAL = 1;
+    private static final byte BLOCKED = 2;
+
+    /**
+     * Work done on one chunk of a parallel fill.
+     */
+    interface ChunkTask {
+        /**
+         * @param from The first index, inclusive.
+         * @param to The last index, exclusive.
+         * @param random Random numbers for this chunk only.
+         */
+        void run(int from, int to, SplittableRandom random);
+    }
+
+    private final double width;
+    private final double height;
+    private double[] zones; // minX, minY, maxX, maxY of each no-spawn zone
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private int[] openCells; // The free cells, then the partly blocked ones
+    private int freeCellCount;
+
+    /**
+     * Builds the free-space map.
+     * @param width The world width.
+     * @param height The world height.
+     * @param obstacles The obstacles to keep clear of.
+     * @param margin How far outside an obstacle nothing may spawn.
+     */
+    public SpawnSampler(double width, double height, List<Rectangle> obstacles, double margin) {
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+        this.cellSize = Math.max(MIN_CELL_SIZE, Math.sqrt(this.width * this.height / MAX_CELLS));
+        this.columns = (int) Math.ceil(this.width / this.cellSize);
+        this.rows = (int) Math.ceil(this.height / this.cellSize);
+        this.zones = new double[4 * obstacles.size()];
+        for (int i = 0; i < obstacles.size(); i++) {
+            Rectangle obstacle = obstacles.get(i);
+            this.zones[4 * i] = obstacle.getPosition().getX() - margin;
+            this.zones[4 * i + 1] = obstacle.getPosition().getY() - margin;
+            this.zones[4 * i + 2] = obstacle.getPosition().getX() + obstacle.getDx() + margin;
+            this.zones[4 * i + 3] = obstacle.getPosition().getY() + obstacle.getDy() + margin;
+        }
+        buildMap();
+        if (this.openCells.length == 0) {
+            System.err.println("Obstacles cover the whole world; spawning on top of them");
+            this.zones = new double[0];
+            buildMap();
+        }
+    }
+
+    private void buildMap() {
+        byte[] cells = new byte[this.columns * this.rows];
+        // Cells that run past the edge of the world are only partly inside it
+        if (this.columns * this.cellSize > this.width) {
+            for (int row = 0; row < this.rows; row++) {
+                cells[row * this.columns + this.columns - 1] = PARTIAL;
+            }
+        }
+        if (this.rows * this.cellSize > this.height) {
+            for (int column = 0; column < this.columns; column++) {
+                cells[(this.rows - 1) * this.columns + column] = PARTIAL;
+            }
+        }
+        for (int i = 0; i < this.zones.length; i += 4) {
+            int firstColumn = Math.max(0, (int) Math.floor(this.zones[i] / this.cellSize));
+            int lastColumn = Math.min(this.columns - 1, (int) Math.floor(this.zones[i + 2] / this.cellSize));
+            int firstRow = Math.max(0, (int) Math.floor(this.zones[i + 1] / this.cellSize));
+            int lastRow = Math.min(this.rows - 1, (int) Math.floor(this.zones[i + 3] / this.cellSize));
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int cell = row * this.columns + column;
+                    boolean covered = column * this.cellSize >= this.zones[i] && (column + 1) * this.cellSize <= this.zones[i + 2]
+                        && row * this.cellSize >= this.zones[i + 1] && (row + 1) * this.cellSize <= this.zones[i + 3];
+                    cells[cell] = covered ? BLOCKED : (byte) Math.max(cells[cell], PARTIAL);
+                }
+            }
+        }
+        int free = 0;
+        int open = 0;
+        for (byte cell : cells) {
+            free += cell == FREE ? 1 : 0;
+            open += cell != BLOCKED ? 1 : 0;
+        }
+        this.openCells = new int[open];
+        this.freeCellCount = free;
+        int nextFree = 0;
+        int nextPartial = free;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == FREE) {
+                this.openCells[nextFree++] = cell;
+            } else if (cells[cell] == PARTIAL) {
+                this.openCells[nextPartial++] = cell;
+            }
+        }
+    }
+
+    /**
+     * @return The width of the world the map was built for.
+     */
+    double getWidth() {
+        return this.width;
+    }
+
+    /**
+     * @return The height of the world the map was built for.
+     */
+    double getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Picks spawn positions.
+     * @param count How many.
+     * @param spacing How far apart to keep them, or 0 for no minimum.
+     * @param seed The seed; the same seed gives the same positions.
+     * @return The positions as x, y pairs.
+     */
+    public double[] sample(int count, double spacing, long seed) {
+        double[] positions = new double[2 * count];
+        forEachChunk(count, seed, (from, to, random) -> {
+            for (int i = from; i < to; i++) {
+                pick(random, positions, i);
+            }
+        });
+        if (spacing > 0 && count > 1) {
+            spaceOut(positions, spacing, seed + SEED_STEP);
+        }
+        return positions;
+    }
+
+    private void pick(SplittableRandom random, double[] positions, int i) {
+        double x;
+        double y;
+        int attempts = 0;
+        while (true) {
+            int index = random.nextInt(this.openCells.length);
+            int cell = this.openCells[index];
+            x = (cell % this.columns + random.nextDouble()) * this.cellSize;
+            y = (cell / this.columns + random.nextDouble()) * this.cellSize;
+            if (index < this.freeCellCount || isOpen(x, y)) {
+                break;
+            }
+            if (++attempts == MAX_PICK_ATTEMPTS) {
+                // Only the partly blocked cells are left and their open parts are too small
+                // to hit; the world is all but covered, so settle for the last try
+                x = Math.min(x, Math.nextDown(this.width));
+                y = Math.min(y, Math.nextDown(this.height));
+                break;
+            }
+        }
+        positions[2 * i] = x;
+        positions[2 * i + 1] = y;
+    }
+
+    private boolean isOpen(double x, double y) {
+        if (x >= this.width || y >= this.height) {
+            return false;
+        }
+        for (int i = 0; i < this.zones.length; i += 4) {
+            if (x >= this.zones[i] && x <= this.zones[i + 2] && y >= this.zones[i + 1] && y <= this.zones[i + 3]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves positions that are too close to one already kept to somewhere else in the same
+     * tile. Any that still do not fit after {@value #SPACING_ATTEMPTS} tries stay where they were.
+     */
+    private void spaceOut(double[] positions, double spacing, long seed) {
+        int count = positions.length / 2;
+        double size = spacing / Math.sqrt(2); // One point per cell at most
+        int gridColumns = (int) Math.ceil(this.width / size);
+        int gridRows = (int) Math.ceil(this.height / size);
+        if ((long) gridColumns * gridRows > MAX_SPACING_CELLS) {
+            System.err.println("Spawn spacing " + spacing + " is too small for a world this size; ignoring it");
+            return;
+        }
+        int[] grid = new int[gridColumns * gridRows]; // Index + 1 of the point kept in each cell, 0 if none
+        int tileSize = Math.max(2, (Math.max(gridColumns, gridRows) + TILES_PER_SIDE - 1) / TILES_PER_SIDE);
+        int tileColumns = (gridColumns + tileSize - 1) / tileSize;
+        int tileRows = (gridRows + tileSize - 1) / tileSize;
+
+        // Sort the points by tile, keeping their order within each tile
+        int[] tileStart = new int[tileColumns * tileRows + 1];
+        int[] tileOf = new int[count];
+        for (int i = 0; i < count; i++) {
+            int tile = (int) (positions[2 * i + 1] / size) / tileSize * tileColumns + (int) (positions[2 * i] / size) / tileSize;
+            tileOf[i] = tile;
+            tileStart[tile + 1]++;
+        }
+        for (int tile = 0; tile < tileColumns * tileRows; tile++) {
+            tileStart[tile + 1] += tileStart[tile];
+        }
+        int[] byTile = new int[count];
+        int[] next = tileStart.clone();
+        for (int i = 0; i < count; i++) {
+            byTile[next[tileOf[i]]++] = i;
+        }
+
+        int[] unplaced = new int[tileColumns * tileRows];
+        double spacingSquared = spacing * spacing;
+        for (int pass = 0; pass < 4; pass++) {
+            int columnParity = pass & 1;
+            int rowParity = pass >> 1;
+            IntStream.range(0, tileColumns * tileRows).parallel()
+                .filter(tile -> tile % tileColumns % 2 == columnParity && tile / tileColumns % 2 == rowParity)
+                .forEach(tile -> {
+                    SplittableRandom random = new SplittableRandom(seed + tile * SEED_STEP);
+                    double minX = tile % tileColumns * tileSize * size;
+                    double minY = tile / tileColumns * tileSize * size;
+                    double tileWidth = Math.min(tileSize * size, this.width - minX);
+                    double tileHeight = Math.min(tileSize * size, this.height - minY);
+                    for (int k = tileStart[tile]; k < tileStart[tile + 1]; k++) {
+                        int i = byTile[k];
+                        double x = positions[2 * i];
+                        double y = positions[2 * i + 1];
+                        boolean placed = false;
+                        for (int attempt = 0; attempt < SPACING_ATTEMPTS && !placed; attempt++) {
+                            if (attempt > 0) {
+                                x = minX + random.nextDouble() * tileWidth;
+                                y = minY + random.nextDouble() * tileHeight;
+                                if (!isOpen(x, y)) {
+                                    continue;
+                                }
+                            }
+                            placed = fits(grid, gridColumns, gridRows, size, positions, x, y, spacingSquared);
+                        }
+                        if (placed) {
+                            positions[2 * i] = x;
+                            positions[2 * i + 1] = y;
+                            grid[(int) (y / size) * gridColumns + (int) (x / size)] = i + 1;
+                        } else {
+                            unplaced[tile]++;
+                        }
+                    }
+                });
+        }
+        int crowded = 0;
+        for (int tileCount : unplaced) {
+            crowded += tileCount;
+        }
+        if (crowded > 0) {
+            System.err.println(crowded + " of " + count + " boids did not fit " + spacing + " apart and are closer");
+        }
+    }
+
+    private static boolean fits(int[] grid, int gridColumns, int gridRows, double size, double[] positions,
+            double x, double y, double spacingSquared) {
+        int column = (int) (x / size);
+        int row = (int) (y / size);
+        for (int r = Math.max(0, row - 2); r <= Math.min(gridRows - 1, row + 2); r++) {
+            for (int c = Math.max(0, column - 2); c <= Math.min(gridColumns - 1, column + 2); c++) {
+                int other = grid[r * gridColumns + c] - 1;
+                if (other >= 0) {
+                    double dx = positions[2 * other] - x;
+                    double dy = positions[2 * other + 1] - y;
+                    if (dx * dx + dy * dy < spacingSquared) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs a task over {@code 0..count} in parallel, {@value #CHUNK_SIZE} indices at a time.
+     * Each chunk's random numbers depend only on the seed and the chunk, not on which thread
+     * runs it or when.
+     */
+    static void forEachChunk(int count, long seed, ChunkTask task) {
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> task.run(chunk * CHUNK_SIZE,
+            Math.min(count, (chunk + 1) * CHUNK_SIZE), new SplittableRandom(seed + chunk * SEED_STEP)));
+    }
+}
@@ -0,0 +1,29 @@
+package flockingsim;
+
+import geometry.CartesianCoordinate;
+
+/**
+ * One steering force a boid responds to, e.g. separation or fleeing predators.
+ * Behaviors are registered with a weight in a {@link SteeringPipeline}, which adds up
+ * the weighted forces each tick.
+ */
+public interface SteeringBehavior {
+
+    /**
+     * Calculates the (unweighted) steering force for a boid.
+     * @param boid The boid being steered. Its neighbors are those found in this tick's neighbor search.
+     * @param context What else the boid can react to this tick.
+     * @return The steering force.
+     */
+    CartesianCoordinate steer(Boid boid, SteeringContext context);
+
+    /**
+     * Lets a behavior with nothing to react to this tick, e.g. no predators, be skipped
+     * without calculating a force that would be zero anyway.
+     * @param context What the boids can react to this tick.
+     * @return Whether {@link #steer} needs to be called this tick.
+     */
+    default boolean isActive(SteeringContext context) {
+        return true;
+    }
+}
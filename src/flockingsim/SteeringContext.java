@@ -0,0 +1,46 @@
+package flockingsim;
+
+import java.util.Collections;
+import java.util.List;
+import geometry.CartesianCoordinate;
+
+/**
+ * What the boids can react to in the current tick, shared by every boid and behavior.
+ * The simulation reuses one context and refills it at the start of the forces phase.
+ */
+public final class SteeringContext {
+    private List<Predator> predators = Collections.emptyList();
+    private CartesianCoordinate mousePosition;
+    private FlockQuadtree farField;
+
+    /**
+     * @return The predators in the simulation this tick.
+     */
+    public List<Predator> getPredators() {
+        return this.predators;
+    }
+
+    /**
+     * @return The mouse position on the canvas, or null if there is none.
+     */
+    public CartesianCoordinate getMousePosition() {
+        return this.mousePosition;
+    }
+
+    /**
+     * @return The far-field quadtree for large-radius cohesion and alignment, or null if it is off.
+     */
+    FlockQuadtree getFarField() {
+        return this.farField;
+    }
+
+    void set(List<Predator> predators, CartesianCoordinate mousePosition) {
+        set(predators, mousePosition, null);
+    }
+
+    void set(List<Predator> predators, CartesianCoordinate mousePosition, FlockQuadtree farField) {
+        this.predators = predators;
+        this.mousePosition = mousePosition;
+        this.farField = farField;
+    }
+}
@@ -0,0 +1,90 @@
+package flockingsim;
+
+import java.util.Arrays;
+import geometry.CartesianCoordinate;
+
+/**
+ * An ordered list of steering behaviors and their weights. A boid's acceleration is the
+ * weighted sum of the forces of every active behavior, added up in registration order.
+ *
+ * <p>Behaviors registered with a weight of zero are left out altogether, and behaviors
+ * with nothing to react to are skipped each tick, so the per-boid loop only pays for the
+ * behaviors that can actually change the result. Pipelines are meant to be rebuilt when
+ * a weight changes rather than modified while a tick is running.
+ */
+public final class SteeringPipeline {
+    private SteeringBehavior[] behaviors = new SteeringBehavior[0];
+    private double[] weights = new double[0];
+
+    /**
+     * Builds the pipeline for the built-in boid behaviors with the given weights.
+     * @return A new pipeline, to which custom behaviors can still be added.
+     */
+    public static SteeringPipeline standard(double separationWeight, double alignmentWeight, double cohesionWeight,
+                                            double mouseAvoidanceWeight, double predatorFleeWeight) {
+        SteeringPipeline pipeline = new SteeringPipeline();
+        if (separationWeight != 0 || alignmentWeight != 0 || cohesionWeight != 0) {
+            // The three flocking forces share one pass over the neighbors, so they are weighted inside the behavior
+            pipeline.add(new FlockingBehavior(separationWeight, alignmentWeight, cohesionWeight), 1.0);
+        }
+        pipeline.add(MouseAvoidanceBehavior.INSTANCE, mouseAvoidanceWeight);
+        pipeline.add(PredatorFleeBehavior.INSTANCE, predatorFleeWeight);
+        return pipeline;
+    }
+
+    /**
+     * Registers a behavior at the end of the pipeline.
+     * @param behavior The behavior to add.
+     * @param weight How strongly the behavior's force counts. A weight of zero leaves the behavior out.
+     * @return This pipeline.
+     */
+    public SteeringPipeline add(SteeringBehavior behavior, double weight) {
+        if (behavior == null) {
+            throw new IllegalArgumentException("Steering behavior must not be null");
+        }
+        if (weight == 0) {
+            return this;
+        }
+        int size = this.behaviors.length;
+        this.behaviors = Arrays.copyOf(this.behaviors, size + 1);
+        this.weights = Arrays.copyOf(this.weights, size + 1);
+        this.behaviors[size] = behavior;
+        this.weights[size] = weight;
+        return this;
+    }
+
+    /**
+     * Registers every behavior of another pipeline, with its weight, at the end of this one.
+     * @return This pipeline.
+     */
+    SteeringPipeline addAll(SteeringPipeline other) {
+        for (int i = 0; i < other.behaviors.length; i++) {
+            add(other.behaviors[i], other.weights[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Adds up the weighted forces of every active behavior.
+     * @param boid The boid being steered.
+     * @param context What the boids can react to this tick.
+     * @return The boid's acceleration.
+     */
+    public CartesianCoordinate steer(Boid boid, SteeringContext context) {
+        CartesianCoordinate acceleration = new CartesianCoordinate(0, 0);
+        for (int i = 0; i < this.behaviors.length; i++) {
+            SteeringBehavior behavior = this.behaviors[i];
+            if (behavior.isActive(context)) {
+                acceleration = acceleration.add(behavior.steer(boid, context).multiply(this.weights[i]));
+            }
+        }
+        return acceleration;
+    }
+
+    /**
+     * @return How many behaviors are in the pipeline, not counting those left out for a zero weight.
+     */
+    public int size() {
+        return this.behaviors.length;
+    }
+}
@@ -0,0 +1,39 @@
+package flockingsim;
+
+/**
+ * How often a boid's neighbor search and steering are recalculated when level-of-detail
+ * scheduling is on. On ticks without a neighbor search a boid steers with the neighbors it
+ * found last, at their current positions; on ticks without steering it keeps the force it
+ * calculated last. Movement, and the obstacle, predator and mouse checks for boids close
+ * enough to be affected by them, still happen every tick.
+ */
+public enum UpdateTier {
+    /** Close to a predator or the mouse, or in view with company: everything every tick. */
+    ACTIVE(1, 1),
+    /** In view but on its own, or out of view with company: neighbor search every second tick. */
+    REDUCED(2, 1),
+    /** Out of view and on its own: neighbor search and steering every fourth tick. */
+    BACKGROUND(4, 4);
+
+    private final int searchInterval;
+    private final int steeringInterval;
+
+    UpdateTier(int searchInterval, int steeringInterval) {
+        this.searchInterval = searchInterval;
+        this.steeringInterval = steeringInterval;
+    }
+
+    /**
+     * @return The number of ticks between neighbor searches.
+     */
+    public int getSearchInterval() {
+        return this.searchInterval;
+    }
+
+    /**
+     * @return The number of ticks between steering recalculations.
+     */
+    public int getSteeringInterval() {
+        return this.steeringInterval;
+    }
+}
@@ -0,0 +1,309 @@
+package flockingsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Verlet neighbor lists: each boid keeps a list of candidates within its perception
+ * radius plus a skin margin, and the per-tick neighbor search only filters that list.
+ *
+ * <p>Every boid remembers the reference point its list was built around. Two boids that are
+ * not in each other's lists were at least {@code radius + skin} apart at their reference
+ * points, so they cannot be within {@code radius} of each other until their combined
+ * drift exceeds the skin. Drift is measured after taking out the flock's average movement
+ * (shifting everyone by the same amount does not change any distance), so a flock cruising
+ * in one direction keeps its lists. Boids that have drifted more than half the skin, e.g.
+ * because they wrapped around the canvas, get their reference point moved and their lists
+ * repaired on the spot; everyone else is then still within half the skin of their
+ * reference point, so a grid query around a repaired boid widened by half the skin finds
+ * every boid whose reference point is in range. All lists are only rebuilt when the
+ * population changes or too many boids need repairing in one tick.
+ *
+ * <p>Lists hold boid indices rather than boids, and positions are copied into flat arrays
+ * once per tick, so filtering a list does not have to chase a pointer per candidate.
+ */
+class VerletNeighborLists {
+    private static final int MIN_REPAIRS_BEFORE_REBUILD = 64;
+    private static final int INITIAL_LIST_CAPACITY = 16;
+
+    private final double skin;
+    private int count;
+    private Boid[] boids = new Boid[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] originXs = new double[0];
+    private double[] originYs = new double[0];
+    private boolean[] pendingFlags = new boolean[0];
+    private int[][] lists = new int[0][];
+    private int[] listSizes = new int[0];
+    private int[] pending = new int[0];
+    private final ArrayList<Boid> scratch = new ArrayList<>();
+    private int builtPopulationVersion = -1;
+    private double listRadius;
+    private double shiftX;
+    private double shiftY;
+    private long fullRebuilds;
+    private long repairs;
+
+    /**
+     * @param skin The margin added to the perception radius when building the lists.
+     */
+    VerletNeighborLists(double skin) {
+        this.skin = skin;
+    }
+
+    /**
+     * Brings every boid's candidate list up to date for the current positions, rebuilding
+     * all lists only when that is cheaper or unavoidable.
+     * @param entities All entities in the simulation.
+     * @param grid The simulation's spatial grid, up to date with the current positions.
+     * @param populationVersion Changes whenever entities are added or removed.
+     */
+    void update(List<SimulatedEntity> entities, SpatialGrid grid, int populationVersion) {
+        if (populationVersion != this.builtPopulationVersion) {
+            rebuild(entities, grid, populationVersion);
+            return;
+        }
+
+        // Copy positions once and work out the common shift, the average drift since each boid's reference point
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < this.count; i++) {
+            double x = this.boids[i].getPosition().getX();
+            double y = this.boids[i].getPosition().getY();
+            this.xs[i] = x;
+            this.ys[i] = y;
+            sumX += x - this.originXs[i];
+            sumY += y - this.originYs[i];
+        }
+        int n = Math.max(1, this.count);
+        this.shiftX = sumX / n;
+        this.shiftY = sumY / n;
+
+        double halfSkinSquared = this.skin * this.skin / 4.0;
+        int pendingCount = 0;
+        for (int i = 0; i < this.count; i++) {
+            double driftX = this.xs[i] - this.originXs[i] - this.shiftX;
+            double driftY = this.ys[i] - this.originYs[i] - this.shiftY;
+            if (driftX * driftX + driftY * driftY > halfSkinSquared) {
+                this.pending[pendingCount++] = i;
+            }
+        }
+        if (pendingCount > repairLimit()) {
+            rebuild(entities, grid, populationVersion);
+            return;
+        }
+        if (pendingCount > 0) {
+            repair(pendingCount, grid);
+        }
+    }
+
+    /**
+     * Refills {@code out} with the boids within {@code radius} of a boid, using its list.
+     * @param boid The boid doing the looking. A boid added since the last update has no list yet and finds nobody.
+     * @param radius The perception radius, at most the radius the lists were built for.
+     * @param k How many nearest neighbors to keep, or 0 to keep everyone in range.
+     * @param heap Scratch heap for the k-nearest case, may be null otherwise.
+     * @param out The list to fill.
+     */
+    void findNeighbors(Boid boid, double radius, int k, NearestNeighborHeap heap, List<Boid> out) {
+        out.clear();
+        if (!indexes(boid)) {
+            return;
+        }
+        int index = boid.listIndex;
+        double x = this.xs[index];
+        double y = this.ys[index];
+        double radiusSquared = radius * radius;
+        int[] list = this.lists[index];
+        int size = this.listSizes[index];
+        if (k > 0) {
+            heap.reset(k);
+        }
+        for (int i = 0; i < size; i++) {
+            int other = list[i];
+            double dx = this.xs[other] - x;
+            double dy = this.ys[other] - y;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared > 0 && distanceSquared < radiusSquared) {
+                if (k > 0) {
+                    heap.offer(this.boids[other], distanceSquared);
+                } else {
+                    out.add(this.boids[other]);
+                }
+            }
+        }
+        if (k > 0) {
+            heap.drainTo(out);
+        }
+    }
+
+    private void rebuild(List<SimulatedEntity> entities, SpatialGrid grid, int populationVersion) {
+        int n = 0;
+        double maxPerception = 0;
+        for (SimulatedEntity entity : entities) {
+            if (entity instanceof Boid) {
+                if (n == this.boids.length) {
+                    grow(Math.max(2 * n, entities.size()));
+                }
+                Boid boid = (Boid) entity;
+                boid.listIndex = n;
+                this.boids[n] = boid;
+                this.xs[n] = boid.getPosition().getX();
+                this.ys[n] = boid.getPosition().getY();
+                maxPerception = Math.max(maxPerception, boid.perceptionRadius);
+                n++;
+            }
+        }
+        for (int i = n; i < this.count; i++) {
+            this.boids[i] = null; // Do not keep removed boids alive
+        }
+        this.count = n;
+        this.listRadius = maxPerception + this.skin;
+        for (int i = 0; i < n; i++) {
+            this.originXs[i] = this.xs[i];
+            this.originYs[i] = this.ys[i];
+            this.pendingFlags[i] = false;
+            this.listSizes[i] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            this.scratch.clear();
+            grid.findCandidates(this.xs[i], this.ys[i], this.listRadius, this.boids[i], this.scratch);
+            for (int j = 0; j < this.scratch.size(); j++) {
+                int other = this.scratch.get(j).listIndex;
+                // Boids added mid-tick can be in the grid without being indexed here yet
+                if (other >= 0 && other < n && this.boids[other] == this.scratch.get(j)) {
+                    append(i, other);
+                }
+            }
+        }
+        this.scratch.clear();
+        this.shiftX = 0;
+        this.shiftY = 0;
+        this.builtPopulationVersion = populationVersion;
+        this.fullRebuilds++;
+    }
+
+    /**
+     * Moves the reference point of every pending boid to where it is now and relinks it
+     * with every boid whose reference point is within the list radius. Lists stay symmetric.
+     */
+    private void repair(int pendingCount, SpatialGrid grid) {
+        for (int p = 0; p < pendingCount; p++) {
+            int index = this.pending[p];
+            int[] list = this.lists[index];
+            for (int i = 0; i < this.listSizes[index]; i++) {
+                remove(list[i], index);
+            }
+            this.listSizes[index] = 0;
+            this.originXs[index] = this.xs[index] - this.shiftX;
+            this.originYs[index] = this.ys[index] - this.shiftY;
+            this.pendingFlags[index] = true;
+        }
+
+        double radiusSquared = this.listRadius * this.listRadius;
+        for (int p = 0; p < pendingCount; p++) {
+            int index = this.pending[p];
+            double originX = this.originXs[index];
+            double originY = this.originYs[index];
+            // Boids that are not pending are within half the skin of their reference point
+            this.scratch.clear();
+            grid.findCandidates(this.xs[index], this.ys[index], this.listRadius + this.skin / 2.0, this.boids[index], this.scratch);
+            for (int i = 0; i < this.scratch.size(); i++) {
+                Boid other = this.scratch.get(i);
+                int otherIndex = other.listIndex;
+                if (indexes(other) && !this.pendingFlags[otherIndex]) {
+                    double dx = this.originXs[otherIndex] - originX;
+                    double dy = this.originYs[otherIndex] - originY;
+                    if (dx * dx + dy * dy < radiusSquared) {
+                        link(index, otherIndex);
+                    }
+                }
+            }
+            // Pending boids can be anywhere, so check them against each other directly
+            for (int q = p + 1; q < pendingCount; q++) {
+                int other = this.pending[q];
+                double dx = this.originXs[other] - originX;
+                double dy = this.originYs[other] - originY;
+                if (dx * dx + dy * dy < radiusSquared) {
+                    link(index, other);
+                }
+            }
+        }
+        this.scratch.clear();
+        for (int p = 0; p < pendingCount; p++) {
+            this.pendingFlags[this.pending[p]] = false;
+        }
+        this.repairs += pendingCount;
+    }
+
+    private boolean indexes(Boid boid) {
+        int index = boid.listIndex;
+        return index >= 0 && index < this.count && this.boids[index] == boid;
+    }
+
+    private void link(int a, int b) {
+        append(a, b);
+        append(b, a);
+    }
+
+    private void append(int index, int other) {
+        int[] list = this.lists[index];
+        int size = this.listSizes[index];
+        if (list == null || size == list.length) {
+            int[] grown = new int[list == null ? INITIAL_LIST_CAPACITY : 2 * list.length];
+            if (list != null) {
+                System.arraycopy(list, 0, grown, 0, size);
+            }
+            this.lists[index] = list = grown;
+        }
+        list[size] = other;
+        this.listSizes[index] = size + 1;
+    }
+
+    private void remove(int index, int other) {
+        int[] list = this.lists[index];
+        int last = this.listSizes[index] - 1;
+        for (int i = 0; i <= last; i++) {
+            if (list[i] == other) {
+                list[i] = list[last]; // Order does not matter, so swap the last entry in
+                this.listSizes[index] = last;
+                return;
+            }
+        }
+    }
+
+    private void grow(int capacity) {
+        this.boids = Arrays.copyOf(this.boids, capacity);
+        this.xs = Arrays.copyOf(this.xs, capacity);
+        this.ys = Arrays.copyOf(this.ys, capacity);
+        this.originXs = Arrays.copyOf(this.originXs, capacity);
+        this.originYs = Arrays.copyOf(this.originYs, capacity);
+        this.pendingFlags = Arrays.copyOf(this.pendingFlags, capacity);
+        this.lists = Arrays.copyOf(this.lists, capacity);
+        this.listSizes = Arrays.copyOf(this.listSizes, capacity);
+        this.pending = Arrays.copyOf(this.pending, capacity);
+    }
+
+    /**
+     * Pending boids are checked against each other pairwise, so past a point a full rebuild is cheaper.
+     */
+    private int repairLimit() {
+        return Math.max(MIN_REPAIRS_BEFORE_REBUILD, Math.min(this.count / 4, 16 * (int) Math.sqrt(this.count)));
+    }
+
+    /**
+     * @return How many times all lists have been rebuilt from scratch.
+     */
+    long getFullRebuildCount() {
+        return this.fullRebuilds;
+    }
+
+    /**
+     * @return How many times a single boid's list has been repaired.
+     */
+    long getRepairCount() {
+        return this.repairs;
+    }
+}
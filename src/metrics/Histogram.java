@@ -0,0 +1,141 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-bucket histogram that can be written by one thread and read by others
+ * without locking. Values above the last bound fall into an overflow bucket.
+ * Percentiles are approximated by the upper bound of the bucket they land in,
+ * which is accurate enough for dashboards and keeps recording to a few instructions.
+ */
+public class Histogram {
+    private final long[] upperBounds;
+    private final AtomicLongArray bucketCounts;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * @param upperBounds Inclusive upper bound of each bucket, in ascending order.
+     */
+    public Histogram(long... upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Histogram bounds must be strictly ascending");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.bucketCounts = new AtomicLongArray(upperBounds.length + 1); // +1 for overflow
+    }
+
+    /**
+     * Records a single value.
+     * @param value The value to record.
+     */
+    public void record(long value) {
+        this.bucketCounts.incrementAndGet(bucketIndex(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+    }
+
+    /**
+     * Adds counts collected elsewhere (e.g. a per-tick scratch array) in one go.
+     * @param counts Counts per bucket, laid out as returned by {@link #bucketIndex(long)}.
+     * @param valueSum The sum of all values represented by {@code counts}.
+     */
+    public void addAll(long[] counts, long valueSum) {
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                this.bucketCounts.addAndGet(i, counts[i]);
+                total += counts[i];
+            }
+        }
+        this.count.addAndGet(total);
+        this.sum.addAndGet(valueSum);
+    }
+
+    /**
+     * @param value A value to classify.
+     * @return The index of the bucket the value belongs to.
+     */
+    public int bucketIndex(long value) {
+        for (int i = 0; i < this.upperBounds.length; i++) {
+            if (value <= this.upperBounds[i]) {
+                return i;
+            }
+        }
+        return this.upperBounds.length;
+    }
+
+    /**
+     * @return The number of buckets, including the overflow bucket.
+     */
+    public int bucketCount() {
+        return this.bucketCounts.length();
+    }
+
+    /**
+     * @param index Bucket index.
+     * @return Upper bound of the bucket, or {@link Long#MAX_VALUE} for the overflow bucket.
+     */
+    public long upperBound(int index) {
+        return index < this.upperBounds.length ? this.upperBounds[index] : Long.MAX_VALUE;
+    }
+
+    public long bucket(int index) {
+        return this.bucketCounts.get(index);
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getSum() {
+        return this.sum.get();
+    }
+
+    public double getMean() {
+        long n = this.count.get();
+        return n == 0 ? 0.0 : (double) this.sum.get() / n;
+    }
+
+    /**
+     * Approximates a percentile from the bucket counts.
+     * @param quantile The quantile to estimate, between 0 and 1.
+     * @return The upper bound of the bucket containing the quantile, or 0 if nothing has been recorded.
+     */
+    public long percentile(double quantile) {
+        long total = 0;
+        int buckets = this.bucketCounts.length();
+        long[] snapshot = new long[buckets];
+        for (int i = 0; i < buckets; i++) {
+            snapshot[i] = this.bucketCounts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < buckets; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // The overflow bucket has no upper bound, so report the largest finite one
+                return i < this.upperBounds.length ? this.upperBounds[i] : this.upperBounds[this.upperBounds.length - 1];
+            }
+        }
+        return this.upperBounds[this.upperBounds.length - 1];
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < this.bucketCounts.length(); i++) {
+            this.bucketCounts.set(i, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+    }
+}
@@ -0,0 +1,74 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Small lock-free struct of the most recent simulation statistics, written by the
+ * simulation thread and read by the GUI. Writers only ever use lazy (ordered) stores,
+ * so publishing a tick costs about as much as a plain field write. Readers may see a
+ * sample from one tick earlier than the counters, which does not matter for display.
+ */
+public class LiveStats {
+    /** Number of recent tick durations kept, a power of two. */
+    public static final int HISTORY_SIZE = 128;
+    private static final int HISTORY_MASK = HISTORY_SIZE - 1;
+
+    private final AtomicLongArray tickHistoryNanos = new AtomicLongArray(HISTORY_SIZE);
+    private final AtomicLong tickCount = new AtomicLong();
+    private final AtomicLong frameCount = new AtomicLong();
+    private volatile double meanNeighbors;
+    private volatile int entityCount;
+
+    /**
+     * Publishes a finished tick. Only the simulation thread may call this.
+     * @param durationNanos How long the tick took.
+     * @param meanNeighbors Mean neighbours per boid during the tick.
+     * @param entityCount Live entities at the end of the tick.
+     */
+    void publishTick(long durationNanos, double meanNeighbors, int entityCount) {
+        long sequence = this.tickCount.get();
+        this.tickHistoryNanos.lazySet((int) (sequence & HISTORY_MASK), durationNanos);
+        this.meanNeighbors = meanNeighbors;
+        this.entityCount = entityCount;
+        this.tickCount.lazySet(sequence + 1);
+    }
+
+    /**
+     * Counts one rendered frame. Only the Swing event thread may call this.
+     */
+    void publishFrame() {
+        this.frameCount.lazySet(this.frameCount.get() + 1);
+    }
+
+    public long getTickCount() {
+        return this.tickCount.get();
+    }
+
+    public long getFrameCount() {
+        return this.frameCount.get();
+    }
+
+    public double getMeanNeighbors() {
+        return this.meanNeighbors;
+    }
+
+    public int getEntityCount() {
+        return this.entityCount;
+    }
+
+    /**
+     * Copies the most recent tick durations, oldest first, into {@code target}.
+     * @param target Array to fill, at most {@link #HISTORY_SIZE} long.
+     * @return The number of entries written, which is less than the array length early in a run.
+     */
+    public int copyTickHistory(long[] target) {
+        long sequence = this.tickCount.get();
+        int available = (int) Math.min(Math.min(sequence, HISTORY_SIZE), target.length);
+        long first = sequence - available;
+        for (int i = 0; i < available; i++) {
+            target[i] = this.tickHistoryNanos.get((int) ((first + i) & HISTORY_MASK));
+        }
+        return available;
+    }
+}
@@ -0,0 +1,28 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one phase of a simulation tick across all entities.
+ */
+@Name("flockingsim.Phase")
+@Label("Simulation Phase")
+@Category("Flocking Simulation")
+@Description("One phase of a tick, e.g. neighbour search or movement")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Entity Count")
+    public int entityCount;
+
+    @Label("Neighbor Count")
+    @Description("Total neighbours found by all boids during the tick, as far as known when the phase ended")
+    public long neighborCount;
+}
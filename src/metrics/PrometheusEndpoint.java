@@ -0,0 +1,124 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves {@link SimulationMetrics} in the Prometheus text exposition format
+ * on {@code http://127.0.0.1:<port>/metrics}. Only the loopback interface is
+ * bound, so the endpoint is not reachable from other machines.
+ */
+public class PrometheusEndpoint {
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final SimulationMetrics metrics;
+    private HttpServer server;
+
+    public PrometheusEndpoint(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts serving on the given port using a single daemon thread.
+     * @param port The local port to bind, or 0 for an ephemeral one.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void start(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/metrics", this::handle);
+        this.server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.server.start();
+    }
+
+    /**
+     * @return The port actually bound, useful when started with port 0.
+     */
+    public int getPort() {
+        return this.server == null ? -1 : this.server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (this.server != null) {
+            this.server.stop(0);
+            this.server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Renders the current metric values as Prometheus text.
+     * @return The exposition text.
+     */
+    public String render() {
+        StringBuilder sb = new StringBuilder(4096);
+
+        sb.append("# HELP flocking_tick_duration_seconds Wall time of one simulation tick.\n");
+        sb.append("# TYPE flocking_tick_duration_seconds histogram\n");
+        appendHistogram(sb, "flocking_tick_duration_seconds", "", this.metrics.getTickDurations(), NANOS_PER_SECOND);
+
+        sb.append("# HELP flocking_phase_duration_seconds Time spent in each phase of a tick.\n");
+        sb.append("# TYPE flocking_phase_duration_seconds histogram\n");
+        for (SimulationPhase phase : SimulationPhase.values()) {
+            appendHistogram(sb, "flocking_phase_duration_seconds", "phase=\"" + phase.getLabel() + "\"",
+                    this.metrics.getPhaseDurations(phase), NANOS_PER_SECOND);
+        }
+
+        sb.append("# HELP flocking_neighbors_per_boid Neighbours considered by each boid per tick.\n");
+        sb.append("# TYPE flocking_neighbors_per_boid histogram\n");
+        appendHistogram(sb, "flocking_neighbors_per_boid", "", this.metrics.getNeighborCounts(), 1.0);
+
+        sb.append("# HELP flocking_entities Number of live entities by kind.\n");
+        sb.append("# TYPE flocking_entities gauge\n");
+        sb.append("flocking_entities{kind=\"boid\"} ").append(this.metrics.getBoidCount()).append('\n');
+        sb.append("flocking_entities{kind=\"predator\"} ").append(this.metrics.getPredatorCount()).append('\n');
+
+        sb.append("# HELP flocking_allocated_bytes_total Bytes allocated by the simulation thread while ticking.\n");
+        sb.append("# TYPE flocking_allocated_bytes_total counter\n");
+        sb.append("flocking_allocated_bytes_total ").append(this.metrics.getAllocatedBytesTotal()).append('\n');
+
+        sb.append("# HELP flocking_allocation_rate_bytes_per_second Recent allocation rate of the simulation thread.\n");
+        sb.append("# TYPE flocking_allocation_rate_bytes_per_second gauge\n");
+        sb.append("flocking_allocation_rate_bytes_per_second ")
+          .append(formatDouble(this.metrics.getAllocationRateBytesPerSecond())).append('\n');
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, String labels, Histogram histogram, double divisor) {
+        String labelPrefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < histogram.bucketCount(); i++) {
+            cumulative += histogram.bucket(i);
+            long bound = histogram.upperBound(i);
+            String le = bound == Long.MAX_VALUE ? "+Inf" : formatDouble(bound / divisor);
+            sb.append(name).append("_bucket{").append(labelPrefix).append("le=\"").append(le).append("\"} ")
+              .append(cumulative).append('\n');
+        }
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        sb.append(name).append("_sum").append(suffix).append(' ').append(formatDouble(histogram.getSum() / divisor)).append('\n');
+        sb.append(name).append("_count").append(suffix).append(' ').append(cumulative).append('\n');
+    }
+
+    private static String formatDouble(double value) {
+        return String.format(Locale.ROOT, "%.9g", value);
+    }
+}
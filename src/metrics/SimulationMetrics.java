@@ -0,0 +1,284 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry for the runtime metrics of a running simulation.
+ *
+ * <p>The simulation thread brackets every tick with {@link #beginTick()} and
+ * {@link #endTick(int, int)} and reports phase timings and neighbour counts in
+ * between. Those per-tick values are kept in plain fields owned by the simulation
+ * thread and only published to the shared histograms once per tick, so the cost
+ * on the hot path is a few additions. Readers (JMX, the Prometheus endpoint) only
+ * ever see the published values.
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+    public static final String OBJECT_NAME = "flockingsim:type=SimulationMetrics";
+
+    // Tick and phase durations, in nanoseconds
+    private static final long[] DURATION_BOUNDS_NANOS = {
+        50_000L, 100_000L, 250_000L, 500_000L,
+        1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 16_000_000L, 25_000_000L, 33_000_000L,
+        50_000_000L, 100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L
+    };
+    private static final long[] NEIGHBOR_BOUNDS = { 0, 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024 };
+    private static final long ALLOCATION_RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private final Histogram tickDurations = new Histogram(DURATION_BOUNDS_NANOS);
+    private final Histogram[] phaseDurations = new Histogram[SimulationPhase.values().length];
+    private final Histogram neighborCounts = new Histogram(NEIGHBOR_BOUNDS);
+    private final AtomicLong allocatedBytesTotal = new AtomicLong();
+    private final LiveStats liveStats = new LiveStats();
+
+    private volatile int boidCount;
+    private volatile int predatorCount;
+    private volatile double meanNeighborsPerBoid;
+    private volatile double allocationRateBytesPerSecond;
+
+    // Per-tick scratch state, only touched by the simulation thread
+    private final long[] tickPhaseNanos = new long[SimulationPhase.values().length];
+    private final long[] tickNeighborBuckets = new long[NEIGHBOR_BOUNDS.length + 1];
+    private long tickNeighborSum;
+    private int tickNeighborSamples;
+    private long tickStartNanos;
+    private long tickStartAllocatedBytes;
+    private long rateWindowStartNanos;
+    private long rateWindowBytes;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    public SimulationMetrics() {
+        for (SimulationPhase phase : SimulationPhase.values()) {
+            this.phaseDurations[phase.ordinal()] = new Histogram(DURATION_BOUNDS_NANOS);
+        }
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.threadBean = (com.sun.management.ThreadMXBean) bean;
+            this.threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            this.threadBean = null; // Allocation metrics stay at zero on JVMs without support
+        }
+    }
+
+    /**
+     * Registers this instance with the platform MBean server under {@link #OBJECT_NAME}.
+     * Failure is reported but not fatal; the simulation runs fine without JMX.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            System.err.println("Could not register simulation metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the start of a tick. Must be called on the simulation thread.
+     */
+    public void beginTick() {
+        java.util.Arrays.fill(this.tickPhaseNanos, 0);
+        java.util.Arrays.fill(this.tickNeighborBuckets, 0);
+        this.tickNeighborSum = 0;
+        this.tickNeighborSamples = 0;
+        this.tickStartAllocatedBytes = currentThreadAllocatedBytes();
+        this.tickStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds time spent in a phase during the current tick. Must be called on the simulation thread.
+     * @param phase The phase the time was spent in.
+     * @param nanos Elapsed nanoseconds.
+     */
+    public void recordPhase(SimulationPhase phase, long nanos) {
+        this.tickPhaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Records how many neighbours one boid considered this tick. Must be called on the simulation thread.
+     * @param count The neighbour count.
+     */
+    public void recordNeighborCount(int count) {
+        this.tickNeighborBuckets[this.neighborCounts.bucketIndex(count)]++;
+        this.tickNeighborSum += count;
+        this.tickNeighborSamples++;
+    }
+
+    /**
+     * Records a render handoff measured on the Swing event thread.
+     * @param nanos Elapsed nanoseconds spent clearing, drawing and repainting.
+     */
+    public void recordRender(long nanos) {
+        this.phaseDurations[SimulationPhase.RENDER_HANDOFF.ordinal()].record(nanos);
+        this.liveStats.publishFrame();
+    }
+
+    /**
+     * Marks the end of a tick and publishes everything recorded since {@link #beginTick()}.
+     * @param boids The number of boids alive at the end of the tick.
+     * @param predators The number of predators alive at the end of the tick.
+     */
+    public void endTick(int boids, int predators) {
+        long now = System.nanoTime();
+        long tickNanos = now - this.tickStartNanos;
+        this.tickDurations.record(tickNanos);
+        for (SimulationPhase phase : SimulationPhase.values()) {
+            if (phase != SimulationPhase.RENDER_HANDOFF) {
+                this.phaseDurations[phase.ordinal()].record(this.tickPhaseNanos[phase.ordinal()]);
+            }
+        }
+        this.neighborCounts.addAll(this.tickNeighborBuckets, this.tickNeighborSum);
+        this.meanNeighborsPerBoid = this.tickNeighborSamples == 0 ? 0.0 : (double) this.tickNeighborSum / this.tickNeighborSamples;
+        this.boidCount = boids;
+        this.predatorCount = predators;
+        this.liveStats.publishTick(tickNanos, this.meanNeighborsPerBoid, boids + predators);
+
+        long allocated = Math.max(0, currentThreadAllocatedBytes() - this.tickStartAllocatedBytes);
+        this.allocatedBytesTotal.addAndGet(allocated);
+        this.rateWindowBytes += allocated;
+        if (this.rateWindowStartNanos == 0) {
+            this.rateWindowStartNanos = now;
+        } else if (now - this.rateWindowStartNanos >= ALLOCATION_RATE_WINDOW_NANOS) {
+            this.allocationRateBytesPerSecond = this.rateWindowBytes * 1e9 / (now - this.rateWindowStartNanos);
+            this.rateWindowStartNanos = now;
+            this.rateWindowBytes = 0;
+        }
+    }
+
+    private long currentThreadAllocatedBytes() {
+        return this.threadBean == null ? 0 : this.threadBean.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * @return The lock-free snapshot of recent statistics used by the on-screen HUD.
+     */
+    public LiveStats getLiveStats() {
+        return this.liveStats;
+    }
+
+    public Histogram getTickDurations() {
+        return this.tickDurations;
+    }
+
+    public Histogram getPhaseDurations(SimulationPhase phase) {
+        return this.phaseDurations[phase.ordinal()];
+    }
+
+    public Histogram getNeighborCounts() {
+        return this.neighborCounts;
+    }
+
+    @Override
+    public long getTickCount() {
+        return this.tickDurations.getCount();
+    }
+
+    @Override
+    public double getTickMeanMicros() {
+        return this.tickDurations.getMean() / 1000.0;
+    }
+
+    @Override
+    public long getTickP50Micros() {
+        return this.tickDurations.percentile(0.50) / 1000;
+    }
+
+    @Override
+    public long getTickP90Micros() {
+        return this.tickDurations.percentile(0.90) / 1000;
+    }
+
+    @Override
+    public long getTickP99Micros() {
+        return this.tickDurations.percentile(0.99) / 1000;
+    }
+
+    @Override
+    public double getGridBuildMeanMicros() {
+        return getPhaseDurations(SimulationPhase.GRID_BUILD).getMean() / 1000.0;
+    }
+
+    @Override
+    public double getNeighborSearchMeanMicros() {
+        return getPhaseDurations(SimulationPhase.NEIGHBOR_SEARCH).getMean() / 1000.0;
+    }
+
+    @Override
+    public double getForcesMeanMicros() {
+        return getPhaseDurations(SimulationPhase.FORCES).getMean() / 1000.0;
+    }
+
+    @Override
+    public double getObstacleAvoidanceMeanMicros() {
+        return getPhaseDurations(SimulationPhase.OBSTACLE_AVOIDANCE).getMean() / 1000.0;
+    }
+
+    @Override
+    public double getMoveMeanMicros() {
+        return getPhaseDurations(SimulationPhase.MOVE).getMean() / 1000.0;
+    }
+
+    @Override
+    public double getCollisionsMeanMicros() {
+        return getPhaseDurations(SimulationPhase.COLLISIONS).getMean() / 1000.0;
+    }
+
+    @Override
+    public double getRenderHandoffMeanMicros() {
+        return getPhaseDurations(SimulationPhase.RENDER_HANDOFF).getMean() / 1000.0;
+    }
+
+    @Override
+    public int getBoidCount() {
+        return this.boidCount;
+    }
+
+    @Override
+    public int getPredatorCount() {
+        return this.predatorCount;
+    }
+
+    @Override
+    public double getMeanNeighborsPerBoid() {
+        return this.meanNeighborsPerBoid;
+    }
+
+    @Override
+    public long getNeighborCountP50() {
+        return this.neighborCounts.percentile(0.50);
+    }
+
+    @Override
+    public long getNeighborCountP99() {
+        return this.neighborCounts.percentile(0.99);
+    }
+
+    @Override
+    public long getAllocatedBytesTotal() {
+        return this.allocatedBytesTotal.get();
+    }
+
+    @Override
+    public double getAllocationRateBytesPerSecond() {
+        return this.allocationRateBytesPerSecond;
+    }
+
+    @Override
+    public void resetStatistics() {
+        this.tickDurations.reset();
+        for (Histogram histogram : this.phaseDurations) {
+            histogram.reset();
+        }
+        this.neighborCounts.reset();
+        this.allocatedBytesTotal.set(0);
+    }
+}
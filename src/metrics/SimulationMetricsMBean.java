@@ -0,0 +1,51 @@
+package metrics;
+
+/**
+ * JMX management interface for {@link SimulationMetrics}.
+ * Times are reported in microseconds so they read naturally in JConsole/VisualVM.
+ */
+public interface SimulationMetricsMBean {
+
+    long getTickCount();
+
+    double getTickMeanMicros();
+
+    long getTickP50Micros();
+
+    long getTickP90Micros();
+
+    long getTickP99Micros();
+
+    double getGridBuildMeanMicros();
+
+    double getNeighborSearchMeanMicros();
+
+    double getForcesMeanMicros();
+
+    double getObstacleAvoidanceMeanMicros();
+
+    double getMoveMeanMicros();
+
+    double getCollisionsMeanMicros();
+
+    double getRenderHandoffMeanMicros();
+
+    int getBoidCount();
+
+    int getPredatorCount();
+
+    double getMeanNeighborsPerBoid();
+
+    long getNeighborCountP50();
+
+    long getNeighborCountP99();
+
+    long getAllocatedBytesTotal();
+
+    double getAllocationRateBytesPerSecond();
+
+    /**
+     * Clears all histograms and counters, e.g. after changing a setting in the GUI.
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,28 @@
+package metrics;
+
+/**
+ * The phases a single simulation tick is broken into for timing purposes.
+ * Each phase has a short name used as a label in exported metrics.
+ */
+public enum SimulationPhase {
+    GRID_BUILD("grid_build"),
+    NEIGHBOR_SEARCH("neighbor_search"),
+    FORCES("forces"),
+    OBSTACLE_AVOIDANCE("obstacle_avoidance"),
+    MOVE("move"),
+    COLLISIONS("collisions"),
+    RENDER_HANDOFF("render_handoff");
+
+    private final String label;
+
+    SimulationPhase(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return The label used for this phase in Prometheus output and JMX attribute names.
+     */
+    public String getLabel() {
+        return this.label;
+    }
+}
@@ -0,0 +1,28 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for entities being added to the simulation, either a full respawn
+ * of the flock or a single predator.
+ */
+@Name("flockingsim.Spawn")
+@Label("Entity Spawn")
+@Category("Flocking Simulation")
+@Description("Entities created by a respawn of the flock or by adding a predator")
+public class SpawnEvent extends Event {
+    @Label("Kind")
+    public String kind;
+
+    @Label("Spawned")
+    @Description("Number of entities created")
+    public int spawnedCount;
+
+    @Label("Entity Count")
+    @Description("Entities in the simulation after the spawn")
+    public int entityCount;
+}
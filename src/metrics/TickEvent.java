@@ -0,0 +1,25 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one whole simulation tick.
+ */
+@Name("flockingsim.Tick")
+@Label("Simulation Tick")
+@Category("Flocking Simulation")
+@Description("One complete update of every entity in the simulation")
+@StackTrace(false)
+public class TickEvent extends Event {
+    @Label("Entity Count")
+    public int entityCount;
+
+    @Label("Neighbor Count")
+    @Description("Total neighbours found by all boids during the tick")
+    public long neighborCount;
+}
@@ -0,0 +1,36 @@
+package streaming;
+
+/**
+ * One tick's encoded state, shared read-only by every viewer connection.
+ */
+final class Frame {
+    private final int number;
+    private final byte[] keyframe;
+    private final byte[] delta;
+
+    /**
+     * @param number The frame number.
+     * @param keyframe The frame as a keyframe, or null if no viewer needed one.
+     * @param delta The frame as a delta against frame {@code number - 1}, or null if it must be a keyframe.
+     */
+    Frame(int number, byte[] keyframe, byte[] delta) {
+        this.number = number;
+        this.keyframe = keyframe;
+        this.delta = delta;
+    }
+
+    int getNumber() {
+        return this.number;
+    }
+
+    /**
+     * @param lastSent The number of the last frame the viewer received.
+     * @return The encoding the viewer can use, or null if it needs a keyframe this frame does not have.
+     */
+    byte[] encodingFor(int lastSent) {
+        if (this.delta != null && lastSent == this.number - 1) {
+            return this.delta;
+        }
+        return this.keyframe;
+    }
+}
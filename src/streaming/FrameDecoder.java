@@ -0,0 +1,115 @@
+package streaming;
+
+import java.util.Arrays;
+
+/**
+ * The viewer's side of {@link FrameEncoder}: applies keyframes and deltas to its copy of the
+ * quantized state and turns it back into world coordinates.
+ */
+final class FrameDecoder {
+    private int frameNumber = -1;
+    private int count;
+    private int worldWidth = 1;
+    private int worldHeight = 1;
+    private int[] obstacles = new int[0]; // x, y, width, height of each
+    private byte[] kinds = new byte[0];
+    private int[] xs = new int[0];
+    private int[] ys = new int[0];
+    private int[] headings = new int[0];
+    private int[] moveXs = new int[0];
+    private int[] moveYs = new int[0];
+
+    /**
+     * @param frame One frame, without its length prefix.
+     * @return false if it was a delta against a frame this decoder does not have, in which case nothing changed.
+     */
+    boolean apply(byte[] frame) {
+        FrameFormat.Reader in = new FrameFormat.Reader(frame);
+        int type = in.readByte();
+        int number = in.readInt();
+        if (type == FrameFormat.KEYFRAME) {
+            this.worldWidth = in.readInt();
+            this.worldHeight = in.readInt();
+            this.obstacles = new int[4 * in.readInt()];
+            for (int i = 0; i < this.obstacles.length; i++) {
+                this.obstacles[i] = in.readInt();
+            }
+            this.count = in.readInt();
+            if (this.count > this.xs.length) {
+                grow(this.count);
+            }
+            for (int i = 0; i < this.count; i++) {
+                this.kinds[i] = (byte) in.readByte();
+                this.xs[i] = in.readShort();
+                this.ys[i] = in.readShort();
+                this.headings[i] = in.readByte();
+                this.moveXs[i] = FrameFormat.unzigzag(in.readVarint());
+                this.moveYs[i] = FrameFormat.unzigzag(in.readVarint());
+            }
+        } else {
+            if (number != this.frameNumber + 1 || in.readInt() != this.count) {
+                return false;
+            }
+            for (int i = 0; i < this.count; i++) {
+                this.moveXs[i] += FrameFormat.unzigzag(in.readVarint());
+                this.moveYs[i] += FrameFormat.unzigzag(in.readVarint());
+                this.xs[i] = (this.xs[i] + this.moveXs[i]) & 0xFFFF;
+                this.ys[i] = (this.ys[i] + this.moveYs[i]) & 0xFFFF;
+                this.headings[i] = (this.headings[i] + in.readByte()) & 0xFF;
+            }
+        }
+        this.frameNumber = number;
+        return true;
+    }
+
+    private void grow(int capacity) {
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        this.xs = Arrays.copyOf(this.xs, capacity);
+        this.ys = Arrays.copyOf(this.ys, capacity);
+        this.headings = Arrays.copyOf(this.headings, capacity);
+        this.moveXs = Arrays.copyOf(this.moveXs, capacity);
+        this.moveYs = Arrays.copyOf(this.moveYs, capacity);
+    }
+
+    int getFrameNumber() {
+        return this.frameNumber;
+    }
+
+    int getCount() {
+        return this.count;
+    }
+
+    int getWorldWidth() {
+        return this.worldWidth;
+    }
+
+    int getWorldHeight() {
+        return this.worldHeight;
+    }
+
+    /**
+     * @return The obstacles as x, y, width, height, four ints per obstacle.
+     */
+    int[] getObstacles() {
+        return this.obstacles;
+    }
+
+    boolean isPredator(int i) {
+        return this.kinds[i] == FrameFormat.PREDATOR;
+    }
+
+    double getX(int i) {
+        return (double) this.xs[i] * this.worldWidth / FrameFormat.POSITION_STEPS;
+    }
+
+    double getY(int i) {
+        return (double) this.ys[i] * this.worldHeight / FrameFormat.POSITION_STEPS;
+    }
+
+    /**
+     * @return The heading in radians.
+     */
+    double getHeading(int i) {
+        return this.headings[i] * 2 * Math.PI / FrameFormat.HEADING_STEPS;
+    }
+}
@@ -0,0 +1,179 @@
+package streaming;
+
+import java.util.Arrays;
+import java.util.List;
+
+import flockingsim.FlockingSimulation;
+import flockingsim.Predator;
+import flockingsim.Rectangle;
+import flockingsim.SimulatedEntity;
+import geometry.CartesianCoordinate;
+
+/**
+ * Turns the simulation's state into frames, on the simulation thread. It keeps the quantized
+ * state of the previous frame, so every frame can be encoded as a delta against it.
+ *
+ * <p>A frame is a keyframe (and only a keyframe) every {@value #KEYFRAME_INTERVAL} frames and
+ * whenever entities were added or removed, since a delta only makes sense for the same
+ * entities in the same order. Otherwise it is a delta, plus a keyframe only if some viewer
+ * is out of step and needs one.
+ */
+final class FrameEncoder {
+    static final int KEYFRAME_INTERVAL = 60; // About two seconds at the default speed
+    private static final int MAX_DELTA_ENTRY_BYTES = 7; // Two 3-byte varints, as moves are 16-bit, and the turn
+    private static final double HEADING_ROUNDING = FrameFormat.HEADING_STEPS + 0.5; // Keeps the angle positive so casting rounds it
+
+    private int frameNumber;
+    private int count = -1; // -1 until the first frame
+    private int populationVersion;
+    private int worldWidth;
+    private int worldHeight;
+    private byte[] kinds = new byte[0];
+    private int[] xs = new int[0];
+    private int[] ys = new int[0];
+    private int[] headings = new int[0];
+    private int[] moveXs = new int[0];
+    private int[] moveYs = new int[0];
+    private final FrameFormat.Buffer keyBuffer = new FrameFormat.Buffer();
+    private final FrameFormat.Buffer deltaBuffer = new FrameFormat.Buffer();
+
+    /**
+     * @param simulation The simulation, between ticks.
+     * @param keyframeWanted Whether a viewer needs a keyframe, so one is encoded even if a delta would do.
+     * @return The encoded frame.
+     */
+    Frame encode(FlockingSimulation simulation, boolean keyframeWanted) {
+        List<SimulatedEntity> entities = simulation.getEntities();
+        int version = simulation.getPopulationVersion();
+        int width = Math.max(1, simulation.getWorldWidth());
+        int height = Math.max(1, simulation.getWorldHeight());
+        int number = this.frameNumber++;
+        boolean deltaPossible = this.count == entities.size() && version == this.populationVersion
+            && width == this.worldWidth && height == this.worldHeight && number % KEYFRAME_INTERVAL != 0;
+        if (entities.size() > this.xs.length) {
+            grow(entities.size());
+        }
+
+        this.deltaBuffer.reset();
+        this.deltaBuffer.writeByte(FrameFormat.DELTA);
+        this.deltaBuffer.writeInt(number);
+        this.deltaBuffer.writeInt(entities.size());
+        byte[] delta = this.deltaBuffer.reserve(MAX_DELTA_ENTRY_BYTES * this.xs.length);
+        int deltaSize = this.deltaBuffer.size();
+        double xScale = (double) FrameFormat.POSITION_STEPS / width;
+        double yScale = (double) FrameFormat.POSITION_STEPS / height;
+        double headingScale = FrameFormat.HEADING_STEPS / (2 * Math.PI);
+        int n = 0;
+        for (SimulatedEntity entity : entities) {
+            if (n == this.xs.length) {
+                // Something was added since the size was read; the count check below catches it
+                grow(Math.max(16, 2 * n));
+                delta = this.deltaBuffer.reserve(MAX_DELTA_ENTRY_BYTES * this.xs.length);
+            }
+            CartesianCoordinate position = entity.getPosition();
+            CartesianCoordinate velocity = entity.getVelocity();
+            // Positions are within the world, so casting rounds the same way as Math.floor, only faster
+            int x = (int) (position.getX() * xScale) & 0xFFFF;
+            int y = (int) (position.getY() * yScale) & 0xFFFF;
+            int heading = (int) (approximateAtan2(velocity.getY(), velocity.getX()) * headingScale + HEADING_ROUNDING) & 0xFF;
+            int moveX = 0;
+            int moveY = 0;
+            if (deltaPossible) {
+                // 16-bit differences wrap along with the world
+                moveX = (short) (x - this.xs[n]);
+                moveY = (short) (y - this.ys[n]);
+                deltaSize = FrameFormat.putVarint(delta, deltaSize, FrameFormat.zigzag(moveX - this.moveXs[n]));
+                deltaSize = FrameFormat.putVarint(delta, deltaSize, FrameFormat.zigzag(moveY - this.moveYs[n]));
+                delta[deltaSize++] = (byte) (heading - this.headings[n]);
+            }
+            this.kinds[n] = entity instanceof Predator ? FrameFormat.PREDATOR : FrameFormat.BOID;
+            this.xs[n] = x;
+            this.ys[n] = y;
+            this.headings[n] = heading;
+            this.moveXs[n] = moveX;
+            this.moveYs[n] = moveY;
+            n++;
+        }
+        this.deltaBuffer.setSize(deltaSize);
+        deltaPossible &= n == this.count;
+        this.count = n;
+        this.populationVersion = version;
+        this.worldWidth = width;
+        this.worldHeight = height;
+
+        byte[] keyframe = null;
+        if (keyframeWanted || !deltaPossible) {
+            keyframe = encodeKeyframe(number, simulation.getObstacles());
+        }
+        return new Frame(number, keyframe, deltaPossible ? this.deltaBuffer.toByteArray() : null);
+    }
+
+    /**
+     * {@link Math#atan2} to within a sixteenth of a heading step (0.0015 radians) at a fraction
+     * of the cost. Math.atan2 was most of the encoding time.
+     */
+    static double approximateAtan2(double y, double x) {
+        double absX = Math.abs(x);
+        double absY = Math.abs(y);
+        if (absX == 0 && absY == 0) {
+            return 0;
+        }
+        // atan of the smaller over the larger, which is in [0, 1]
+        boolean steep = absY > absX;
+        double z = steep ? absX / absY : absY / absX;
+        double angle = Math.PI / 4 * z - z * (z - 1) * (0.2447 + 0.0663 * z);
+        if (steep) {
+            angle = Math.PI / 2 - angle;
+        }
+        if (x < 0) {
+            angle = Math.PI - angle;
+        }
+        return y < 0 ? -angle : angle;
+    }
+
+    private byte[] encodeKeyframe(int number, List<Rectangle> obstacles) {
+        FrameFormat.Buffer key = this.keyBuffer;
+        key.reset();
+        key.writeByte(FrameFormat.KEYFRAME);
+        key.writeInt(number);
+        key.writeInt(this.worldWidth);
+        key.writeInt(this.worldHeight);
+        key.writeInt(obstacles.size());
+        for (Rectangle obstacle : obstacles) {
+            key.writeInt((int) obstacle.getPosition().getX());
+            key.writeInt((int) obstacle.getPosition().getY());
+            key.writeInt(obstacle.getDx());
+            key.writeInt(obstacle.getDy());
+        }
+        key.writeInt(this.count);
+        for (int i = 0; i < this.count; i++) {
+            key.writeByte(this.kinds[i]);
+            key.writeShort(this.xs[i]);
+            key.writeShort(this.ys[i]);
+            key.writeByte(this.headings[i]);
+            key.writeVarint(FrameFormat.zigzag(this.moveXs[i]));
+            key.writeVarint(FrameFormat.zigzag(this.moveYs[i]));
+        }
+        return key.toByteArray();
+    }
+
+    int getNextFrameNumber() {
+        return this.frameNumber;
+    }
+
+    /**
+     * Forgets the previous frame, so the next one is a keyframe.
+     */
+    void reset() {
+        this.count = -1;
+    }
+
+    private void grow(int capacity) {
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        this.xs = Arrays.copyOf(this.xs, capacity);
+        this.ys = Arrays.copyOf(this.ys, capacity);
+        this.headings = Arrays.copyOf(this.headings, capacity);
+        this.moveXs = Arrays.copyOf(this.moveXs, capacity);
+        this.moveYs = Arrays.copyOf(this.moveYs, capacity);
+    }
+}
@@ -0,0 +1,148 @@
+package streaming;
+
+import java.util.Arrays;
+
+/**
+ * The wire format shared by {@link StreamServer} and {@link StreamViewer}.
+ *
+ * <p>A connection starts with {@link #MAGIC} and {@link #VERSION}, followed by frames, each
+ * an int length and then the frame. Positions are quantized to 16 bits across the world, so
+ * they wrap around exactly where the world does, and headings to 8 bits. A frame is either:
+ * <ul>
+ * <li>a keyframe: type, frame number, world size, the obstacles, and for every entity its
+ * kind, position, heading and movement since the previous frame; or</li>
+ * <li>a delta frame: type, frame number, entity count, and for every entity how much its
+ * movement changed since the previous frame plus how much it turned.</li>
+ * </ul>
+ * Boids move smoothly, so the change in movement is usually a few steps and a delta entry is
+ * typically three bytes, against eight or more for a keyframe entry. Signed numbers are
+ * zigzag-encoded varints.
+ */
+final class FrameFormat {
+    static final int MAGIC = 0x464C4B53; // "FLKS"
+    static final byte VERSION = 1;
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    static final byte BOID = 0;
+    static final byte PREDATOR = 1;
+    static final int POSITION_STEPS = 1 << 16;
+    static final int HEADING_STEPS = 1 << 8;
+
+    private FrameFormat() {
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes a varint into an array that has room for it.
+     * @return The position after it.
+     */
+    static int putVarint(byte[] bytes, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * A growable byte buffer that frames are written into, reused from frame to frame.
+     */
+    static final class Buffer {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        void reset() {
+            this.size = 0;
+        }
+
+        void writeByte(int value) {
+            if (this.size == this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, 2 * this.size);
+            }
+            this.bytes[this.size++] = (byte) value;
+        }
+
+        void writeShort(int value) {
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeInt(int value) {
+            writeShort(value >>> 16);
+            writeShort(value);
+        }
+
+        void writeVarint(int value) {
+            this.size = putVarint(reserve(5), this.size, value);
+        }
+
+        /**
+         * Makes room for a run of writes done directly into the array, which is faster than
+         * calling the write methods one byte at a time in a hot loop.
+         * @param extra The most bytes that will be written.
+         * @return The array to write into from {@link #size()}; call {@link #setSize} afterwards.
+         */
+        byte[] reserve(int extra) {
+            if (this.size + extra > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(2 * this.bytes.length, this.size + extra));
+            }
+            return this.bytes;
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        void setSize(int size) {
+            this.size = size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(this.bytes, this.size);
+        }
+    }
+
+    /**
+     * Reads back what a {@link Buffer} wrote.
+     */
+    static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() {
+            return this.bytes[this.position++] & 0xFF;
+        }
+
+        int readShort() {
+            return (readByte() << 8) | readByte();
+        }
+
+        int readInt() {
+            return (readShort() << 16) | readShort();
+        }
+
+        int readVarint() {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package streaming;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import drawing.Canvas;
+import flockingsim.FlockingSimulation;
+import tools.Utils;
+
+/**
+ * Streams a simulation to any number of {@link StreamViewer}s over TCP, so a big run can be
+ * watched without rendering it in the simulation's JVM.
+ *
+ * <p>{@link #publish} is called on the simulation thread after each tick. It quantizes the
+ * state once into a frame shared by every viewer (see {@link FrameFormat}) and hands it to
+ * each viewer's sender thread without waiting, so however slow a viewer is, the tick loop
+ * only pays for encoding. Viewers that fall behind skip frames instead of queueing them.
+ *
+ * <p>Run headless with {@code java -cp bin streaming.StreamServer [boids]}. The port is
+ * {@code -Dflockingsim.stream.port} (default 9480) and only the loopback interface is bound
+ * unless {@code -Dflockingsim.stream.host} names another address, e.g. 0.0.0.0 for viewers
+ * on other machines.
+ */
+public class StreamServer {
+    private static final int DEFAULT_PORT = 9480;
+    private static final int DEFAULT_BOID_COUNT = 2000;
+
+    private final FrameEncoder encoder = new FrameEncoder();
+    private final CopyOnWriteArrayList<ViewerConnection> viewers = new CopyOnWriteArrayList<>();
+    private ServerSocket server;
+
+    /**
+     * Starts accepting viewers on a daemon thread.
+     * @param address The address to bind, or null for the loopback interface.
+     * @param port The port, or 0 for an ephemeral one.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void start(InetAddress address, int port) throws IOException {
+        this.server = new ServerSocket();
+        this.server.bind(new InetSocketAddress(address == null ? InetAddress.getLoopbackAddress() : address, port));
+        Thread acceptor = new Thread(this::acceptViewers, "stream-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void acceptViewers() {
+        while (!this.server.isClosed()) {
+            try {
+                Socket socket = this.server.accept();
+                ViewerConnection viewer = new ViewerConnection(socket);
+                this.viewers.add(viewer);
+                viewer.start();
+                System.out.println("Viewer connected from " + socket.getRemoteSocketAddress());
+            } catch (IOException e) {
+                if (!this.server.isClosed()) {
+                    System.err.println("Could not accept a viewer: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the simulation's current state to every viewer. Call it between ticks, on the
+     * thread that steps the simulation. Does nothing while no viewer is connected.
+     * @param simulation The simulation to stream.
+     */
+    public void publish(FlockingSimulation simulation) {
+        boolean keyframeWanted = false;
+        for (ViewerConnection viewer : this.viewers) {
+            if (!viewer.isOpen()) {
+                this.viewers.remove(viewer);
+            }
+        }
+        if (this.viewers.isEmpty()) {
+            this.encoder.reset();
+            return;
+        }
+        int next = this.encoder.getNextFrameNumber();
+        for (ViewerConnection viewer : this.viewers) {
+            keyframeWanted |= viewer.needsKeyframe(next);
+        }
+        Frame frame = this.encoder.encode(simulation, keyframeWanted);
+        for (ViewerConnection viewer : this.viewers) {
+            viewer.offer(frame);
+        }
+    }
+
+    /**
+     * @return The port actually bound, useful when started with port 0.
+     */
+    public int getPort() {
+        return this.server == null ? -1 : this.server.getLocalPort();
+    }
+
+    public int getViewerCount() {
+        return this.viewers.size();
+    }
+
+    public void stop() {
+        try {
+            if (this.server != null) {
+                this.server.close();
+            }
+        } catch (IOException e) {
+            // Already closed
+        }
+        for (ViewerConnection viewer : this.viewers) {
+            viewer.close();
+        }
+        this.viewers.clear();
+    }
+
+    /**
+     * Runs a headless simulation and streams it.
+     * @param args Optionally, the number of boids.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int boidCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BOID_COUNT;
+        Utils utils = new Utils();
+        FlockingSimulation simulation = new FlockingSimulation(new Canvas(), utils);
+        simulation.resetAndSpawnBoids(boidCount);
+
+        StreamServer streamServer = new StreamServer();
+        int port = Integer.getInteger("flockingsim.stream.port", DEFAULT_PORT);
+        String host = System.getProperty("flockingsim.stream.host");
+        try {
+            streamServer.start(host == null ? null : InetAddress.getByName(host), port);
+        } catch (IOException e) {
+            System.err.println("Could not start streaming on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+        String exportFile = System.getProperty("flockingsim.export.file");
+        if (exportFile != null) {
+            try {
+                simulation.startStateExport(Paths.get(exportFile));
+            } catch (IOException e) {
+                System.err.println("Could not export state to " + exportFile + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Streaming " + boidCount + " boids in a " + simulation.getWorldWidth() + "x"
+            + simulation.getWorldHeight() + " world on port " + streamServer.getPort());
+
+        while (true) {
+            simulation.step(null);
+            streamServer.publish(simulation);
+            utils.pause(simulation.getSimulationDelayMs());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package streaming;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+import drawing.Canvas;
+import geometry.CartesianCoordinate;
+
+/**
+ * A lightweight window that shows a simulation streamed by a {@link StreamServer}, scaled to
+ * fit. Usage: {@code java -cp bin streaming.StreamViewer [host] [port]}.
+ *
+ * <p>Frames are read and decoded on a background thread. Only the newest decoded frame is
+ * drawn, so if drawing falls behind the viewer skips frames rather than lagging.
+ */
+public class StreamViewer {
+    private static final int DEFAULT_PORT = 9480;
+    private static final double ENTITY_LENGTH = 8;
+    private static final double ENTITY_WIDTH = 8;
+
+    private final Canvas canvas;
+    private final AtomicReference<Picture> pending = new AtomicReference<>();
+
+    /**
+     * What one decoded frame looks like: where everything is, copied so the Swing thread can
+     * draw it while the next frame is decoded.
+     */
+    private static final class Picture {
+        private final double worldWidth;
+        private final double worldHeight;
+        private final int[] obstacles;
+        private final double[] entities; // x, y, heading, 1 for predators, per entity
+
+        Picture(FrameDecoder decoder) {
+            this.worldWidth = decoder.getWorldWidth();
+            this.worldHeight = decoder.getWorldHeight();
+            this.obstacles = decoder.getObstacles();
+            this.entities = new double[4 * decoder.getCount()];
+            for (int i = 0; i < decoder.getCount(); i++) {
+                this.entities[4 * i] = decoder.getX(i);
+                this.entities[4 * i + 1] = decoder.getY(i);
+                this.entities[4 * i + 2] = decoder.getHeading(i);
+                this.entities[4 * i + 3] = decoder.isPredator(i) ? 1 : 0;
+            }
+        }
+    }
+
+    public StreamViewer(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    /**
+     * Reads frames until the server goes away.
+     */
+    private void receive(DataInputStream in) throws IOException {
+        if (in.readInt() != FrameFormat.MAGIC || in.readByte() != FrameFormat.VERSION) {
+            throw new IOException("Not a flocking stream, or a different version");
+        }
+        FrameDecoder decoder = new FrameDecoder();
+        while (true) {
+            byte[] frame = new byte[in.readInt()];
+            in.readFully(frame);
+            if (decoder.apply(frame) && this.pending.getAndSet(new Picture(decoder)) == null) {
+                SwingUtilities.invokeLater(this::drawPending);
+            }
+        }
+    }
+
+    private void drawPending() {
+        Picture picture = this.pending.getAndSet(null);
+        if (picture == null) {
+            return;
+        }
+        double scale = Math.min(this.canvas.getWidth() / picture.worldWidth, this.canvas.getHeight() / picture.worldHeight);
+        this.canvas.clear();
+        int[] obstacles = picture.obstacles;
+        for (int i = 0; i < obstacles.length; i += 4) {
+            double left = obstacles[i] * scale;
+            double top = obstacles[i + 1] * scale;
+            double right = (obstacles[i] + obstacles[i + 2]) * scale;
+            double bottom = (obstacles[i + 1] + obstacles[i + 3]) * scale;
+            CartesianCoordinate topLeft = new CartesianCoordinate(left, top);
+            CartesianCoordinate topRight = new CartesianCoordinate(right, top);
+            CartesianCoordinate bottomRight = new CartesianCoordinate(right, bottom);
+            CartesianCoordinate bottomLeft = new CartesianCoordinate(left, bottom);
+            this.canvas.drawLineBetweenPoints(topLeft, topRight, Color.BLUE);
+            this.canvas.drawLineBetweenPoints(topRight, bottomRight, Color.BLUE);
+            this.canvas.drawLineBetweenPoints(bottomRight, bottomLeft, Color.BLUE);
+            this.canvas.drawLineBetweenPoints(bottomLeft, topLeft, Color.BLUE);
+        }
+        double[] entities = picture.entities;
+        for (int i = 0; i < entities.length; i += 4) {
+            double x = entities[i] * scale;
+            double y = entities[i + 1] * scale;
+            double cos = Math.cos(entities[i + 2]);
+            double sin = Math.sin(entities[i + 2]);
+            Color color = entities[i + 3] == 1 ? Color.RED : Color.BLACK;
+            CartesianCoordinate front = new CartesianCoordinate(x + cos * ENTITY_LENGTH, y + sin * ENTITY_LENGTH);
+            CartesianCoordinate left = new CartesianCoordinate(x - sin * ENTITY_WIDTH / 2, y + cos * ENTITY_WIDTH / 2);
+            CartesianCoordinate right = new CartesianCoordinate(x + sin * ENTITY_WIDTH / 2, y - cos * ENTITY_WIDTH / 2);
+            this.canvas.drawLineBetweenPoints(front, left, color);
+            this.canvas.drawLineBetweenPoints(left, right, color);
+            this.canvas.drawLineBetweenPoints(right, front, color);
+        }
+        this.canvas.repaint();
+    }
+
+    public static void main(String[] args) {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        Canvas canvas = new Canvas();
+        canvas.setLineWidth(1);
+        StreamViewer viewer = new StreamViewer(canvas);
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Flocking Stream - " + host + ":" + port);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(canvas);
+            frame.setSize(800, 600);
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+        });
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(ViewerConnection.SOCKET_BUFFER_BYTES);
+            socket.connect(new InetSocketAddress(host, port));
+            viewer.receive(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+        } catch (EOFException e) {
+            System.out.println("The server stopped streaming");
+        } catch (IOException e) {
+            System.err.println("Could not watch " + host + ":" + port + ": " + e.getMessage());
+        }
+    }
+}
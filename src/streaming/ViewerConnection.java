@@ -0,0 +1,114 @@
+package streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One connected viewer, with its own sender thread so a slow viewer only slows itself.
+ *
+ * <p>The simulation thread offers every frame into a one-frame mailbox and never waits. If
+ * the viewer has not taken the previous frame by then, that frame is dropped in favour of
+ * the newer one, and since the viewer then has a gap, it gets the next frame it can take as
+ * a keyframe.
+ */
+final class ViewerConnection implements Runnable {
+    static final int SOCKET_BUFFER_BYTES = 64 * 1024; // A frame or two, so a slow viewer skips frames rather than falling behind
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final AtomicReference<Frame> mailbox = new AtomicReference<>();
+    private final Thread sender;
+    private volatile int lastSent = -1;
+    private volatile boolean open = true;
+    private long sentCount;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private long bytesSent;
+
+    ViewerConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        socket.setSendBufferSize(SOCKET_BUFFER_BYTES);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.sender = new Thread(this, "stream-viewer-" + socket.getRemoteSocketAddress());
+        this.sender.setDaemon(true);
+    }
+
+    void start() {
+        this.sender.start();
+    }
+
+    /**
+     * Hands a frame to the sender thread, replacing any frame it has not taken yet.
+     * Called on the simulation thread; never blocks.
+     */
+    void offer(Frame frame) {
+        if (this.mailbox.getAndSet(frame) != null) {
+            this.droppedCount.incrementAndGet();
+        }
+        LockSupport.unpark(this.sender);
+    }
+
+    /**
+     * @param frameNumber The frame about to be offered.
+     * @return Whether this viewer will need that frame as a keyframe.
+     */
+    boolean needsKeyframe(int frameNumber) {
+        return this.lastSent != frameNumber - 1;
+    }
+
+    boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void run() {
+        try {
+            this.out.writeInt(FrameFormat.MAGIC);
+            this.out.writeByte(FrameFormat.VERSION);
+            this.out.flush();
+            while (this.open) {
+                Frame frame = this.mailbox.getAndSet(null);
+                if (frame == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                byte[] bytes = frame.encodingFor(this.lastSent);
+                if (bytes == null) {
+                    // Went out of step after the frame was encoded; the next one will carry a keyframe
+                    this.lastSent = -1;
+                    this.droppedCount.incrementAndGet();
+                    continue;
+                }
+                this.out.writeInt(bytes.length);
+                this.out.write(bytes);
+                this.out.flush();
+                this.lastSent = frame.getNumber();
+                this.sentCount++;
+                this.bytesSent += bytes.length + 4;
+            }
+        } catch (IOException e) {
+            // The viewer went away
+        }
+        close();
+    }
+
+    synchronized void close() {
+        if (!this.open) {
+            return;
+        }
+        this.open = false;
+        LockSupport.unpark(this.sender);
+        try {
+            this.socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        System.out.println("Viewer " + this.socket.getRemoteSocketAddress() + " disconnected after " + this.sentCount
+            + " frames (" + this.droppedCount.get() + " dropped, " + this.bytesSent / 1024 + " KiB)");
+    }
+}
@@ -3,7 +3,19 @@ package tools;
 import java.util.Random;
 
 public class Utils {
-	private Random random = new Random();
+	private Random random;
+
+	public Utils() {
+		this.random = new Random();
+	}
+
+	/**
+	 * Creates a Utils whose random numbers are repeatable, e.g. for benchmarks.
+	 * @param seed The seed for the random number generator.
+	 */
+	public Utils(long seed) {
+		this.random = new Random(seed);
+	}
 	
 	/**
 	 * Generates a random integer between min (inclusive) and max (exclusive).
@@ -33,6 +45,14 @@ public class Utils {
 		return min + (max - min) * random.nextDouble();
 	}
 	
+	/**
+	 * Generates a random long, e.g. to seed another generator.
+	 * @return A random long.
+	 */
+	public long randomLong() {
+		return random.nextLong();
+	}
+	
 	/**
 	 * Pauses the current thread for a specified number of milliseconds.
 	 * @param millis The number of milliseconds to pause.